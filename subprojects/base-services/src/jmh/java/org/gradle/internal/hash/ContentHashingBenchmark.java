@@ -0,0 +1,91 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.hash;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+
+/**
+ * Compares the throughput of the content hash algorithms when hashing files the way file snapshotting does,
+ * i.e. by streaming the file content through a reused buffer.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+public class ContentHashingBenchmark {
+    @Param({"1024", "65536", "67108864"})
+    int fileSize;
+
+    @Param({"MD5", "MURMUR3"})
+    ContentHashAlgorithm algorithm;
+
+    File file;
+    byte[] buffer = new byte[8192];
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        file = File.createTempFile("content-hashing", ".bin");
+        byte[] content = new byte[8192];
+        Random random = new Random(1234L);
+        OutputStream outputStream = new FileOutputStream(file);
+        try {
+            for (int written = 0; written < fileSize; written += content.length) {
+                random.nextBytes(content);
+                outputStream.write(content, 0, Math.min(content.length, fileSize - written));
+            }
+        } finally {
+            outputStream.close();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Benchmark
+    public HashCode hashFile() throws IOException {
+        Hasher hasher = algorithm.getHashFunction().newHasher();
+        InputStream inputStream = new FileInputStream(file);
+        try {
+            int nread;
+            while ((nread = inputStream.read(buffer)) >= 0) {
+                hasher.putBytes(buffer, 0, nread);
+            }
+        } finally {
+            inputStream.close();
+        }
+        return hasher.hash();
+    }
+}
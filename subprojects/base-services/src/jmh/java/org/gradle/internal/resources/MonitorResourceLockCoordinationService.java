@@ -0,0 +1,137 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.internal.resources;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.gradle.api.Transformer;
+import org.gradle.internal.UncheckedException;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The previous implementation of {@link DefaultResourceLockCoordinationService}, which wakes up all waiting threads on every change.
+ */
+public class MonitorResourceLockCoordinationService implements ResourceLockCoordinationService {
+    private final Object lock = new Object();
+    private final ThreadLocal<List<ResourceLockState>> currentState = new ThreadLocal<List<ResourceLockState>>() {
+        @Override
+        protected List<ResourceLockState> initialValue() {
+            return Lists.newArrayList();
+        }
+    };
+
+    @Override
+    public boolean withStateLock(Transformer<ResourceLockState.Disposition, ResourceLockState> stateLockAction) {
+        while (true) {
+            MonitorResourceLockState resourceLockState = new MonitorResourceLockState();
+            ResourceLockState.Disposition disposition;
+            synchronized (lock) {
+                try {
+                    currentState.get().add(resourceLockState);
+                    disposition = stateLockAction.transform(resourceLockState);
+
+                    switch (disposition) {
+                        case RETRY:
+                            resourceLockState.releaseLocks();
+                            try {
+                                lock.wait();
+                            } catch (InterruptedException e) {
+                                throw UncheckedException.throwAsUncheckedException(e);
+                            }
+                            break;
+                        case FINISHED:
+                            if (resourceLockState.hasUnlockedResources()) {
+                                notifyStateChange();
+                            }
+                            return true;
+                        case FAILED:
+                            resourceLockState.releaseLocks();
+                            return false;
+                        default:
+                            throw new IllegalArgumentException("Unhandled disposition type: " + disposition.name());
+                    }
+                } catch (Throwable t) {
+                    resourceLockState.releaseLocks();
+                    throw UncheckedException.throwAsUncheckedException(t);
+                } finally {
+                    currentState.get().remove(resourceLockState);
+                }
+            }
+        }
+    }
+
+    @Override
+    public ResourceLockState getCurrent() {
+        List<ResourceLockState> states = currentState.get();
+        return states.isEmpty() ? null : states.get(states.size() - 1);
+    }
+
+    @Override
+    public void notifyStateChange() {
+        synchronized (lock) {
+            lock.notifyAll();
+        }
+    }
+
+    private static class MonitorResourceLockState implements ResourceLockState {
+        private Set<ResourceLock> lockedResources;
+        private Set<ResourceLock> unlockedResources;
+        boolean rollback;
+
+        @Override
+        public void registerLocked(ResourceLock resourceLock) {
+            if (!rollback && (unlockedResources == null || !unlockedResources.remove(resourceLock))) {
+                if (lockedResources == null) {
+                    lockedResources = Sets.newHashSet();
+                }
+                lockedResources.add(resourceLock);
+            }
+        }
+
+        @Override
+        public void registerUnlocked(ResourceLock resourceLock) {
+            if (!rollback && (lockedResources == null || !lockedResources.remove(resourceLock))) {
+                if (unlockedResources == null) {
+                    unlockedResources = Sets.newHashSet();
+                }
+                unlockedResources.add(resourceLock);
+            }
+        }
+
+        boolean hasUnlockedResources() {
+            return unlockedResources != null && !unlockedResources.isEmpty();
+        }
+
+        @Override
+        public void releaseLocks() {
+            if (lockedResources != null) {
+                rollback = true;
+                try {
+                    for (ResourceLock resourceLock : lockedResources) {
+                        resourceLock.unlock();
+                    }
+                    lockedResources.clear();
+                } finally {
+                    rollback = false;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.internal.resources;
+
+import org.gradle.internal.Actions;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.gradle.internal.resources.DefaultResourceLockCoordinationService.lock;
+import static org.gradle.internal.resources.DefaultResourceLockCoordinationService.unlock;
+
+/**
+ * Many threads repeatedly acquiring and releasing a few exclusive locks, like workers competing for project locks.
+ */
+@Fork(1)
+@Threads(32)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class ResourceLockCoordinationBenchmark {
+    @Param({"monitor", "fine-grained"})
+    String coordination;
+
+    @Param({"1", "4", "16"})
+    int lockCount;
+
+    // Work done while holding a lock, in JMH tokens
+    @Param({"0", "1000"})
+    long work;
+
+    private final AtomicInteger threadCount = new AtomicInteger();
+    private ResourceLockCoordinationService coordinationService;
+    private List<ResourceLock> locks;
+
+    @Setup(Level.Trial)
+    public void createLocks() {
+        coordinationService = coordination.equals("monitor") ? new MonitorResourceLockCoordinationService() : new DefaultResourceLockCoordinationService();
+        locks = new ArrayList<ResourceLock>(lockCount);
+        for (int i = 0; i < lockCount; i++) {
+            locks.add(new ExclusiveAccessResourceLock("lock" + i, coordinationService, Actions.<ResourceLock>doNothing(), Actions.<ResourceLock>doNothing()));
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadLock {
+        ResourceLock lock;
+
+        @Setup(Level.Trial)
+        public void selectLock(ResourceLockCoordinationBenchmark benchmark) {
+            lock = benchmark.locks.get(benchmark.threadCount.getAndIncrement() % benchmark.lockCount);
+        }
+    }
+
+    @Benchmark
+    public void lockAndUnlock(ThreadLock threadLock) {
+        coordinationService.withStateLock(lock(threadLock.lock));
+        Blackhole.consumeCPU(work);
+        coordinationService.withStateLock(unlock(threadLock.lock));
+    }
+}
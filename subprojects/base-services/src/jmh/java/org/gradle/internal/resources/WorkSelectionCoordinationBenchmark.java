@@ -0,0 +1,141 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.resources;
+
+import org.gradle.api.Transformer;
+import org.gradle.internal.Actions;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Many workers selecting work from a plan with few runnable nodes, like task workers waiting in {@code selectNext()} of a task execution plan.
+ * A worker holds its worker lease while it executes a node, and releases it when the node completes, which makes another node runnable.
+ *
+ * "per-lock" runs the selection as a plain action, which wakes up every waiting worker on each completion. "interchangeable" runs it as an
+ * {@link InterchangeableStateLockAction}, like the task workers do.
+ */
+@Fork(1)
+@Threads(32)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class WorkSelectionCoordinationBenchmark {
+    @Param({"monitor", "per-lock", "interchangeable"})
+    String coordination;
+
+    @Param({"1", "2", "4"})
+    int runnableNodes;
+
+    // Work done to execute a node, in JMH tokens
+    @Param({"0", "1000"})
+    long work;
+
+    private final AtomicInteger workerCount = new AtomicInteger();
+    private ResourceLockCoordinationService coordinationService;
+    // Guarded by the state lock
+    private int available;
+
+    @Setup(Level.Trial)
+    public void createPlan() {
+        coordinationService = coordination.equals("monitor") ? new MonitorResourceLockCoordinationService() : new DefaultResourceLockCoordinationService();
+        available = runnableNodes;
+    }
+
+    @State(Scope.Thread)
+    public static class Worker {
+        Transformer<ResourceLockState.Disposition, ResourceLockState> selectNode;
+        Transformer<ResourceLockState.Disposition, ResourceLockState> completeNode;
+
+        @Setup(Level.Trial)
+        public void createLease(WorkSelectionCoordinationBenchmark benchmark) {
+            ResourceLock lease = new ExclusiveAccessResourceLock("lease" + benchmark.workerCount.getAndIncrement(), benchmark.coordinationService, Actions.<ResourceLock>doNothing(), Actions.<ResourceLock>doNothing());
+            selectNode = benchmark.coordination.equals("interchangeable") ? new InterchangeableSelectNode(benchmark, lease) : new SelectNode(benchmark, lease);
+            completeNode = new CompleteNode(benchmark, lease);
+        }
+    }
+
+    @Benchmark
+    public void selectAndCompleteNode(Worker worker) {
+        coordinationService.withStateLock(worker.selectNode);
+        Blackhole.consumeCPU(work);
+        coordinationService.withStateLock(worker.completeNode);
+    }
+
+    private static class SelectNode implements Transformer<ResourceLockState.Disposition, ResourceLockState> {
+        final WorkSelectionCoordinationBenchmark plan;
+        private final ResourceLock lease;
+
+        SelectNode(WorkSelectionCoordinationBenchmark plan, ResourceLock lease) {
+            this.plan = plan;
+            this.lease = lease;
+        }
+
+        @Override
+        public ResourceLockState.Disposition transform(ResourceLockState resourceLockState) {
+            if (plan.available == 0 || !lease.tryLock()) {
+                return ResourceLockState.Disposition.RETRY;
+            }
+            plan.available--;
+            return ResourceLockState.Disposition.FINISHED;
+        }
+    }
+
+    private static class InterchangeableSelectNode extends SelectNode implements InterchangeableStateLockAction {
+        InterchangeableSelectNode(WorkSelectionCoordinationBenchmark plan, ResourceLock lease) {
+            super(plan, lease);
+        }
+
+        @Override
+        public Object getWaitGroup() {
+            return plan;
+        }
+    }
+
+    private static class CompleteNode implements Transformer<ResourceLockState.Disposition, ResourceLockState> {
+        private final WorkSelectionCoordinationBenchmark plan;
+        private final ResourceLock lease;
+
+        CompleteNode(WorkSelectionCoordinationBenchmark plan, ResourceLock lease) {
+            this.plan = plan;
+            this.lease = lease;
+        }
+
+        @Override
+        public ResourceLockState.Disposition transform(ResourceLockState resourceLockState) {
+            plan.available++;
+            lease.unlock();
+            return ResourceLockState.Disposition.FINISHED;
+        }
+    }
+}
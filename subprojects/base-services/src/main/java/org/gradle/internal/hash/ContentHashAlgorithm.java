@@ -0,0 +1,61 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.hash;
+
+/**
+ * The hash functions which can be used to hash file content.
+ *
+ * The algorithm is selected with the system property {@value #SYSTEM_PROPERTY} and defaults to {@link #MD5}.
+ */
+public enum ContentHashAlgorithm {
+    MD5(0, Hashing.md5()),
+    MURMUR3(1, Hashing.murmur3_128());
+
+    public static final String SYSTEM_PROPERTY = "org.gradle.internal.content-hash-algorithm";
+
+    private final byte id;
+    private final HashFunction hashFunction;
+
+    ContentHashAlgorithm(int id, HashFunction hashFunction) {
+        this.id = (byte) id;
+        this.hashFunction = hashFunction;
+    }
+
+    /**
+     * A stable identifier for this algorithm, which can be persisted together with hashes created by it.
+     */
+    public byte getId() {
+        return id;
+    }
+
+    public HashFunction getHashFunction() {
+        return hashFunction;
+    }
+
+    public static ContentHashAlgorithm fromSystemProperties() {
+        String value = System.getProperty(SYSTEM_PROPERTY);
+        if (value == null) {
+            return MD5;
+        }
+        for (ContentHashAlgorithm algorithm : values()) {
+            if (algorithm.name().equalsIgnoreCase(value)) {
+                return algorithm;
+            }
+        }
+        throw new IllegalArgumentException(String.format("Unknown content hash algorithm '%s' specified by system property '%s'.", value, SYSTEM_PROPERTY));
+    }
+}
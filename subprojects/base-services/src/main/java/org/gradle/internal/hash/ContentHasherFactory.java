@@ -19,4 +19,8 @@ package org.gradle.internal.hash;
 import org.gradle.internal.Factory;
 
 public interface ContentHasherFactory extends Factory<Hasher> {
+    /**
+     * The algorithm used by the hashers created by this factory.
+     */
+    ContentHashAlgorithm getAlgorithm();
 }
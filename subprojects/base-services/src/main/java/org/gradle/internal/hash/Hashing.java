@@ -34,6 +34,8 @@ public class Hashing {
 
     private static final HashFunction SHA1 = MessageDigestHashFunction.of("SHA-1");
 
+    private static final HashFunction MURMUR3_128 = new Murmur3_128HashFunction();
+
     public static HashFunction md5() {
         return MD5;
     }
@@ -42,6 +44,15 @@ public class Hashing {
         return SHA1;
     }
 
+    /**
+     * The 128-bit x64 variant of MurmurHash3, with a seed of zero. Produces the same hashes as Guava's {@code Hashing.murmur3_128()}.
+     *
+     * This is not a cryptographic hash function, but it is a lot faster than {@link #md5()} when hashing large amounts of data.
+     */
+    public static HashFunction murmur3_128() {
+        return MURMUR3_128;
+    }
+
     private static abstract class MessageDigestHashFunction implements HashFunction {
         public static MessageDigestHashFunction of(String algorithm) {
             MessageDigest prototype;
@@ -148,6 +159,12 @@ public class Hashing {
             digest.update(bytes, off, len);
         }
 
+        @Override
+        public void putBytes(ByteBuffer buffer) {
+            checkNotDone();
+            digest.update(buffer);
+        }
+
         @Override
         public HashCode hash() {
             done = true;
@@ -195,4 +212,220 @@ public class Hashing {
             putBytes(hashCode.getBytes());
         }
     }
+
+    private static class Murmur3_128HashFunction implements HashFunction {
+        @Override
+        public Hasher newHasher() {
+            return new Murmur3_128Hasher();
+        }
+
+        @Override
+        public HashCode hashBytes(byte[] bytes) {
+            Hasher hasher = newHasher();
+            hasher.putBytes(bytes);
+            return hasher.hash();
+        }
+
+        @Override
+        public HashCode hashString(CharSequence string) {
+            Hasher hasher = newHasher();
+            hasher.putString(string);
+            return hasher.hash();
+        }
+    }
+
+    /**
+     * Processes the input in 16 byte blocks directly from the arrays passed in, only the trailing bytes of each call are copied to an internal buffer.
+     */
+    private static class Murmur3_128Hasher implements Hasher {
+        private static final int BLOCK_SIZE = 16;
+        private static final long C1 = 0x87c37b91114253d5L;
+        private static final long C2 = 0x4cf5ad432745937fL;
+
+        private final byte[] pending = new byte[BLOCK_SIZE];
+        private int pendingLength;
+        private long h1;
+        private long h2;
+        private long length;
+        private boolean done;
+
+        private void checkNotDone() {
+            if (done) {
+                throw new IllegalStateException("Cannot reuse hasher");
+            }
+        }
+
+        @Override
+        public void putByte(byte value) {
+            checkNotDone();
+            pending[pendingLength++] = value;
+            if (pendingLength == BLOCK_SIZE) {
+                processBlock(getLongLittleEndian(pending, 0), getLongLittleEndian(pending, 8));
+                pendingLength = 0;
+            }
+        }
+
+        @Override
+        public void putBytes(byte[] bytes) {
+            putBytes(bytes, 0, bytes.length);
+        }
+
+        @Override
+        public void putBytes(byte[] bytes, int off, int len) {
+            checkNotDone();
+            int end = off + len;
+            if (pendingLength > 0) {
+                int count = Math.min(BLOCK_SIZE - pendingLength, len);
+                System.arraycopy(bytes, off, pending, pendingLength, count);
+                pendingLength += count;
+                off += count;
+                if (pendingLength < BLOCK_SIZE) {
+                    return;
+                }
+                processBlock(getLongLittleEndian(pending, 0), getLongLittleEndian(pending, 8));
+                pendingLength = 0;
+            }
+            while (end - off >= BLOCK_SIZE) {
+                processBlock(getLongLittleEndian(bytes, off), getLongLittleEndian(bytes, off + 8));
+                off += BLOCK_SIZE;
+            }
+            pendingLength = end - off;
+            System.arraycopy(bytes, off, pending, 0, pendingLength);
+        }
+
+        @Override
+        public void putBytes(ByteBuffer buffer) {
+            checkNotDone();
+            ByteBuffer bytes = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+            while (pendingLength > 0 && bytes.hasRemaining()) {
+                putByte(bytes.get());
+            }
+            while (bytes.remaining() >= BLOCK_SIZE) {
+                processBlock(bytes.getLong(), bytes.getLong());
+            }
+            while (bytes.hasRemaining()) {
+                putByte(bytes.get());
+            }
+            buffer.position(buffer.limit());
+        }
+
+        @Override
+        public void putInt(int value) {
+            for (int i = 0; i < 4; i++) {
+                putByte((byte) (value >>> (i * 8)));
+            }
+        }
+
+        @Override
+        public void putLong(long value) {
+            for (int i = 0; i < 8; i++) {
+                putByte((byte) (value >>> (i * 8)));
+            }
+        }
+
+        @Override
+        public void putDouble(double value) {
+            putLong(Double.doubleToRawLongBits(value));
+        }
+
+        @Override
+        public void putBoolean(boolean value) {
+            putByte((byte) (value ? 1 : 0));
+        }
+
+        @Override
+        public void putString(CharSequence value) {
+            putBytes(value.toString().getBytes(Charsets.UTF_8));
+        }
+
+        @Override
+        public void putHash(HashCode hashCode) {
+            putBytes(hashCode.getBytes());
+        }
+
+        private void processBlock(long k1, long k2) {
+            length += BLOCK_SIZE;
+
+            h1 ^= mixK1(k1);
+            h1 = Long.rotateLeft(h1, 27);
+            h1 += h2;
+            h1 = h1 * 5 + 0x52dce729;
+
+            h2 ^= mixK2(k2);
+            h2 = Long.rotateLeft(h2, 31);
+            h2 += h1;
+            h2 = h2 * 5 + 0x38495ab5;
+        }
+
+        @Override
+        public HashCode hash() {
+            checkNotDone();
+            done = true;
+            long k1 = 0;
+            long k2 = 0;
+            for (int i = pendingLength - 1; i >= 8; i--) {
+                k2 ^= (pending[i] & 0xffL) << ((i - 8) * 8);
+            }
+            for (int i = Math.min(pendingLength, 8) - 1; i >= 0; i--) {
+                k1 ^= (pending[i] & 0xffL) << (i * 8);
+            }
+            h1 ^= mixK1(k1);
+            h2 ^= mixK2(k2);
+            length += pendingLength;
+
+            h1 ^= length;
+            h2 ^= length;
+            h1 += h2;
+            h2 += h1;
+            h1 = fmix64(h1);
+            h2 = fmix64(h2);
+            h1 += h2;
+            h2 += h1;
+
+            byte[] bytes = new byte[BLOCK_SIZE];
+            putLongLittleEndian(bytes, 0, h1);
+            putLongLittleEndian(bytes, 8, h2);
+            return HashCode.fromBytesNoCopy(bytes);
+        }
+
+        private static long mixK1(long k1) {
+            k1 *= C1;
+            k1 = Long.rotateLeft(k1, 31);
+            k1 *= C2;
+            return k1;
+        }
+
+        private static long mixK2(long k2) {
+            k2 *= C2;
+            k2 = Long.rotateLeft(k2, 33);
+            k2 *= C1;
+            return k2;
+        }
+
+        private static long fmix64(long k) {
+            k ^= k >>> 33;
+            k *= 0xff51afd7ed558ccdL;
+            k ^= k >>> 33;
+            k *= 0xc4ceb9fe1a85ec53L;
+            k ^= k >>> 33;
+            return k;
+        }
+
+        private static long getLongLittleEndian(byte[] bytes, int off) {
+            return (bytes[off] & 0xffL)
+                | (bytes[off + 1] & 0xffL) << 8
+                | (bytes[off + 2] & 0xffL) << 16
+                | (bytes[off + 3] & 0xffL) << 24
+                | (bytes[off + 4] & 0xffL) << 32
+                | (bytes[off + 5] & 0xffL) << 40
+                | (bytes[off + 6] & 0xffL) << 48
+                | (bytes[off + 7] & 0xffL) << 56;
+        }
+
+        private static void putLongLittleEndian(byte[] bytes, int off, long value) {
+            for (int i = 0; i < 8; i++) {
+                bytes[off + i] = (byte) (value >>> (i * 8));
+            }
+        }
+    }
 }
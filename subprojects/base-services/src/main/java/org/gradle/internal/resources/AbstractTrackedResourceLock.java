@@ -82,6 +82,14 @@ public abstract class AbstractTrackedResourceLock implements ResourceLock {
         }
     }
 
+    /**
+     * Returns the key of the state this lock competes for with other locks. A thread which is blocked acquiring this lock is woken up when a lock with the same key is released.
+     * Defaults to the lock itself, for locks which can only be acquired once they have been released.
+     */
+    public Object getContentionKey() {
+        return this;
+    }
+
     abstract protected boolean acquireLock();
 
     abstract protected void releaseLock();
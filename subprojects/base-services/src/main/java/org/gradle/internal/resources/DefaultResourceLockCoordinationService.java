@@ -22,11 +22,23 @@ import org.gradle.api.Transformer;
 import org.gradle.internal.UncheckedException;
 
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * Coordinates changes to resource locks between threads.
+ *
+ * Threads which have to retry a change wait until a change by another thread could let them make progress. Threads which block acquiring locks using {@link #lock(Iterable)}
+ * only wait for locks which compete with the lock they could not acquire, see {@link AbstractTrackedResourceLock#getContentionKey()}. Threads which run an
+ * {@link InterchangeableStateLockAction} are woken up one per group at a time. All other threads are woken up whenever a lock is released, as the state they wait
+ * for is not known. {@link #notifyStateChange()} wakes up every waiting thread.
+ */
 public class DefaultResourceLockCoordinationService implements ResourceLockCoordinationService {
-    private final Object lock = new Object();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final List<Waiter> waiters = Lists.newArrayList();
     private final ThreadLocal<List<ResourceLockState>> currentState = new ThreadLocal<List<ResourceLockState>>() {
         @Override
         protected List<ResourceLockState> initialValue() {
@@ -36,42 +48,65 @@ public class DefaultResourceLockCoordinationService implements ResourceLockCoord
 
     @Override
     public boolean withStateLock(Transformer<ResourceLockState.Disposition, ResourceLockState> stateLockAction) {
+        Object waitGroup = waitGroupOf(stateLockAction);
+        boolean waited = false;
         while (true) {
             DefaultResourceLockState resourceLockState = new DefaultResourceLockState();
             ResourceLockState.Disposition disposition;
-            synchronized (lock) {
-                try {
-                    currentState.get().add(resourceLockState);
-                    disposition = stateLockAction.transform(resourceLockState);
-
-                    switch (disposition) {
-                        case RETRY:
-                            resourceLockState.releaseLocks();
-                            try {
-                                lock.wait();
-                            } catch (InterruptedException e) {
-                                throw UncheckedException.throwAsUncheckedException(e);
-                            }
-                            break;
-                        case FINISHED:
-                            maybeNotifyStateChange(resourceLockState);
-                            return true;
-                        case FAILED:
-                            resourceLockState.releaseLocks();
-                            return false;
-                        default:
-                            throw new IllegalArgumentException("Unhandled disposition type: " + disposition.name());
-                    }
-                } catch (Throwable t) {
-                    resourceLockState.releaseLocks();
-                    throw UncheckedException.throwAsUncheckedException(t);
-                } finally {
-                    currentState.get().remove(resourceLockState);
+            lock.lock();
+            try {
+                currentState.get().add(resourceLockState);
+                disposition = stateLockAction.transform(resourceLockState);
+
+                switch (disposition) {
+                    case RETRY:
+                        resourceLockState.releaseLocks();
+                        awaitStateChange(waitingFor(stateLockAction, resourceLockState), waitGroup);
+                        waited = true;
+                        break;
+                    case FINISHED:
+                        maybeNotifyStateChange(resourceLockState, waited ? waitGroup : null);
+                        return true;
+                    case FAILED:
+                        resourceLockState.releaseLocks();
+                        return false;
+                    default:
+                        throw new IllegalArgumentException("Unhandled disposition type: " + disposition.name());
                 }
+            } catch (Throwable t) {
+                resourceLockState.releaseLocks();
+                throw UncheckedException.throwAsUncheckedException(t);
+            } finally {
+                currentState.get().remove(resourceLockState);
+                lock.unlock();
             }
         }
     }
 
+    /**
+     * Returns the contention key of the lock a blocking {@link #lock(Iterable)} could not acquire, or null when it is not known what the action waits for.
+     */
+    private static Object waitingFor(Transformer<ResourceLockState.Disposition, ResourceLockState> stateLockAction, DefaultResourceLockState resourceLockState) {
+        if (stateLockAction instanceof AcquireLocks && resourceLockState.blockedOn instanceof AbstractTrackedResourceLock) {
+            return ((AbstractTrackedResourceLock) resourceLockState.blockedOn).getContentionKey();
+        }
+        return null;
+    }
+
+    private static Object waitGroupOf(Transformer<ResourceLockState.Disposition, ResourceLockState> stateLockAction) {
+        return stateLockAction instanceof InterchangeableStateLockAction ? ((InterchangeableStateLockAction) stateLockAction).getWaitGroup() : null;
+    }
+
+    private void awaitStateChange(Object contentionKey, Object waitGroup) throws InterruptedException {
+        Waiter waiter = new Waiter(lock.newCondition(), contentionKey, waitGroup);
+        waiters.add(waiter);
+        try {
+            waiter.condition.await();
+        } finally {
+            waiters.remove(waiter);
+        }
+    }
+
     @Override
     public ResourceLockState getCurrent() {
         if (!currentState.get().isEmpty()) {
@@ -82,21 +117,61 @@ public class DefaultResourceLockCoordinationService implements ResourceLockCoord
         }
     }
 
-    private void maybeNotifyStateChange(DefaultResourceLockState resourceLockState) {
-        if (resourceLockState.hasUnlockedResources()) {
-            notifyStateChange();
+    /**
+     * Wakes up the threads which may be able to make progress after the given change. A thread of a group which was woken up and then finished its action
+     * may have left work for another thread of the group, so it passes the wake-up on to the next thread of the group.
+     */
+    private void maybeNotifyStateChange(DefaultResourceLockState resourceLockState, Object finishedWaitGroup) {
+        Set<Object> signalledGroups = null;
+        boolean unlocked = resourceLockState.hasUnlockedResources();
+        Iterator<Waiter> iterator = waiters.iterator();
+        while (iterator.hasNext()) {
+            Waiter waiter = iterator.next();
+            if (waiter.waitGroup != null) {
+                if (!unlocked && waiter.waitGroup != finishedWaitGroup) {
+                    continue;
+                }
+                if (signalledGroups == null) {
+                    signalledGroups = Sets.newIdentityHashSet();
+                }
+                if (signalledGroups.add(waiter.waitGroup)) {
+                    // Removed, so that the next change wakes up another thread of the group, if this one has not woken up by then
+                    iterator.remove();
+                    waiter.condition.signal();
+                }
+            } else if (unlocked && (waiter.contentionKey == null || resourceLockState.hasUnlockedResourcesCompetingFor(waiter.contentionKey))) {
+                waiter.condition.signal();
+            }
         }
     }
 
     public void notifyStateChange() {
-        synchronized (lock) {
-            lock.notifyAll();
+        lock.lock();
+        try {
+            for (Waiter waiter : waiters) {
+                waiter.condition.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static class Waiter {
+        private final Condition condition;
+        private final Object contentionKey;
+        private final Object waitGroup;
+
+        Waiter(Condition condition, Object contentionKey, Object waitGroup) {
+            this.condition = condition;
+            this.contentionKey = contentionKey;
+            this.waitGroup = waitGroup;
         }
     }
 
     private static class DefaultResourceLockState implements ResourceLockState {
         private Set<ResourceLock> lockedResources;
         private Set<ResourceLock> unlockedResources;
+        private ResourceLock blockedOn;
         boolean rollback;
 
         @Override
@@ -123,6 +198,16 @@ public class DefaultResourceLockCoordinationService implements ResourceLockCoord
             return unlockedResources != null && !unlockedResources.isEmpty();
         }
 
+        boolean hasUnlockedResourcesCompetingFor(Object contentionKey) {
+            for (ResourceLock resourceLock : unlockedResources) {
+                // Other locks may compete for anything
+                if (!(resourceLock instanceof AbstractTrackedResourceLock) || ((AbstractTrackedResourceLock) resourceLock).getContentionKey().equals(contentionKey)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
         @Override
         public void releaseLocks() {
             if (lockedResources != null) {
@@ -194,6 +279,9 @@ public class DefaultResourceLockCoordinationService implements ResourceLockCoord
         public ResourceLockState.Disposition transform(ResourceLockState resourceLockState) {
             for (ResourceLock resourceLock : resourceLocks) {
                 if (!resourceLock.tryLock()) {
+                    if (resourceLockState instanceof DefaultResourceLockState) {
+                        ((DefaultResourceLockState) resourceLockState).blockedOn = resourceLock;
+                    }
                     return blocking ? ResourceLockState.Disposition.RETRY : ResourceLockState.Disposition.FAILED;
                 }
             }
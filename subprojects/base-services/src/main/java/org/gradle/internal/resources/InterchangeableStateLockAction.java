@@ -0,0 +1,33 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.resources;
+
+import org.gradle.api.Transformer;
+
+/**
+ * A state lock action which a group of threads run, where any thread of the group can make the progress that another thread of the group could make,
+ * such as the workers selecting the next node of an execution plan.
+ *
+ * When the action has to retry, the waiting threads of a group are woken up one at a time: a single thread of the group is woken up when a lock is released,
+ * and the next one when a thread of the group that was woken up finishes its action.
+ */
+public interface InterchangeableStateLockAction extends Transformer<ResourceLockState.Disposition, ResourceLockState> {
+    /**
+     * Returns the group of threads which run this action. Groups are compared by identity.
+     */
+    Object getWaitGroup();
+}
@@ -310,6 +310,12 @@ public class DefaultWorkerLeaseService implements WorkerLeaseService, Parallelis
             this.ownerThread = ownerThread;
         }
 
+        @Override
+        public Object getContentionKey() {
+            // All worker leases compete for the leases of the root
+            return root;
+        }
+
         @Override
         protected boolean doIsLocked() {
             return active;
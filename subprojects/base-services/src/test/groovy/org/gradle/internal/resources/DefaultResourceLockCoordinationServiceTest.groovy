@@ -21,6 +21,8 @@ import org.gradle.api.Transformer
 import org.gradle.test.fixtures.ConcurrentTestUtil
 import org.gradle.test.fixtures.concurrent.ConcurrentSpec
 
+import java.util.concurrent.atomic.AtomicInteger
+
 import static org.gradle.internal.resources.ResourceLockState.Disposition.*
 import static org.gradle.internal.resources.DefaultResourceLockCoordinationService.*
 
@@ -108,6 +110,100 @@ class DefaultResourceLockCoordinationServiceTest extends ConcurrentSpec {
         lock2.lockedState
     }
 
+    def "a thread blocked acquiring a lock is only woken up when a competing lock is released"() {
+        def attempts = new AtomicInteger()
+        def lock1 = new TestTrackedResourceLock("lock1", coordinationService, Mock(Action), Mock(Action), true) {
+            @Override
+            protected boolean acquireLock() {
+                attempts.incrementAndGet()
+                return super.acquireLock()
+            }
+        }
+        def lock2 = resourceLock("lock2", true, true)
+
+        when:
+        async {
+            start {
+                coordinationService.withStateLock(lock(lock1))
+                assert lock1.doIsLockedByCurrentThread()
+            }
+
+            ConcurrentTestUtil.poll {
+                assert attempts.get() == 1
+            }
+
+            coordinationService.withStateLock(unlock(lock2))
+
+            lock1.lockedState = false
+            coordinationService.withStateLock(new Transformer<ResourceLockState.Disposition, ResourceLockState>() {
+                @Override
+                ResourceLockState.Disposition transform(ResourceLockState resourceLockState) {
+                    resourceLockState.registerUnlocked(lock1)
+                    return FINISHED
+                }
+            })
+        }
+
+        then:
+        lock1.lockedState
+        !lock2.lockedState
+        attempts.get() == 2
+    }
+
+    def "threads running an interchangeable action are woken up one at a time"() {
+        def waitGroup = new Object()
+        def attempts = new AtomicInteger()
+        def available = new AtomicInteger()
+        def finished = new AtomicInteger()
+        def lock1 = resourceLock("lock1", true, true)
+        def takeWork = new InterchangeableStateLockAction() {
+            @Override
+            Object getWaitGroup() {
+                return waitGroup
+            }
+
+            @Override
+            ResourceLockState.Disposition transform(ResourceLockState resourceLockState) {
+                attempts.incrementAndGet()
+                if (available.get() == 0) {
+                    return RETRY
+                }
+                available.decrementAndGet()
+                return FINISHED
+            }
+        }
+
+        when:
+        async {
+            3.times {
+                start {
+                    coordinationService.withStateLock(takeWork)
+                    finished.incrementAndGet()
+                }
+            }
+            ConcurrentTestUtil.poll {
+                assert attempts.get() == 3
+            }
+
+            available.set(1)
+            coordinationService.withStateLock(unlock(lock1))
+
+            // One thread takes the work, and wakes up the next one, which finds no work
+            ConcurrentTestUtil.poll {
+                assert finished.get() == 1
+                assert attempts.get() == 5
+            }
+            Thread.sleep(100)
+            assert attempts.get() == 5
+
+            available.set(2)
+            coordinationService.notifyStateChange()
+        }
+
+        then:
+        finished.get() == 3
+    }
+
     def "can nest multiple calls to withStateLock"() {
         def lock = [
             resourceLock("lock1"),
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.caching.http.internal
+
+import org.gradle.api.UncheckedIOException
+import org.gradle.caching.BuildCacheEntryReader
+import org.gradle.caching.BuildCacheEntryWriter
+import org.gradle.caching.BuildCacheException
+import org.gradle.caching.BuildCacheKey
+import org.gradle.caching.BuildCacheService
+import org.gradle.internal.concurrent.ManagedExecutor
+import org.gradle.test.fixtures.concurrent.ConcurrentSpec
+
+class AsyncStoringBuildCacheServiceTest extends ConcurrentSpec {
+    def stored = Collections.synchronizedMap([:])
+    Closure onStore = {}
+    boolean closed
+    def delegate = new BuildCacheService() {
+        @Override
+        boolean load(BuildCacheKey key, BuildCacheEntryReader reader) {
+            return false
+        }
+
+        @Override
+        void store(BuildCacheKey key, BuildCacheEntryWriter writer) {
+            onStore.call(key.hashCode)
+            def output = new ByteArrayOutputStream()
+            writer.writeTo(output)
+            stored[key.hashCode] = output.toString()
+        }
+
+        @Override
+        void close() {
+            closed = true
+        }
+    }
+
+    def "returns before the entry has been stored"() {
+        def service = new AsyncStoringBuildCacheService(delegate, executorFactory.create("store", 1), 100)
+        onStore = {
+            thread.blockUntil.released
+            instant.uploaded
+        }
+
+        when:
+        async {
+            service.store(key("a"), entry("abc"))
+            instant.returned
+            instant.released
+            service.close()
+        }
+
+        then:
+        instant.returned < instant.uploaded
+        stored == [a: "abc"]
+        closed
+    }
+
+    def "blocks when the pending entries exceed the limit"() {
+        def service = new AsyncStoringBuildCacheService(delegate, executorFactory.create("store", 2), 5)
+        onStore = { String hash ->
+            if (hash == "a") {
+                thread.blockUntil.released
+            }
+            instant."${hash}Uploaded"
+        }
+
+        when:
+        async {
+            start {
+                service.store(key("a"), entry("abc"))
+                service.store(key("b"), entry("def"))
+                instant.secondReturned
+            }
+            start {
+                thread.block()
+                instant.released
+            }
+        }
+        service.close()
+
+        then:
+        instant.secondReturned > instant.aUploaded
+        stored == [a: "abc", b: "def"]
+    }
+
+    def "stores entries larger than the limit synchronously"() {
+        def executor = Mock(ManagedExecutor)
+        def service = new AsyncStoringBuildCacheService(delegate, executor, 2)
+
+        when:
+        service.store(key("a"), entry("abc"))
+
+        then:
+        stored == [a: "abc"]
+        0 * executor.execute(_)
+    }
+
+    def "reports failure of a background store on the next operation"() {
+        def service = new AsyncStoringBuildCacheService(delegate, inlineExecutor(), 100)
+        onStore = { String hash ->
+            throw new BuildCacheException("broken")
+        }
+
+        when:
+        service.store(key("a"), entry("abc"))
+
+        then:
+        noExceptionThrown()
+
+        when:
+        service.load(key("b"), Mock(BuildCacheEntryReader))
+
+        then:
+        def e = thrown BuildCacheException
+        e.message == "Could not store entry a in remote build cache: broken"
+
+        when:
+        service.close()
+
+        then:
+        noExceptionThrown()
+        closed
+    }
+
+    def "reports failure of a background store on close"() {
+        def service = new AsyncStoringBuildCacheService(delegate, inlineExecutor(), 100)
+        onStore = { String hash ->
+            throw new UncheckedIOException("broken")
+        }
+
+        when:
+        service.store(key("a"), entry("abc"))
+        service.close()
+
+        then:
+        def e = thrown UncheckedIOException
+        e.message == "Could not store entry a in remote build cache: broken"
+        closed
+    }
+
+    private ManagedExecutor inlineExecutor() {
+        Stub(ManagedExecutor) {
+            execute(_) >> { Runnable action -> action.run() }
+        }
+    }
+
+    private static BuildCacheKey key(String hash) {
+        return new BuildCacheKey() {
+            @Override
+            String getHashCode() {
+                return hash
+            }
+
+            @Override
+            String getDisplayName() {
+                return hash
+            }
+        }
+    }
+
+    private static BuildCacheEntryWriter entry(String content) {
+        return new BuildCacheEntryWriter() {
+            @Override
+            void writeTo(OutputStream output) throws IOException {
+                output << content.bytes
+            }
+
+            @Override
+            long getSize() {
+                return content.length()
+            }
+        }
+    }
+}
@@ -25,12 +25,14 @@ import org.gradle.caching.BuildCacheKey
 import org.gradle.caching.BuildCacheService
 import org.gradle.caching.BuildCacheServiceFactory
 import org.gradle.caching.http.HttpBuildCache
+import org.gradle.internal.concurrent.DefaultExecutorFactory
 import org.gradle.internal.resource.transport.http.DefaultSslContextFactory
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
 import org.gradle.test.fixtures.server.http.AuthScheme
 import org.gradle.test.fixtures.server.http.HttpResourceInteraction
 import org.gradle.test.fixtures.server.http.HttpServer
 import org.gradle.util.GradleVersion
+import org.gradle.util.SetSystemProperties
 import org.junit.Rule
 import spock.lang.Specification
 
@@ -53,6 +55,10 @@ class HttpBuildCacheServiceTest extends Specification {
     HttpServer server = new HttpServer()
     @Rule
     TestNameTestDirectoryProvider tempDir = new TestNameTestDirectoryProvider()
+    @Rule
+    SetSystemProperties systemProperties = new SetSystemProperties()
+
+    def executorFactory = new DefaultExecutorFactory()
 
     BuildCacheService cache
     BuildCacheServiceFactory.Describer buildCacheDescriber
@@ -75,11 +81,11 @@ class HttpBuildCacheServiceTest extends Specification {
     }
 
     def setup() {
+        // Store synchronously, so that failures are reported by the store itself
+        System.setProperty(DefaultHttpBuildCacheServiceFactory.MAX_PENDING_STORE_BYTES_PROPERTY, "0")
         server.start()
-        def config = new HttpBuildCache()
-        config.url = server.uri.resolve("/cache/")
         buildCacheDescriber = new NoopBuildCacheDescriber()
-        cache = new DefaultHttpBuildCacheServiceFactory(new DefaultSslContextFactory()).createBuildCacheService(config, buildCacheDescriber)
+        cache = new DefaultHttpBuildCacheServiceFactory(new DefaultSslContextFactory(), executorFactory).createBuildCacheService(config(), buildCacheDescriber)
     }
 
     def "can cache artifact"() {
@@ -119,6 +125,41 @@ class HttpBuildCacheServiceTest extends Specification {
         }
     }
 
+    def "can cache artifact in the background"() {
+        System.clearProperty(DefaultHttpBuildCacheServiceFactory.MAX_PENDING_STORE_BYTES_PROPERTY)
+        cache = new DefaultHttpBuildCacheServiceFactory(new DefaultSslContextFactory(), executorFactory).createBuildCacheService(config(), buildCacheDescriber)
+        def destFile = tempDir.file("cached.zip")
+        def content = "Data".bytes
+        server.expectPut("/cache/${key.hashCode}", destFile, HttpStatus.SC_OK, null, content.length)
+
+        when:
+        cache.store(key, writer(content))
+        cache.close()
+
+        then:
+        cache instanceof AsyncStoringBuildCacheService
+        destFile.bytes == content
+    }
+
+    def "reports error of store in the background on close"() {
+        System.clearProperty(DefaultHttpBuildCacheServiceFactory.MAX_PENDING_STORE_BYTES_PROPERTY)
+        cache = new DefaultHttpBuildCacheServiceFactory(new DefaultSslContextFactory(), executorFactory).createBuildCacheService(config(), buildCacheDescriber)
+        expectError(HttpStatus.SC_INTERNAL_SERVER_ERROR, 'PUT')
+
+        when:
+        cache.store(key, writer("".bytes))
+
+        then:
+        noExceptionThrown()
+
+        when:
+        cache.close()
+
+        then:
+        BuildCacheException exception = thrown()
+        exception.message == "Could not store entry ${key.displayName} in remote build cache: Storing entry at '${server.uri}/cache/${key.hashCode}' response status 500: broken"
+    }
+
     def "can load artifact from cache"() {
         def srcFile = tempDir.file("cached.zip")
         srcFile.text = "Data"
@@ -267,7 +308,7 @@ class HttpBuildCacheServiceTest extends Specification {
         configuration.url = server.uri.resolve("/cache/")
         configuration.credentials.username = 'user'
         configuration.credentials.password = 'password'
-        cache = new DefaultHttpBuildCacheServiceFactory(new DefaultSslContextFactory()).createBuildCacheService(configuration, buildCacheDescriber) as HttpBuildCacheService
+        cache = new DefaultHttpBuildCacheServiceFactory(new DefaultSslContextFactory(), executorFactory).createBuildCacheService(configuration, buildCacheDescriber) as HttpBuildCacheService
 
         server.authenticationScheme = AuthScheme.BASIC
 
@@ -293,6 +334,12 @@ class HttpBuildCacheServiceTest extends Specification {
         server.authenticationAttempts == ['Basic'] as Set
     }
 
+    private HttpBuildCache config() {
+        def config = new HttpBuildCache()
+        config.url = server.uri.resolve("/cache/")
+        return config
+    }
+
     private HttpResourceInteraction expectError(int httpCode, String method) {
         server.expect("/cache/${key.hashCode}", false, [method], new HttpServer.ActionSupport("return ${httpCode} broken") {
             @Override
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.caching.http.internal;
+
+import org.gradle.api.UncheckedIOException;
+import org.gradle.caching.BuildCacheEntryReader;
+import org.gradle.caching.BuildCacheEntryWriter;
+import org.gradle.caching.BuildCacheException;
+import org.gradle.caching.BuildCacheKey;
+import org.gradle.caching.BuildCacheService;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.ManagedExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Stores entries in a remote build cache without blocking the caller until the upload has finished.
+ *
+ * The entry is copied to memory and uploaded by the given executor. At most {@code maxPendingBytes} are held in memory for pending uploads,
+ * callers block until earlier uploads have finished when the limit is reached. Entries larger than the limit are stored synchronously.
+ *
+ * Since the caller has already returned when an upload fails, the failure is reported by the next call to {@link #load}, {@link #store} or {@link #close()}.
+ */
+public class AsyncStoringBuildCacheService implements BuildCacheService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AsyncStoringBuildCacheService.class);
+
+    private final BuildCacheService delegate;
+    private final ManagedExecutor executor;
+    private final long maxPendingBytes;
+    private final Object lock = new Object();
+    private long pendingBytes;
+    private RuntimeException storeFailure;
+    private boolean storeFailureReported;
+
+    public AsyncStoringBuildCacheService(BuildCacheService delegate, ManagedExecutor executor, long maxPendingBytes) {
+        this.delegate = delegate;
+        this.executor = executor;
+        this.maxPendingBytes = maxPendingBytes;
+    }
+
+    @Override
+    public boolean load(BuildCacheKey key, BuildCacheEntryReader reader) throws BuildCacheException {
+        rethrowStoreFailure();
+        return delegate.load(key, reader);
+    }
+
+    @Override
+    public void store(final BuildCacheKey key, BuildCacheEntryWriter writer) throws BuildCacheException {
+        rethrowStoreFailure();
+        final long size = writer.getSize();
+        if (size > maxPendingBytes) {
+            delegate.store(key, writer);
+            return;
+        }
+
+        reserve(size);
+        final byte[] content;
+        try {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream((int) size);
+            writer.writeTo(buffer);
+            content = buffer.toByteArray();
+        } catch (IOException e) {
+            release(size);
+            throw new BuildCacheException("Could not read build cache entry " + key.getDisplayName(), e);
+        } catch (RuntimeException e) {
+            release(size);
+            throw e;
+        }
+
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    delegate.store(key, new BufferedEntryWriter(content));
+                } catch (RuntimeException e) {
+                    storeFailed(key, e);
+                } finally {
+                    release(size);
+                }
+            }
+        });
+    }
+
+    private void reserve(long size) {
+        synchronized (lock) {
+            while (pendingBytes > 0 && pendingBytes + size > maxPendingBytes) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    throw UncheckedException.throwAsUncheckedException(e);
+                }
+            }
+            pendingBytes += size;
+        }
+    }
+
+    private void release(long size) {
+        synchronized (lock) {
+            pendingBytes -= size;
+            lock.notifyAll();
+        }
+    }
+
+    private void storeFailed(BuildCacheKey key, RuntimeException failure) {
+        synchronized (lock) {
+            if (storeFailure == null) {
+                String message = "Could not store entry " + key.getDisplayName() + " in remote build cache: " + failure.getMessage();
+                if (failure instanceof BuildCacheException) {
+                    storeFailure = new BuildCacheException(message, failure);
+                } else {
+                    storeFailure = new UncheckedIOException(message, failure);
+                }
+            } else {
+                LOGGER.debug("Could not store entry {} in remote build cache", key.getDisplayName(), failure);
+            }
+        }
+    }
+
+    private void rethrowStoreFailure() {
+        synchronized (lock) {
+            if (storeFailure != null && !storeFailureReported) {
+                storeFailureReported = true;
+                throw storeFailure;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            executor.stop();
+        } finally {
+            delegate.close();
+        }
+        rethrowStoreFailure();
+    }
+
+    private static class BufferedEntryWriter implements BuildCacheEntryWriter {
+        private final byte[] content;
+
+        BufferedEntryWriter(byte[] content) {
+            this.content = content;
+        }
+
+        @Override
+        public void writeTo(OutputStream output) throws IOException {
+            output.write(content);
+        }
+
+        @Override
+        public long getSize() {
+            return content.length;
+        }
+    }
+}
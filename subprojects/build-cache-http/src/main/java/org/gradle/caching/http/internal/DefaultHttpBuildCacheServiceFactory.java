@@ -24,6 +24,7 @@ import org.gradle.caching.BuildCacheServiceFactory;
 import org.gradle.caching.http.HttpBuildCache;
 import org.gradle.caching.http.HttpBuildCacheCredentials;
 import org.gradle.internal.authentication.DefaultBasicAuthentication;
+import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.resource.transport.http.DefaultHttpSettings;
 import org.gradle.internal.resource.transport.http.HttpClientHelper;
 import org.gradle.internal.resource.transport.http.SslContextFactory;
@@ -38,12 +39,20 @@ import java.util.Collections;
  * Build cache factory for HTTP backend.
  */
 public class DefaultHttpBuildCacheServiceFactory implements BuildCacheServiceFactory<HttpBuildCache> {
+    /**
+     * The maximum number of bytes of entries held in memory while they are uploaded in the background. Setting it to 0 stores entries synchronously.
+     */
+    public static final String MAX_PENDING_STORE_BYTES_PROPERTY = "org.gradle.caching.http.max-pending-store-bytes";
+    private static final long DEFAULT_MAX_PENDING_STORE_BYTES = 64L * 1024 * 1024;
+    private static final int MAX_CONCURRENT_STORES = 4;
 
     private final SslContextFactory sslContextFactory;
+    private final ExecutorFactory executorFactory;
 
     @Inject
-    public DefaultHttpBuildCacheServiceFactory(SslContextFactory sslContextFactory) {
+    public DefaultHttpBuildCacheServiceFactory(SslContextFactory sslContextFactory, ExecutorFactory executorFactory) {
         this.sslContextFactory = sslContextFactory;
+        this.executorFactory = executorFactory;
     }
 
     @Override
@@ -83,7 +92,12 @@ public class DefaultHttpBuildCacheServiceFactory implements BuildCacheServiceFac
             .config("authenticated", Boolean.toString(authenticated))
             .config("allowUntrustedServer", Boolean.toString(allowUntrustedServer));
 
-        return new HttpBuildCacheService(httpClientHelper, noUserInfoUrl);
+        HttpBuildCacheService service = new HttpBuildCacheService(httpClientHelper, noUserInfoUrl);
+        long maxPendingStoreBytes = Long.getLong(MAX_PENDING_STORE_BYTES_PROPERTY, DEFAULT_MAX_PENDING_STORE_BYTES);
+        if (maxPendingStoreBytes <= 0) {
+            return service;
+        }
+        return new AsyncStoringBuildCacheService(service, executorFactory.create("Build cache HTTP store", MAX_CONCURRENT_STORES), maxPendingStoreBytes);
     }
 
     @VisibleForTesting
@@ -19,6 +19,7 @@ package org.gradle.caching.internal.tasks;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import org.apache.commons.io.FileUtils;
+import org.gradle.caching.internal.compression.BuildCacheEntryCompression;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.Fork;
 import org.openjdk.jmh.annotations.Level;
@@ -55,6 +56,9 @@ public abstract class AbstractTaskOutputPackagingBenchmark {
         .put("tar.small", new AntTarPacker(2))
         .put("tar.large", new AntTarPacker(64))
         .put("tar.gz", new GzipPacker(new AntTarPacker(4)))
+        .put("tar.entry.gz", new CompressionPacker(new AntTarPacker(4), BuildCacheEntryCompression.GZIP))
+        .put("tar.entry.lz4", new CompressionPacker(new AntTarPacker(4), BuildCacheEntryCompression.LZ4))
+        .put("tar.entry.none", new CompressionPacker(new AntTarPacker(4), BuildCacheEntryCompression.NONE))
         .put("zip", new ZipPacker(4))
         .build();
 
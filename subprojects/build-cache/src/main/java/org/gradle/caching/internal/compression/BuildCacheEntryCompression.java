@@ -0,0 +1,135 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.compression;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The compression of build cache entries.
+ *
+ * <p>{@link #GZIP} is written without a header, so that such entries stay plain gzip files which older Gradle versions can load. All other codecs write
+ * a header which identifies them. Loading detects the compression from the header, and falls back to {@link #GZIP} when there is none.</p>
+ *
+ * <p>The compression used for storing entries is selected by the system property {@value #SYSTEM_PROPERTY}.</p>
+ */
+public enum BuildCacheEntryCompression {
+    NONE(0) {
+        @Override
+        protected OutputStream wrap(OutputStream output) {
+            return output;
+        }
+
+        @Override
+        protected InputStream unwrap(InputStream input) {
+            return input;
+        }
+    },
+    GZIP(1) {
+        @Override
+        protected OutputStream wrap(OutputStream output) throws IOException {
+            return new GZIPOutputStream(output);
+        }
+
+        @Override
+        protected InputStream unwrap(InputStream input) throws IOException {
+            return new GZIPInputStream(input);
+        }
+    },
+    LZ4(2) {
+        @Override
+        protected OutputStream wrap(OutputStream output) {
+            return new Lz4OutputStream(output);
+        }
+
+        @Override
+        protected InputStream unwrap(InputStream input) {
+            return new Lz4InputStream(input);
+        }
+    };
+
+    public static final String SYSTEM_PROPERTY = "org.gradle.caching.compression";
+
+    // Starts with a zero byte, which neither gzip nor tar files start with
+    private static final byte[] HEADER = {0, 'G', 'C'};
+    private static final int HEADER_LENGTH = HEADER.length + 1;
+
+    private final byte id;
+
+    BuildCacheEntryCompression(int id) {
+        this.id = (byte) id;
+    }
+
+    /**
+     * Returns a stream which compresses the data written to it into the given output. Closing the returned stream closes the given output.
+     */
+    public OutputStream compress(OutputStream output) throws IOException {
+        if (this != GZIP) {
+            output.write(HEADER);
+            output.write(id);
+        }
+        return wrap(output);
+    }
+
+    /**
+     * Returns a stream which decompresses the given input, using the compression it was written with. Closing the returned stream closes the given input.
+     */
+    public static InputStream decompress(InputStream input) throws IOException {
+        BufferedInputStream bufferedInput = new BufferedInputStream(input);
+        bufferedInput.mark(HEADER_LENGTH);
+        byte[] header = new byte[HEADER_LENGTH];
+        int read = 0;
+        while (read < HEADER_LENGTH) {
+            int count = bufferedInput.read(header, read, HEADER_LENGTH - read);
+            if (count < 0) {
+                break;
+            }
+            read += count;
+        }
+        if (read == HEADER_LENGTH && header[0] == HEADER[0] && header[1] == HEADER[1] && header[2] == HEADER[2]) {
+            for (BuildCacheEntryCompression compression : values()) {
+                if (compression != GZIP && compression.id == header[HEADER.length]) {
+                    return compression.unwrap(bufferedInput);
+                }
+            }
+            throw new IOException("Unknown build cache entry compression " + header[HEADER.length] + ".");
+        }
+        bufferedInput.reset();
+        return GZIP.unwrap(bufferedInput);
+    }
+
+    public static BuildCacheEntryCompression fromSystemProperties() {
+        String value = System.getProperty(SYSTEM_PROPERTY);
+        if (value == null) {
+            return GZIP;
+        }
+        for (BuildCacheEntryCompression compression : values()) {
+            if (compression.name().equalsIgnoreCase(value)) {
+                return compression;
+            }
+        }
+        throw new IllegalArgumentException(String.format("Unknown build cache entry compression '%s' specified by system property '%s'.", value, SYSTEM_PROPERTY));
+    }
+
+    protected abstract OutputStream wrap(OutputStream output) throws IOException;
+
+    protected abstract InputStream unwrap(InputStream input) throws IOException;
+}
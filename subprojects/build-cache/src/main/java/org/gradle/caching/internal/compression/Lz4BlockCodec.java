@@ -0,0 +1,181 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.compression;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Compresses and decompresses single blocks in the LZ4 block format.
+ *
+ * The compressor uses a single hash table probe per position, which trades some compression ratio for speed.
+ */
+class Lz4BlockCodec {
+    private static final int MIN_MATCH = 4;
+    private static final int LAST_LITERALS = 5;
+    private static final int MIN_LENGTH_FOR_MATCH = 12;
+    private static final int MAX_DISTANCE = 0xffff;
+    private static final int HASH_LOG = 14;
+    private static final int SKIP_STRENGTH = 6;
+
+    private final int[] hashTable = new int[1 << HASH_LOG];
+
+    static int maxCompressedLength(int length) {
+        return length + length / 255 + 16;
+    }
+
+    /**
+     * Compresses the given bytes into the target array, which must be at least {@link #maxCompressedLength(int)} long. Returns the compressed length.
+     */
+    int compress(byte[] source, int length, byte[] target) {
+        int anchor = 0;
+        int output = 0;
+        if (length >= MIN_LENGTH_FOR_MATCH) {
+            // Positions are stored off by one, so that 0 marks an empty slot
+            Arrays.fill(hashTable, 0);
+            int matchLimit = length - MIN_LENGTH_FOR_MATCH;
+            int matchEndLimit = length - LAST_LITERALS;
+            int position = 0;
+            while (position < matchLimit) {
+                int sequence = readInt(source, position);
+                int slot = hash(sequence);
+                int reference = hashTable[slot] - 1;
+                hashTable[slot] = position + 1;
+                if (reference < 0 || position - reference > MAX_DISTANCE || readInt(source, reference) != sequence) {
+                    // Skip faster through data which does not compress
+                    position += 1 + ((position - anchor) >>> SKIP_STRENGTH);
+                    continue;
+                }
+                while (position > anchor && reference > 0 && source[position - 1] == source[reference - 1]) {
+                    position--;
+                    reference--;
+                }
+                int matchEnd = position + MIN_MATCH;
+                while (matchEnd < matchEndLimit && source[matchEnd] == source[reference + matchEnd - position]) {
+                    matchEnd++;
+                }
+                output = writeSequence(source, anchor, position - anchor, position - reference, matchEnd - position, target, output);
+                position = matchEnd;
+                anchor = matchEnd;
+            }
+        }
+        return writeLastLiterals(source, anchor, length - anchor, target, output);
+    }
+
+    /**
+     * Decompresses a block into the target array, which must have room for exactly the uncompressed length.
+     */
+    static void decompress(byte[] source, int length, byte[] target, int uncompressedLength) throws IOException {
+        try {
+            int input = 0;
+            int output = 0;
+            while (true) {
+                int token = source[input++] & 0xff;
+                int literalLength = token >>> 4;
+                if (literalLength == 15) {
+                    int extra;
+                    do {
+                        extra = source[input++] & 0xff;
+                        literalLength += extra;
+                    } while (extra == 255);
+                }
+                if (input + literalLength > length || output + literalLength > uncompressedLength) {
+                    throw new IOException("Corrupt LZ4 block: literals exceed the block.");
+                }
+                System.arraycopy(source, input, target, output, literalLength);
+                input += literalLength;
+                output += literalLength;
+                if (input == length) {
+                    break;
+                }
+
+                int offset = (source[input] & 0xff) | ((source[input + 1] & 0xff) << 8);
+                input += 2;
+                int matchLength = token & 0x0f;
+                if (matchLength == 15) {
+                    int extra;
+                    do {
+                        extra = source[input++] & 0xff;
+                        matchLength += extra;
+                    } while (extra == 255);
+                }
+                matchLength += MIN_MATCH;
+                int reference = output - offset;
+                if (offset == 0 || reference < 0 || output + matchLength > uncompressedLength) {
+                    throw new IOException("Corrupt LZ4 block: invalid match.");
+                }
+                if (offset >= matchLength) {
+                    System.arraycopy(target, reference, target, output, matchLength);
+                    output += matchLength;
+                } else {
+                    // Overlapping match, which repeats the last bytes
+                    for (int i = 0; i < matchLength; i++) {
+                        target[output++] = target[reference++];
+                    }
+                }
+            }
+            if (output != uncompressedLength) {
+                throw new IOException("Corrupt LZ4 block: unexpected uncompressed length.");
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new IOException("Corrupt LZ4 block.", e);
+        }
+    }
+
+    private static int writeSequence(byte[] source, int literalStart, int literalLength, int offset, int matchLength, byte[] target, int output) {
+        int token = output++;
+        int remainingMatchLength = matchLength - MIN_MATCH;
+        target[token] = (byte) ((Math.min(literalLength, 15) << 4) | Math.min(remainingMatchLength, 15));
+        output = writeLength(literalLength, target, output);
+        System.arraycopy(source, literalStart, target, output, literalLength);
+        output += literalLength;
+        target[output++] = (byte) offset;
+        target[output++] = (byte) (offset >>> 8);
+        return writeLength(remainingMatchLength, target, output);
+    }
+
+    private static int writeLastLiterals(byte[] source, int literalStart, int literalLength, byte[] target, int output) {
+        target[output++] = (byte) (Math.min(literalLength, 15) << 4);
+        output = writeLength(literalLength, target, output);
+        System.arraycopy(source, literalStart, target, output, literalLength);
+        return output + literalLength;
+    }
+
+    /**
+     * Writes the part of a length which does not fit into the 4 bits of the token.
+     */
+    private static int writeLength(int length, byte[] target, int output) {
+        if (length < 15) {
+            return output;
+        }
+        int remaining = length - 15;
+        while (remaining >= 255) {
+            target[output++] = (byte) 255;
+            remaining -= 255;
+        }
+        target[output++] = (byte) remaining;
+        return output;
+    }
+
+    private static int readInt(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xff) | ((bytes[offset + 1] & 0xff) << 8) | ((bytes[offset + 2] & 0xff) << 16) | ((bytes[offset + 3] & 0xff) << 24);
+    }
+
+    private static int hash(int sequence) {
+        return (sequence * -1640531535) >>> (32 - HASH_LOG);
+    }
+}
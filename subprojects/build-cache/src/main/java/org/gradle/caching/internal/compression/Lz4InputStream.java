@@ -0,0 +1,121 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.compression;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.CRC32;
+
+/**
+ * Decompresses a stream written by {@link Lz4OutputStream}, verifying the checksum of each block.
+ */
+public class Lz4InputStream extends InputStream {
+    private final DataInputStream input;
+    private final byte[] block = new byte[Lz4OutputStream.BLOCK_SIZE];
+    private final byte[] compressed = new byte[Lz4BlockCodec.maxCompressedLength(Lz4OutputStream.BLOCK_SIZE)];
+    private final CRC32 checksum = new CRC32();
+    private int position;
+    private int length;
+    private boolean finished;
+
+    public Lz4InputStream(InputStream input) {
+        this.input = new DataInputStream(input);
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!ensureAvailable()) {
+            return -1;
+        }
+        return block[position++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int count) throws IOException {
+        if (count == 0) {
+            return 0;
+        }
+        if (!ensureAvailable()) {
+            return -1;
+        }
+        int chunk = Math.min(count, length - position);
+        System.arraycopy(block, position, bytes, offset, chunk);
+        position += chunk;
+        return chunk;
+    }
+
+    @Override
+    public int available() {
+        return length - position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+
+    private boolean ensureAvailable() throws IOException {
+        while (position == length) {
+            if (finished) {
+                return false;
+            }
+            readBlock();
+        }
+        return true;
+    }
+
+    private void readBlock() throws IOException {
+        int type;
+        try {
+            type = input.readUnsignedByte();
+        } catch (EOFException e) {
+            throw new EOFException("Unexpected end of LZ4 stream.");
+        }
+        if (type == Lz4OutputStream.END) {
+            finished = true;
+            position = 0;
+            length = 0;
+            return;
+        }
+        int uncompressedLength = input.readInt();
+        int storedLength = input.readInt();
+        int expectedChecksum = input.readInt();
+        if (uncompressedLength < 0 || uncompressedLength > block.length || storedLength < 0 || storedLength > compressed.length) {
+            throw new IOException("Corrupt LZ4 stream: invalid block length.");
+        }
+        if (type == Lz4OutputStream.STORED) {
+            if (storedLength != uncompressedLength) {
+                throw new IOException("Corrupt LZ4 stream: invalid block length.");
+            }
+            input.readFully(block, 0, uncompressedLength);
+        } else if (type == Lz4OutputStream.COMPRESSED) {
+            input.readFully(compressed, 0, storedLength);
+            Lz4BlockCodec.decompress(compressed, storedLength, block, uncompressedLength);
+        } else {
+            throw new IOException("Corrupt LZ4 stream: unknown block type " + type + ".");
+        }
+        checksum.reset();
+        checksum.update(block, 0, uncompressedLength);
+        if ((int) checksum.getValue() != expectedChecksum) {
+            throw new IOException("Corrupt LZ4 stream: checksum mismatch.");
+        }
+        position = 0;
+        length = uncompressedLength;
+    }
+}
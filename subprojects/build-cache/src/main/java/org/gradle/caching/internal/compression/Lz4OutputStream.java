@@ -0,0 +1,108 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.compression;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+
+/**
+ * Compresses a stream as a sequence of independently compressed LZ4 blocks, each with the CRC32 checksum of its contents.
+ *
+ * <p>Each block is written as a type byte, the uncompressed length, the stored length, the checksum and the stored bytes. Blocks which do not compress are stored as is.
+ * The stream ends with a block of type {@link #END}. This is a simpler framing than the LZ4 frame format.</p>
+ */
+public class Lz4OutputStream extends OutputStream {
+    static final int END = 0;
+    static final int COMPRESSED = 1;
+    static final int STORED = 2;
+    static final int BLOCK_SIZE = 64 * 1024;
+
+    private final DataOutputStream output;
+    private final Lz4BlockCodec codec = new Lz4BlockCodec();
+    private final byte[] block = new byte[BLOCK_SIZE];
+    private final byte[] compressed = new byte[Lz4BlockCodec.maxCompressedLength(BLOCK_SIZE)];
+    private final CRC32 checksum = new CRC32();
+    private int length;
+    private boolean closed;
+
+    public Lz4OutputStream(OutputStream output) {
+        this.output = new DataOutputStream(output);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (length == BLOCK_SIZE) {
+            writeBlock();
+        }
+        block[length++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int count) throws IOException {
+        int remaining = count;
+        int current = offset;
+        while (remaining > 0) {
+            if (length == BLOCK_SIZE) {
+                writeBlock();
+            }
+            int chunk = Math.min(remaining, BLOCK_SIZE - length);
+            System.arraycopy(bytes, current, block, length, chunk);
+            length += chunk;
+            current += chunk;
+            remaining -= chunk;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writeBlock();
+        output.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            writeBlock();
+            output.writeByte(END);
+            output.flush();
+        } finally {
+            output.close();
+        }
+    }
+
+    private void writeBlock() throws IOException {
+        if (length == 0) {
+            return;
+        }
+        checksum.reset();
+        checksum.update(block, 0, length);
+        int compressedLength = codec.compress(block, length, compressed);
+        boolean store = compressedLength >= length;
+        output.writeByte(store ? STORED : COMPRESSED);
+        output.writeInt(length);
+        output.writeInt(store ? length : compressedLength);
+        output.writeInt((int) checksum.getValue());
+        output.write(store ? block : compressed, 0, store ? length : compressedLength);
+        length = 0;
+    }
+}
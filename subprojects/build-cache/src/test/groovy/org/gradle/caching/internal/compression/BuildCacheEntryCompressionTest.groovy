@@ -0,0 +1,130 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.compression
+
+import org.gradle.util.SetSystemProperties
+import org.junit.Rule
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import java.util.zip.GZIPInputStream
+import java.util.zip.ZipException
+
+class BuildCacheEntryCompressionTest extends Specification {
+    @Rule
+    SetSystemProperties systemProperties = new SetSystemProperties()
+
+    @Unroll
+    def "can decompress #compression compressed data of #length bytes"() {
+        def random = new Random(length)
+        def data = new byte[length]
+        for (int i = 0; i < length; i++) {
+            // Use a small alphabet, so that the data compresses
+            data[i] = (byte) random.nextInt(4)
+        }
+
+        expect:
+        decompress(compress(compression, data)) == data
+
+        where:
+        [compression, length] << [BuildCacheEntryCompression.values(), [0, 1, 12, 13, 1000, 200 * 1024]].combinations()
+    }
+
+    def "can decompress data which does not compress"() {
+        def data = new byte[100000]
+        new Random(1).nextBytes(data)
+
+        expect:
+        decompress(compress(BuildCacheEntryCompression.LZ4, data)) == data
+    }
+
+    def "gzip compressed entries are plain gzip files"() {
+        def data = "some data".bytes
+        def compressed = compress(BuildCacheEntryCompression.GZIP, data)
+
+        expect:
+        new GZIPInputStream(new ByteArrayInputStream(compressed)).bytes == data
+    }
+
+    def "decompressing data without a known header assumes gzip"() {
+        when:
+        BuildCacheEntryCompression.decompress(new ByteArrayInputStream("corrupt".bytes)).bytes
+
+        then:
+        def e = thrown(ZipException)
+        e.message == "Not in GZIP format"
+    }
+
+    def "detects corrupt lz4 compressed data"() {
+        def data = ("some text " * 10000).bytes
+        def compressed = compress(BuildCacheEntryCompression.LZ4, data)
+        compressed[compressed.length - 10] ^= 0x55
+
+        when:
+        decompress(compressed)
+
+        then:
+        def e = thrown(IOException)
+        e.message.startsWith("Corrupt LZ4")
+    }
+
+    def "detects truncated lz4 compressed data"() {
+        def data = ("some text " * 10000).bytes
+        def compressed = compress(BuildCacheEntryCompression.LZ4, data)
+
+        when:
+        decompress(Arrays.copyOf(compressed, compressed.length - 1))
+
+        then:
+        thrown(EOFException)
+    }
+
+    def "selects compression from system property"() {
+        expect:
+        BuildCacheEntryCompression.fromSystemProperties() == BuildCacheEntryCompression.GZIP
+
+        when:
+        System.setProperty(BuildCacheEntryCompression.SYSTEM_PROPERTY, "lz4")
+
+        then:
+        BuildCacheEntryCompression.fromSystemProperties() == BuildCacheEntryCompression.LZ4
+
+        when:
+        System.setProperty(BuildCacheEntryCompression.SYSTEM_PROPERTY, "unknown")
+        BuildCacheEntryCompression.fromSystemProperties()
+
+        then:
+        thrown(IllegalArgumentException)
+    }
+
+    private static byte[] compress(BuildCacheEntryCompression compression, byte[] data) {
+        def output = new ByteArrayOutputStream()
+        def compressedOutput = compression.compress(output)
+        compressedOutput.write(data)
+        compressedOutput.close()
+        return output.toByteArray()
+    }
+
+    private static byte[] decompress(byte[] data) {
+        def input = BuildCacheEntryCompression.decompress(new ByteArrayInputStream(data))
+        try {
+            return input.bytes
+        } finally {
+            input.close()
+        }
+    }
+}
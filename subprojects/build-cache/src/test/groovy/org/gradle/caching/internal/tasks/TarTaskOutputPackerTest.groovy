@@ -38,6 +38,7 @@ import spock.lang.Specification
 import spock.lang.Unroll
 
 import java.util.concurrent.Callable
+import java.util.concurrent.Executors
 
 import static org.gradle.api.internal.tasks.OutputType.DIRECTORY
 import static org.gradle.api.internal.tasks.OutputType.FILE
@@ -331,6 +332,47 @@ class TarTaskOutputPackerTest extends Specification {
         0 * _
     }
 
+    def "can pack and unpack output directory with many files using a file access executor"() {
+        def executor = Executors.newFixedThreadPool(4)
+        packer = new TarTaskOutputPacker(fileSystem, streamHasher, stringInterner, executor)
+        def sourceOutputDir = temporaryFolder.file("source").createDir()
+        def contents = [:]
+        10.times { dirIndex ->
+            def dir = sourceOutputDir.file("dir-$dirIndex").createDir()
+            50.times { fileIndex ->
+                def content = "file $fileIndex in dir $dirIndex\n" * (fileIndex * 100)
+                dir.file("file-${fileIndex}.txt") << content
+                contents["dir-$dirIndex/file-${fileIndex}.txt"] = content
+            }
+        }
+        def sourceProperty = prop(DIRECTORY, sourceOutputDir)
+        def packedPaths = sourceProperty.outputSnapshots().keySet().collect { path ->
+            sourceOutputDir.toPath().relativize(new File(path).toPath()).toString().replace(File.separator, "/")
+        }
+        def targetOutputDir = temporaryFolder.file("target")
+        def output = new ByteArrayOutputStream()
+
+        when:
+        pack output, sourceProperty
+
+        then:
+        _ * fileSystem.getUnixMode(_) >> 0644
+
+        when:
+        def input = new ByteArrayInputStream(output.toByteArray())
+        def result = unpack input, prop(DIRECTORY, targetOutputDir)
+
+        then:
+        _ * fileSystem.chmod(_, _)
+        result.entries == 512
+        // Snapshots are reported in archive order, regardless of the order in which files were written
+        result.snapshots.get("test")*.relativePath*.pathString == ["target"] + packedPaths.tail()
+        contents.every { path, content -> targetOutputDir.file(path).text == content }
+
+        cleanup:
+        executor.shutdown()
+    }
+
     def pack(OutputStream output, TaskOutputOriginWriter writeOrigin = this.writeOrigin, PropertyDefinition... propertyDefs) {
         def propertySpecs = propertyDefs*.property as SortedSet
         def outputSnapshots = propertyDefs.collectEntries { propertyDef ->
@@ -92,7 +92,8 @@ class TaskOutputCacheCommandFactoryTest extends Specification {
         def result = load.load(input)
 
         then:
-        1 * taskOutputsGenerationListener.beforeTaskOutputChanged()
+        1 * taskProperties.getLocalStateFiles() >> localStateFiles
+        1 * taskOutputsGenerationListener.beforeTaskOutputChanged([outputDir.absolutePath, outputFile.absolutePath, localStateFile.absolutePath])
         1 * originFactory.createReader(task)
 
         then:
@@ -132,7 +133,8 @@ class TaskOutputCacheCommandFactoryTest extends Specification {
         command.load(input)
 
         then:
-        1 * taskOutputsGenerationListener.beforeTaskOutputChanged()
+        1 * taskProperties.getLocalStateFiles() >> localStateFiles
+        1 * taskOutputsGenerationListener.beforeTaskOutputChanged([outputFile.absolutePath, localStateFile.absolutePath])
         1 * originFactory.createReader(task)
 
         then:
@@ -167,7 +169,9 @@ class TaskOutputCacheCommandFactoryTest extends Specification {
         command.load(input)
 
         then:
-        1 * taskOutputsGenerationListener.beforeTaskOutputChanged()
+        1 * outputProperties.iterator() >> Collections.emptyIterator()
+        1 * taskProperties.getLocalStateFiles() >> localStateFiles
+        1 * taskOutputsGenerationListener.beforeTaskOutputChanged([localStateFile.absolutePath])
         1 * originFactory.createReader(task)
 
         then:
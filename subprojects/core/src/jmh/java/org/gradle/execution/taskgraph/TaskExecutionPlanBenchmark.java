@@ -0,0 +1,128 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.execution.taskgraph;
+
+import com.google.common.collect.ImmutableList;
+import org.gradle.api.Action;
+import org.gradle.api.Task;
+import org.gradle.api.internal.GradleInternal;
+import org.gradle.api.internal.project.ProjectInternal;
+import org.gradle.composite.internal.IncludedBuildTaskGraph;
+import org.gradle.initialization.DefaultBuildCancellationToken;
+import org.gradle.internal.concurrent.DefaultExecutorFactory;
+import org.gradle.internal.concurrent.DefaultParallelismConfiguration;
+import org.gradle.internal.resources.ResourceLockCoordinationService;
+import org.gradle.internal.work.WorkerLeaseService;
+import org.gradle.testfixtures.ProjectBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Plans and executes synthetic graphs of no-op tasks, to measure the scheduling overhead of {@link DefaultTaskExecutionPlan}.
+ */
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class TaskExecutionPlanBenchmark {
+    private static final int MAX_DEPENDENCIES = 4;
+    private static final Action<WorkInfo> NO_OP = new Action<WorkInfo>() {
+        @Override
+        public void execute(WorkInfo workInfo) {
+        }
+    };
+
+    @Param({"10000", "100000"})
+    int taskCount;
+
+    @Param({"1", "8"})
+    int maxWorkers;
+
+    private GradleInternal gradle;
+    private WorkerLeaseService workerLeaseService;
+    private IncludedBuildTaskGraph includedBuildTaskGraph;
+    private DefaultExecutorFactory executorFactory;
+    private DefaultTaskPlanExecutor planExecutor;
+    private List<Task> tasks;
+
+    @Setup(Level.Trial)
+    public void setupProject() {
+        ProjectInternal project = (ProjectInternal) ProjectBuilder.builder().build();
+        List<ProjectInternal> projects = new ArrayList<ProjectInternal>();
+        for (int i = 0; i < maxWorkers; i++) {
+            projects.add((ProjectInternal) ProjectBuilder.builder().withName("p" + i).withParent(project).build());
+        }
+
+        // Each task depends on a few randomly picked tasks declared before it, spread over several projects so they can run in parallel
+        Random random = new Random(1234);
+        tasks = new ArrayList<Task>(taskCount);
+        for (int i = 0; i < taskCount; i++) {
+            Task task = projects.get(i % projects.size()).getTasks().create("task" + i);
+            int dependencyCount = Math.min(i, random.nextInt(MAX_DEPENDENCIES + 1));
+            for (int j = 0; j < dependencyCount; j++) {
+                task.dependsOn(tasks.get(random.nextInt(i)));
+            }
+            tasks.add(task);
+        }
+
+        gradle = project.getGradle();
+        workerLeaseService = gradle.getServices().get(WorkerLeaseService.class);
+        includedBuildTaskGraph = gradle.getServices().get(IncludedBuildTaskGraph.class);
+        executorFactory = new DefaultExecutorFactory();
+        planExecutor = new DefaultTaskPlanExecutor(new DefaultParallelismConfiguration(true, maxWorkers), executorFactory, workerLeaseService, new DefaultBuildCancellationToken(), gradle.getServices().get(ResourceLockCoordinationService.class));
+    }
+
+    @TearDown(Level.Trial)
+    public void stopExecutors() {
+        executorFactory.stop();
+    }
+
+    @Benchmark
+    public DefaultTaskExecutionPlan planAndExecute() {
+        TaskInfoFactory taskInfoFactory = new TaskInfoFactory(gradle, includedBuildTaskGraph);
+        TaskDependencyResolver dependencyResolver = new TaskDependencyResolver(ImmutableList.<WorkInfoDependencyResolver>of(new TaskInfoWorkDependencyResolver(taskInfoFactory)));
+        DefaultTaskExecutionPlan executionPlan = new DefaultTaskExecutionPlan(workerLeaseService, gradle, taskInfoFactory, dependencyResolver);
+        executionPlan.addToTaskGraph(tasks);
+        executionPlan.determineExecutionPlan();
+
+        List<Throwable> failures = new ArrayList<Throwable>();
+        planExecutor.process(executionPlan, failures, NO_OP);
+        if (!failures.isEmpty()) {
+            throw new IllegalStateException("Executing the task graph failed", failures.get(0));
+        }
+        return executionPlan;
+    }
+}
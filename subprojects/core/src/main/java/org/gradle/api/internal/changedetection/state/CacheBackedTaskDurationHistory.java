@@ -0,0 +1,60 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.changedetection.state;
+
+import org.gradle.api.internal.TaskInternal;
+import org.gradle.cache.PersistentIndexedCache;
+import org.gradle.internal.serialize.BaseSerializerFactory;
+
+import javax.annotation.Nullable;
+
+/**
+ * Stores the durations of tasks in the task history store. The estimate gives the same weight to the latest execution as to all executions before it,
+ * so that it follows changes to the task without jumping on every outlier.
+ *
+ * The cache is only created when durations are first read or recorded, which only happens when critical path scheduling is enabled.
+ */
+public class CacheBackedTaskDurationHistory implements TaskDurationHistory {
+    private final TaskHistoryStore cacheAccess;
+    private PersistentIndexedCache<String, Long> taskDurationCache;
+
+    public CacheBackedTaskDurationHistory(TaskHistoryStore cacheAccess) {
+        this.cacheAccess = cacheAccess;
+    }
+
+    @Nullable
+    @Override
+    public Long getEstimatedDuration(TaskInternal task) {
+        return getCache().get(task.getPath());
+    }
+
+    @Override
+    public void recordDuration(TaskInternal task, long durationMillis) {
+        PersistentIndexedCache<String, Long> cache = getCache();
+        Long previousEstimate = cache.get(task.getPath());
+        long estimate = previousEstimate == null ? durationMillis : (previousEstimate + durationMillis) / 2;
+        cache.put(task.getPath(), estimate);
+    }
+
+    private synchronized PersistentIndexedCache<String, Long> getCache() {
+        if (taskDurationCache == null) {
+            taskDurationCache = cacheAccess.createCache("taskDurations", String.class, BaseSerializerFactory.LONG_SERIALIZER, 10000, false);
+        }
+        return taskDurationCache;
+    }
+}
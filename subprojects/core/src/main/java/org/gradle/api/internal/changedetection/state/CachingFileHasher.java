@@ -21,6 +21,7 @@ import org.gradle.api.file.FileTreeElement;
 import org.gradle.api.internal.cache.StringInterner;
 import org.gradle.cache.PersistentIndexedCache;
 import org.gradle.internal.file.FileMetadataSnapshot;
+import org.gradle.internal.hash.ContentHashAlgorithm;
 import org.gradle.internal.hash.FileHasher;
 import org.gradle.internal.hash.HashCode;
 import org.gradle.internal.nativeintegration.filesystem.FileSystem;
@@ -37,10 +38,15 @@ public class CachingFileHasher implements FileHasher {
     private final FileSystem fileSystem;
     private final StringInterner stringInterner;
     private final FileTimeStampInspector timestampInspector;
+    private final byte hashAlgorithm;
 
-    public CachingFileHasher(FileHasher delegate, TaskHistoryStore store, StringInterner stringInterner, FileTimeStampInspector timestampInspector, String cacheName, FileSystem fileSystem) {
+    /**
+     * @param hashAlgorithm the algorithm used by the delegate. Cached hashes created with a different algorithm are ignored.
+     */
+    public CachingFileHasher(FileHasher delegate, TaskHistoryStore store, StringInterner stringInterner, FileTimeStampInspector timestampInspector, String cacheName, FileSystem fileSystem, ContentHashAlgorithm hashAlgorithm) {
         this.delegate = delegate;
         this.fileSystem = fileSystem;
+        this.hashAlgorithm = hashAlgorithm.getId();
         this.cache = store.createCache(cacheName, String.class, new FileInfoSerializer(), 400000, true);
         this.stringInterner = stringInterner;
         this.timestampInspector = timestampInspector;
@@ -80,13 +86,13 @@ public class CachingFileHasher implements FileHasher {
         if (timestampInspector.timestampCanBeUsedToDetectFileChange(absolutePath, timestamp)) {
             FileInfo info = cache.get(absolutePath);
 
-            if (info != null && length == info.length && timestamp == info.timestamp) {
+            if (info != null && length == info.length && timestamp == info.timestamp && hashAlgorithm == info.hashAlgorithm) {
                 return info;
             }
         }
 
         HashCode hash = delegate.hash(file);
-        FileInfo info = new FileInfo(hash, length, timestamp);
+        FileInfo info = new FileInfo(hash, hashAlgorithm, length, timestamp);
         cache.put(stringInterner.intern(absolutePath), info);
         return info;
     }
@@ -98,11 +104,13 @@ public class CachingFileHasher implements FileHasher {
     @VisibleForTesting
     static class FileInfo {
         private final HashCode hash;
+        private final byte hashAlgorithm;
         private final long timestamp;
         private final long length;
 
-        public FileInfo(HashCode hash, long length, long timestamp) {
+        public FileInfo(HashCode hash, byte hashAlgorithm, long length, long timestamp) {
             this.hash = hash;
+            this.hashAlgorithm = hashAlgorithm;
             this.length = length;
             this.timestamp = timestamp;
         }
@@ -112,17 +120,31 @@ public class CachingFileHasher implements FileHasher {
         }
     }
 
+    /**
+     * Each entry starts with the format version, followed by the id of the {@link ContentHashAlgorithm} used to create the hash.
+     */
     private static class FileInfoSerializer extends AbstractSerializer<FileInfo> {
+        private static final byte FORMAT_VERSION = 2;
+        private static final byte UNKNOWN_HASH_ALGORITHM = -1;
+
         private final HashCodeSerializer hashCodeSerializer = new HashCodeSerializer();
 
         public FileInfo read(Decoder decoder) throws Exception {
+            byte version = decoder.readByte();
+            if (version != FORMAT_VERSION) {
+                // Written in a different format, never matches any file and is replaced on the next update
+                return new FileInfo(null, UNKNOWN_HASH_ALGORITHM, -1, -1);
+            }
+            byte hashAlgorithm = decoder.readByte();
             HashCode hash = hashCodeSerializer.read(decoder);
             long timestamp = decoder.readLong();
             long length = decoder.readLong();
-            return new FileInfo(hash, length, timestamp);
+            return new FileInfo(hash, hashAlgorithm, length, timestamp);
         }
 
         public void write(Encoder encoder, FileInfo value) throws Exception {
+            encoder.writeByte(FORMAT_VERSION);
+            encoder.writeByte(value.hashAlgorithm);
             hashCodeSerializer.write(encoder, value.hash);
             encoder.writeLong(value.timestamp);
             encoder.writeLong(value.length);
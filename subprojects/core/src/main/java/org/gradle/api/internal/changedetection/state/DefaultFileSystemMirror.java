@@ -18,28 +18,65 @@ package org.gradle.api.internal.changedetection.state;
 
 import org.gradle.api.internal.tasks.execution.TaskOutputChangesListener;
 import org.gradle.initialization.RootBuildLifecycleListener;
+import org.gradle.internal.operations.BuildOperationListener;
+import org.gradle.internal.operations.CurrentBuildOperationRef;
+import org.gradle.internal.operations.OperationIdentifier;
+import org.gradle.internal.operations.OperationProgressEvent;
+import org.gradle.internal.time.Clock;
+import org.gradle.process.internal.health.memory.HeapMemoryHolder;
 
 import javax.annotation.Nullable;
+import java.io.File;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * See {@link DefaultFileSystemSnapshotter} for some more details
  */
-public class DefaultFileSystemMirror implements FileSystemMirror, TaskOutputChangesListener, RootBuildLifecycleListener {
+public class DefaultFileSystemMirror implements FileSystemMirror, TaskOutputChangesListener, RootBuildLifecycleListener, HeapMemoryHolder {
+    private static final char SEPARATOR = File.separatorChar;
+
     // Maps from interned absolute path for a file to known details for the file.
-    private final Map<String, FileSnapshot> files = new ConcurrentHashMap<String, FileSnapshot>();
+    // The maps for files that do not live in an append-only cache are sorted by path, so that all state for a subtree can be found by a range lookup.
+    private final NavigableMap<String, FileSnapshot> files = new ConcurrentSkipListMap<String, FileSnapshot>();
     private final Map<String, FileSnapshot> cacheFiles = new ConcurrentHashMap<String, FileSnapshot>();
     // Maps from interned absolute path for a directory to known details for the directory.
-    private final Map<String, FileTreeSnapshot> trees = new ConcurrentHashMap<String, FileTreeSnapshot>();
+    private final NavigableMap<String, FileTreeSnapshot> trees = new ConcurrentSkipListMap<String, FileTreeSnapshot>();
     private final Map<String, FileTreeSnapshot> cacheTrees = new ConcurrentHashMap<String, FileTreeSnapshot>();
     // Maps from interned absolute path to a snapshot
-    private final Map<String, Snapshot> snapshots = new ConcurrentHashMap<String, Snapshot>();
+    private final NavigableMap<String, Snapshot> snapshots = new ConcurrentSkipListMap<String, Snapshot>();
     private final Map<String, Snapshot> cacheSnapshots = new ConcurrentHashMap<String, Snapshot>();
     private final WellKnownFileLocations wellKnownFileLocations;
+    private final FileSystemMirrorRetention retention;
+    private final FileSystemMirrorRetention.Invalidator invalidator = new FileSystemMirrorRetention.Invalidator() {
+        @Override
+        public void invalidate(Iterable<String> paths) {
+            beforeTaskOutputChanged(paths);
+        }
+
+        @Override
+        public void invalidateAll() {
+            beforeTaskOutputChanged();
+        }
+    };
+    private final BuildOperationListener buildOperationListener;
+    private final Clock clock;
 
-    public DefaultFileSystemMirror(WellKnownFileLocations wellKnownFileLocations) {
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong invalidatedEntries = new AtomicLong();
+
+    public DefaultFileSystemMirror(WellKnownFileLocations wellKnownFileLocations, FileSystemMirrorRetention retention, BuildOperationListener buildOperationListener, Clock clock) {
         this.wellKnownFileLocations = wellKnownFileLocations;
+        this.retention = retention;
+        this.buildOperationListener = buildOperationListener;
+        this.clock = clock;
     }
 
     @Nullable
@@ -48,9 +85,9 @@ public class DefaultFileSystemMirror implements FileSystemMirror, TaskOutputChan
         // Could potentially also look whether we have the details for an ancestor directory tree
         // Could possibly infer that the path refers to a directory, if we have details for a descendant path (and it's not a missing file)
         if (wellKnownFileLocations.isImmutable(path)) {
-            return cacheFiles.get(path);
+            return record(cacheFiles.get(path));
         } else {
-            return files.get(path);
+            return record(files.get(path));
         }
     }
 
@@ -67,9 +104,9 @@ public class DefaultFileSystemMirror implements FileSystemMirror, TaskOutputChan
     @Override
     public Snapshot getContent(String path) {
         if (wellKnownFileLocations.isImmutable(path)) {
-            return cacheSnapshots.get(path);
+            return record(cacheSnapshots.get(path));
         } else {
-            return snapshots.get(path);
+            return record(snapshots.get(path));
         }
     }
 
@@ -88,9 +125,9 @@ public class DefaultFileSystemMirror implements FileSystemMirror, TaskOutputChan
         // Could potentially also look whether we have the details for an ancestor directory tree
         // Could possibly also short-circuit some scanning if we have details for some sub trees
         if (wellKnownFileLocations.isImmutable(path)) {
-            return cacheTrees.get(path);
+            return record(cacheTrees.get(path));
         } else {
-            return trees.get(path);
+            return record(trees.get(path));
         }
     }
 
@@ -105,11 +142,96 @@ public class DefaultFileSystemMirror implements FileSystemMirror, TaskOutputChan
 
     @Override
     public void beforeTaskOutputChanged() {
-        // When the task outputs are generated, throw away all state for files that do not live in an append-only cache.
-        // This is intentionally very simple, to be improved later
+        // When the task outputs are generated and we do not know where, throw away all state for files that do not live in an append-only cache.
+        int invalidated = files.size() + trees.size() + snapshots.size();
         files.clear();
         trees.clear();
         snapshots.clear();
+        invalidated(invalidated);
+    }
+
+    @Override
+    public void beforeTaskOutputChanged(Iterable<String> affectedOutputPaths) {
+        // Throw away the state for the affected locations, everything below them and every directory containing them.
+        // State for unrelated locations, and for files that live in an append-only cache, is kept.
+        int invalidated = 0;
+        for (String path : affectedOutputPaths) {
+            if (wellKnownFileLocations.isImmutable(path)) {
+                continue;
+            }
+            invalidated += invalidateHierarchy(files, path);
+            invalidated += invalidateHierarchy(trees, path);
+            invalidated += invalidateHierarchy(snapshots, path);
+        }
+        invalidated(invalidated);
+    }
+
+    private static int invalidateHierarchy(NavigableMap<String, ?> entries, String path) {
+        int invalidated = 0;
+        NavigableMap<String, ?> descendants = descendantsOf(entries, path);
+        while (descendants.pollFirstEntry() != null) {
+            invalidated++;
+        }
+        for (String current = path; current != null; current = parentOf(current)) {
+            if (entries.remove(current) != null) {
+                invalidated++;
+            }
+        }
+        return invalidated;
+    }
+
+    private static NavigableMap<String, ?> descendantsOf(NavigableMap<String, ?> entries, String path) {
+        // All descendants of a path share the prefix "path + separator", and sort before "path + (separator + 1)"
+        String prefix = path.length() > 0 && path.charAt(path.length() - 1) == SEPARATOR ? path.substring(0, path.length() - 1) : path;
+        return entries.subMap(prefix + SEPARATOR, true, prefix + (char) (SEPARATOR + 1), false);
+    }
+
+    @Nullable
+    private static String parentOf(String path) {
+        int index = path.lastIndexOf(SEPARATOR);
+        if (index == path.length() - 1) {
+            index = path.lastIndexOf(SEPARATOR, index - 1);
+        }
+        if (index < 0) {
+            return null;
+        }
+        // Keep the separator of a file system root, e.g. "/" or "C:\"
+        return path.substring(0, path.indexOf(SEPARATOR) == index ? index + 1 : index);
+    }
+
+    @Override
+    public void releaseHeapMemory() {
+        // Everything can be snapshotted again, so throw away all state including the state for files that live in an append-only cache
+        int invalidated = files.size() + trees.size() + snapshots.size() + cacheFiles.size() + cacheTrees.size() + cacheSnapshots.size();
+        files.clear();
+        trees.clear();
+        snapshots.clear();
+        cacheFiles.clear();
+        cacheTrees.clear();
+        cacheSnapshots.clear();
+        invalidated(invalidated);
+    }
+
+    @Nullable
+    private <T> T record(@Nullable T value) {
+        if (value == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        return value;
+    }
+
+    private void invalidated(int count) {
+        invalidatedEntries.addAndGet(count);
+        OperationIdentifier currentOperation = CurrentBuildOperationRef.instance().getId();
+        if (currentOperation != null) {
+            buildOperationListener.progress(currentOperation, new OperationProgressEvent(clock.getCurrentTime(), getStatistics()));
+        }
+    }
+
+    public FileSystemMirrorStatistics getStatistics() {
+        return new DefaultFileSystemMirrorStatistics(hits.get(), misses.get(), invalidatedEntries.get());
     }
 
     @Override
@@ -118,12 +240,77 @@ public class DefaultFileSystemMirror implements FileSystemMirror, TaskOutputChan
 
     @Override
     public void beforeComplete() {
-        // We throw away all state between builds
-        files.clear();
+        // State for files that live in an append-only cache is not watched, so we throw it away between builds
         cacheFiles.clear();
-        trees.clear();
         cacheTrees.clear();
-        snapshots.clear();
         cacheSnapshots.clear();
+
+        // Other state is only kept when it is known that it will not become stale before the next build
+        Set<String> locations = new HashSet<String>();
+        locations.addAll(files.keySet());
+        locations.addAll(trees.keySet());
+        locations.addAll(snapshots.keySet());
+        Set<String> retained = retention.retain(locations, invalidator);
+        discardUnlessRetained(files, retained);
+        discardUnlessRetained(trees, retained);
+        discardUnlessRetained(snapshots, retained);
+
+        hits.set(0);
+        misses.set(0);
+        invalidatedEntries.set(0);
+    }
+
+    private static void discardUnlessRetained(NavigableMap<String, ?> entries, Set<String> retained) {
+        if (retained.isEmpty()) {
+            entries.clear();
+            return;
+        }
+        Iterator<String> paths = entries.keySet().iterator();
+        while (paths.hasNext()) {
+            if (!isRetained(paths.next(), retained)) {
+                paths.remove();
+            }
+        }
+    }
+
+    private static boolean isRetained(String path, Set<String> retained) {
+        for (String current = path; current != null; current = parentOf(current)) {
+            if (retained.contains(current)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static class DefaultFileSystemMirrorStatistics implements FileSystemMirrorStatistics {
+        private final long hits;
+        private final long misses;
+        private final long invalidatedEntries;
+
+        DefaultFileSystemMirrorStatistics(long hits, long misses, long invalidatedEntries) {
+            this.hits = hits;
+            this.misses = misses;
+            this.invalidatedEntries = invalidatedEntries;
+        }
+
+        @Override
+        public long getHits() {
+            return hits;
+        }
+
+        @Override
+        public long getMisses() {
+            return misses;
+        }
+
+        @Override
+        public long getInvalidatedEntries() {
+            return invalidatedEntries;
+        }
+
+        @Override
+        public String toString() {
+            return "hits: " + hits + ", misses: " + misses + ", invalidated entries: " + invalidatedEntries;
+        }
     }
 }
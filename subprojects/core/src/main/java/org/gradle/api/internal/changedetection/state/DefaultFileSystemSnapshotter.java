@@ -20,6 +20,7 @@ import com.google.common.base.Predicate;
 import com.google.common.collect.Collections2;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Futures;
 import org.gradle.api.file.FileTreeElement;
 import org.gradle.api.file.FileVisitDetails;
 import org.gradle.api.file.FileVisitor;
@@ -35,16 +36,30 @@ import org.gradle.cache.internal.ProducerGuard;
 import org.gradle.caching.internal.BuildCacheHasher;
 import org.gradle.caching.internal.DefaultBuildCacheHasher;
 import org.gradle.internal.Factory;
+import org.gradle.internal.UncheckedException;
 import org.gradle.internal.file.FileMetadataSnapshot;
 import org.gradle.internal.file.FileType;
 import org.gradle.internal.hash.FileHasher;
+import org.gradle.internal.hash.FileHashingStatistics;
+import org.gradle.internal.hash.FileHashingStatisticsCollector;
 import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.nativeintegration.filesystem.DefaultFileMetadata;
 import org.gradle.internal.nativeintegration.filesystem.FileSystem;
+import org.gradle.internal.operations.BuildOperationListener;
+import org.gradle.internal.operations.CurrentBuildOperationRef;
+import org.gradle.internal.operations.OperationIdentifier;
+import org.gradle.internal.operations.OperationProgressEvent;
+import org.gradle.internal.time.Clock;
 import org.gradle.normalization.internal.InputNormalizationStrategy;
 
 import java.io.File;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 /**
  * Responsible for snapshotting various aspects of the file system.
@@ -67,13 +82,22 @@ public class DefaultFileSystemSnapshotter implements FileSystemSnapshotter {
     private final ProducerGuard<String> producingTrees = ProducerGuard.striped();
     private final ProducerGuard<String> producingAllSnapshots = ProducerGuard.striped();
     private final DefaultGenericFileCollectionSnapshotter snapshotter;
+    private final Executor hashingExecutor;
+    private final BuildOperationListener buildOperationListener;
+    private final Clock clock;
 
-    public DefaultFileSystemSnapshotter(FileHasher hasher, StringInterner stringInterner, FileSystem fileSystem, DirectoryFileTreeFactory directoryFileTreeFactory, FileSystemMirror fileSystemMirror) {
+    /**
+     * @param hashingExecutor used to hash the regular files of directory trees in parallel. The calling thread hashes any files the executor has not started on yet.
+     */
+    public DefaultFileSystemSnapshotter(FileHasher hasher, StringInterner stringInterner, FileSystem fileSystem, DirectoryFileTreeFactory directoryFileTreeFactory, FileSystemMirror fileSystemMirror, Executor hashingExecutor, BuildOperationListener buildOperationListener, Clock clock) {
         this.hasher = hasher;
         this.stringInterner = stringInterner;
         this.fileSystem = fileSystem;
         this.directoryFileTreeFactory = directoryFileTreeFactory;
         this.fileSystemMirror = fileSystemMirror;
+        this.hashingExecutor = hashingExecutor;
+        this.buildOperationListener = buildOperationListener;
+        this.clock = clock;
         snapshotter = new DefaultGenericFileCollectionSnapshotter(stringInterner, directoryFileTreeFactory, this);
     }
 
@@ -180,16 +204,24 @@ public class DefaultFileSystemSnapshotter implements FileSystemSnapshotter {
     }
 
     @Override
-    public List<FileSnapshot> snapshotTree(FileTreeInternal tree) {
-        List<FileSnapshot> elements = Lists.newArrayList();
-        tree.visitTreeOrBackingFile(new FileVisitorImpl(elements));
+    public List<FileSnapshot> snapshotTree(final FileTreeInternal tree) {
+        // The elements of arbitrary trees, e.g. archive trees, cannot be used from other threads, so they are hashed on the calling thread
+        FileHashingStatisticsCollector statistics = new FileHashingStatisticsCollector();
+        List<FileSnapshot> elements = statistics.collect(new Factory<List<FileSnapshot>>() {
+            @Override
+            public List<FileSnapshot> create() {
+                List<FileSnapshot> elements = Lists.newArrayList();
+                tree.visitTreeOrBackingFile(new FileVisitorImpl(elements));
+                return elements;
+            }
+        });
+        reportHashingStatistics(statistics);
         return elements;
     }
 
     private FileTreeSnapshot snapshotAndCache(DirectoryFileTree directoryTree) {
         String path = internPath(directoryTree.getDir());
-        List<FileSnapshot> elements = Lists.newArrayList();
-        directoryTree.visit(new FileVisitorImpl(elements));
+        List<FileSnapshot> elements = visitInParallel(directoryTree);
         ImmutableList<FileSnapshot> descendants = ImmutableList.copyOf(elements);
         DirectoryTreeDetails snapshot = new DirectoryTreeDetails(path, descendants);
         fileSystemMirror.putDirectory(snapshot);
@@ -202,11 +234,33 @@ public class DefaultFileSystemSnapshotter implements FileSystemSnapshotter {
      */
     private FileTreeSnapshot snapshotWithoutCaching(DirectoryFileTree directoryTree) {
         String path = directoryTree.getDir().getAbsolutePath();
-        List<FileSnapshot> elements = Lists.newArrayList();
-        directoryTree.visit(new FileVisitorImpl(elements));
+        List<FileSnapshot> elements = visitInParallel(directoryTree);
         return new DirectoryTreeDetails(path, elements);
     }
 
+    /**
+     * Walks the tree on the calling thread, and hashes its regular files on the hashing executor.
+     * The snapshots are returned in the order they were visited in.
+     */
+    private List<FileSnapshot> visitInParallel(DirectoryFileTree directoryTree) {
+        FileHashingStatisticsCollector statistics = new FileHashingStatisticsCollector();
+        ParallelHashingFileVisitor visitor = new ParallelHashingFileVisitor(statistics);
+        directoryTree.visit(visitor);
+        List<FileSnapshot> elements = visitor.getSnapshots();
+        reportHashingStatistics(statistics);
+        return elements;
+    }
+
+    private void reportHashingStatistics(FileHashingStatistics statistics) {
+        if (statistics.getHashedFiles() == 0) {
+            return;
+        }
+        OperationIdentifier currentOperation = CurrentBuildOperationRef.instance().getId();
+        if (currentOperation != null) {
+            buildOperationListener.progress(currentOperation, new OperationProgressEvent(clock.getCurrentTime(), statistics));
+        }
+    }
+
     private FileTreeSnapshot filterSnapshot(FileTreeSnapshot snapshot, PatternSet patterns) {
         if (patterns.isEmpty()) {
             return snapshot;
@@ -297,4 +351,58 @@ public class DefaultFileSystemSnapshotter implements FileSystemSnapshotter {
             fileTreeElements.add(new RegularFileSnapshot(internPath(fileDetails.getFile()), fileDetails.getRelativePath(), false, fileSnapshot(fileDetails)));
         }
     }
+
+    private class ParallelHashingFileVisitor implements FileVisitor {
+        private final FileHashingStatisticsCollector statistics;
+        private final List<Future<FileSnapshot>> snapshots = Lists.newArrayList();
+
+        ParallelHashingFileVisitor(FileHashingStatisticsCollector statistics) {
+            this.statistics = statistics;
+        }
+
+        @Override
+        public void visitDir(FileVisitDetails dirDetails) {
+            snapshots.add(Futures.<FileSnapshot>immediateFuture(new DirectoryFileSnapshot(internPath(dirDetails.getFile()), dirDetails.getRelativePath(), false)));
+        }
+
+        @Override
+        public void visitFile(FileVisitDetails fileDetails) {
+            // Capture everything from the details here, as they are only valid during the visit
+            final File file = fileDetails.getFile();
+            final String path = internPath(file);
+            final RelativePath relativePath = fileDetails.getRelativePath();
+            final FileMetadataSnapshot metadata = DefaultFileMetadata.file(fileDetails.getLastModified(), fileDetails.getSize());
+            FutureTask<FileSnapshot> hashing = new FutureTask<FileSnapshot>(new Callable<FileSnapshot>() {
+                @Override
+                public FileSnapshot call() {
+                    return statistics.collect(new Factory<FileSnapshot>() {
+                        @Override
+                        public FileSnapshot create() {
+                            return new RegularFileSnapshot(path, relativePath, false, fileSnapshot(file, metadata));
+                        }
+                    });
+                }
+            });
+            snapshots.add(hashing);
+            hashingExecutor.execute(hashing);
+        }
+
+        List<FileSnapshot> getSnapshots() {
+            List<FileSnapshot> result = Lists.newArrayListWithCapacity(snapshots.size());
+            for (Future<FileSnapshot> snapshot : snapshots) {
+                if (snapshot instanceof FutureTask) {
+                    // Hash the file on this thread when the executor has not started on it yet, does nothing otherwise
+                    ((FutureTask<FileSnapshot>) snapshot).run();
+                }
+                try {
+                    result.add(snapshot.get());
+                } catch (ExecutionException e) {
+                    throw UncheckedException.throwAsUncheckedException(e.getCause());
+                } catch (InterruptedException e) {
+                    throw UncheckedException.throwAsUncheckedException(e);
+                }
+            }
+            return result;
+        }
+    }
 }
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+import java.util.Set;
+
+/**
+ * Decides which state of a {@link DefaultFileSystemMirror} can be kept from one build to the next.
+ */
+public interface FileSystemMirrorRetention {
+    /**
+     * Called at the end of a build with the locations the mirror holds state for.
+     *
+     * @param locations the absolute paths of the locations the mirror holds state for.
+     * @param invalidator receives changes to the retained locations which happen after this method returns.
+     * @return the locations whose state, and the state of their descendants, can be kept for the next build. State for all other locations is discarded.
+     */
+    Set<String> retain(Set<String> locations, Invalidator invalidator);
+
+    interface Invalidator {
+        /**
+         * Discards the state for the given locations, their descendants and their ancestors.
+         */
+        void invalidate(Iterable<String> paths);
+
+        /**
+         * Discards all state, e.g. when it is not known anymore what has changed.
+         */
+        void invalidateAll();
+    }
+}
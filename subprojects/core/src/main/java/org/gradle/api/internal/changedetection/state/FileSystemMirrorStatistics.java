@@ -0,0 +1,39 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+/**
+ * Details of build operation progress events emitted by {@link DefaultFileSystemMirror} whenever some of its state is invalidated.
+ *
+ * All counts are accumulated since the start of the current build.
+ */
+public interface FileSystemMirrorStatistics {
+    /**
+     * The number of lookups that were answered from the mirror.
+     */
+    long getHits();
+
+    /**
+     * The number of lookups for which the mirror had no state.
+     */
+    long getMisses();
+
+    /**
+     * The number of entries discarded from the mirror because of changes to task outputs.
+     */
+    long getInvalidatedEntries();
+}
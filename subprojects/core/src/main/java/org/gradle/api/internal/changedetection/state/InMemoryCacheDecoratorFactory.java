@@ -32,7 +32,13 @@ import org.gradle.cache.internal.CrossBuildInMemoryCacheFactory;
 import org.gradle.cache.internal.CrossProcessSynchronizingCache;
 import org.gradle.cache.internal.HeapProportionalCacheSizer;
 import org.gradle.cache.internal.MultiProcessSafeAsyncPersistentIndexedCache;
+import org.gradle.process.internal.health.memory.HeapMemoryHolder;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.WeakHashMap;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
@@ -40,12 +46,15 @@ import java.util.concurrent.atomic.AtomicReference;
  * The in-memory cache is invalidated when the backing cache is changed by another process.
  *
  * Also decorates each cache so that updates to the backing cache are made asynchronously.
+ *
+ * The in-memory caches are discarded when heap memory is requested to be released, and are then populated again from the backing caches.
  */
-public class InMemoryCacheDecoratorFactory {
+public class InMemoryCacheDecoratorFactory implements HeapMemoryHolder {
     private final static Logger LOG = Logging.getLogger(InMemoryCacheDecoratorFactory.class);
     private final boolean longLivingProcess;
     private final HeapProportionalCacheSizer cacheSizer = new HeapProportionalCacheSizer();
     private final CrossBuildInMemoryCache<String, CacheDetails> caches;
+    private final Set<CacheDetails> createdCaches = Collections.newSetFromMap(new WeakHashMap<CacheDetails, Boolean>());
 
     public InMemoryCacheDecoratorFactory(boolean longLivingProcess, CrossBuildInMemoryCacheFactory cacheFactory) {
         this.longLivingProcess = longLivingProcess;
@@ -74,6 +83,9 @@ public class InMemoryCacheDecoratorFactory {
                 Cache<Object, Object> entries = createInMemoryCache(cacheId, maxSize);
                 CacheDetails cacheDetails = new CacheDetails(cacheId, maxSize, entries, new AtomicReference<FileLock.State>(null));
                 LOG.debug("Creating in-memory store for cache {} (max size: {})", cacheId, maxSize);
+                synchronized (createdCaches) {
+                    createdCaches.add(cacheDetails);
+                }
                 return cacheDetails;
             }
         });
@@ -83,6 +95,19 @@ public class InMemoryCacheDecoratorFactory {
         return cacheDetails;
     }
 
+    @Override
+    public void releaseHeapMemory() {
+        List<CacheDetails> current;
+        synchronized (createdCaches) {
+            current = new ArrayList<CacheDetails>(createdCaches);
+        }
+        for (CacheDetails cacheDetails : current) {
+            // Reads of entries with pending updates wait for the updates to be written to the backing cache, so the entries can be discarded at any time
+            LOG.debug("Discarding {} entries of in-memory store for cache {}", cacheDetails.entries.size(), cacheDetails.cacheId);
+            cacheDetails.entries.invalidateAll();
+        }
+    }
+
     private Cache<Object, Object> createInMemoryCache(String cacheId, int maxSize) {
         LoggingEvictionListener evictionListener = new LoggingEvictionListener(cacheId, maxSize);
         final CacheBuilder<Object, Object> cacheBuilder = CacheBuilder.newBuilder().maximumSize(maxSize).recordStats().removalListener(evictionListener);
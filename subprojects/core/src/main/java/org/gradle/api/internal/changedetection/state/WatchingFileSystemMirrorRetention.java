@@ -0,0 +1,132 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+import com.google.common.collect.ImmutableSet;
+import org.gradle.api.Action;
+import org.gradle.api.internal.file.FileSystemSubset;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.filewatch.FileWatcher;
+import org.gradle.internal.filewatch.FileWatcherEvent;
+import org.gradle.internal.filewatch.FileWatcherFactory;
+import org.gradle.internal.filewatch.FileWatcherListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Keeps the state of the file system mirror between builds in the same daemon, by watching all locations the mirror holds state for.
+ *
+ * Locations are watched from the end of the first build that snapshots them. Their state can only be kept from the end of the following build on,
+ * as changes which happened during the first build, before the watch was registered, are not known.
+ *
+ * When the watcher fails, or loses events because its queue overflows, all state is discarded and the watcher is restarted at the end of the build,
+ * so that everything is scanned again.
+ *
+ * Enabled by setting the system property {@value #WATCH_FILE_SYSTEM_PROPERTY} to {@code true}.
+ */
+public class WatchingFileSystemMirrorRetention implements FileSystemMirrorRetention, Stoppable {
+    public static final String WATCH_FILE_SYSTEM_PROPERTY = "org.gradle.unsafe.watch-fs";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(WatchingFileSystemMirrorRetention.class);
+
+    private final FileWatcherFactory fileWatcherFactory;
+    private final Set<String> watchedLocations = new HashSet<String>();
+    private FileWatcher watcher;
+    private volatile boolean watchedStateLost;
+    private volatile Invalidator invalidator;
+
+    public WatchingFileSystemMirrorRetention(FileWatcherFactory fileWatcherFactory) {
+        this.fileWatcherFactory = fileWatcherFactory;
+    }
+
+    @Override
+    public synchronized Set<String> retain(Set<String> locations, Invalidator invalidator) {
+        this.invalidator = invalidator;
+        if (!Boolean.getBoolean(WATCH_FILE_SYSTEM_PROPERTY)) {
+            stopWatching();
+            return Collections.emptySet();
+        }
+        if (watcher == null || !watcher.isRunning() || watchedStateLost) {
+            LOGGER.debug("Starting to watch the file system, all file system state will be scanned again.");
+            stopWatching();
+            watcher = fileWatcherFactory.watch(new Action<Throwable>() {
+                @Override
+                public void execute(Throwable throwable) {
+                    LOGGER.info("Watching the file system failed, all file system state will be scanned again.", throwable);
+                    discardAll();
+                }
+            }, new FileWatcherListener() {
+                @Override
+                public void onChange(FileWatcher watcher, FileWatcherEvent event) {
+                    if (event.getType() == FileWatcherEvent.Type.UNDEFINED || event.getFile() == null) {
+                        LOGGER.info("Lost file system events, all file system state will be scanned again.");
+                        discardAll();
+                    } else {
+                        WatchingFileSystemMirrorRetention.this.invalidator.invalidate(Collections.singleton(event.getFile().getAbsolutePath()));
+                    }
+                }
+            });
+            watchedStateLost = false;
+        }
+
+        // Only state for locations which were watched during the whole build can be kept
+        ImmutableSet<String> retained = ImmutableSet.copyOf(watchedLocations);
+
+        FileSystemSubset.Builder newLocations = FileSystemSubset.builder();
+        boolean hasNewLocations = false;
+        for (String location : locations) {
+            if (watchedLocations.add(location)) {
+                newLocations.add(new File(location));
+                hasNewLocations = true;
+            }
+        }
+        if (hasNewLocations) {
+            try {
+                watcher.watch(newLocations.build());
+            } catch (IOException e) {
+                LOGGER.info("Could not watch the file system, all file system state will be scanned again.", e);
+                stopWatching();
+                return Collections.emptySet();
+            }
+        }
+        return retained;
+    }
+
+    private void discardAll() {
+        watchedStateLost = true;
+        invalidator.invalidateAll();
+    }
+
+    private void stopWatching() {
+        if (watcher != null) {
+            watcher.stop();
+            watcher = null;
+        }
+        watchedLocations.clear();
+    }
+
+    @Override
+    public synchronized void stop() {
+        stopWatching();
+    }
+}
@@ -70,7 +70,13 @@ public class ExecuteActionsTaskExecuter implements TaskExecuter {
     public void execute(TaskInternal task, TaskStateInternal state, TaskExecutionContext context) {
         listener.beforeActions(task);
         if (task.hasTaskActions()) {
-            outputsGenerationListener.beforeTaskOutputChanged();
+            TaskProperties taskProperties = context.getTaskProperties();
+            if (taskProperties.hasDeclaredOutputs()) {
+                outputsGenerationListener.beforeTaskOutputChanged(TaskOutputPaths.affectedBy(taskProperties));
+            } else {
+                // Without declared outputs we cannot know what the task is going to change
+                outputsGenerationListener.beforeTaskOutputChanged();
+            }
         }
         state.setExecuting(true);
         try {
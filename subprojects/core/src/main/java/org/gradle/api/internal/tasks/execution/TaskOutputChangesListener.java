@@ -22,4 +22,13 @@ public interface TaskOutputChangesListener {
      * This is for example just before the task actions are executed or the outputs are loaded from the cache.
      */
     void beforeTaskOutputChanged();
+
+    /**
+     * Invoked when the outputs for a task are about to change, and the changes are confined to the given locations.
+     *
+     * Any state kept for the given locations, their descendants and their ancestors should be considered stale.
+     *
+     * @param affectedOutputPaths the absolute paths of the locations which are about to change.
+     */
+    void beforeTaskOutputChanged(Iterable<String> affectedOutputPaths);
 }
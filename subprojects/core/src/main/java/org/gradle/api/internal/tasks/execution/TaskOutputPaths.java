@@ -0,0 +1,49 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.execution;
+
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+
+import java.io.File;
+
+/**
+ * Computes the locations passed to {@link TaskOutputChangesListener#beforeTaskOutputChanged(Iterable)}.
+ */
+public class TaskOutputPaths {
+    private static final Function<File, String> ABSOLUTE_PATH = new Function<File, String>() {
+        @Override
+        public String apply(File file) {
+            return file.getAbsolutePath();
+        }
+    };
+
+    private TaskOutputPaths() {
+    }
+
+    /**
+     * The locations which can be changed when the task is executed: the outputs, the local state and the destroyables.
+     */
+    public static Iterable<String> affectedBy(TaskProperties taskProperties) {
+        return of(Iterables.concat(taskProperties.getOutputFiles(), taskProperties.getLocalStateFiles(), taskProperties.getDestroyableFiles()));
+    }
+
+    public static Iterable<String> of(Iterable<File> files) {
+        return ImmutableList.copyOf(Iterables.transform(files, ABSOLUTE_PATH));
+    }
+}
@@ -20,11 +20,15 @@ import net.jcip.annotations.ThreadSafe;
 import org.gradle.api.Transformer;
 import org.gradle.initialization.SessionLifecycleListener;
 import org.gradle.internal.event.ListenerManager;
+import org.gradle.process.internal.health.memory.HeapMemoryHolder;
 
 import javax.annotation.Nullable;
 import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.WeakHashMap;
@@ -36,10 +40,12 @@ import java.util.WeakHashMap;
  * Note that this implementation currently retains strong references to keys and values during the whole lifetime of a build session.
  *
  * Uses a simple algorithm to collect unused values, by retaining strong references to all keys and values used during the current build session, and the previous build session. All other values are referenced only by soft references.
+ * When asked to release heap memory, the strong references to the values of the previous build session are dropped.
  */
 @ThreadSafe
-public class CrossBuildInMemoryCacheFactory {
+public class CrossBuildInMemoryCacheFactory implements HeapMemoryHolder {
     private final ListenerManager listenerManager;
+    private final List<DefaultCrossBuildInMemoryCache<?, ?>> caches = Collections.synchronizedList(new ArrayList<DefaultCrossBuildInMemoryCache<?, ?>>());
 
     public CrossBuildInMemoryCacheFactory(ListenerManager listenerManager) {
         this.listenerManager = listenerManager;
@@ -53,6 +59,7 @@ public class CrossBuildInMemoryCacheFactory {
     public <K, V> CrossBuildInMemoryCache<K, V> newCache() {
         DefaultCrossBuildInMemoryCache<K, V> cache = new DefaultCrossBuildInMemoryCache<K, V>(new HashMap<K, SoftReference<V>>());
         listenerManager.addListener(cache);
+        caches.add(cache);
         return cache;
     }
 
@@ -64,9 +71,21 @@ public class CrossBuildInMemoryCacheFactory {
     public <V> CrossBuildInMemoryCache<Class<?>, V> newClassCache() {
         DefaultCrossBuildInMemoryCache<Class<?>, V> cache = new DefaultCrossBuildInMemoryCache<Class<?>, V>(new WeakHashMap<Class<?>, SoftReference<V>>());
         listenerManager.addListener(cache);
+        caches.add(cache);
         return cache;
     }
 
+    @Override
+    public void releaseHeapMemory() {
+        List<DefaultCrossBuildInMemoryCache<?, ?>> current;
+        synchronized (caches) {
+            current = new ArrayList<DefaultCrossBuildInMemoryCache<?, ?>>(caches);
+        }
+        for (DefaultCrossBuildInMemoryCache<?, ?> cache : current) {
+            cache.releasePreviousSession();
+        }
+    }
+
     private static class DefaultCrossBuildInMemoryCache<K, V> implements CrossBuildInMemoryCache<K, V>, SessionLifecycleListener {
         private final Object lock = new Object();
         private final Map<K, V> valuesForThisSession = new HashMap<K, V>();
@@ -92,6 +111,15 @@ public class CrossBuildInMemoryCacheFactory {
             }
         }
 
+        /**
+         * Drops the strong references to values used only by the previous session. The values used by this session are kept, as they may be in use.
+         */
+        void releasePreviousSession() {
+            synchronized (lock) {
+                valuesForPreviousSession.clear();
+            }
+        }
+
         @Override
         public void clear() {
             synchronized (lock) {
@@ -110,6 +110,11 @@ public class DefaultFileContentCacheFactory implements FileContentCacheFactory,
             cache.clear();
         }
 
+        @Override
+        public void beforeTaskOutputChanged(Iterable<String> affectedOutputPaths) {
+            beforeTaskOutputChanged();
+        }
+
         @Override
         public V get(File file) {
             // TODO - don't calculate the same value concurrently
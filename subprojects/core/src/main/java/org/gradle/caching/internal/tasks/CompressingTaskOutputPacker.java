@@ -17,9 +17,9 @@
 package org.gradle.caching.internal.tasks;
 
 import org.apache.commons.io.IOUtils;
-import org.gradle.api.UncheckedIOException;
 import org.gradle.api.internal.changedetection.state.FileContentSnapshot;
 import org.gradle.api.internal.tasks.ResolvedTaskOutputFilePropertySpec;
+import org.gradle.caching.internal.compression.BuildCacheEntryCompression;
 import org.gradle.caching.internal.tasks.origin.TaskOutputOriginReader;
 import org.gradle.caching.internal.tasks.origin.TaskOutputOriginWriter;
 
@@ -28,52 +28,38 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.Map;
 import java.util.SortedSet;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
 
 /**
- * Adds compression and CRC32 checks to the packed task output.
+ * Adds compression to the packed task output. Unpacking detects the compression the entry was packed with.
+ *
+ * @see BuildCacheEntryCompression
  */
-public class GZipTaskOutputPacker implements TaskOutputPacker {
+public class CompressingTaskOutputPacker implements TaskOutputPacker {
     private final TaskOutputPacker delegate;
+    private final BuildCacheEntryCompression compression;
 
-    public GZipTaskOutputPacker(TaskOutputPacker delegate) {
+    public CompressingTaskOutputPacker(TaskOutputPacker delegate, BuildCacheEntryCompression compression) {
         this.delegate = delegate;
+        this.compression = compression;
     }
 
     @Override
     public PackResult pack(SortedSet<ResolvedTaskOutputFilePropertySpec> propertySpecs, Map<String, Map<String, FileContentSnapshot>> outputFiles, OutputStream output, TaskOutputOriginWriter writeOrigin) throws IOException {
-        GZIPOutputStream gzipOutput = createGzipOutputStream(output);
+        OutputStream compressedOutput = compression.compress(output);
         try {
-            return delegate.pack(propertySpecs, outputFiles, gzipOutput, writeOrigin);
+            return delegate.pack(propertySpecs, outputFiles, compressedOutput, writeOrigin);
         } finally {
-            IOUtils.closeQuietly(gzipOutput);
-        }
-    }
-
-    private GZIPOutputStream createGzipOutputStream(OutputStream output) {
-        try {
-            return new GZIPOutputStream(output);
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
+            IOUtils.closeQuietly(compressedOutput);
         }
     }
 
     @Override
     public UnpackResult unpack(SortedSet<ResolvedTaskOutputFilePropertySpec> propertySpecs, InputStream input, TaskOutputOriginReader readOrigin) throws IOException {
-        GZIPInputStream gzipInput = createGzipInputStream(input);
+        InputStream decompressedInput = BuildCacheEntryCompression.decompress(input);
         try {
-            return delegate.unpack(propertySpecs, gzipInput, readOrigin);
+            return delegate.unpack(propertySpecs, decompressedInput, readOrigin);
         } finally {
-            IOUtils.closeQuietly(gzipInput);
-        }
-    }
-
-    private GZIPInputStream createGzipInputStream(InputStream input) {
-        try {
-            return new GZIPInputStream(input);
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
+            IOUtils.closeQuietly(decompressedInput);
         }
     }
 }
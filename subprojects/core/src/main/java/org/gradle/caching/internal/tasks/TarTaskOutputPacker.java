@@ -19,8 +19,10 @@ package org.gradle.caching.internal.tasks;
 import com.google.common.base.Function;
 import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableListMultimap;
-import com.google.common.collect.ImmutableMultimap;
 import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.Uninterruptibles;
 import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
 import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
 import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
@@ -43,11 +45,14 @@ import org.gradle.api.internal.tasks.ResolvedTaskOutputFilePropertySpec;
 import org.gradle.api.internal.tasks.TaskFilePropertySpec;
 import org.gradle.caching.internal.tasks.origin.TaskOutputOriginReader;
 import org.gradle.caching.internal.tasks.origin.TaskOutputOriginWriter;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.file.FileType;
 import org.gradle.internal.hash.HashCode;
 import org.gradle.internal.hash.StreamHasher;
 import org.gradle.internal.nativeplatform.filesystem.FileSystem;
 
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
@@ -58,10 +63,20 @@ import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
 import java.net.URLEncoder;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.SortedSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -70,6 +85,9 @@ import static org.gradle.caching.internal.tasks.TaskOutputPackerUtils.makeDirect
 
 /**
  * Packages task output to a POSIX TAR file.
+ *
+ * <p>The archive is read and written sequentially, but the contents of small files are read ahead while packing, and written while unpacking,
+ * in parallel on the given executor. The memory used for file contents in flight is bounded.</p>
  */
 @SuppressWarnings("Since15")
 public class TarTaskOutputPacker implements TaskOutputPacker {
@@ -78,6 +96,9 @@ public class TarTaskOutputPacker implements TaskOutputPacker {
     @SuppressWarnings("OctalInteger")
     private static final int FILE_PERMISSION_MASK = 0777;
     private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_BUFFERED_FILE_SIZE = 1024 * 1024;
+    private static final int MAX_BUFFERED_BYTES = 32 * 1024 * 1024;
+    private static final int MAX_PREFETCHED_FILES = 256;
     private static final ThreadLocal<byte[]> COPY_BUFFERS = new ThreadLocal<byte[]>() {
         @Override
         protected byte[] initialValue() {
@@ -88,11 +109,17 @@ public class TarTaskOutputPacker implements TaskOutputPacker {
     private final FileSystem fileSystem;
     private final StreamHasher streamHasher;
     private final StringInterner stringInterner;
+    private final Executor fileAccessExecutor;
 
     public TarTaskOutputPacker(FileSystem fileSystem, StreamHasher streamHasher, StringInterner stringInterner) {
+        this(fileSystem, streamHasher, stringInterner, MoreExecutors.sameThreadExecutor());
+    }
+
+    public TarTaskOutputPacker(FileSystem fileSystem, StreamHasher streamHasher, StringInterner stringInterner, Executor fileAccessExecutor) {
         this.fileSystem = fileSystem;
         this.streamHasher = streamHasher;
         this.stringInterner = stringInterner;
+        this.fileAccessExecutor = fileAccessExecutor;
     }
 
     @Override
@@ -175,6 +202,7 @@ public class TarTaskOutputPacker implements TaskOutputPacker {
         String rootAbsolutePath = directory.getAbsolutePath();
         Path rootPath = directory.toPath();
 
+        List<DirectoryEntry> children = new ArrayList<DirectoryEntry>(outputSnapshots.size());
         for (Map.Entry<String, FileContentSnapshot> entry : outputSnapshots.entrySet()) {
             String absolutePath = entry.getKey();
             // We've already created the directory for the property
@@ -183,17 +211,43 @@ public class TarTaskOutputPacker implements TaskOutputPacker {
             }
             File file = new File(absolutePath);
             String relativePath = rootPath.relativize(file.toPath()).toString();
-            String targetPath = propertyRoot + relativePath;
-            int mode = fileSystem.getUnixMode(file);
-            switch (entry.getValue().getType()) {
+            children.add(new DirectoryEntry(file, propertyRoot + relativePath, entry.getValue().getType()));
+        }
+
+        // Read the contents of the next small files ahead, while earlier files are added to the archive
+        List<Future<byte[]>> prefetchedContents = new ArrayList<Future<byte[]>>(Collections.<Future<byte[]>>nCopies(children.size(), null));
+        int nextToPrefetch = 0;
+        long prefetchedBytes = 0;
+        for (int index = 0; index < children.size(); index++) {
+            while (nextToPrefetch < children.size() && nextToPrefetch - index < MAX_PREFETCHED_FILES && prefetchedBytes < MAX_BUFFERED_BYTES) {
+                DirectoryEntry child = children.get(nextToPrefetch);
+                if (child.type == FileType.RegularFile) {
+                    child.length = child.file.length();
+                    if (child.length <= MAX_BUFFERED_FILE_SIZE) {
+                        prefetchedContents.set(nextToPrefetch, readContent(child.file));
+                        prefetchedBytes += child.length;
+                    }
+                }
+                nextToPrefetch++;
+            }
+
+            DirectoryEntry child = children.get(index);
+            int mode = fileSystem.getUnixMode(child.file);
+            switch (child.type) {
                 case RegularFile:
-                    storeFileEntry(file, targetPath, file.length(), mode, tarOutput);
+                    Future<byte[]> content = prefetchedContents.set(index, null);
+                    if (content != null) {
+                        prefetchedBytes -= child.length;
+                        storeFileEntry(await(content), child.targetPath, mode, tarOutput);
+                    } else {
+                        storeFileEntry(child.file, child.targetPath, child.length, mode, tarOutput);
+                    }
                     break;
                 case Directory:
-                    storeDirectoryEntry(targetPath, mode, tarOutput);
+                    storeDirectoryEntry(child.targetPath, mode, tarOutput);
                     break;
                 case Missing:
-                    throw new IllegalStateException("File should not be missing: " + file);
+                    throw new IllegalStateException("File should not be missing: " + child.file);
                 default:
                     throw new AssertionError();
             }
@@ -202,6 +256,30 @@ public class TarTaskOutputPacker implements TaskOutputPacker {
         return entries;
     }
 
+    private Future<byte[]> readContent(final File file) {
+        FutureTask<byte[]> task = new FutureTask<byte[]>(new Callable<byte[]>() {
+            @Override
+            public byte[] call() throws Exception {
+                return Files.readAllBytes(file.toPath());
+            }
+        });
+        fileAccessExecutor.execute(task);
+        return task;
+    }
+
+    private static class DirectoryEntry {
+        final File file;
+        final String targetPath;
+        final FileType type;
+        long length;
+
+        DirectoryEntry(File file, String targetPath, FileType type) {
+            this.file = file;
+            this.targetPath = targetPath;
+            this.type = type;
+        }
+    }
+
     private void storeFileProperty(String propertyPath, File file, TarArchiveOutputStream tarOutput) throws IOException {
         if (!file.isFile()) {
             throw new IllegalArgumentException(String.format("Expected '%s' to be a file", file));
@@ -230,6 +308,12 @@ public class TarTaskOutputPacker implements TaskOutputPacker {
         tarOutput.closeArchiveEntry();
     }
 
+    private void storeFileEntry(byte[] content, String path, int mode, TarArchiveOutputStream tarOutput) throws IOException {
+        createTarEntry(path, content.length, UnixStat.FILE_FLAG | mode, tarOutput);
+        tarOutput.write(content);
+        tarOutput.closeArchiveEntry();
+    }
+
     private static void createTarEntry(String path, long size, int mode, TarArchiveOutputStream tarOutput) throws IOException {
         TarArchiveEntry entry = new TarArchiveEntry(path, true);
         entry.setSize(size);
@@ -256,42 +340,46 @@ public class TarTaskOutputPacker implements TaskOutputPacker {
         });
         TarArchiveEntry tarEntry;
         OriginTaskExecutionMetadata originMetadata = null;
-        ImmutableListMultimap.Builder<String, FileSnapshot> propertyFileSnapshots = ImmutableListMultimap.builder();
+        FileWrites fileWrites = new FileWrites();
 
         long entries = 0;
-        while ((tarEntry = tarInput.getNextTarEntry()) != null) {
-            ++entries;
-            String path = tarEntry.getName();
+        try {
+            while ((tarEntry = tarInput.getNextTarEntry()) != null) {
+                ++entries;
+                String path = tarEntry.getName();
+
+                if (path.equals(METADATA_PATH)) {
+                    // handle origin metadata
+                    originMetadata = readOriginAction.execute(new CloseShieldInputStream(tarInput));
+                } else {
+                    // handle output property
+                    Matcher matcher = PROPERTY_PATH.matcher(path);
+                    if (!matcher.matches()) {
+                        throw new IllegalStateException("Cached result format error, invalid contents: " + path);
+                    }
 
-            if (path.equals(METADATA_PATH)) {
-                // handle origin metadata
-                originMetadata = readOriginAction.execute(new CloseShieldInputStream(tarInput));
-            } else {
-                // handle output property
-                Matcher matcher = PROPERTY_PATH.matcher(path);
-                if (!matcher.matches()) {
-                    throw new IllegalStateException("Cached result format error, invalid contents: " + path);
-                }
+                    String propertyName = unescape(matcher.group(2));
+                    ResolvedTaskOutputFilePropertySpec propertySpec = propertySpecsMap.get(propertyName);
+                    if (propertySpec == null) {
+                        throw new IllegalStateException(String.format("No output property '%s' registered", propertyName));
+                    }
 
-                String propertyName = unescape(matcher.group(2));
-                ResolvedTaskOutputFilePropertySpec propertySpec = propertySpecsMap.get(propertyName);
-                if (propertySpec == null) {
-                    throw new IllegalStateException(String.format("No output property '%s' registered", propertyName));
+                    boolean outputMissing = matcher.group(1) != null;
+                    String childPath = matcher.group(3);
+                    unpackPropertyEntry(propertySpec, tarInput, tarEntry, childPath, outputMissing, fileWrites);
                 }
-
-                boolean outputMissing = matcher.group(1) != null;
-                String childPath = matcher.group(3);
-                unpackPropertyEntry(propertySpec, tarInput, tarEntry, childPath, outputMissing, propertyFileSnapshots);
             }
+        } finally {
+            fileWrites.awaitAll();
         }
         if (originMetadata == null) {
             throw new IllegalStateException("Cached result format error, no origin metadata was found.");
         }
 
-        return new UnpackResult(originMetadata, entries, propertyFileSnapshots.build());
+        return new UnpackResult(originMetadata, entries, fileWrites.getSnapshots());
     }
 
-    private void unpackPropertyEntry(ResolvedTaskOutputFilePropertySpec propertySpec, InputStream input, TarArchiveEntry entry, String childPath, boolean missing, ImmutableMultimap.Builder<String, FileSnapshot> fileSnapshots) throws IOException {
+    private void unpackPropertyEntry(ResolvedTaskOutputFilePropertySpec propertySpec, InputStream input, TarArchiveEntry entry, String childPath, boolean missing, FileWrites fileWrites) throws IOException {
         File propertyRoot = propertySpec.getOutputFile();
         String propertyName = propertySpec.getPropertyName();
         if (propertyRoot == null) {
@@ -331,22 +419,103 @@ public class TarTaskOutputPacker implements TaskOutputPacker {
 
         String internedPath = stringInterner.intern(outputFile.getAbsolutePath());
         RelativePath relativePath = root ? RelativePath.parse(!isDirEntry, outputFile.getName()) : RelativePath.parse(!isDirEntry, childPath);
+        int mode = entry.getMode() & FILE_PERMISSION_MASK;
         if (isDirEntry) {
             FileUtils.forceMkdir(outputFile);
-            fileSnapshots.put(propertyName, new DirectoryFileSnapshot(internedPath, relativePath, root));
+            fileSystem.chmod(outputFile, mode);
+            fileWrites.add(propertyName, Futures.<FileSnapshot>immediateFuture(new DirectoryFileSnapshot(internedPath, relativePath, root)));
+        } else if (entry.getSize() <= MAX_BUFFERED_FILE_SIZE) {
+            int size = (int) entry.getSize();
+            fileWrites.reserve(size);
+            byte[] content = new byte[size];
+            IOUtils.readFully(input, content);
+            fileWrites.add(propertyName, writeFile(outputFile, new ByteArrayInputStream(content), internedPath, relativePath, root, mode, size, fileWrites));
         } else {
-            OutputStream output = new FileOutputStream(outputFile);
-            HashCode hash;
-            try {
-                hash = streamHasher.hashCopy(input, output);
-            } finally {
-                IOUtils.closeQuietly(output);
+            fileWrites.add(propertyName, Futures.immediateFuture(writeFile(outputFile, input, internedPath, relativePath, root, mode)));
+        }
+    }
+
+    private Future<FileSnapshot> writeFile(final File outputFile, final InputStream content, final String internedPath, final RelativePath relativePath, final boolean root, final int mode, final int size, final FileWrites fileWrites) {
+        FutureTask<FileSnapshot> task = new FutureTask<FileSnapshot>(new Callable<FileSnapshot>() {
+            @Override
+            public FileSnapshot call() throws Exception {
+                try {
+                    return writeFile(outputFile, content, internedPath, relativePath, root, mode);
+                } finally {
+                    fileWrites.release(size);
+                }
             }
-            FileHashSnapshot contentSnapshot = new FileHashSnapshot(hash, outputFile.lastModified());
-            fileSnapshots.put(propertyName, new RegularFileSnapshot(internedPath, relativePath, root, contentSnapshot));
+        });
+        fileAccessExecutor.execute(task);
+        return task;
+    }
+
+    private FileSnapshot writeFile(File outputFile, InputStream content, String internedPath, RelativePath relativePath, boolean root, int mode) throws IOException {
+        OutputStream output = new FileOutputStream(outputFile);
+        HashCode hash;
+        try {
+            hash = streamHasher.hashCopy(content, output);
+        } finally {
+            IOUtils.closeQuietly(output);
         }
+        FileHashSnapshot contentSnapshot = new FileHashSnapshot(hash, outputFile.lastModified());
+        fileSystem.chmod(outputFile, mode);
+        return new RegularFileSnapshot(internedPath, relativePath, root, contentSnapshot);
+    }
 
-        fileSystem.chmod(outputFile, entry.getMode() & FILE_PERMISSION_MASK);
+    private static <T> T await(Future<T> future) throws IOException {
+        try {
+            return Uninterruptibles.getUninterruptibly(future);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw UncheckedException.throwAsUncheckedException(cause);
+        }
+    }
+
+    /**
+     * The files written while unpacking, with the snapshots of the entries in the order of the archive.
+     */
+    private static class FileWrites {
+        private final Semaphore bufferedBytes = new Semaphore(MAX_BUFFERED_BYTES);
+        private final List<String> propertyNames = new ArrayList<String>();
+        private final List<Future<FileSnapshot>> snapshots = new ArrayList<Future<FileSnapshot>>();
+
+        void reserve(int size) {
+            bufferedBytes.acquireUninterruptibly(size);
+        }
+
+        void release(int size) {
+            bufferedBytes.release(size);
+        }
+
+        void add(String propertyName, Future<FileSnapshot> snapshot) {
+            propertyNames.add(propertyName);
+            snapshots.add(snapshot);
+        }
+
+        /**
+         * Waits for all writes to finish, including when unpacking failed, so that no file is written after unpacking returns.
+         */
+        void awaitAll() {
+            for (Future<FileSnapshot> snapshot : snapshots) {
+                try {
+                    Uninterruptibles.getUninterruptibly(snapshot);
+                } catch (ExecutionException ignored) {
+                    // Reported by getSnapshots()
+                }
+            }
+        }
+
+        ImmutableListMultimap<String, FileSnapshot> getSnapshots() throws IOException {
+            ImmutableListMultimap.Builder<String, FileSnapshot> builder = ImmutableListMultimap.builder();
+            for (int i = 0; i < snapshots.size(); i++) {
+                builder.put(propertyNames.get(i), await(snapshots.get(i)));
+            }
+            return builder.build();
+        }
     }
 
     private static String escape(String name) {
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.execution.taskgraph;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.gradle.api.internal.TaskInternal;
+import org.gradle.api.internal.changedetection.state.TaskDurationHistory;
+
+import javax.annotation.Nullable;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Orders the work of a plan by the estimated length of its critical path: the longest chain of work which can only start once the work is complete, including the work itself.
+ * Selecting the work with the longest critical path first starts long chains, like a series of compile tasks, as early as possible.
+ *
+ * The durations of tasks are estimated from previous builds. Tasks without history are assumed to take as long as the average task with history.
+ * When there is no history at all, the plan order is kept.
+ */
+public class CriticalPathPrioritizer {
+    public static final String CRITICAL_PATH_SCHEDULING_PROPERTY = "org.gradle.unsafe.critical-path-scheduling";
+
+    private final TaskDurationHistory durationHistory;
+
+    public CriticalPathPrioritizer(TaskDurationHistory durationHistory) {
+        this.durationHistory = durationHistory;
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.getBoolean(CRITICAL_PATH_SCHEDULING_PROPERTY);
+    }
+
+    /**
+     * @param workInPlanOrder the work of the plan, with the dependencies of each piece of work before it.
+     * @return the work in the order it should be selected, when its dependencies are complete.
+     */
+    public List<PrioritizedWork> prioritize(List<WorkInfo> workInPlanOrder) {
+        Map<WorkInfo, Long> estimatedDurations = Maps.newIdentityHashMap();
+        long totalEstimatedDuration = 0;
+        for (WorkInfo workInfo : workInPlanOrder) {
+            if (workInfo instanceof LocalTaskInfo) {
+                Long estimatedDuration = durationHistory.getEstimatedDuration(((LocalTaskInfo) workInfo).getTask());
+                if (estimatedDuration != null) {
+                    estimatedDurations.put(workInfo, estimatedDuration);
+                    totalEstimatedDuration += estimatedDuration;
+                }
+            }
+        }
+
+        List<PrioritizedWork> prioritizedWork = Lists.newArrayListWithCapacity(workInPlanOrder.size());
+        if (estimatedDurations.isEmpty()) {
+            for (WorkInfo workInfo : workInPlanOrder) {
+                prioritizedWork.add(new PrioritizedWork(workInfo, null, 0));
+            }
+            return prioritizedWork;
+        }
+        long defaultDuration = totalEstimatedDuration / estimatedDurations.size();
+
+        // Work which depends on other work comes later in the plan, so visiting the plan backwards sees all the work which waits for a node before the node itself
+        Map<WorkInfo, Long> longestWaitingChains = Maps.newIdentityHashMap();
+        for (WorkInfo workInfo : Lists.reverse(workInPlanOrder)) {
+            Long estimatedDuration = estimatedDurations.get(workInfo);
+            long duration = estimatedDuration != null ? estimatedDuration : workInfo instanceof LocalTaskInfo ? defaultDuration : 0;
+            Long longestWaitingChain = longestWaitingChains.remove(workInfo);
+            long criticalPath = duration + (longestWaitingChain == null ? 0 : longestWaitingChain);
+            for (WorkInfo dependency : workInfo.getAllSuccessors()) {
+                Long current = longestWaitingChains.get(dependency);
+                if (current == null || current < criticalPath) {
+                    longestWaitingChains.put(dependency, criticalPath);
+                }
+            }
+            prioritizedWork.add(new PrioritizedWork(workInfo, estimatedDuration, criticalPath));
+        }
+
+        // The sort is stable, so work with the same critical path stays in plan order
+        Collections.reverse(prioritizedWork);
+        Collections.sort(prioritizedWork, new Comparator<PrioritizedWork>() {
+            @Override
+            public int compare(PrioritizedWork left, PrioritizedWork right) {
+                return Long.compare(right.criticalPath, left.criticalPath);
+            }
+        });
+        return prioritizedWork;
+    }
+
+    public static class PrioritizedWork {
+        private final WorkInfo workInfo;
+        private final Long estimatedDuration;
+        private final long criticalPath;
+
+        PrioritizedWork(WorkInfo workInfo, @Nullable Long estimatedDuration, long criticalPath) {
+            this.workInfo = workInfo;
+            this.estimatedDuration = estimatedDuration;
+            this.criticalPath = criticalPath;
+        }
+
+        public WorkInfo getWorkInfo() {
+            return workInfo;
+        }
+
+        @Nullable
+        public TaskInternal getTask() {
+            return workInfo instanceof LocalTaskInfo ? ((LocalTaskInfo) workInfo).getTask() : null;
+        }
+
+        /**
+         * The estimated duration of the work in milliseconds, or {@code null} when there is no history for it.
+         */
+        @Nullable
+        public Long getEstimatedDuration() {
+            return estimatedDuration;
+        }
+
+        /**
+         * The estimated length of the critical path starting with this work in milliseconds.
+         */
+        public long getCriticalPath() {
+            return criticalPath;
+        }
+    }
+}
@@ -17,6 +17,9 @@
 package org.gradle.execution.taskgraph;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import groovy.lang.Closure;
 import org.gradle.api.Action;
@@ -28,6 +31,8 @@ import org.gradle.api.execution.TaskExecutionGraph;
 import org.gradle.api.execution.TaskExecutionGraphListener;
 import org.gradle.api.execution.TaskExecutionListener;
 import org.gradle.api.internal.GradleInternal;
+import org.gradle.api.internal.TaskInternal;
+import org.gradle.api.internal.changedetection.state.TaskDurationHistory;
 import org.gradle.api.specs.Spec;
 import org.gradle.api.specs.Specs;
 import org.gradle.api.tasks.TaskState;
@@ -39,6 +44,7 @@ import org.gradle.internal.operations.BuildOperationContext;
 import org.gradle.internal.operations.BuildOperationDescriptor;
 import org.gradle.internal.operations.BuildOperationExecutor;
 import org.gradle.internal.operations.BuildOperationRef;
+import org.gradle.internal.operations.CallableBuildOperation;
 import org.gradle.internal.operations.CurrentBuildOperationRef;
 import org.gradle.internal.operations.RunnableBuildOperation;
 import org.gradle.internal.resources.ResourceLockCoordinationService;
@@ -53,7 +59,9 @@ import org.slf4j.LoggerFactory;
 import java.util.Collection;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 @NonNullApi
 public class DefaultTaskExecutionGraph implements TaskExecutionGraphInternal {
@@ -71,6 +79,7 @@ public class DefaultTaskExecutionGraph implements TaskExecutionGraphInternal {
     private final ListenerBroadcast<TaskExecutionListener> taskListeners;
     private final DefaultTaskExecutionPlan taskExecutionPlan;
     private final BuildOperationExecutor buildOperationExecutor;
+    private final TaskDurationHistory taskDurationHistory;
     private TaskGraphState taskGraphState = TaskGraphState.EMPTY;
     private List<Task> allTasks;
 
@@ -85,13 +94,15 @@ public class DefaultTaskExecutionGraph implements TaskExecutionGraphInternal {
         ResourceLockCoordinationService coordinationService,
         GradleInternal gradleInternal,
         TaskInfoFactory taskInfoFactory,
-        TaskDependencyResolver dependencyResolver
+        TaskDependencyResolver dependencyResolver,
+        TaskDurationHistory taskDurationHistory
     ) {
         this.taskPlanExecutor = taskPlanExecutor;
         this.workInfoExecutors = workInfoExecutors;
         this.buildOperationExecutor = buildOperationExecutor;
         this.coordinationService = coordinationService;
         this.gradleInternal = gradleInternal;
+        this.taskDurationHistory = taskDurationHistory;
         graphListeners = listenerManager.createAnonymousBroadcaster(TaskExecutionGraphListener.class);
         taskListeners = listenerManager.createAnonymousBroadcaster(TaskExecutionListener.class);
         this.taskExecutionPlan = new DefaultTaskExecutionPlan(workerLeaseService, gradleInternal, taskInfoFactory, dependencyResolver);
@@ -135,9 +146,19 @@ public class DefaultTaskExecutionGraph implements TaskExecutionGraphInternal {
         Timer clock = Time.startTimer();
         ensurePopulated();
         buildOperationExecutor.run(new NotifyTaskGraphWhenReady(this, graphListeners, gradleInternal));
+        Action<WorkInfo> workExecutor = new BuildOperationAwareWorkItemExecutor(workInfoExecutors, buildOperationExecutor.getCurrentOperation());
+        TaskDurationRecorder durationRecorder = null;
+        if (CriticalPathPrioritizer.isEnabled()) {
+            Map<TaskInternal, Long> estimatedDurations = buildOperationExecutor.call(new PrioritizeTaskGraph());
+            durationRecorder = new TaskDurationRecorder(workExecutor, estimatedDurations);
+            workExecutor = durationRecorder;
+        }
         try {
-            taskPlanExecutor.process(taskExecutionPlan, failures, new BuildOperationAwareWorkItemExecutor(workInfoExecutors, buildOperationExecutor.getCurrentOperation()));
+            taskPlanExecutor.process(taskExecutionPlan, failures, workExecutor);
             LOGGER.debug("Timing: Executing the DAG took " + clock.getElapsed());
+            if (durationRecorder != null) {
+                buildOperationExecutor.run(new RecordTaskDurations(durationRecorder));
+            }
         } finally {
             coordinationService.withStateLock(new Transformer<ResourceLockState.Disposition, ResourceLockState>() {
                 @Override
@@ -281,6 +302,103 @@ public class DefaultTaskExecutionGraph implements TaskExecutionGraphInternal {
         }
     }
 
+    /**
+     * Measures how long each task takes to execute, to compare it with the estimate and to improve the estimate for the next build.
+     */
+    private static class TaskDurationRecorder implements Action<WorkInfo> {
+        private final Action<WorkInfo> delegate;
+        private final Map<TaskInternal, Long> estimatedDurations;
+        private final Map<TaskInternal, Long> durations = new ConcurrentHashMap<TaskInternal, Long>();
+
+        TaskDurationRecorder(Action<WorkInfo> delegate, Map<TaskInternal, Long> estimatedDurations) {
+            this.delegate = delegate;
+            this.estimatedDurations = estimatedDurations;
+        }
+
+        @Override
+        public void execute(WorkInfo work) {
+            if (!(work instanceof LocalTaskInfo)) {
+                delegate.execute(work);
+                return;
+            }
+            Timer timer = Time.startTimer();
+            delegate.execute(work);
+            TaskInternal task = ((LocalTaskInfo) work).getTask();
+            // Failed tasks often stop early, so their duration says little about the next execution
+            if (task.getState().getFailure() == null) {
+                durations.put(task, timer.getElapsedMillis());
+            }
+        }
+    }
+
+    private class PrioritizeTaskGraph implements CallableBuildOperation<Map<TaskInternal, Long>> {
+        @Override
+        public Map<TaskInternal, Long> call(BuildOperationContext context) {
+            List<CriticalPathPrioritizer.PrioritizedWork> prioritizedWork = new CriticalPathPrioritizer(taskDurationHistory).prioritize(taskExecutionPlan.getScheduledWork());
+            List<WorkInfo> order = Lists.newArrayListWithCapacity(prioritizedWork.size());
+            ImmutableList.Builder<String> taskPaths = ImmutableList.builder();
+            ImmutableMap.Builder<String, Long> estimatedDurationsByPath = ImmutableMap.builder();
+            Map<TaskInternal, Long> estimatedDurations = Maps.newIdentityHashMap();
+            for (CriticalPathPrioritizer.PrioritizedWork work : prioritizedWork) {
+                order.add(work.getWorkInfo());
+                TaskInternal task = work.getTask();
+                if (task != null) {
+                    String taskPath = task.getIdentityPath().getPath();
+                    taskPaths.add(taskPath);
+                    if (work.getEstimatedDuration() != null) {
+                        estimatedDurationsByPath.put(taskPath, work.getEstimatedDuration());
+                        estimatedDurations.put(task, work.getEstimatedDuration());
+                    }
+                }
+            }
+            taskExecutionPlan.prioritize(order);
+            long estimatedCriticalPath = prioritizedWork.isEmpty() ? 0 : prioritizedWork.get(0).getCriticalPath();
+            context.setResult(new PrioritizeTaskGraphBuildOperationType.ResultImpl(taskPaths.build(), estimatedDurationsByPath.build(), estimatedCriticalPath));
+            return estimatedDurations;
+        }
+
+        @Override
+        public BuildOperationDescriptor.Builder description() {
+            return BuildOperationDescriptor.displayName(gradleInternal.contextualize("Prioritize task graph"))
+                .details(new PrioritizeTaskGraphBuildOperationType.DetailsImpl(gradleInternal.getIdentityPath()));
+        }
+    }
+
+    private class RecordTaskDurations implements RunnableBuildOperation {
+        private final TaskDurationRecorder recorder;
+
+        RecordTaskDurations(TaskDurationRecorder recorder) {
+            this.recorder = recorder;
+        }
+
+        @Override
+        public void run(BuildOperationContext context) {
+            int estimatedTaskCount = 0;
+            long totalAbsoluteError = 0;
+            long totalError = 0;
+            for (Map.Entry<TaskInternal, Long> entry : recorder.durations.entrySet()) {
+                TaskInternal task = entry.getKey();
+                long duration = entry.getValue();
+                Long estimatedDuration = recorder.estimatedDurations.get(task);
+                if (estimatedDuration != null) {
+                    estimatedTaskCount++;
+                    totalAbsoluteError += Math.abs(duration - estimatedDuration);
+                    totalError += duration - estimatedDuration;
+                }
+                taskDurationHistory.recordDuration(task, duration);
+            }
+            long meanAbsoluteError = estimatedTaskCount == 0 ? 0 : totalAbsoluteError / estimatedTaskCount;
+            long meanError = estimatedTaskCount == 0 ? 0 : totalError / estimatedTaskCount;
+            context.setResult(new RecordTaskDurationsBuildOperationType.ResultImpl(recorder.durations.size(), estimatedTaskCount, meanAbsoluteError, meanError));
+        }
+
+        @Override
+        public BuildOperationDescriptor.Builder description() {
+            return BuildOperationDescriptor.displayName(gradleInternal.contextualize("Record task durations"))
+                .details(new RecordTaskDurationsBuildOperationType.DetailsImpl(gradleInternal.getIdentityPath()));
+        }
+    }
+
     public Set<Task> getRequestedTasks() {
         return requestedTasks;
     }
@@ -20,6 +20,7 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Function;
 import com.google.common.base.Predicate;
 import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
@@ -72,6 +73,7 @@ import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Set;
 
 /**
@@ -82,7 +84,13 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
     private final Set<WorkInfo> workInUnknownState = Sets.newLinkedHashSet();
     private final Set<TaskInfo> entryTasks = new LinkedHashSet<TaskInfo>();
     private final WorkInfoMapping workInfoMapping = new WorkInfoMapping();
-    private final List<WorkInfo> executionQueue = Lists.newLinkedList();
+    private final Map<WorkInfo, Integer> queuePositions = Maps.newIdentityHashMap();
+    // The work which can be selected next, by queue position. This is the plan order, unless the work has been prioritized
+    private final NavigableMap<Integer, WorkInfo> executionQueue = Maps.newTreeMap();
+    // Work which waits for a dependency executed by this plan, removed from the execution queue until the dependency completes
+    private final Map<WorkInfo, List<WorkInfo>> waitingForDependency = Maps.newIdentityHashMap();
+    // Work which is not executed by this plan and has not completed yet, e.g. tasks in other builds
+    private final Set<WorkInfo> externalWork = Sets.newIdentityHashSet();
     private final Map<Project, ResourceLock> projectLocks = Maps.newHashMap();
     private final TaskFailureCollector failureCollector = new TaskFailureCollector();
     private final TaskInfoFactory nodeFactory;
@@ -327,8 +335,46 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
                 }
             }
         }
+        queuePositions.clear();
         executionQueue.clear();
-        Iterables.addAll(executionQueue, workInfoMapping);
+        waitingForDependency.clear();
+        externalWork.clear();
+        for (WorkInfo workInfo : workInfoMapping) {
+            assignQueuePosition(workInfo);
+        }
+    }
+
+    private void assignQueuePosition(WorkInfo workInfo) {
+        int position = queuePositions.size();
+        queuePositions.put(workInfo, position);
+        executionQueue.put(position, workInfo);
+    }
+
+    /**
+     * Returns the work of this plan, in plan order.
+     */
+    public List<WorkInfo> getScheduledWork() {
+        return ImmutableList.copyOf(workInfoMapping);
+    }
+
+    /**
+     * Changes the order in which work whose dependencies are complete is selected for execution. Must be called after the plan has been determined and before it is executed.
+     *
+     * @param order the work of this plan in the preferred order. Work which is not listed is selected after the listed work, in plan order.
+     */
+    public void prioritize(List<? extends WorkInfo> order) {
+        queuePositions.clear();
+        executionQueue.clear();
+        for (WorkInfo workInfo : order) {
+            if (workInfoMapping.contains(workInfo) && !queuePositions.containsKey(workInfo)) {
+                assignQueuePosition(workInfo);
+            }
+        }
+        for (WorkInfo workInfo : workInfoMapping) {
+            if (!queuePositions.containsKey(workInfo)) {
+                assignQueuePosition(workInfo);
+            }
+        }
     }
 
     @Override
@@ -496,7 +542,10 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
         dependencyResolver.clear();
         entryTasks.clear();
         workInfoMapping.clear();
+        queuePositions.clear();
         executionQueue.clear();
+        waitingForDependency.clear();
+        externalWork.clear();
         projectLocks.clear();
         failureCollector.clearFailures();
         workMutations.clear();
@@ -537,34 +586,96 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
             return null;
         }
 
-        Iterator<WorkInfo> iterator = executionQueue.iterator();
+        Iterator<WorkInfo> iterator = executionQueue.values().iterator();
         while (iterator.hasNext()) {
             WorkInfo workInfo = iterator.next();
-            if (workInfo.isReady() && allDependenciesComplete(workInfo)) {
-                MutationInfo mutations = getResolvedMutationInfo(workInfo);
-
-                // TODO: convert output file checks to a resource lock
-                if (!tryLockProjectFor(workInfo)
-                    || !workerLease.tryLock()
-                    || !canRunWithCurrentlyExecutedTasks(workInfo, mutations)) {
-                    resourceLockState.releaseLocks();
-                    continue;
+            if (!workInfo.isReady()) {
+                // Work which is not ready is queued again when it is enforced as a finalizer
+                iterator.remove();
+                if (!workInfo.isComplete()) {
+                    externalWork.add(workInfo);
                 }
+                continue;
+            }
 
-                if (workInfo.allDependenciesSuccessful()) {
-                    recordWorkStarted(workInfo);
-                    workInfo.startExecution();
-                } else {
-                    workInfo.skipExecution();
+            if (!allDependenciesComplete(workInfo)) {
+                WorkInfo dependency = findIncompleteDependencyExecutedByThisPlan(workInfo);
+                if (dependency != null) {
+                    iterator.remove();
+                    waitFor(dependency, workInfo);
                 }
-                iterator.remove();
+                continue;
+            }
+
+            MutationInfo mutations = getResolvedMutationInfo(workInfo);
+
+            // TODO: convert output file checks to a resource lock
+            if (!tryLockProjectFor(workInfo)
+                || !workerLease.tryLock()
+                || !canRunWithCurrentlyExecutedTasks(workInfo, mutations)) {
+                resourceLockState.releaseLocks();
+                continue;
+            }
 
-                return workInfo;
+            iterator.remove();
+            if (workInfo.allDependenciesSuccessful()) {
+                recordWorkStarted(workInfo);
+                workInfo.startExecution();
+            } else {
+                workInfo.skipExecution();
+                queueWorkWaitingFor(workInfo);
+            }
+
+            return workInfo;
+        }
+        return null;
+    }
+
+    @Nullable
+    private WorkInfo findIncompleteDependencyExecutedByThisPlan(WorkInfo workInfo) {
+        for (WorkInfo dependency : workInfo.getAllSuccessors()) {
+            if (!dependency.isComplete() && queuePositions.containsKey(dependency) && (dependency.isReady() || runningNodes.contains(dependency))) {
+                return dependency;
             }
         }
+        // Either all dependencies are complete now, or the remaining ones are completed elsewhere and need to be checked again
         return null;
     }
 
+    private void waitFor(WorkInfo dependency, WorkInfo workInfo) {
+        List<WorkInfo> waiting = waitingForDependency.get(dependency);
+        if (waiting == null) {
+            waiting = new ArrayList<WorkInfo>();
+            waitingForDependency.put(dependency, waiting);
+        }
+        waiting.add(workInfo);
+    }
+
+    private void queueWorkWaitingFor(WorkInfo dependency) {
+        List<WorkInfo> waiting = waitingForDependency.remove(dependency);
+        if (waiting != null) {
+            for (WorkInfo workInfo : waiting) {
+                queue(workInfo);
+            }
+        }
+    }
+
+    private void queueAllWaitingWork() {
+        for (List<WorkInfo> waiting : waitingForDependency.values()) {
+            for (WorkInfo workInfo : waiting) {
+                queue(workInfo);
+            }
+        }
+        waitingForDependency.clear();
+    }
+
+    private void queue(WorkInfo workInfo) {
+        Integer position = queuePositions.get(workInfo);
+        if (position != null) {
+            executionQueue.put(position, workInfo);
+        }
+    }
+
     private boolean tryLockProjectFor(WorkInfo workInfo) {
         if (workInfo instanceof LocalTaskInfo) {
             return getProjectLock((LocalTaskInfo) workInfo).tryLock();
@@ -838,13 +949,14 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
 
                 workInfo.finishExecution();
                 recordWorkCompleted(workInfo);
+                queueWorkWaitingFor(workInfo);
             }
         } finally {
             unlockProjectFor(workInfo);
         }
     }
 
-    private static void enforceFinalizerTasks(WorkInfo workInfo) {
+    private void enforceFinalizerTasks(WorkInfo workInfo) {
         if (!(workInfo instanceof TaskInfo)) {
             return;
         }
@@ -855,7 +967,7 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
         }
     }
 
-    private static void enforceWithDependencies(WorkInfo nodeInfo, Set<WorkInfo> enforcedNodes) {
+    private void enforceWithDependencies(WorkInfo nodeInfo, Set<WorkInfo> enforcedNodes) {
         Deque<WorkInfo> candidateNodes = new ArrayDeque<WorkInfo>();
         candidateNodes.add(nodeInfo);
 
@@ -866,7 +978,11 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
 
                 candidateNodes.addAll(node.getDependencySuccessors());
 
-                if (node.isMustNotRun() || node.isRequired()) {
+                if (node.isMustNotRun()) {
+                    node.enforceRun();
+                    // Work which must not run has been removed from the execution queue
+                    queue(node);
+                } else if (node.isRequired()) {
                     node.enforceRun();
                 }
             }
@@ -925,6 +1041,8 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
                 aborted = true;
             }
         }
+        // Skipped work is complete, so nothing needs to wait for it anymore
+        queueAllWaitingWork();
         return aborted;
     }
 
@@ -948,12 +1066,23 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
 
     @Override
     public boolean hasWorkRemaining() {
-        for (WorkInfo workInfo : executionQueue) {
+        if (!runningNodes.isEmpty() || !waitingForDependency.isEmpty()) {
+            return true;
+        }
+        for (WorkInfo workInfo : executionQueue.values()) {
             if (!workInfo.isComplete()) {
                 return true;
             }
         }
-        return !runningNodes.isEmpty();
+        Iterator<WorkInfo> iterator = externalWork.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().isComplete()) {
+                iterator.remove();
+            } else {
+                return true;
+            }
+        }
+        return false;
     }
 
     @Override
@@ -25,6 +25,7 @@ import org.gradle.concurrent.ParallelismConfiguration;
 import org.gradle.initialization.BuildCancellationToken;
 import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.concurrent.ManagedExecutor;
+import org.gradle.internal.resources.InterchangeableStateLockAction;
 import org.gradle.internal.resources.ResourceLockCoordinationService;
 import org.gradle.internal.resources.ResourceLockState;
 import org.gradle.internal.time.Time;
@@ -158,7 +159,13 @@ public class DefaultTaskPlanExecutor implements TaskPlanExecutor {
         private boolean executeWithWork(final WorkerLease workerLease, final Action<WorkInfo> workExecutor) {
             final AtomicReference<WorkInfo> selected = new AtomicReference<WorkInfo>();
             final AtomicBoolean workRemaining = new AtomicBoolean();
-            coordinationService.withStateLock(new Transformer<ResourceLockState.Disposition, ResourceLockState>() {
+            // Any worker can select the work that another worker could select, so waiting workers are woken up one at a time
+            coordinationService.withStateLock(new InterchangeableStateLockAction() {
+                @Override
+                public Object getWaitGroup() {
+                    return taskExecutionPlan;
+                }
+
                 @Override
                 public ResourceLockState.Disposition transform(ResourceLockState resourceLockState) {
                     if (cancellationToken.isCancellationRequested()) {
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.execution.taskgraph;
+
+import org.gradle.internal.operations.BuildOperationType;
+import org.gradle.util.Path;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ordering of a build's task graph by the critical path of each task, when critical path scheduling is enabled.
+ *
+ * @since 4.9
+ */
+public class PrioritizeTaskGraphBuildOperationType implements BuildOperationType<PrioritizeTaskGraphBuildOperationType.Details, PrioritizeTaskGraphBuildOperationType.Result> {
+
+    public interface Details {
+
+        String getBuildPath();
+
+    }
+
+    public interface Result {
+
+        /**
+         * The paths of the tasks, in the order they are preferred when their dependencies are complete.
+         */
+        List<String> getTaskPaths();
+
+        /**
+         * The estimated durations in milliseconds of the tasks which have been executed in previous builds, by task path.
+         * Empty when there is no history, in which case the tasks are kept in plan order.
+         */
+        Map<String, Long> getEstimatedDurations();
+
+        /**
+         * The estimated length in milliseconds of the longest chain of tasks in the graph.
+         */
+        long getEstimatedCriticalPath();
+
+    }
+
+    static class DetailsImpl implements PrioritizeTaskGraphBuildOperationType.Details {
+
+        private final Path buildPath;
+
+        DetailsImpl(Path buildPath) {
+            this.buildPath = buildPath;
+        }
+
+        public String getBuildPath() {
+            return buildPath.getPath();
+        }
+
+    }
+
+    static class ResultImpl implements PrioritizeTaskGraphBuildOperationType.Result {
+
+        private final List<String> taskPaths;
+        private final Map<String, Long> estimatedDurations;
+        private final long estimatedCriticalPath;
+
+        ResultImpl(List<String> taskPaths, Map<String, Long> estimatedDurations, long estimatedCriticalPath) {
+            this.taskPaths = taskPaths;
+            this.estimatedDurations = estimatedDurations;
+            this.estimatedCriticalPath = estimatedCriticalPath;
+        }
+
+        public List<String> getTaskPaths() {
+            return taskPaths;
+        }
+
+        public Map<String, Long> getEstimatedDurations() {
+            return estimatedDurations;
+        }
+
+        public long getEstimatedCriticalPath() {
+            return estimatedCriticalPath;
+        }
+
+    }
+
+    private PrioritizeTaskGraphBuildOperationType() {
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.execution.taskgraph;
+
+import org.gradle.internal.operations.BuildOperationType;
+import org.gradle.util.Path;
+
+/**
+ * Recording of the task durations of a build's task graph after execution, when critical path scheduling is enabled.
+ * The result compares the durations with the estimates the task graph was prioritized with.
+ *
+ * @since 4.9
+ */
+public class RecordTaskDurationsBuildOperationType implements BuildOperationType<RecordTaskDurationsBuildOperationType.Details, RecordTaskDurationsBuildOperationType.Result> {
+
+    public interface Details {
+
+        String getBuildPath();
+
+    }
+
+    public interface Result {
+
+        /**
+         * The number of executed tasks whose duration was recorded.
+         */
+        int getRecordedTaskCount();
+
+        /**
+         * The number of recorded tasks which had an estimated duration.
+         */
+        int getEstimatedTaskCount();
+
+        /**
+         * The mean absolute difference in milliseconds between the estimated and the actual durations of the estimated tasks.
+         */
+        long getMeanAbsoluteError();
+
+        /**
+         * The mean difference in milliseconds between the actual and the estimated durations of the estimated tasks.
+         * Positive when tasks took longer than estimated.
+         */
+        long getMeanError();
+
+    }
+
+    static class DetailsImpl implements RecordTaskDurationsBuildOperationType.Details {
+
+        private final Path buildPath;
+
+        DetailsImpl(Path buildPath) {
+            this.buildPath = buildPath;
+        }
+
+        public String getBuildPath() {
+            return buildPath.getPath();
+        }
+
+    }
+
+    static class ResultImpl implements RecordTaskDurationsBuildOperationType.Result {
+
+        private final int recordedTaskCount;
+        private final int estimatedTaskCount;
+        private final long meanAbsoluteError;
+        private final long meanError;
+
+        ResultImpl(int recordedTaskCount, int estimatedTaskCount, long meanAbsoluteError, long meanError) {
+            this.recordedTaskCount = recordedTaskCount;
+            this.estimatedTaskCount = estimatedTaskCount;
+            this.meanAbsoluteError = meanAbsoluteError;
+            this.meanError = meanError;
+        }
+
+        public int getRecordedTaskCount() {
+            return recordedTaskCount;
+        }
+
+        public int getEstimatedTaskCount() {
+            return estimatedTaskCount;
+        }
+
+        public long getMeanAbsoluteError() {
+            return meanAbsoluteError;
+        }
+
+        public long getMeanError() {
+            return meanError;
+        }
+
+    }
+
+    private RecordTaskDurationsBuildOperationType() {
+    }
+}
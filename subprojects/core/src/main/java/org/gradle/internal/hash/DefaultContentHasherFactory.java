@@ -17,12 +17,27 @@
 package org.gradle.internal.hash;
 
 public class DefaultContentHasherFactory implements ContentHasherFactory {
-    private static final HashCode SIGNATURE = Hashing.md5().hashString(DefaultContentHasherFactory.class.getName());
+    private final ContentHashAlgorithm algorithm;
+    private final HashCode signature;
+
+    public DefaultContentHasherFactory() {
+        this(ContentHashAlgorithm.MD5);
+    }
+
+    public DefaultContentHasherFactory(ContentHashAlgorithm algorithm) {
+        this.algorithm = algorithm;
+        this.signature = algorithm.getHashFunction().hashString(DefaultContentHasherFactory.class.getName());
+    }
+
+    @Override
+    public ContentHashAlgorithm getAlgorithm() {
+        return algorithm;
+    }
 
     @Override
     public Hasher create() {
-        Hasher hasher = Hashing.md5().newHasher();
-        hasher.putHash(SIGNATURE);
+        Hasher hasher = algorithm.getHashFunction().newHasher();
+        hasher.putHash(signature);
         return hasher;
     }
 }
@@ -19,21 +19,69 @@ import org.apache.commons.io.IOUtils;
 import org.gradle.api.UncheckedIOException;
 import org.gradle.api.file.FileTreeElement;
 import org.gradle.internal.file.FileMetadataSnapshot;
+import org.gradle.internal.io.MappedBuffers;
+import org.gradle.internal.os.OperatingSystem;
 
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 
+/**
+ * Hashes the content of files.
+ *
+ * When a {@link ContentHasherFactory} is given, files of at least {@link #MAPPED_HASHING_THRESHOLD} bytes are hashed by mapping them into memory
+ * region by region, instead of copying their content through a buffer. This produces the same hashes as the {@link StreamHasher}.
+ * Each region is unmapped as soon as it has been hashed, where the JVM allows it, so that no more than one region per file is mapped at a time.
+ * Mapping is not used on Windows, where a mapped file cannot be deleted until the mapping has been released.
+ */
 public class DefaultFileHasher implements FileHasher {
+    public static final long MAPPED_HASHING_THRESHOLD = 1024 * 1024;
+    static final long MAPPED_REGION_SIZE = 4 * 1024 * 1024;
+
     private final StreamHasher streamHasher;
+    private final ContentHasherFactory hasherFactory;
+    private final boolean mapFiles;
 
     public DefaultFileHasher(StreamHasher streamHasher) {
+        this(streamHasher, null);
+    }
+
+    public DefaultFileHasher(StreamHasher streamHasher, ContentHasherFactory hasherFactory) {
         this.streamHasher = streamHasher;
+        this.hasherFactory = hasherFactory;
+        this.mapFiles = hasherFactory != null && !OperatingSystem.current().isWindows();
     }
 
     @Override
     public HashCode hash(File file) {
+        return hash(file, file.length());
+    }
+
+    @Override
+    public HashCode hash(File file, FileMetadataSnapshot fileDetails) {
+        return hash(file, fileDetails.getLength());
+    }
+
+    @Override
+    public HashCode hash(FileTreeElement fileDetails) {
+        return hash(fileDetails.getFile(), fileDetails.getSize());
+    }
+
+    private HashCode hash(File file, long length) {
+        FileHashingStatisticsCollector statistics = FileHashingStatisticsCollector.current();
+        long start = statistics == null ? 0 : System.nanoTime();
+        HashCode hash = mapFiles && length >= MAPPED_HASHING_THRESHOLD ? hashMapped(file) : hashStreamed(file);
+        if (statistics != null) {
+            statistics.recordHashedFile(length, System.nanoTime() - start);
+        }
+        return hash;
+    }
+
+    private HashCode hashStreamed(File file) {
         try {
             InputStream inputStream = new FileInputStream(file);
             try {
@@ -42,17 +90,41 @@ public class DefaultFileHasher implements FileHasher {
                 IOUtils.closeQuietly(inputStream);
             }
         } catch (FileNotFoundException e) {
-            throw new UncheckedIOException(String.format("Failed to create MD5 hash for file '%s' as it does not exist.", file), e);
+            throw fileNotFound(file, e);
         }
     }
 
-    @Override
-    public HashCode hash(File file, FileMetadataSnapshot fileDetails) {
-        return hash(file);
+    private HashCode hashMapped(File file) {
+        try {
+            FileInputStream inputStream = new FileInputStream(file);
+            try {
+                FileChannel channel = inputStream.getChannel();
+                long size = channel.size();
+                Hasher hasher = hasherFactory.create();
+                for (long position = 0; position < size; position += MAPPED_REGION_SIZE) {
+                    MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAPPED_REGION_SIZE, size - position));
+                    try {
+                        hasher.putBytes(region);
+                    } finally {
+                        MappedBuffers.release(region);
+                    }
+                }
+                return hasher.hash();
+            } finally {
+                IOUtils.closeQuietly(inputStream);
+            }
+        } catch (FileNotFoundException e) {
+            throw fileNotFound(file, e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Failed to create %s for file '%s'.", hashName(), file), e);
+        }
     }
 
-    @Override
-    public HashCode hash(FileTreeElement fileDetails) {
-        return hash(fileDetails.getFile());
+    private UncheckedIOException fileNotFound(File file, FileNotFoundException e) {
+        return new UncheckedIOException(String.format("Failed to create %s for file '%s' as it does not exist.", hashName(), file), e);
+    }
+
+    private String hashName() {
+        return hasherFactory == null ? "hash" : hasherFactory.getAlgorithm() + " hash";
     }
 }
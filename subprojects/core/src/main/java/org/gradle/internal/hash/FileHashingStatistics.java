@@ -0,0 +1,37 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.hash;
+
+/**
+ * Details of build operation progress events emitted when file content was hashed while snapshotting the file system.
+ */
+public interface FileHashingStatistics {
+    /**
+     * The number of files whose content was hashed, not counting files whose hash was already known.
+     */
+    long getHashedFiles();
+
+    /**
+     * The total size of the content that was hashed.
+     */
+    long getHashedBytes();
+
+    /**
+     * The total time spent hashing, in milliseconds. When files are hashed in parallel, this is the sum of the time spent by all threads.
+     */
+    long getHashingTime();
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.hash;
+
+import org.gradle.internal.Factory;
+
+import javax.annotation.Nullable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects the statistics for the file content hashed by {@link DefaultFileHasher} while running some work, on any thread.
+ */
+public class FileHashingStatisticsCollector implements FileHashingStatistics {
+    private static final ThreadLocal<FileHashingStatisticsCollector> CURRENT = new ThreadLocal<FileHashingStatisticsCollector>();
+
+    private final AtomicLong hashedFiles = new AtomicLong();
+    private final AtomicLong hashedBytes = new AtomicLong();
+    private final AtomicLong hashingTimeNanos = new AtomicLong();
+
+    /**
+     * The collector for the work running on the current thread, if any.
+     */
+    @Nullable
+    public static FileHashingStatisticsCollector current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Runs the given work on the current thread, recording all file content hashed by it into this collector.
+     */
+    public <T> T collect(Factory<T> work) {
+        FileHashingStatisticsCollector previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return work.create();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    public void recordHashedFile(long bytes, long nanos) {
+        hashedFiles.incrementAndGet();
+        hashedBytes.addAndGet(bytes);
+        hashingTimeNanos.addAndGet(nanos);
+    }
+
+    @Override
+    public long getHashedFiles() {
+        return hashedFiles.get();
+    }
+
+    @Override
+    public long getHashedBytes() {
+        return hashedBytes.get();
+    }
+
+    @Override
+    public long getHashingTime() {
+        return TimeUnit.NANOSECONDS.toMillis(hashingTimeNanos.get());
+    }
+}
@@ -74,6 +74,7 @@ import org.gradle.internal.environment.GradleBuildEnvironment;
 import org.gradle.internal.event.ListenerManager;
 import org.gradle.internal.filewatch.DefaultFileWatcherFactory;
 import org.gradle.internal.filewatch.FileWatcherFactory;
+import org.gradle.internal.hash.ContentHashAlgorithm;
 import org.gradle.internal.hash.ContentHasherFactory;
 import org.gradle.internal.hash.DefaultContentHasherFactory;
 import org.gradle.internal.hash.DefaultStreamHasher;
@@ -236,12 +237,16 @@ public class GlobalScopeServices extends BasicGlobalScopeServices {
         return instantiatorFactory.decorate();
     }
 
-    CrossBuildInMemoryCacheFactory createCrossBuildInMemoryCacheFactory(ListenerManager listenerManager) {
-        return new CrossBuildInMemoryCacheFactory(listenerManager);
+    CrossBuildInMemoryCacheFactory createCrossBuildInMemoryCacheFactory(ListenerManager listenerManager, MemoryManager memoryManager) {
+        CrossBuildInMemoryCacheFactory cacheFactory = new CrossBuildInMemoryCacheFactory(listenerManager);
+        memoryManager.addHeapMemoryHolder(cacheFactory);
+        return cacheFactory;
     }
 
-    InMemoryCacheDecoratorFactory createInMemoryTaskArtifactCache(CrossBuildInMemoryCacheFactory cacheFactory) {
-        return new InMemoryCacheDecoratorFactory(environment.isLongLivingProcess(), cacheFactory);
+    InMemoryCacheDecoratorFactory createInMemoryTaskArtifactCache(CrossBuildInMemoryCacheFactory cacheFactory, MemoryManager memoryManager) {
+        InMemoryCacheDecoratorFactory decoratorFactory = new InMemoryCacheDecoratorFactory(environment.isLongLivingProcess(), cacheFactory);
+        memoryManager.addHeapMemoryHolder(decoratorFactory);
+        return decoratorFactory;
     }
 
     DirectoryFileTreeFactory createDirectoryFileTreeFactory(Factory<PatternSet> patternSetFactory, FileSystem fileSystem) {
@@ -351,7 +356,7 @@ public class GlobalScopeServices extends BasicGlobalScopeServices {
     }
 
     ContentHasherFactory createHasherFactory() {
-        return new DefaultContentHasherFactory();
+        return new DefaultContentHasherFactory(ContentHashAlgorithm.fromSystemProperties());
     }
 
     StreamHasher createStreamHasher(ContentHasherFactory hasherFactory) {
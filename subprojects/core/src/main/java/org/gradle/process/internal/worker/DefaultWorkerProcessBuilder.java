@@ -24,6 +24,7 @@ import org.gradle.internal.remote.Address;
 import org.gradle.internal.remote.ConnectionAcceptor;
 import org.gradle.internal.remote.MessagingServer;
 import org.gradle.internal.remote.ObjectConnection;
+import org.gradle.internal.remote.internal.hub.MessageHub;
 import org.gradle.process.ExecResult;
 import org.gradle.process.internal.ExecHandle;
 import org.gradle.process.internal.JavaExecHandleBuilder;
@@ -193,6 +194,9 @@ public class DefaultWorkerProcessBuilder implements WorkerProcessBuilder {
 
         workerImplementationFactory.prepareJavaCommand(id, displayName, this, implementationClassPath, localAddress, javaCommand, shouldPublishJvmMemoryInfo);
 
+        if (MessageHub.isBatchingEnabled()) {
+            javaCommand.systemProperty(MessageHub.BATCH_MESSAGES_PROPERTY, "true");
+        }
         javaCommand.args("'" + displayName + "'");
         ExecHandle execHandle = javaCommand.build();
 
@@ -16,6 +16,8 @@
 
 package org.gradle.process.internal.worker;
 
+import org.gradle.internal.serialize.Serializer;
+
 /**
  * Configures and builds multi-request workers. A multi-request worker runs zero or more requests in a forked worker process.
  *
@@ -26,6 +28,13 @@ package org.gradle.process.internal.worker;
  * <p>The worker process must be explicitly started and stopped using the methods on {@link WorkerControl}.</p>
  */
 public interface MultiRequestWorkerProcessBuilder<T> extends WorkerProcessSettings {
+    /**
+     * Uses the given serializer for the arguments and results of type {@link S} exchanged with the worker. Arguments and results of other types are sent using Java serialization.
+     *
+     * <p>A serializer is created for each connection in both the build and the worker process, using a public constructor which takes the class loader of the worker implementation.</p>
+     */
+    <S> void registerArgumentSerializer(Class<S> type, Class<? extends Serializer<S>> serializerType);
+
     /**
      * Creates a worker.
      *
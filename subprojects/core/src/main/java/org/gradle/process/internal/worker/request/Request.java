@@ -0,0 +1,57 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.process.internal.worker.request;
+
+import org.gradle.internal.operations.BuildOperationRef;
+
+import javax.annotation.Nullable;
+
+/**
+ * A method call to run in a worker process.
+ */
+public class Request {
+    private final String methodName;
+    private final Class<?>[] paramTypes;
+    private final Object[] args;
+    private final BuildOperationRef buildOperation;
+
+    public Request(String methodName, Class<?>[] paramTypes, @Nullable Object[] args, @Nullable BuildOperationRef buildOperation) {
+        this.methodName = methodName;
+        this.paramTypes = paramTypes;
+        this.args = args;
+        this.buildOperation = buildOperation;
+    }
+
+    public String getMethodName() {
+        return methodName;
+    }
+
+    public Class<?>[] getParamTypes() {
+        return paramTypes;
+    }
+
+    @Nullable
+    public Object[] getArgs() {
+        return args;
+    }
+
+    @Nullable
+    public BuildOperationRef getBuildOperation() {
+        return buildOperation;
+    }
+}
@@ -0,0 +1,238 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.process.internal.worker.request;
+
+import com.google.common.collect.ImmutableMap;
+import org.gradle.internal.Cast;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.operations.BuildOperationRef;
+import org.gradle.internal.operations.DefaultBuildOperationRef;
+import org.gradle.internal.operations.OperationIdentifier;
+import org.gradle.internal.remote.ObjectConnection;
+import org.gradle.internal.serialize.Decoder;
+import org.gradle.internal.serialize.DefaultSerializerRegistry;
+import org.gradle.internal.serialize.Encoder;
+import org.gradle.internal.serialize.Message;
+import org.gradle.internal.serialize.Serializer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Serializers for the requests sent to a worker process and the results sent back.
+ *
+ * <p>Arguments and results are encoded using the serializers registered for their type, and using Java serialization otherwise. All strings are
+ * written through a {@link StringTable}, so method names, class names and file paths are only sent once per connection.</p>
+ */
+public class RequestSerializers {
+    private static final Map<String, Class<?>> PRIMITIVE_TYPES;
+
+    static {
+        ImmutableMap.Builder<String, Class<?>> builder = ImmutableMap.builder();
+        for (Class<?> type : new Class<?>[]{boolean.class, byte.class, char.class, short.class, int.class, long.class, float.class, double.class}) {
+            builder.put(type.getName(), type);
+        }
+        PRIMITIVE_TYPES = builder.build();
+    }
+
+    private final RequestSerializer requestSerializer;
+    private final ArgumentSerializer resultSerializer;
+
+    /**
+     * Creates the serializers for a single connection. Has to be called with the same argument serializers at both ends of the connection.
+     *
+     * @param argumentSerializers the names of the argument types, mapped to the names of their serializer types.
+     * Each serializer type needs a public constructor taking the class loader to load classes from.
+     * @param classLoader the class loader to load argument types, serializers and the classes of Java serialized objects from.
+     */
+    public RequestSerializers(Map<String, String> argumentSerializers, ClassLoader classLoader) {
+        List<Class<?>> types = new ArrayList<Class<?>>(argumentSerializers.size());
+        List<Serializer<Object>> serializers = new ArrayList<Serializer<Object>>(argumentSerializers.size());
+        try {
+            for (Map.Entry<String, String> entry : argumentSerializers.entrySet()) {
+                types.add(Class.forName(entry.getKey(), false, classLoader));
+                Class<?> serializerType = Class.forName(entry.getValue(), true, classLoader);
+                serializers.add(Cast.<Serializer<Object>>uncheckedCast(serializerType.getConstructor(ClassLoader.class).newInstance(classLoader)));
+            }
+        } catch (Exception e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+        StringTable strings = new StringTable();
+        resultSerializer = new ArgumentSerializer(types, serializers, classLoader, strings);
+        requestSerializer = new RequestSerializer(resultSerializer, classLoader, strings);
+    }
+
+    public Serializer<Request> getRequestSerializer() {
+        return requestSerializer;
+    }
+
+    public Serializer<Object> getResultSerializer() {
+        return resultSerializer;
+    }
+
+    /**
+     * Uses these serializers for the requests and results sent over the given connection.
+     */
+    public void useFor(ObjectConnection connection) {
+        DefaultSerializerRegistry requests = new DefaultSerializerRegistry(false);
+        requests.register(Request.class, requestSerializer);
+        connection.useParameterSerializers(requests);
+        // Results are passed to ResponseProtocol.completed(Object), the only method on the connection whose first parameter is an Object
+        DefaultSerializerRegistry results = new DefaultSerializerRegistry(false);
+        results.register(Object.class, resultSerializer);
+        connection.useParameterSerializers(results);
+    }
+
+    private static class RequestSerializer implements Serializer<Request> {
+        private final ArgumentSerializer argumentSerializer;
+        private final ClassLoader classLoader;
+        private final StringTable strings;
+        private final Map<String, Class<?>> paramTypes = new HashMap<String, Class<?>>();
+
+        RequestSerializer(ArgumentSerializer argumentSerializer, ClassLoader classLoader, StringTable strings) {
+            this.argumentSerializer = argumentSerializer;
+            this.classLoader = classLoader;
+            this.strings = strings;
+        }
+
+        @Override
+        public void write(Encoder encoder, Request request) throws Exception {
+            encoder = strings.encoder(encoder);
+            encoder.writeString(request.getMethodName());
+            Class<?>[] paramTypes = request.getParamTypes();
+            encoder.writeSmallInt(paramTypes.length);
+            for (Class<?> paramType : paramTypes) {
+                encoder.writeString(paramType.getName());
+            }
+            Object[] args = request.getArgs();
+            encoder.writeBoolean(args != null);
+            if (args != null) {
+                for (Object arg : args) {
+                    argumentSerializer.writeArgument(encoder, arg);
+                }
+            }
+            BuildOperationRef buildOperation = request.getBuildOperation();
+            encoder.writeBoolean(buildOperation != null);
+            if (buildOperation != null) {
+                encoder.writeSmallLong(buildOperation.getId().getId());
+                OperationIdentifier parentId = buildOperation.getParentId();
+                encoder.writeBoolean(parentId != null);
+                if (parentId != null) {
+                    encoder.writeSmallLong(parentId.getId());
+                }
+            }
+        }
+
+        @Override
+        public Request read(Decoder decoder) throws Exception {
+            decoder = strings.decoder(decoder);
+            String methodName = decoder.readString();
+            Class<?>[] paramTypes = new Class<?>[decoder.readSmallInt()];
+            for (int i = 0; i < paramTypes.length; i++) {
+                paramTypes[i] = paramType(decoder.readString());
+            }
+            Object[] args = null;
+            if (decoder.readBoolean()) {
+                args = new Object[paramTypes.length];
+                for (int i = 0; i < args.length; i++) {
+                    args[i] = argumentSerializer.readArgument(decoder);
+                }
+            }
+            BuildOperationRef buildOperation = null;
+            if (decoder.readBoolean()) {
+                OperationIdentifier id = new OperationIdentifier(decoder.readSmallLong());
+                OperationIdentifier parentId = decoder.readBoolean() ? new OperationIdentifier(decoder.readSmallLong()) : null;
+                buildOperation = new DefaultBuildOperationRef(id, parentId);
+            }
+            return new Request(methodName, paramTypes, args, buildOperation);
+        }
+
+        private Class<?> paramType(String name) throws ClassNotFoundException {
+            Class<?> type = paramTypes.get(name);
+            if (type == null) {
+                type = PRIMITIVE_TYPES.get(name);
+                if (type == null) {
+                    type = Class.forName(name, false, classLoader);
+                }
+                paramTypes.put(name, type);
+            }
+            return type;
+        }
+    }
+
+    private static class ArgumentSerializer implements Serializer<Object> {
+        private static final int NULL = 0;
+        private static final int JAVA_SERIALIZATION = 1;
+        private static final int FIRST_REGISTERED_TYPE = 2;
+
+        private final List<Class<?>> types;
+        private final List<Serializer<Object>> serializers;
+        private final ClassLoader classLoader;
+        private final StringTable strings;
+
+        ArgumentSerializer(List<Class<?>> types, List<Serializer<Object>> serializers, ClassLoader classLoader, StringTable strings) {
+            this.types = types;
+            this.serializers = serializers;
+            this.classLoader = classLoader;
+            this.strings = strings;
+        }
+
+        @Override
+        public void write(Encoder encoder, Object value) throws Exception {
+            writeArgument(strings.encoder(encoder), value);
+        }
+
+        @Override
+        public Object read(Decoder decoder) throws Exception {
+            return readArgument(strings.decoder(decoder));
+        }
+
+        void writeArgument(Encoder encoder, Object value) throws Exception {
+            if (value == null) {
+                encoder.writeSmallInt(NULL);
+                return;
+            }
+            int index = types.indexOf(value.getClass());
+            if (index >= 0) {
+                encoder.writeSmallInt(FIRST_REGISTERED_TYPE + index);
+                serializers.get(index).write(encoder, value);
+            } else {
+                encoder.writeSmallInt(JAVA_SERIALIZATION);
+                ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+                Message.send(value, outputStream);
+                encoder.writeBinary(outputStream.toByteArray());
+            }
+        }
+
+        Object readArgument(Decoder decoder) throws Exception {
+            int tag = decoder.readSmallInt();
+            switch (tag) {
+                case NULL:
+                    return null;
+                case JAVA_SERIALIZATION:
+                    return Message.receive(new ByteArrayInputStream(decoder.readBinary()), classLoader);
+                default:
+                    return serializers.get(tag - FIRST_REGISTERED_TYPE).read(decoder);
+            }
+        }
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.process.internal.worker.request;
+
+import org.gradle.internal.serialize.Decoder;
+import org.gradle.internal.serialize.Encoder;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The strings exchanged over a single connection, such as method and class names, display names and file paths.
+ *
+ * <p>A string is sent in full the first time it is written and as an index into the table after that. The table for each direction is only
+ * used by the single thread which writes to, or reads from, the connection.</p>
+ */
+class StringTable {
+    private static final int NULL = 0;
+    private static final int NEW = 1;
+    private static final int FIRST_INDEX = 2;
+
+    private final Map<String, Integer> written = new HashMap<String, Integer>();
+    private final List<String> read = new ArrayList<String>();
+
+    Encoder encoder(Encoder encoder) {
+        return new TableEncoder(encoder);
+    }
+
+    Decoder decoder(Decoder decoder) {
+        return new TableDecoder(decoder);
+    }
+
+    private class TableEncoder implements Encoder {
+        private final Encoder delegate;
+
+        TableEncoder(Encoder delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void writeString(CharSequence value) throws IOException {
+            if (value == null) {
+                throw new IllegalArgumentException("Cannot encode a null string.");
+            }
+            writeNullableString(value);
+        }
+
+        @Override
+        public void writeNullableString(@Nullable CharSequence value) throws IOException {
+            if (value == null) {
+                delegate.writeSmallInt(NULL);
+                return;
+            }
+            String string = value.toString();
+            Integer index = written.get(string);
+            if (index == null) {
+                written.put(string, written.size());
+                delegate.writeSmallInt(NEW);
+                delegate.writeString(string);
+            } else {
+                delegate.writeSmallInt(FIRST_INDEX + index);
+            }
+        }
+
+        @Override
+        public OutputStream getOutputStream() {
+            return delegate.getOutputStream();
+        }
+
+        @Override
+        public void writeByte(byte value) throws IOException {
+            delegate.writeByte(value);
+        }
+
+        @Override
+        public void writeBytes(byte[] bytes) throws IOException {
+            delegate.writeBytes(bytes);
+        }
+
+        @Override
+        public void writeBytes(byte[] bytes, int offset, int count) throws IOException {
+            delegate.writeBytes(bytes, offset, count);
+        }
+
+        @Override
+        public void writeBinary(byte[] bytes) throws IOException {
+            delegate.writeBinary(bytes);
+        }
+
+        @Override
+        public void writeBinary(byte[] bytes, int offset, int count) throws IOException {
+            delegate.writeBinary(bytes, offset, count);
+        }
+
+        @Override
+        public void writeLong(long value) throws IOException {
+            delegate.writeLong(value);
+        }
+
+        @Override
+        public void writeSmallLong(long value) throws IOException {
+            delegate.writeSmallLong(value);
+        }
+
+        @Override
+        public void writeInt(int value) throws IOException {
+            delegate.writeInt(value);
+        }
+
+        @Override
+        public void writeSmallInt(int value) throws IOException {
+            delegate.writeSmallInt(value);
+        }
+
+        @Override
+        public void writeBoolean(boolean value) throws IOException {
+            delegate.writeBoolean(value);
+        }
+    }
+
+    private class TableDecoder implements Decoder {
+        private final Decoder delegate;
+
+        TableDecoder(Decoder delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public String readString() throws IOException {
+            String value = readNullableString();
+            if (value == null) {
+                throw new IOException("Expected a string but found null.");
+            }
+            return value;
+        }
+
+        @Nullable
+        @Override
+        public String readNullableString() throws IOException {
+            int tag = delegate.readSmallInt();
+            if (tag == NULL) {
+                return null;
+            }
+            if (tag == NEW) {
+                String value = delegate.readString();
+                read.add(value);
+                return value;
+            }
+            return read.get(tag - FIRST_INDEX);
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return delegate.getInputStream();
+        }
+
+        @Override
+        public long readLong() throws IOException {
+            return delegate.readLong();
+        }
+
+        @Override
+        public long readSmallLong() throws IOException {
+            return delegate.readSmallLong();
+        }
+
+        @Override
+        public int readInt() throws IOException {
+            return delegate.readInt();
+        }
+
+        @Override
+        public int readSmallInt() throws IOException {
+            return delegate.readSmallInt();
+        }
+
+        @Override
+        public boolean readBoolean() throws IOException {
+            return delegate.readBoolean();
+        }
+
+        @Override
+        public byte readByte() throws IOException {
+            return delegate.readByte();
+        }
+
+        @Override
+        public void readBytes(byte[] buffer) throws IOException {
+            delegate.readBytes(buffer);
+        }
+
+        @Override
+        public void readBytes(byte[] buffer, int offset, int count) throws IOException {
+            delegate.readBytes(buffer, offset, count);
+        }
+
+        @Override
+        public byte[] readBinary() throws IOException {
+            return delegate.readBinary();
+        }
+
+        @Override
+        public void skipBytes(long count) throws IOException {
+            delegate.skipBytes(count);
+        }
+    }
+}
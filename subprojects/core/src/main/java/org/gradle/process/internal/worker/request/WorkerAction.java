@@ -24,18 +24,21 @@ import org.gradle.cache.internal.CrossBuildInMemoryCacheFactory;
 import org.gradle.internal.UncheckedException;
 import org.gradle.internal.event.DefaultListenerManager;
 import org.gradle.internal.operations.CurrentBuildOperationRef;
-import org.gradle.internal.operations.BuildOperationRef;
 import org.gradle.internal.remote.ObjectConnection;
 import org.gradle.internal.remote.internal.hub.StreamFailureHandler;
+import org.gradle.internal.serialize.Serializer;
 import org.gradle.process.internal.worker.WorkerProcessContext;
 
 import java.io.Serializable;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.concurrent.CountDownLatch;
 
 public class WorkerAction implements Action<WorkerProcessContext>, Serializable, RequestProtocol, StreamFailureHandler {
     private final String workerImplementationName;
+    private final Map<String, String> argumentSerializers = new LinkedHashMap<String, String>();
     private transient CountDownLatch completed;
     private transient ResponseProtocol responder;
     private transient Throwable failure;
@@ -47,6 +50,14 @@ public class WorkerAction implements Action<WorkerProcessContext>, Serializable,
         this.workerImplementationName = workerImplementation.getName();
     }
 
+    public Map<String, String> getArgumentSerializers() {
+        return argumentSerializers;
+    }
+
+    public <T> void registerArgumentSerializer(Class<T> type, Class<? extends Serializer<T>> serializerType) {
+        argumentSerializers.put(type.getName(), serializerType.getName());
+    }
+
     @Override
     public void execute(WorkerProcessContext workerProcessContext) {
         completed = new CountDownLatch(1);
@@ -61,6 +72,7 @@ public class WorkerAction implements Action<WorkerProcessContext>, Serializable,
         }
 
         ObjectConnection connection = workerProcessContext.getServerConnection();
+        new RequestSerializers(argumentSerializers, getClass().getClassLoader()).useFor(connection);
         connection.addIncoming(RequestProtocol.class, this);
         responder = connection.addOutgoing(ResponseProtocol.class);
         connection.connect();
@@ -79,26 +91,26 @@ public class WorkerAction implements Action<WorkerProcessContext>, Serializable,
     }
 
     @Override
-    public void runThenStop(String methodName, Class<?>[] paramTypes, Object[] args, BuildOperationRef buildOperation) {
+    public void runThenStop(Request request) {
         try {
-            run(methodName, paramTypes, args, buildOperation);
+            run(request);
         } finally {
             stop();
         }
     }
 
     @Override
-    public void run(String methodName, Class<?>[] paramTypes, Object[] args, BuildOperationRef buildOperation) {
+    public void run(Request request) {
         if (failure != null) {
             responder.infrastructureFailed(failure);
             return;
         }
         try {
-            Method method = workerImplementation.getDeclaredMethod(methodName, paramTypes);
-            CurrentBuildOperationRef.instance().set(buildOperation);
+            Method method = workerImplementation.getDeclaredMethod(request.getMethodName(), request.getParamTypes());
+            CurrentBuildOperationRef.instance().set(request.getBuildOperation());
             Object result;
             try {
-                result = method.invoke(implementation, args);
+                result = method.invoke(implementation, request.getArgs());
             } catch (InvocationTargetException e) {
                 Throwable failure = e.getCause();
                 if (failure instanceof NoClassDefFoundError) {
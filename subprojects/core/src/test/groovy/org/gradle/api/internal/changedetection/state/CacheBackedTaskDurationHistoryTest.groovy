@@ -0,0 +1,59 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state
+
+import org.gradle.api.internal.TaskInternal
+import org.gradle.cache.PersistentIndexedCache
+import spock.lang.Specification
+
+class CacheBackedTaskDurationHistoryTest extends Specification {
+    def cache = Mock(PersistentIndexedCache)
+    def cacheAccess = Mock(TaskHistoryStore)
+    def task = Stub(TaskInternal) {
+        getPath() >> ":task"
+    }
+
+    def "creates the cache when durations are first used"() {
+        when:
+        def history = new CacheBackedTaskDurationHistory(cacheAccess)
+
+        then:
+        0 * cacheAccess._
+
+        when:
+        history.recordDuration(task, 100)
+        history.getEstimatedDuration(task)
+
+        then:
+        1 * cacheAccess.createCache("taskDurations", String, _, _, false) >> cache
+        1 * cache.get(":task") >> null
+        1 * cache.put(":task", 100L)
+        1 * cache.get(":task") >> 100L
+    }
+
+    def "averages the recorded duration with the previous estimate"() {
+        cacheAccess.createCache(*_) >> cache
+        def history = new CacheBackedTaskDurationHistory(cacheAccess)
+
+        when:
+        history.recordDuration(task, 300)
+
+        then:
+        1 * cache.get(":task") >> 100L
+        1 * cache.put(":task", 200L)
+    }
+}
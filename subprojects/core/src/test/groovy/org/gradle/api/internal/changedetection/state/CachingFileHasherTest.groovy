@@ -21,6 +21,7 @@ import org.gradle.api.internal.cache.StringInterner
 import org.gradle.api.internal.changedetection.state.CachingFileHasher.FileInfo
 import org.gradle.api.internal.file.TestFiles
 import org.gradle.cache.PersistentIndexedCache
+import org.gradle.internal.hash.ContentHashAlgorithm
 import org.gradle.internal.hash.FileHasher
 import org.gradle.internal.hash.Hashing
 import org.gradle.internal.nativeintegration.filesystem.DefaultFileMetadata
@@ -29,6 +30,8 @@ import org.junit.Rule
 import spock.lang.Specification
 
 class CachingFileHasherTest extends Specification {
+    private static final byte MD5_ID = ContentHashAlgorithm.MD5.id
+
     @Rule
     TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
     def target = Mock(FileHasher)
@@ -44,7 +47,7 @@ class CachingFileHasherTest extends Specification {
     def setup() {
         file.write("some-content")
         1 * cacheAccess.createCache("fileHashes", _, _, _, _) >> cache
-        hasher = new CachingFileHasher(target, cacheAccess, new StringInterner(), timeStampInspector, "fileHashes", fileSystem)
+        hasher = new CachingFileHasher(target, cacheAccess, new StringInterner(), timeStampInspector, "fileHashes", fileSystem, ContentHashAlgorithm.MD5)
     }
 
     def hashesFileWhenHashNotCached() {
@@ -62,6 +65,7 @@ class CachingFileHasherTest extends Specification {
         1 * target.hash(file) >> hash
         1 * cache.put(file.absolutePath, _) >> { String key, FileInfo fileInfo ->
             assert fileInfo.hash == hash
+            assert fileInfo.hashAlgorithm == MD5_ID
             assert fileInfo.length == stat.length
             assert fileInfo.timestamp == stat.lastModified
         }
@@ -79,7 +83,7 @@ class CachingFileHasherTest extends Specification {
 
         and:
         1 * timeStampInspector.timestampCanBeUsedToDetectFileChange(file.absolutePath, stat.lastModified) >> true
-        1 * cache.get(file.absolutePath) >> new FileInfo(oldHash, 1024, stat.lastModified)
+        1 * cache.get(file.absolutePath) >> new FileInfo(oldHash, MD5_ID, 1024, stat.lastModified)
         1 * target.hash(file) >> hash
         1 * cache.put(file.absolutePath, _) >> { String key, FileInfo fileInfo ->
             assert fileInfo.hash == hash
@@ -100,7 +104,7 @@ class CachingFileHasherTest extends Specification {
 
         and:
         1 * timeStampInspector.timestampCanBeUsedToDetectFileChange(file.absolutePath, stat.lastModified) >> true
-        1 * cache.get(file.absolutePath) >> new FileInfo(oldHash, file.length(), 124)
+        1 * cache.get(file.absolutePath) >> new FileInfo(oldHash, MD5_ID, file.length(), 124)
         1 * target.hash(file) >> hash
         1 * cache.put(file.absolutePath, _) >> { String key, FileInfo fileInfo ->
             assert fileInfo.hash == hash
@@ -121,7 +125,27 @@ class CachingFileHasherTest extends Specification {
 
         and:
         1 * timeStampInspector.timestampCanBeUsedToDetectFileChange(file.absolutePath, stat.lastModified) >> true
-        1 * cache.get(file.absolutePath) >> new FileInfo(hash, stat.length, stat.lastModified)
+        1 * cache.get(file.absolutePath) >> new FileInfo(hash, MD5_ID, stat.length, stat.lastModified)
+        0 * _._
+    }
+
+    def hashesFileWhenCachedHashWasCreatedWithDifferentAlgorithm() {
+        def stat = fileSystem.stat(file)
+
+        when:
+        def result = hasher.hash(file)
+
+        then:
+        result == hash
+
+        and:
+        1 * timeStampInspector.timestampCanBeUsedToDetectFileChange(file.absolutePath, stat.lastModified) >> true
+        1 * cache.get(file.absolutePath) >> new FileInfo(oldHash, ContentHashAlgorithm.MURMUR3.id, stat.length, stat.lastModified)
+        1 * target.hash(file) >> hash
+        1 * cache.put(file.absolutePath, _) >> { String key, FileInfo fileInfo ->
+            assert fileInfo.hash == hash
+            assert fileInfo.hashAlgorithm == MD5_ID
+        }
         0 * _._
     }
 
@@ -16,12 +16,15 @@
 
 package org.gradle.api.internal.changedetection.state
 
+import com.google.common.util.concurrent.MoreExecutors
 import org.gradle.api.internal.cache.StringInterner
 import org.gradle.api.internal.file.TestFiles
 import org.gradle.api.internal.file.collections.ImmutableFileCollection
 import org.gradle.internal.hash.HashCode
 import org.gradle.internal.hash.TestFileHasher
+import org.gradle.internal.operations.BuildOperationListener
 import org.gradle.internal.serialize.HashCodeSerializer
+import org.gradle.internal.time.Clock
 import org.gradle.normalization.internal.InputNormalizationStrategy
 import org.gradle.test.fixtures.file.CleanupTestDirectory
 import org.gradle.test.fixtures.file.TestFile
@@ -42,9 +45,9 @@ class DefaultClasspathSnapshotterTest extends Specification {
     }
     def fileSystem = TestFiles.fileSystem()
     def directoryFileTreeFactory = TestFiles.directoryFileTreeFactory()
-    def fileSystemMirror = new DefaultFileSystemMirror(Stub(WellKnownFileLocations))
+    def fileSystemMirror = new DefaultFileSystemMirror(Stub(WellKnownFileLocations), Stub(FileSystemMirrorRetention), Stub(BuildOperationListener), Stub(Clock))
     def fileHasher = new TestFileHasher()
-    def fileSystemSnapshotter = new DefaultFileSystemSnapshotter(fileHasher, stringInterner, fileSystem, directoryFileTreeFactory, fileSystemMirror)
+    def fileSystemSnapshotter = new DefaultFileSystemSnapshotter(fileHasher, stringInterner, fileSystem, directoryFileTreeFactory, fileSystemMirror, MoreExecutors.sameThreadExecutor(), Stub(BuildOperationListener), Stub(Clock))
     InMemoryIndexedCache<HashCode, HashCode> resourceHashesCache = new InMemoryIndexedCache<>(new HashCodeSerializer())
     def cacheService = new DefaultResourceSnapshotterCacheService(resourceHashesCache)
     def snapshotter = new DefaultClasspathSnapshotter(
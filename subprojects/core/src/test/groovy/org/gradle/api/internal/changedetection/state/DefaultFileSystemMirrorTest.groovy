@@ -19,6 +19,12 @@ package org.gradle.api.internal.changedetection.state
 import org.gradle.BuildResult
 import org.gradle.api.internal.GradleInternal
 import org.gradle.internal.classpath.CachedJarFileStore
+import org.gradle.internal.operations.BuildOperationListener
+import org.gradle.internal.operations.CurrentBuildOperationRef
+import org.gradle.internal.operations.DefaultBuildOperationRef
+import org.gradle.internal.operations.OperationIdentifier
+import org.gradle.internal.operations.OperationProgressEvent
+import org.gradle.internal.time.Clock
 import org.gradle.test.fixtures.file.TestFile
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
 import org.junit.Rule
@@ -28,6 +34,9 @@ class DefaultFileSystemMirrorTest extends Specification {
     @Rule
     TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
 
+    def retention = Stub(FileSystemMirrorRetention)
+    def buildOperationListener = Mock(BuildOperationListener)
+    def clock = Stub(Clock)
     DefaultFileSystemMirror mirror
     TestFile cacheDir
 
@@ -35,7 +44,7 @@ class DefaultFileSystemMirrorTest extends Specification {
         cacheDir = tmpDir.createDir("cache")
         def fileStore = Stub(CachedJarFileStore)
         fileStore.fileStoreRoots >> [cacheDir]
-        mirror = new DefaultFileSystemMirror(new DefaultWellKnownFileLocations([fileStore]))
+        mirror = new DefaultFileSystemMirror(new DefaultWellKnownFileLocations([fileStore]), retention, buildOperationListener, clock)
     }
 
     def "keeps state about a file until task outputs are generated"() {
@@ -141,4 +150,176 @@ class DefaultFileSystemMirrorTest extends Specification {
         mirror.getDirectoryTree(file.path) == null
         mirror.getContent(file.path) == null
     }
+
+    def "discards all state when heap memory is released"() {
+        def file = tmpDir.file("a")
+        def cachedFile = cacheDir.file("some/dir/a")
+        def fileSnapshot = Stub(FileSnapshot)
+        def cachedFileSnapshot = Stub(FileSnapshot)
+        def snapshot = Stub(Snapshot)
+
+        given:
+        _ * fileSnapshot.path >> file.path
+        _ * cachedFileSnapshot.path >> cachedFile.path
+
+        expect:
+        mirror.putFile(fileSnapshot)
+        mirror.putFile(cachedFileSnapshot)
+        mirror.putContent(file.path, snapshot)
+        mirror.putContent(cachedFile.path, snapshot)
+
+        mirror.releaseHeapMemory()
+
+        mirror.getFile(file.path) == null
+        mirror.getFile(cachedFile.path) == null
+        mirror.getContent(file.path) == null
+        mirror.getContent(cachedFile.path) == null
+        mirror.statistics.invalidatedEntries == 4
+    }
+
+    def "only discards state for affected locations, their descendants and their ancestors when task outputs are generated"() {
+        def parent = tmpDir.file("parent")
+        def output = parent.file("output")
+        def child = output.file("child")
+        def sibling = parent.file("output-sibling")
+        def unrelated = tmpDir.file("unrelated")
+
+        given:
+        [parent, output, child, sibling, unrelated].each { file ->
+            mirror.putFile(fileSnapshot(file))
+            mirror.putDirectory(treeSnapshot(file))
+            mirror.putContent(file.path, Stub(Snapshot))
+        }
+
+        when:
+        mirror.beforeTaskOutputChanged([output.path])
+
+        then:
+        [parent, output, child].each { file ->
+            assert mirror.getFile(file.path) == null
+            assert mirror.getDirectoryTree(file.path) == null
+            assert mirror.getContent(file.path) == null
+        }
+        [sibling, unrelated].each { file ->
+            assert mirror.getFile(file.path) != null
+            assert mirror.getDirectoryTree(file.path) != null
+            assert mirror.getContent(file.path) != null
+        }
+    }
+
+    def "does not discard state about a file that lives in the caches when affected task outputs are generated"() {
+        def file = cacheDir.file("some/dir/a")
+
+        given:
+        mirror.putFile(fileSnapshot(file))
+
+        when:
+        mirror.beforeTaskOutputChanged([cacheDir.path, file.path])
+
+        then:
+        mirror.getFile(file.path) != null
+    }
+
+    def "reports hits, misses and invalidated entries as build operation progress"() {
+        def file = tmpDir.file("a")
+        def operation = new DefaultBuildOperationRef(new OperationIdentifier(1), null)
+        def details = null
+
+        given:
+        clock.currentTime >> 123
+        mirror.putFile(fileSnapshot(file))
+        mirror.putDirectory(treeSnapshot(file))
+        mirror.getFile(file.path)
+        mirror.getDirectoryTree(tmpDir.file("b").path)
+        CurrentBuildOperationRef.instance().set(operation)
+
+        when:
+        mirror.beforeTaskOutputChanged([file.path])
+
+        then:
+        1 * buildOperationListener.progress(operation.id, _) >> { OperationIdentifier id, OperationProgressEvent event ->
+            assert event.time == 123
+            details = event.details
+        }
+        details instanceof FileSystemMirrorStatistics
+        details.hits == 1
+        details.misses == 1
+        details.invalidatedEntries == 2
+
+        cleanup:
+        CurrentBuildOperationRef.instance().clear()
+    }
+
+    def "keeps state about locations retained at the end of build"() {
+        def retained = tmpDir.file("retained")
+        def retainedChild = retained.file("child")
+        def discarded = tmpDir.file("discarded")
+        def cached = cacheDir.file("some/dir/a")
+        Set<String> locations = null
+
+        given:
+        [retained, retainedChild, discarded, cached].each { file ->
+            mirror.putFile(fileSnapshot(file))
+            mirror.putDirectory(treeSnapshot(file))
+        }
+        retention.retain(_, _) >> { Set<String> paths, FileSystemMirrorRetention.Invalidator invalidator ->
+            locations = paths
+            [retained.path] as Set
+        }
+
+        when:
+        mirror.beforeComplete()
+
+        then:
+        locations == [retained.path, retainedChild.path, discarded.path] as Set
+        mirror.getFile(retained.path) != null
+        mirror.getDirectoryTree(retained.path) != null
+        mirror.getFile(retainedChild.path) != null
+        mirror.getFile(discarded.path) == null
+        mirror.getDirectoryTree(discarded.path) == null
+        mirror.getFile(cached.path) == null
+    }
+
+    def "discards state about changed locations reported after the end of build"() {
+        def retained = tmpDir.file("retained")
+        def changed = retained.file("changed")
+        def unchanged = retained.file("unchanged")
+        FileSystemMirrorRetention.Invalidator invalidator = null
+
+        given:
+        [retained, changed, unchanged].each { file ->
+            mirror.putFile(fileSnapshot(file))
+        }
+        retention.retain(_, _) >> { Set<String> paths, FileSystemMirrorRetention.Invalidator listener ->
+            invalidator = listener
+            [retained.path] as Set
+        }
+        mirror.beforeComplete()
+
+        when:
+        invalidator.invalidate([changed.path])
+
+        then:
+        mirror.getFile(changed.path) == null
+        mirror.getFile(retained.path) == null
+        mirror.getFile(unchanged.path) != null
+
+        when:
+        invalidator.invalidateAll()
+
+        then:
+        mirror.getFile(unchanged.path) == null
+    }
+
+    private FileSnapshot fileSnapshot(File file) {
+        Stub(FileSnapshot) {
+            getPath() >> file.path
+        }
+    }
+
+    private FileTreeSnapshot treeSnapshot(File file) {
+        Stub(FileTreeSnapshot) {
+            getPath() >> file.path
+        }
+    }
 }
@@ -16,21 +16,32 @@
 
 package org.gradle.api.internal.changedetection.state
 
+import com.google.common.util.concurrent.MoreExecutors
 import org.gradle.api.internal.cache.StringInterner
 import org.gradle.api.internal.file.TestFiles
 import org.gradle.api.internal.file.collections.DirectoryFileTree
 import org.gradle.caching.internal.DefaultBuildCacheHasher
 import org.gradle.internal.file.FileType
+import org.gradle.internal.hash.FileHashingStatistics
 import org.gradle.internal.hash.TestFileHasher
+import org.gradle.internal.operations.BuildOperationListener
+import org.gradle.internal.operations.CurrentBuildOperationRef
+import org.gradle.internal.operations.DefaultBuildOperationRef
+import org.gradle.internal.operations.OperationIdentifier
+import org.gradle.internal.operations.OperationProgressEvent
+import org.gradle.internal.time.Clock
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
 import org.junit.Rule
 import spock.lang.Specification
 
+import java.util.concurrent.Executors
+
 class DefaultFileSystemSnapshotterTest extends Specification {
     @Rule TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
     def fileHasher = new TestFileHasher()
-    def fileSystemMirror = new DefaultFileSystemMirror(Stub(WellKnownFileLocations))
-    def snapshotter = new DefaultFileSystemSnapshotter(fileHasher, new StringInterner(), TestFiles.fileSystem(), TestFiles.directoryFileTreeFactory(), fileSystemMirror)
+    def fileSystemMirror = new DefaultFileSystemMirror(Stub(WellKnownFileLocations), Stub(FileSystemMirrorRetention), Stub(BuildOperationListener), Stub(Clock))
+    def buildOperationListener = Mock(BuildOperationListener)
+    def snapshotter = new DefaultFileSystemSnapshotter(fileHasher, new StringInterner(), TestFiles.fileSystem(), TestFiles.directoryFileTreeFactory(), fileSystemMirror, MoreExecutors.sameThreadExecutor(), buildOperationListener, Stub(Clock))
 
     def "fetches details of a file and caches the result"() {
         def f = tmpDir.createFile("f")
@@ -179,6 +190,53 @@ class DefaultFileSystemSnapshotterTest extends Specification {
         snapshot.descendants*.relativePath*.pathString as Set == ["d1", "d1/f1", "f1"] as Set
     }
 
+    def "hashes the files of a directory tree in parallel and keeps the order in which they were visited"() {
+        def d = tmpDir.createDir("d")
+        20.times { d.createFile("d${it % 3}/f${it}") << "content ${it}" }
+        def executor = Executors.newFixedThreadPool(4)
+        def parallelSnapshotter = new DefaultFileSystemSnapshotter(fileHasher, new StringInterner(), TestFiles.fileSystem(), TestFiles.directoryFileTreeFactory(), Stub(FileSystemMirror), executor, buildOperationListener, Stub(Clock))
+
+        when:
+        def expected = snapshotter.snapshotDirectoryTree(d).descendants
+        def snapshot = parallelSnapshotter.snapshotDirectoryTree(d)
+
+        then:
+        snapshot.descendants*.path == expected*.path
+        snapshot.descendants*.content == expected*.content
+
+        cleanup:
+        executor.shutdown()
+    }
+
+    def "reports the content hashed while snapshotting a directory tree as build operation progress"() {
+        def d = tmpDir.createDir("d")
+        d.createFile("f1") << "12345"
+        d.createFile("d1/f2") << "123"
+        def operation = new DefaultBuildOperationRef(new OperationIdentifier(1), null)
+        def hashingSnapshotter = new DefaultFileSystemSnapshotter(TestFiles.fileHasher(), new StringInterner(), TestFiles.fileSystem(), TestFiles.directoryFileTreeFactory(), fileSystemMirror, MoreExecutors.sameThreadExecutor(), buildOperationListener, Stub(Clock))
+        FileHashingStatistics statistics = null
+        CurrentBuildOperationRef.instance().set(operation)
+
+        when:
+        hashingSnapshotter.snapshotDirectoryTree(d)
+
+        then:
+        1 * buildOperationListener.progress(operation.id, _) >> { OperationIdentifier id, OperationProgressEvent event ->
+            statistics = event.details
+        }
+        statistics.hashedFiles == 2
+        statistics.hashedBytes == 8
+
+        when:
+        hashingSnapshotter.snapshotDirectoryTree(d)
+
+        then:
+        0 * buildOperationListener._
+
+        cleanup:
+        CurrentBuildOperationRef.instance().clear()
+    }
+
     def "snapshots a file and caches the result"() {
         def f = tmpDir.createFile("f")
 
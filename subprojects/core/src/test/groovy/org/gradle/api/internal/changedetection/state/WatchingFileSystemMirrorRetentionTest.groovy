@@ -0,0 +1,129 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state
+
+import org.gradle.api.internal.file.FileSystemSubset
+import org.gradle.internal.filewatch.FileWatcher
+import org.gradle.internal.filewatch.FileWatcherEvent
+import org.gradle.internal.filewatch.FileWatcherFactory
+import org.gradle.internal.filewatch.FileWatcherListener
+import org.gradle.util.SetSystemProperties
+import org.junit.Rule
+import spock.lang.Specification
+
+class WatchingFileSystemMirrorRetentionTest extends Specification {
+    @Rule
+    SetSystemProperties systemProperties = new SetSystemProperties()
+
+    def fileWatcherFactory = Mock(FileWatcherFactory)
+    def fileWatcher = Mock(FileWatcher)
+    def invalidator = Mock(FileSystemMirrorRetention.Invalidator)
+    def retention = new WatchingFileSystemMirrorRetention(fileWatcherFactory)
+    def location = new File("location").absolutePath
+    def otherLocation = new File("other").absolutePath
+
+    def "does not watch or retain anything when not enabled"() {
+        when:
+        def retained = retention.retain([location] as Set, invalidator)
+
+        then:
+        retained.empty
+        0 * fileWatcherFactory._
+    }
+
+    def "retains locations which were watched during the whole build"() {
+        given:
+        System.setProperty(WatchingFileSystemMirrorRetention.WATCH_FILE_SYSTEM_PROPERTY, "true")
+
+        when:
+        def retained = retention.retain([location] as Set, invalidator)
+
+        then:
+        retained.empty
+        1 * fileWatcherFactory.watch(_, _) >> fileWatcher
+        1 * fileWatcher.watch({ FileSystemSubset subset -> subset.contains(new File(location)) })
+
+        when:
+        retained = retention.retain([location, otherLocation] as Set, invalidator)
+
+        then:
+        retained == [location] as Set
+        _ * fileWatcher.running >> true
+        1 * fileWatcher.watch({ FileSystemSubset subset -> subset.contains(new File(otherLocation)) && !subset.contains(new File(location)) })
+        0 * fileWatcherFactory._
+    }
+
+    def "invalidates changed locations"() {
+        given:
+        System.setProperty(WatchingFileSystemMirrorRetention.WATCH_FILE_SYSTEM_PROPERTY, "true")
+        FileWatcherListener listener = null
+        def changed = new File(location, "changed")
+
+        when:
+        retention.retain([location] as Set, invalidator)
+        listener.onChange(fileWatcher, FileWatcherEvent.modify(changed))
+
+        then:
+        1 * fileWatcherFactory.watch(_, _) >> { onError, FileWatcherListener watcherListener ->
+            listener = watcherListener
+            fileWatcher
+        }
+        1 * invalidator.invalidate([changed.absolutePath])
+    }
+
+    def "invalidates everything and starts watching again when events are lost"() {
+        given:
+        System.setProperty(WatchingFileSystemMirrorRetention.WATCH_FILE_SYSTEM_PROPERTY, "true")
+        FileWatcherListener listener = null
+        def newWatcher = Mock(FileWatcher)
+
+        when:
+        retention.retain([location] as Set, invalidator)
+        listener.onChange(fileWatcher, FileWatcherEvent.undefined())
+
+        then:
+        1 * fileWatcherFactory.watch(_, _) >> { onError, FileWatcherListener watcherListener ->
+            listener = watcherListener
+            fileWatcher
+        }
+        1 * invalidator.invalidateAll()
+
+        when:
+        def retained = retention.retain([location] as Set, invalidator)
+
+        then:
+        retained.empty
+        1 * fileWatcher.stop()
+        1 * fileWatcherFactory.watch(_, _) >> newWatcher
+        1 * newWatcher.watch(_)
+    }
+
+    def "stops watching when disabled"() {
+        given:
+        System.setProperty(WatchingFileSystemMirrorRetention.WATCH_FILE_SYSTEM_PROPERTY, "true")
+        fileWatcherFactory.watch(_, _) >> fileWatcher
+        retention.retain([location] as Set, invalidator)
+
+        when:
+        System.clearProperty(WatchingFileSystemMirrorRetention.WATCH_FILE_SYSTEM_PROPERTY)
+        def retained = retention.retain([location] as Set, invalidator)
+
+        then:
+        retained.empty
+        1 * fileWatcher.stop()
+    }
+}
@@ -17,6 +17,7 @@ package org.gradle.api.internal.tasks.execution
 
 import org.gradle.api.execution.TaskActionListener
 import org.gradle.api.internal.TaskInternal
+import org.gradle.api.internal.file.collections.ImmutableFileCollection
 import org.gradle.api.internal.changedetection.TaskArtifactState
 import org.gradle.api.internal.project.ProjectInternal
 import org.gradle.api.internal.tasks.ContextAwareTaskAction
@@ -49,6 +50,7 @@ class ExecuteActionsTaskExecutorTest extends Specification {
     def state = new TaskStateInternal()
     def taskArtifactState = Mock(TaskArtifactState)
     def executionContext = Mock(TaskExecutionContext)
+    def taskProperties = Stub(TaskProperties)
     def scriptSource = Mock(ScriptSource)
     def standardOutputCapture = Mock(StandardOutputCapture)
     def publicListener = Mock(TaskActionListener)
@@ -68,6 +70,7 @@ class ExecuteActionsTaskExecutorTest extends Specification {
         project.getBuildScriptSource() >> scriptSource
         task.getStandardOutputCapture() >> standardOutputCapture
         executionContext.taskArtifactState >> taskArtifactState
+        executionContext.taskProperties >> taskProperties
     }
 
     void noMoreInteractions() {
@@ -161,6 +164,34 @@ class ExecuteActionsTaskExecutorTest extends Specification {
         state.actionable
     }
 
+    def onlyInvalidatesDeclaredOutputLocations() {
+        given:
+        def outputDir = new File("outputDir").absoluteFile
+        def localState = new File("localState").absoluteFile
+        def destroyable = new File("destroyable").absoluteFile
+        task.getTaskActions() >> [action1]
+        task.hasTaskActions() >> true
+        taskProperties.hasDeclaredOutputs() >> true
+        taskProperties.outputFiles >> ImmutableFileCollection.of(outputDir)
+        taskProperties.localStateFiles >> ImmutableFileCollection.of(localState)
+        taskProperties.destroyableFiles >> ImmutableFileCollection.of(destroyable)
+
+        when:
+        executer.execute(task, state, executionContext)
+
+        then:
+        1 * publicListener.beforeActions(task)
+        then:
+        1 * internalListener.beforeTaskOutputChanged([outputDir.path, localState.path, destroyable.path])
+        0 * internalListener.beforeTaskOutputChanged()
+        then:
+        1 * buildOperationExecutor.run(_ as RunnableBuildOperation) >> { args -> args[0].run(Stub(BuildOperationContext)) }
+        then:
+        1 * publicListener.afterActions(task)
+
+        state.outcome == TaskExecutionOutcome.EXECUTED
+    }
+
     def executeDoesOperateOnNewActionListInstance() {
         given:
         interaction {
@@ -24,6 +24,7 @@ import org.gradle.api.execution.TaskExecutionGraphListener
 import org.gradle.api.internal.TaskInputsInternal
 import org.gradle.api.internal.TaskInternal
 import org.gradle.api.internal.TaskOutputsInternal
+import org.gradle.api.internal.changedetection.state.TaskDurationHistory
 import org.gradle.api.internal.tasks.TaskDestroyablesInternal
 import org.gradle.api.internal.tasks.TaskLocalStateInternal
 import org.gradle.api.internal.tasks.TaskStateInternal
@@ -41,9 +42,14 @@ import org.gradle.internal.resources.DefaultResourceLockCoordinationService
 import org.gradle.internal.work.DefaultWorkerLeaseService
 import org.gradle.internal.work.WorkerLeaseRegistry
 import org.gradle.testfixtures.ProjectBuilder
+import org.gradle.util.SetSystemProperties
+import org.junit.Rule
 import spock.lang.Specification
 
 class DefaultTaskExecutionGraphSpec extends Specification {
+    @Rule
+    SetSystemProperties systemProperties = new SetSystemProperties()
+
     def cancellationToken = Mock(BuildCancellationToken)
     def project = ProjectBuilder.builder().build()
     def listenerManager = new DefaultListenerManager()
@@ -57,7 +63,8 @@ class DefaultTaskExecutionGraphSpec extends Specification {
     def thisBuild = project.gradle
     def taskInfoFactory = new TaskInfoFactory(thisBuild, Stub(IncludedBuildTaskGraph))
     def dependencyResolver = new TaskDependencyResolver([new TaskInfoWorkDependencyResolver(taskInfoFactory)])
-    def taskGraph = new DefaultTaskExecutionGraph(listenerManager, new DefaultTaskPlanExecutor(parallelismConfiguration, executorFactory, workerLeases, cancellationToken, coordinationService), [workExecutor], buildOperationExecutor, workerLeases, coordinationService, thisBuild, taskInfoFactory, dependencyResolver)
+    def taskDurationHistory = Mock(TaskDurationHistory)
+    def taskGraph = new DefaultTaskExecutionGraph(listenerManager, new DefaultTaskPlanExecutor(parallelismConfiguration, executorFactory, workerLeases, cancellationToken, coordinationService), [workExecutor], buildOperationExecutor, workerLeases, coordinationService, thisBuild, taskInfoFactory, dependencyResolver, taskDurationHistory)
     WorkerLeaseRegistry.WorkerLeaseCompletion parentWorkerLease
     def executedTasks = []
     def failures = []
@@ -154,6 +161,69 @@ class DefaultTaskExecutionGraphSpec extends Specification {
         failures.empty
     }
 
+    def "executes tasks with the longest critical path first when critical path scheduling is enabled"() {
+        Task a = task("a")
+        Task b = task("b")
+        Task c = task("c", b)
+        Task d = task("d")
+
+        given:
+        System.setProperty(CriticalPathPrioritizer.CRITICAL_PATH_SCHEDULING_PROPERTY, "true")
+        taskDurationHistory.getEstimatedDuration(a) >> 10L
+        taskDurationHistory.getEstimatedDuration(b) >> 100L
+        taskDurationHistory.getEstimatedDuration(c) >> 100L
+
+        when:
+        taskGraph.addTasks([a, c, d])
+        taskGraph.execute(failures)
+
+        then:
+        executedTasks == [b, c, d, a]
+        failures.empty
+        1 * taskDurationHistory.recordDuration(a, _)
+        1 * taskDurationHistory.recordDuration(b, _)
+        1 * taskDurationHistory.recordDuration(c, _)
+        1 * taskDurationHistory.recordDuration(d, _)
+
+        and:
+        def prioritized = buildOperationExecutor.log.mostRecentResult(PrioritizeTaskGraphBuildOperationType)
+        prioritized.taskPaths == [":b", ":c", ":d", ":a"]
+        prioritized.estimatedDurations == [":b": 100L, ":c": 100L, ":a": 10L]
+        prioritized.estimatedCriticalPath == 200
+        buildOperationExecutor.log.mostRecentResult(RecordTaskDurationsBuildOperationType).recordedTaskCount == 4
+        buildOperationExecutor.log.mostRecentResult(RecordTaskDurationsBuildOperationType).estimatedTaskCount == 3
+    }
+
+    def "keeps plan order when critical path scheduling is enabled and tasks have no history"() {
+        Task a = task("a")
+        Task b = task("b")
+        Task c = task("c", b)
+
+        given:
+        System.setProperty(CriticalPathPrioritizer.CRITICAL_PATH_SCHEDULING_PROPERTY, "true")
+
+        when:
+        taskGraph.addTasks([a, c])
+        taskGraph.execute(failures)
+
+        then:
+        executedTasks == [a, b, c]
+        buildOperationExecutor.log.mostRecentResult(PrioritizeTaskGraphBuildOperationType).estimatedDurations.isEmpty()
+    }
+
+    def "does not use task history when critical path scheduling is disabled"() {
+        Task a = task("a")
+        Task b = task("b")
+
+        when:
+        taskGraph.addTasks([a, b])
+        taskGraph.execute(failures)
+
+        then:
+        executedTasks == [a, b]
+        0 * taskDurationHistory._
+    }
+
     def "executes dependencies in name order"() {
         Task a = task("a")
         Task b = task("b")
@@ -332,7 +402,7 @@ class DefaultTaskExecutionGraphSpec extends Specification {
 
     def "notifies graph listener before execute"() {
         def taskPlanExecutor = Mock(TaskPlanExecutor)
-        def taskGraph = new DefaultTaskExecutionGraph(listenerManager, taskPlanExecutor, [workExecutor], buildOperationExecutor, workerLeases, coordinationService, thisBuild, taskInfoFactory, dependencyResolver)
+        def taskGraph = new DefaultTaskExecutionGraph(listenerManager, taskPlanExecutor, [workExecutor], buildOperationExecutor, workerLeases, coordinationService, thisBuild, taskInfoFactory, dependencyResolver, taskDurationHistory)
         TaskExecutionGraphListener listener = Mock(TaskExecutionGraphListener)
         Task a = task("a")
 
@@ -350,7 +420,7 @@ class DefaultTaskExecutionGraphSpec extends Specification {
 
     def "executes whenReady listener before execute"() {
         def taskPlanExecutor = Mock(TaskPlanExecutor)
-        def taskGraph = new DefaultTaskExecutionGraph(listenerManager, taskPlanExecutor, [workExecutor], buildOperationExecutor, workerLeases, coordinationService, thisBuild, taskInfoFactory, dependencyResolver)
+        def taskGraph = new DefaultTaskExecutionGraph(listenerManager, taskPlanExecutor, [workExecutor], buildOperationExecutor, workerLeases, coordinationService, thisBuild, taskInfoFactory, dependencyResolver, taskDurationHistory)
         def closure = Mock(Closure)
         def action = Mock(Action)
         Task a = task("a")
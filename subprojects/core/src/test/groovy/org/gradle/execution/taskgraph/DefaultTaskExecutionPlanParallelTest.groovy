@@ -209,6 +209,38 @@ class DefaultTaskExecutionPlanParallelTest extends AbstractProjectBuilderSpec {
 
     }
 
+    def "waiting tasks become available in plan order as their dependencies complete"() {
+        given:
+        Task a = project.task("a", type: Async)
+        Task b = project.task("b", type: Async)
+        Task c = project.task("c", type: Async).dependsOn(a)
+        Task d = project.task("d", type: Async).dependsOn(b)
+        Task e = project.task("e", type: Async).dependsOn(a, b)
+
+        when:
+        addToGraphAndPopulate(c, d, e)
+
+        def firstTaskInfo = selectNextTaskInfo()
+        def secondTaskInfo = selectNextTaskInfo()
+        then:
+        firstTaskInfo.task == a
+        secondTaskInfo.task == b
+        selectNextTask() == null
+
+        when:
+        executionPlan.workComplete(secondTaskInfo)
+        then:
+        selectNextTask() == d
+        selectNextTask() == null
+
+        when:
+        executionPlan.workComplete(firstTaskInfo)
+        then:
+        selectNextTask() == c
+        selectNextTask() == e
+        selectNextTask() == null
+    }
+
     def "two tasks that have the same file in outputs are not executed in parallel"() {
         def sharedFile = file("output")
 
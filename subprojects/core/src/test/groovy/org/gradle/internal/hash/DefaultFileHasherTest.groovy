@@ -0,0 +1,85 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.hash
+
+import org.gradle.api.UncheckedIOException
+import org.gradle.internal.Factory
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+import spock.lang.Unroll
+
+@Unroll
+class DefaultFileHasherTest extends Specification {
+    @Rule
+    TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+
+    def "mapped hashing of #length bytes with #algorithm produces the same hash as streaming"() {
+        def file = tmpDir.file("file")
+        def content = new byte[length]
+        new Random(length).nextBytes(content)
+        file.bytes = content
+        def hasherFactory = new DefaultContentHasherFactory(algorithm)
+        def streamHasher = new DefaultStreamHasher(hasherFactory)
+
+        expect:
+        new DefaultFileHasher(streamHasher, hasherFactory).hash(file) == new DefaultFileHasher(streamHasher).hash(file)
+
+        where:
+        algorithm                     | length
+        ContentHashAlgorithm.MD5      | 100
+        ContentHashAlgorithm.MD5      | DefaultFileHasher.MAPPED_HASHING_THRESHOLD + 17
+        ContentHashAlgorithm.MURMUR3  | 100
+        ContentHashAlgorithm.MURMUR3  | DefaultFileHasher.MAPPED_HASHING_THRESHOLD + 17
+        ContentHashAlgorithm.MURMUR3  | DefaultFileHasher.MAPPED_REGION_SIZE * 2 + 17
+    }
+
+    def "reports the #algorithm algorithm when a file does not exist"() {
+        def hasherFactory = new DefaultContentHasherFactory(algorithm)
+
+        when:
+        new DefaultFileHasher(new DefaultStreamHasher(hasherFactory), hasherFactory).hash(tmpDir.file("missing"))
+
+        then:
+        def e = thrown(UncheckedIOException)
+        e.message.startsWith("Failed to create ${algorithm} hash for file ")
+
+        where:
+        algorithm << ContentHashAlgorithm.values()
+    }
+
+    def "records hashed files for the current collector"() {
+        def file = tmpDir.file("file") << "12345"
+        def hasherFactory = new DefaultContentHasherFactory()
+        def hasher = new DefaultFileHasher(new DefaultStreamHasher(hasherFactory), hasherFactory)
+        def statistics = new FileHashingStatisticsCollector()
+
+        when:
+        hasher.hash(file)
+        statistics.collect(new Factory<HashCode>() {
+            @Override
+            HashCode create() {
+                return hasher.hash(file)
+            }
+        })
+
+        then:
+        statistics.hashedFiles == 1
+        statistics.hashedBytes == 5
+        FileHashingStatisticsCollector.current() == null
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.process.internal.worker.request
+
+import org.gradle.internal.operations.DefaultBuildOperationRef
+import org.gradle.internal.operations.OperationIdentifier
+import org.gradle.internal.serialize.Decoder
+import org.gradle.internal.serialize.Encoder
+import org.gradle.internal.serialize.Serializer
+import org.gradle.internal.serialize.kryo.KryoBackedDecoder
+import org.gradle.internal.serialize.kryo.KryoBackedEncoder
+import spock.lang.Specification
+
+class RequestSerializersTest extends Specification {
+    def argumentSerializers = [(Param.name): ParamSerializer.name]
+    def writer = new RequestSerializers(argumentSerializers, getClass().classLoader)
+    def reader = new RequestSerializers(argumentSerializers, getClass().classLoader)
+    def bytes = new ByteArrayOutputStream()
+    def encoder = new KryoBackedEncoder(bytes)
+
+    def "serializes requests"() {
+        def request = new Request("execute", [Param, String, int] as Class[], [new Param("value"), "string", 12] as Object[], new DefaultBuildOperationRef(new OperationIdentifier(12), new OperationIdentifier(3)))
+
+        when:
+        writer.requestSerializer.write(encoder, request)
+        def result = reader.requestSerializer.read(decoder())
+
+        then:
+        result.methodName == "execute"
+        result.paramTypes == [Param, String, int] as Class[]
+        result.args == [new Param("value"), "string", 12] as Object[]
+        result.buildOperation.id.id == 12
+        result.buildOperation.parentId.id == 3
+    }
+
+    def "serializes requests without arguments or build operation"() {
+        when:
+        writer.requestSerializer.write(encoder, new Request("stop", [] as Class[], null, null))
+        def result = reader.requestSerializer.read(decoder())
+
+        then:
+        result.methodName == "stop"
+        result.paramTypes.length == 0
+        result.args == null
+        result.buildOperation == null
+    }
+
+    def "sends strings only once per connection"() {
+        def request = new Request("execute", [Param] as Class[], [new Param("some long value which is sent once")] as Object[], null)
+
+        when:
+        writer.requestSerializer.write(encoder, request)
+        encoder.flush()
+        def first = bytes.size()
+        writer.requestSerializer.write(encoder, request)
+        writer.resultSerializer.write(encoder, new Param("some long value which is sent once"))
+        encoder.flush()
+        def decoder = decoder()
+
+        then:
+        bytes.size() - first < 20
+        reader.requestSerializer.read(decoder).args == [new Param("some long value which is sent once")] as Object[]
+        reader.requestSerializer.read(decoder).args == [new Param("some long value which is sent once")] as Object[]
+        reader.resultSerializer.read(decoder) == new Param("some long value which is sent once")
+    }
+
+    def "uses Java serialization for results without a registered serializer"() {
+        when:
+        writer.resultSerializer.write(encoder, ["a", "b"])
+        writer.resultSerializer.write(encoder, null)
+        def decoder = decoder()
+
+        then:
+        reader.resultSerializer.read(decoder) == ["a", "b"]
+        reader.resultSerializer.read(decoder) == null
+    }
+
+    private Decoder decoder() {
+        encoder.flush()
+        return new KryoBackedDecoder(new ByteArrayInputStream(bytes.toByteArray()))
+    }
+
+    static class Param {
+        final String value
+
+        Param(String value) {
+            this.value = value
+        }
+
+        @Override
+        boolean equals(Object obj) {
+            return obj instanceof Param && obj.value == value
+        }
+
+        @Override
+        int hashCode() {
+            return value.hashCode()
+        }
+    }
+
+    static class ParamSerializer implements Serializer<Param> {
+        ParamSerializer(ClassLoader classLoader) {
+        }
+
+        @Override
+        Param read(Decoder decoder) throws Exception {
+            return new Param(decoder.readString())
+        }
+
+        @Override
+        void write(Encoder encoder, Param value) throws Exception {
+            encoder.writeString(value.value)
+        }
+    }
+}
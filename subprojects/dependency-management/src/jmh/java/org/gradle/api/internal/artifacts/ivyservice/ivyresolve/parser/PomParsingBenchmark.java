@@ -0,0 +1,106 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.xml.sax.EntityResolver;
+import org.xml.sax.InputSource;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Compares parsing POMs into a DOM, as {@link PomReader} used to, with parsing them with {@link PomStaxParser}.
+ *
+ * The POMs are read from the directory given by the {@code org.gradle.benchmark.pom.corpus} system property, which defaults to the local Maven repository.
+ * Each invocation parses the whole corpus. Run with {@code -prof gc} to compare the allocation rates.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+public class PomParsingBenchmark {
+    private static final int MAX_POMS = 2000;
+
+    List<byte[]> poms;
+    String systemId;
+    DocumentBuilderFactory documentBuilderFactory;
+    byte[] m2Entities;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        File corpus = new File(System.getProperty("org.gradle.benchmark.pom.corpus", new File(System.getProperty("user.home"), ".m2/repository").getPath()));
+        poms = new ArrayList<byte[]>();
+        if (corpus.isDirectory()) {
+            Collection<File> files = FileUtils.listFiles(corpus, new String[]{"pom"}, true);
+            for (File file : files) {
+                if (poms.size() == MAX_POMS) {
+                    break;
+                }
+                poms.add(FileUtils.readFileToByteArray(file));
+            }
+        }
+        if (poms.isEmpty()) {
+            throw new IllegalStateException("No POMs found in " + corpus + ". Point the org.gradle.benchmark.pom.corpus system property to a directory containing POMs.");
+        }
+        systemId = corpus.toURI().toASCIIString();
+
+        documentBuilderFactory = DocumentBuilderFactory.newInstance();
+        documentBuilderFactory.setValidating(false);
+        m2Entities = IOUtils.toByteArray(org.apache.ivy.plugins.parser.m2.PomReader.class.getResourceAsStream("m2-entities.ent"));
+    }
+
+    @Benchmark
+    public void dom(Blackhole blackhole) throws Exception {
+        for (byte[] pom : poms) {
+            DocumentBuilder documentBuilder = documentBuilderFactory.newDocumentBuilder();
+            documentBuilder.setEntityResolver(new EntityResolver() {
+                @Override
+                public InputSource resolveEntity(String publicId, String systemId) {
+                    if ((systemId != null) && systemId.endsWith("m2-entities.ent")) {
+                        return new InputSource(new ByteArrayInputStream(m2Entities));
+                    }
+                    return null;
+                }
+            });
+            blackhole.consume(documentBuilder.parse(new PomStaxParser.AddDTDFilterInputStream(new ByteArrayInputStream(pom)), systemId));
+        }
+    }
+
+    @Benchmark
+    public void stax(Blackhole blackhole) throws Exception {
+        for (byte[] pom : poms) {
+            blackhole.consume(PomStaxParser.parse(new ByteArrayInputStream(pom), systemId));
+        }
+    }
+}
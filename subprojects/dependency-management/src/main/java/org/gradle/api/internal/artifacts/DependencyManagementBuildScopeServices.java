@@ -61,6 +61,8 @@ import org.gradle.api.internal.artifacts.ivyservice.projectmodule.ProjectDepende
 import org.gradle.api.internal.artifacts.ivyservice.projectmodule.ProjectPublicationRegistry;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.DefaultArtifactDependencyResolver;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.excludes.ModuleExclusions;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.builder.PersistentDependencyGraphs;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.builder.SharedDependencyGraphs;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.AttributeContainerSerializer;
 import org.gradle.api.internal.artifacts.mvnsettings.DefaultLocalMavenRepositoryLocator;
 import org.gradle.api.internal.artifacts.mvnsettings.DefaultMavenFileLocations;
@@ -320,7 +322,9 @@ class DependencyManagementBuildScopeServices {
                                                                 ImmutableAttributesFactory attributesFactory,
                                                                 VersionSelectorScheme versionSelectorScheme,
                                                                 VersionParser versionParser,
-                                                                ComponentMetadataSupplierRuleExecutor componentMetadataSupplierRuleExecutor) {
+                                                                ComponentMetadataSupplierRuleExecutor componentMetadataSupplierRuleExecutor,
+                                                                SharedDependencyGraphs sharedDependencyGraphs,
+                                                                PersistentDependencyGraphs persistentDependencyGraphs) {
         return new DefaultArtifactDependencyResolver(
             buildOperationExecutor,
             resolverFactories,
@@ -332,7 +336,17 @@ class DependencyManagementBuildScopeServices {
             attributesFactory,
             versionSelectorScheme,
             versionParser,
-            componentMetadataSupplierRuleExecutor);
+            componentMetadataSupplierRuleExecutor,
+            sharedDependencyGraphs,
+            persistentDependencyGraphs);
+    }
+
+    SharedDependencyGraphs createSharedDependencyGraphs() {
+        return new SharedDependencyGraphs();
+    }
+
+    PersistentDependencyGraphs createPersistentDependencyGraphs(CacheLockingManager cacheLockingManager, BuildCommencedTimeProvider timeProvider, ImmutableModuleIdentifierFactory moduleIdentifierFactory, AttributeContainerSerializer attributeContainerSerializer) {
+        return new PersistentDependencyGraphs(cacheLockingManager, timeProvider, moduleIdentifierFactory, attributeContainerSerializer);
     }
 
     ProjectPublicationRegistry createProjectPublicationRegistry() {
@@ -26,6 +26,7 @@ import org.gradle.internal.typeconversion.NotationParser;
 import org.gradle.internal.typeconversion.NotationParserBuilder;
 
 import javax.annotation.Nullable;
+import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
@@ -72,6 +73,13 @@ public class ComponentModuleMetadataContainer implements ModuleReplacementsData
         };
     }
 
+    /**
+     * Returns the declared replacements, keyed by the module that is replaced.
+     */
+    public Map<ModuleIdentifier, Replacement> getReplacements() {
+        return Collections.unmodifiableMap(replacements);
+    }
+
     public Replacement getReplacementFor(ModuleIdentifier sourceModule) {
         return replacements.get(sourceModule);
     }
@@ -194,6 +194,10 @@ public class DefaultComponentMetadataHandler implements ComponentMetadataHandler
         return new SpecConfigurableRule(instantiatingAction, Specs.<ModuleVersionIdentifier>satisfyAll());
     }
 
+    public boolean hasRules() {
+        return !rules.isEmpty() || !classBasedRules.isEmpty();
+    }
+
     @Override
     public ComponentMetadataProcessor createComponentMetadataProcessor(MetadataResolutionContext resolutionContext) {
         return new DefaultComponentMetadataProcessor(rules, classBasedRules, instantiator, dependencyMetadataNotationParser, dependencyConstraintMetadataNotationParser, attributesFactory, ruleExecutor, resolutionContext);
@@ -16,6 +16,7 @@
 
 package org.gradle.api.internal.artifacts.dsl;
 
+import com.google.common.base.Objects;
 import org.gradle.api.artifacts.ModuleIdentifier;
 
 import javax.annotation.Nullable;
@@ -54,5 +55,22 @@ public interface ModuleReplacementsData {
         public String getReason() {
             return reason;
         }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Replacement that = (Replacement) o;
+            return target.equals(that.target) && Objects.equal(reason, that.reason);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(target, reason);
+        }
     }
 }
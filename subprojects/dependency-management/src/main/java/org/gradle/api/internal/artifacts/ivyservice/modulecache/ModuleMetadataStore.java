@@ -24,12 +24,11 @@ import org.gradle.internal.component.external.model.ModuleComponentResolveMetada
 import org.gradle.internal.component.external.model.MutableModuleComponentResolveMetadata;
 import org.gradle.internal.resource.local.LocallyAvailableResource;
 import org.gradle.internal.resource.local.PathKeyFileStore;
-import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
-import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.OutputStream;
 
 public class ModuleMetadataStore {
 
@@ -50,7 +49,7 @@ public class ModuleMetadataStore {
         final LocallyAvailableResource resource = metaDataStore.get(filePath);
         if (resource != null) {
             try {
-                StringDeduplicatingDecoder decoder = new StringDeduplicatingDecoder(new KryoBackedDecoder(new FileInputStream(resource.getFile())), stringInterner);
+                StringTableDecoder decoder = StringTableDecoder.open(resource.getFile(), stringInterner);
                 try {
                     return moduleMetadataSerializer.read(decoder, moduleIdentifierFactory);
                 } finally {
@@ -68,11 +67,13 @@ public class ModuleMetadataStore {
         return metaDataStore.add(filePath, new Action<File>() {
             public void execute(File moduleDescriptorFile) {
                 try {
-                    KryoBackedEncoder encoder = new KryoBackedEncoder(new FileOutputStream(moduleDescriptorFile));
+                    StringTableEncoder encoder = new StringTableEncoder();
+                    moduleMetadataSerializer.write(encoder, metadata);
+                    OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(moduleDescriptorFile));
                     try {
-                        moduleMetadataSerializer.write(encoder, metadata);
+                        encoder.writeTo(outputStream);
                     } finally {
-                        encoder.close();
+                        outputStream.close();
                     }
                 } catch (Exception e) {
                     throw UncheckedException.throwAsUncheckedException(e);
@@ -0,0 +1,225 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.artifacts.ivyservice.modulecache;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Interner;
+import org.gradle.internal.serialize.AbstractDecoder;
+import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
+
+import javax.annotation.Nullable;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reads a value written by {@link StringTableEncoder}. Strings are decoded from the table the first time they are referenced, and interned, so
+ * that each distinct string in the file is decoded and interned only once.
+ */
+class StringTableDecoder extends AbstractDecoder implements Closeable {
+    private final ByteBuffer buffer;
+    private final int stringCount;
+    private final int stringsStart;
+    private final String[] strings;
+    private final Interner<String> stringInterner;
+    private final KryoBackedDecoder delegate;
+
+    StringTableDecoder(ByteBuffer buffer, Interner<String> stringInterner) throws IOException {
+        this.buffer = buffer;
+        this.stringInterner = stringInterner;
+        if (buffer.limit() < 4) {
+            throw new EOFException();
+        }
+        stringCount = buffer.getInt(0);
+        if (stringCount < 0) {
+            throw new IOException("Unexpected string table size: " + stringCount);
+        }
+        stringsStart = 4 + 4 * stringCount;
+        if (stringsStart > buffer.limit()) {
+            throw new EOFException();
+        }
+        int bodyStart = stringsStart + getStringEnd(stringCount - 1);
+        if (bodyStart > buffer.limit()) {
+            throw new EOFException();
+        }
+        strings = new String[stringCount];
+        ByteBuffer body = buffer.duplicate();
+        body.position(bodyStart);
+        delegate = new KryoBackedDecoder(new ByteBufferInputStream(body.slice()));
+    }
+
+    /**
+     * Opens the given file. The file is read into memory rather than memory mapped: descriptor files are small, so a mapping would cost
+     * more than it saves, and it would only be released once the buffer is garbage collected.
+     */
+    static StringTableDecoder open(File file, Interner<String> stringInterner) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = randomAccessFile.getChannel();
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("File " + file + " is too large");
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    throw new EOFException();
+                }
+            }
+            buffer.flip();
+            return new StringTableDecoder(buffer, stringInterner);
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    @Override
+    public long readLong() throws EOFException, IOException {
+        return delegate.readLong();
+    }
+
+    @Override
+    public long readSmallLong() throws EOFException, IOException {
+        return delegate.readSmallLong();
+    }
+
+    @Override
+    public int readInt() throws EOFException, IOException {
+        return delegate.readInt();
+    }
+
+    @Override
+    public int readSmallInt() throws EOFException, IOException {
+        return delegate.readSmallInt();
+    }
+
+    @Override
+    public boolean readBoolean() throws EOFException, IOException {
+        return delegate.readBoolean();
+    }
+
+    @Override
+    public byte readByte() throws EOFException, IOException {
+        return delegate.readByte();
+    }
+
+    @Override
+    public void readBytes(byte[] buffer, int offset, int count) throws EOFException, IOException {
+        delegate.readBytes(buffer, offset, count);
+    }
+
+    @Override
+    public String readString() throws EOFException, IOException {
+        String string = readNullableString();
+        if (string == null) {
+            throw new IOException("Expected a string but found null.");
+        }
+        return string;
+    }
+
+    @Override
+    @Nullable
+    public String readNullableString() throws EOFException, IOException {
+        int index = delegate.readSmallInt();
+        if (index == 0) {
+            return null;
+        }
+        return getString(index - 1);
+    }
+
+    private String getString(int index) throws IOException {
+        if (index >= stringCount) {
+            throw new IOException("Unexpected string table index: " + index);
+        }
+        String string = strings[index];
+        if (string == null) {
+            int start = index == 0 ? 0 : getStringEnd(index - 1);
+            int end = getStringEnd(index);
+            byte[] bytes = new byte[end - start];
+            ByteBuffer source = buffer.duplicate();
+            source.position(stringsStart + start);
+            source.get(bytes);
+            string = stringInterner.intern(new String(bytes, Charsets.UTF_8));
+            strings[index] = string;
+        }
+        return string;
+    }
+
+    private int getStringEnd(int index) {
+        return index < 0 ? 0 : buffer.getInt(4 + 4 * index);
+    }
+
+    @Override
+    protected int maybeReadBytes(byte[] buffer, int offset, int count) throws IOException {
+        return delegate.getInputStream().read(buffer, offset, count);
+    }
+
+    @Override
+    protected long maybeSkip(long count) throws IOException {
+        return delegate.getInputStream().skip(count);
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            return buffer.get() & 0xff;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int count) {
+            if (count == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int length = Math.min(count, buffer.remaining());
+            buffer.get(bytes, offset, length);
+            return length;
+        }
+
+        @Override
+        public long skip(long count) {
+            int length = (int) Math.max(0, Math.min(count, buffer.remaining()));
+            buffer.position(buffer.position() + length);
+            return length;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
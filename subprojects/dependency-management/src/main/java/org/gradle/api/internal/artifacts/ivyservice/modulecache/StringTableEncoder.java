@@ -0,0 +1,121 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.artifacts.ivyservice.modulecache;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.gradle.internal.serialize.AbstractEncoder;
+import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
+
+import javax.annotation.Nullable;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Buffers an encoded value, replacing every string with an index into a string table. The table is written in front of the value, with
+ * the offset of each entry, so that {@link StringTableDecoder} can decode each distinct string at most once, and only when it is used.
+ *
+ * <p>The layout is: the number of strings, the end offset of each string, the UTF-8 bytes of all strings, then the encoded value.</p>
+ */
+class StringTableEncoder extends AbstractEncoder {
+    private final Map<String, Integer> indexes = Maps.newHashMap();
+    private final List<byte[]> strings = Lists.newArrayList();
+    private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+    private final KryoBackedEncoder delegate = new KryoBackedEncoder(body);
+
+    @Override
+    public void writeByte(byte value) {
+        delegate.writeByte(value);
+    }
+
+    @Override
+    public void writeBytes(byte[] bytes, int offset, int count) {
+        delegate.writeBytes(bytes, offset, count);
+    }
+
+    @Override
+    public void writeLong(long value) {
+        delegate.writeLong(value);
+    }
+
+    @Override
+    public void writeSmallLong(long value) {
+        delegate.writeSmallLong(value);
+    }
+
+    @Override
+    public void writeInt(int value) {
+        delegate.writeInt(value);
+    }
+
+    @Override
+    public void writeSmallInt(int value) {
+        delegate.writeSmallInt(value);
+    }
+
+    @Override
+    public void writeBoolean(boolean value) {
+        delegate.writeBoolean(value);
+    }
+
+    @Override
+    public void writeString(CharSequence value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Cannot encode a null string.");
+        }
+        writeNullableString(value);
+    }
+
+    @Override
+    public void writeNullableString(@Nullable CharSequence value) {
+        if (value == null) {
+            delegate.writeSmallInt(0);
+            return;
+        }
+        String string = value.toString();
+        Integer index = indexes.get(string);
+        if (index == null) {
+            index = strings.size();
+            indexes.put(string, index);
+            strings.add(string.getBytes(Charsets.UTF_8));
+        }
+        delegate.writeSmallInt(index + 1);
+    }
+
+    /**
+     * Writes the string table followed by the encoded value.
+     */
+    public void writeTo(OutputStream outputStream) throws IOException {
+        delegate.flush();
+        DataOutputStream output = new DataOutputStream(outputStream);
+        output.writeInt(strings.size());
+        int offset = 0;
+        for (byte[] string : strings) {
+            offset += string.length;
+            output.writeInt(offset);
+        }
+        for (byte[] string : strings) {
+            output.write(string);
+        }
+        body.writeTo(output);
+        output.flush();
+    }
+}
@@ -15,16 +15,23 @@
  */
 package org.gradle.api.internal.artifacts.ivyservice.resolveengine;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import org.gradle.api.Action;
 import org.gradle.api.artifacts.DependencySubstitution;
+import org.gradle.api.artifacts.ModuleIdentifier;
 import org.gradle.api.attributes.AttributesSchema;
 import org.gradle.api.internal.artifacts.ArtifactDependencyResolver;
+import org.gradle.api.internal.artifacts.ComponentMetadataProcessorFactory;
 import org.gradle.api.internal.artifacts.ComponentSelectorConverter;
 import org.gradle.api.internal.artifacts.GlobalDependencyResolutionRules;
 import org.gradle.api.internal.artifacts.ResolveContext;
 import org.gradle.api.internal.artifacts.configurations.ConflictResolution;
 import org.gradle.api.internal.artifacts.configurations.ResolutionStrategyInternal;
+import org.gradle.api.internal.artifacts.dsl.ComponentModuleMetadataContainer;
+import org.gradle.api.internal.artifacts.dsl.DefaultComponentMetadataHandler;
+import org.gradle.api.internal.artifacts.dsl.ModuleReplacementsData;
 import org.gradle.api.internal.artifacts.ivyservice.clientmodule.ClientModuleResolver;
 import org.gradle.api.internal.artifacts.ivyservice.dependencysubstitution.CachingDependencySubstitutionApplicator;
 import org.gradle.api.internal.artifacts.ivyservice.dependencysubstitution.DefaultDependencySubstitutionApplicator;
@@ -44,18 +51,25 @@ import org.gradle.api.internal.artifacts.ivyservice.resolveengine.excludes.Modul
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.CompositeDependencyGraphVisitor;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphVisitor;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.builder.DependencyGraphBuilder;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.builder.PersistentDependencyGraphs;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.builder.SharedDependencyGraphs;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.conflicts.DefaultCapabilitiesConflictHandler;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.conflicts.DefaultConflictHandler;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.conflicts.LastCandidateCapabilityResolver;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.conflicts.ModuleConflictHandler;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.conflicts.UpgradeCapabilityResolver;
+import org.gradle.api.internal.artifacts.repositories.AbstractArtifactRepository;
 import org.gradle.api.internal.artifacts.repositories.ResolutionAwareRepository;
 import org.gradle.api.internal.artifacts.type.ArtifactTypeRegistry;
 import org.gradle.api.internal.attributes.AttributesSchemaInternal;
 import org.gradle.api.internal.attributes.ImmutableAttributesFactory;
 import org.gradle.api.specs.Spec;
+import org.gradle.api.specs.Specs;
 import org.gradle.internal.Actions;
 import org.gradle.internal.component.model.DependencyMetadata;
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.hash.Hasher;
+import org.gradle.internal.hash.Hashing;
 import org.gradle.internal.operations.BuildOperationExecutor;
 import org.gradle.internal.resolve.caching.ComponentMetadataSupplierRuleExecutor;
 import org.gradle.internal.resolve.resolver.ComponentMetaDataResolver;
@@ -65,7 +79,10 @@ import org.gradle.internal.resolve.result.BuildableComponentResolveResult;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 import static org.gradle.api.internal.artifacts.ivyservice.dependencysubstitution.DependencySubstitutionApplicator.NO_OP;
 
@@ -82,6 +99,8 @@ public class DefaultArtifactDependencyResolver implements ArtifactDependencyReso
     private final VersionSelectorScheme versionSelectorScheme;
     private final VersionParser versionParser;
     private final ComponentMetadataSupplierRuleExecutor componentMetadataSupplierRuleExecutor;
+    private final SharedDependencyGraphs sharedDependencyGraphs;
+    private final PersistentDependencyGraphs persistentDependencyGraphs;
 
     public DefaultArtifactDependencyResolver(BuildOperationExecutor buildOperationExecutor,
                                              List<ResolverProviderFactory> resolverFactories,
@@ -93,7 +112,9 @@ public class DefaultArtifactDependencyResolver implements ArtifactDependencyReso
                                              ImmutableAttributesFactory attributesFactory,
                                              VersionSelectorScheme versionSelectorScheme,
                                              VersionParser versionParser,
-                                             ComponentMetadataSupplierRuleExecutor componentMetadataSupplierRuleExecutor) {
+                                             ComponentMetadataSupplierRuleExecutor componentMetadataSupplierRuleExecutor,
+                                             SharedDependencyGraphs sharedDependencyGraphs,
+                                             PersistentDependencyGraphs persistentDependencyGraphs) {
         this.resolverFactories = resolverFactories;
         this.ivyFactory = ivyFactory;
         this.dependencyDescriptorFactory = dependencyDescriptorFactory;
@@ -105,6 +126,8 @@ public class DefaultArtifactDependencyResolver implements ArtifactDependencyReso
         this.versionSelectorScheme = versionSelectorScheme;
         this.versionParser = versionParser;
         this.componentMetadataSupplierRuleExecutor = componentMetadataSupplierRuleExecutor;
+        this.sharedDependencyGraphs = sharedDependencyGraphs;
+        this.persistentDependencyGraphs = persistentDependencyGraphs;
     }
 
     @Override
@@ -116,7 +139,98 @@ public class DefaultArtifactDependencyResolver implements ArtifactDependencyReso
         DependencyGraphVisitor artifactsGraphVisitor = new ResolvedArtifactsGraphVisitor(artifactsVisitor, resolvers.getArtifactSelector());
 
         // Resolve the dependency graph
-        builder.resolve(resolveContext, new CompositeDependencyGraphVisitor(graphVisitor, artifactsGraphVisitor));
+        DependencyGraphVisitor visitor = new CompositeDependencyGraphVisitor(graphVisitor, artifactsGraphVisitor);
+        if (PersistentDependencyGraphs.isEnabled()) {
+            HashCode resolutionScope = resolutionScope(resolveContext.getResolutionStrategy(), repositories, edgeFilter);
+            if (resolutionScope != null) {
+                builder.resolve(resolveContext, visitor, persistentDependencyGraphs, resolutionScope);
+                return;
+            }
+        }
+        if (!SharedDependencyGraphs.isEnabled()) {
+            builder.resolve(resolveContext, visitor);
+            return;
+        }
+        Object sharingScope = sharingScope(resolveContext.getResolutionStrategy(), repositories, metadataHandler, edgeFilter);
+        if (sharingScope == null) {
+            sharedDependencyGraphs.notShareable();
+            builder.resolve(resolveContext, visitor);
+        } else {
+            builder.resolve(resolveContext, visitor, sharedDependencyGraphs, sharingScope);
+        }
+    }
+
+    /**
+     * Returns what, besides the declared dependencies, determines the resolved graph, or null when the graph depends on rules that cannot be compared.
+     *
+     * The scope is compared by value, so that projects with the same repositories and module replacements share graphs. Component metadata rules, dependency substitution
+     * rules and repository metadata rules cannot be compared, so a graph is not shared when any of them is present. The attributes schema is checked by the shared graph itself.
+     * Artifacts are not part of the shared graph, and are still selected for each resolution.
+     */
+    @Nullable
+    private static Object sharingScope(ResolutionStrategyInternal resolutionStrategy, List<? extends ResolutionAwareRepository> repositories, GlobalDependencyResolutionRules metadataHandler, Spec<? super DependencyMetadata> edgeFilter) {
+        if (edgeFilter != Specs.satisfyAll()
+            || resolutionStrategy.isDependencyLockingEnabled()
+            || resolutionStrategy.resolveGraphToDetermineTaskDependencies()
+            || Actions.<DependencySubstitution>doNothing() != resolutionStrategy.getDependencySubstitutionRule()
+            || !resolutionStrategy.getComponentSelection().getRules().isEmpty()
+            || metadataHandler.getDependencySubstitutionRules().hasRules()
+            || !hasNoComponentMetadataRules(metadataHandler.getComponentMetadataProcessorFactory())) {
+            return null;
+        }
+        Map<ModuleIdentifier, ModuleReplacementsData.Replacement> replacements = replacementsOf(metadataHandler.getModuleMetadataProcessor().getModuleReplacements());
+        if (replacements == null) {
+            return null;
+        }
+        ImmutableList.Builder<String> repositoryIds = ImmutableList.builder();
+        for (ResolutionAwareRepository repository : repositories) {
+            if (repository instanceof AbstractArtifactRepository && ((AbstractArtifactRepository) repository).hasComponentMetadataRules()) {
+                return null;
+            }
+            repositoryIds.add(repository.createResolver().getId());
+        }
+        return Arrays.asList(repositoryIds.build(), replacements, resolutionStrategy.getConflictResolution());
+    }
+
+    private static boolean hasNoComponentMetadataRules(ComponentMetadataProcessorFactory factory) {
+        if (factory == GlobalDependencyResolutionRules.NO_OP_FACTORY) {
+            return true;
+        }
+        return factory instanceof DefaultComponentMetadataHandler && !((DefaultComponentMetadataHandler) factory).hasRules();
+    }
+
+    @Nullable
+    private static Map<ModuleIdentifier, ModuleReplacementsData.Replacement> replacementsOf(ModuleReplacementsData moduleReplacements) {
+        if (moduleReplacements == ModuleReplacementsData.NO_OP) {
+            return ImmutableMap.of();
+        }
+        if (moduleReplacements instanceof ComponentModuleMetadataContainer) {
+            return ImmutableMap.copyOf(((ComponentModuleMetadataContainer) moduleReplacements).getReplacements());
+        }
+        return null;
+    }
+
+    /**
+     * Returns a hash of what, besides the declared dependencies and what a stored graph verifies for itself, determines the resolved graph across builds,
+     * or null when the graph depends on rules that cannot be hashed.
+     */
+    @Nullable
+    private static HashCode resolutionScope(ResolutionStrategyInternal resolutionStrategy, List<? extends ResolutionAwareRepository> repositories, Spec<? super DependencyMetadata> edgeFilter) {
+        if (edgeFilter != Specs.satisfyAll()
+            || resolutionStrategy.isDependencyLockingEnabled()
+            || resolutionStrategy.resolveGraphToDetermineTaskDependencies()
+            || Actions.<DependencySubstitution>doNothing() != resolutionStrategy.getDependencySubstitutionRule()
+            || !resolutionStrategy.getComponentSelection().getRules().isEmpty()
+            || resolutionStrategy.getConflictResolution() == ConflictResolution.strict) {
+            return null;
+        }
+        Hasher hasher = Hashing.md5().newHasher();
+        hasher.putInt(repositories.size());
+        for (ResolutionAwareRepository repository : repositories) {
+            hasher.putString(repository.createResolver().getId());
+        }
+        hasher.putString(resolutionStrategy.getConflictResolution().name());
+        return hasher.hash();
     }
 
     private DependencyGraphBuilder createDependencyGraphBuilder(ComponentResolversChain componentSource, ResolutionStrategyInternal resolutionStrategy, GlobalDependencyResolutionRules globalRules, Spec<? super DependencyMetadata> edgeFilter, AttributesSchemaInternal attributesSchema, ModuleExclusions moduleExclusions, BuildOperationExecutor buildOperationExecutor) {
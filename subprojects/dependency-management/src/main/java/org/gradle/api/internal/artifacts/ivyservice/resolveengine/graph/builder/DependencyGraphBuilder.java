@@ -29,6 +29,7 @@ import org.gradle.api.internal.artifacts.dsl.ModuleReplacementsData;
 import org.gradle.api.internal.artifacts.ivyservice.dependencysubstitution.DependencySubstitutionApplicator;
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionSelectorScheme;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.excludes.ModuleExclusions;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.CompositeDependencyGraphVisitor;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphSelector;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphVisitor;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.conflicts.CapabilitiesConflictHandler;
@@ -41,6 +42,7 @@ import org.gradle.api.internal.attributes.ImmutableAttributesFactory;
 import org.gradle.api.specs.Spec;
 import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier;
 import org.gradle.internal.component.model.DependencyMetadata;
+import org.gradle.internal.hash.HashCode;
 import org.gradle.internal.id.IdGenerator;
 import org.gradle.internal.id.LongIdGenerator;
 import org.gradle.internal.operations.BuildOperationExecutor;
@@ -107,19 +109,90 @@ public class DependencyGraphBuilder {
     }
 
     public void resolve(final ResolveContext resolveContext, final DependencyGraphVisitor modelVisitor) {
+        final ResolveState resolveState = createResolveState(resolveContext);
 
-        IdGenerator<Long> idGenerator = new LongIdGenerator();
-        DefaultBuildableComponentResolveResult rootModule = new DefaultBuildableComponentResolveResult();
-        moduleResolver.resolve(resolveContext, rootModule);
+        traverseGraph(resolveState);
+
+        validateGraph(resolveState);
+
+        assembleResult(resolveState, modelVisitor);
+
+    }
 
-        final ResolveState resolveState = new ResolveState(idGenerator, rootModule, resolveContext.getName(), idResolver, metaDataResolver, edgeFilter, attributesSchema, moduleExclusions, moduleReplacementsData, componentSelectorConverter, attributesFactory, dependencySubstitutionApplicator, versionSelectorScheme);
+    /**
+     * Resolves the graph, reusing the graph of an earlier resolution in the same sharing scope when the root declares the same dependencies.
+     * The sharing scope must capture everything, other than the dependencies declared by the root, that influences the graph.
+     */
+    public void resolve(final ResolveContext resolveContext, final DependencyGraphVisitor modelVisitor, SharedDependencyGraphs sharedGraphs, Object sharingScope) {
+        final ResolveState resolveState = createResolveState(resolveContext);
+
+        SharedDependencyGraphs.GraphKey key = sharedGraphs.keyFor(sharingScope, resolveState.getRoot());
+        if (key == null) {
+            sharedGraphs.notShareable();
+            traverseGraph(resolveState);
+            validateGraph(resolveState);
+            assembleResult(resolveState, modelVisitor);
+            return;
+        }
+
+        RecordedDependencyGraph graph = sharedGraphs.get(key);
+        if (graph != null && graph.canReplayFor(resolveState.getRoot(), attributesSchema, attributesFactory)) {
+            LOGGER.debug("Reusing the dependency graph resolved for an identical root for {}.", resolveContext);
+            sharedGraphs.hit();
+            graph.replay(resolveState.getRoot(), modelVisitor);
+            return;
+        }
 
         traverseGraph(resolveState);
+        validateGraph(resolveState);
+        RecordedDependencyGraph.Recorder recorder = new RecordedDependencyGraph.Recorder();
+        assembleResult(resolveState, new CompositeDependencyGraphVisitor(modelVisitor, recorder));
+        sharedGraphs.put(key, recorder.toGraph(attributesSchema));
+    }
 
+    /**
+     * Resolves the graph, reusing the graph stored by an earlier build for the same root and resolution scope when it still holds.
+     * The resolution scope must capture the rules and repositories that influence the graph, other than those the stored graph verifies itself.
+     */
+    public void resolve(final ResolveContext resolveContext, final DependencyGraphVisitor modelVisitor, PersistentDependencyGraphs persistentGraphs, HashCode resolutionScope) {
+        final ResolveState resolveState = createResolveState(resolveContext);
+
+        HashCode key = persistentGraphs.keyFor(resolutionScope, resolveState.getRoot());
+        if (key != null) {
+            DependencyGraphSnapshot snapshot = persistentGraphs.load(key);
+            if (snapshot != null) {
+                DependencyGraphSnapshot.RestoredGraph graph = snapshot.restore(resolveState.getRoot(), persistentGraphs.getCurrentTime(), metaDataResolver, attributesSchema, attributesFactory,
+                    moduleReplacementsData, resolveContext.getResolutionStrategy().getCachePolicy(), versionSelectorScheme);
+                if (graph != null) {
+                    LOGGER.debug("Reusing the stored dependency graph for {}.", resolveContext);
+                    persistentGraphs.hit();
+                    graph.visit(modelVisitor);
+                    return;
+                }
+                persistentGraphs.outOfDate();
+            }
+        }
+
+        traverseGraph(resolveState);
         validateGraph(resolveState);
+        if (key == null) {
+            assembleResult(resolveState, modelVisitor);
+            return;
+        }
+        DependencyGraphSnapshot.Recorder recorder = new DependencyGraphSnapshot.Recorder();
+        assembleResult(resolveState, new CompositeDependencyGraphVisitor(modelVisitor, recorder));
+        DependencyGraphSnapshot snapshot = recorder.toSnapshot(persistentGraphs.getCurrentTime());
+        if (snapshot != null) {
+            persistentGraphs.store(key, snapshot);
+        }
+    }
 
-        assembleResult(resolveState, modelVisitor);
+    private ResolveState createResolveState(ResolveContext resolveContext) {
+        IdGenerator<Long> idGenerator = new LongIdGenerator();
+        DefaultBuildableComponentResolveResult rootModule = new DefaultBuildableComponentResolveResult();
+        moduleResolver.resolve(resolveContext, rootModule);
 
+        return new ResolveState(idGenerator, rootModule, resolveContext.getName(), idResolver, metaDataResolver, edgeFilter, attributesSchema, moduleExclusions, moduleReplacementsData, componentSelectorConverter, attributesFactory, dependencySubstitutionApplicator, versionSelectorScheme);
     }
 
     /**
@@ -131,10 +204,19 @@ public class DependencyGraphBuilder {
         final Map<ModuleVersionIdentifier, ComponentIdentifier> componentIdentifierCache = Maps.newHashMap();
 
         final PendingDependenciesHandler pendingDependenciesHandler = new DefaultPendingDependenciesHandler();
+        final ParallelMetadataPrefetcher metadataPrefetcher = ParallelMetadataPrefetcher.isEnabled() ? new ParallelMetadataPrefetcher(metaDataResolver, versionSelectorScheme, edgeFilter, buildOperationExecutor) : null;
+        int remainingInWave = 0;
 
         while (resolveState.peek() != null || moduleConflictHandler.hasConflicts() || capabilitiesConflictHandler.hasConflicts()) {
             if (resolveState.peek() != null) {
+                if (metadataPrefetcher != null && remainingInWave == 0) {
+                    // The queued nodes form the next breadth-first wave: resolve the metadata their dependencies need in parallel, before visiting them one by one
+                    Collection<NodeState> wave = resolveState.getQueuedNodes();
+                    remainingInWave = wave.size();
+                    metadataPrefetcher.prefetchDependenciesOf(wave);
+                }
                 final NodeState node = resolveState.pop();
+                remainingInWave = Math.max(0, remainingInWave - 1);
                 LOGGER.debug("Visiting configuration {}.", node);
 
                 // Register capabilities for this node
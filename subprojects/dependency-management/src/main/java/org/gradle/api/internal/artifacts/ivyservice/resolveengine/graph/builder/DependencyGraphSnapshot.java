@@ -0,0 +1,907 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.builder;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.gradle.api.artifacts.Dependency;
+import org.gradle.api.artifacts.ModuleVersionIdentifier;
+import org.gradle.api.artifacts.component.ComponentIdentifier;
+import org.gradle.api.artifacts.component.ComponentSelector;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.artifacts.component.ModuleComponentSelector;
+import org.gradle.api.artifacts.result.ComponentSelectionReason;
+import org.gradle.api.attributes.AttributeContainer;
+import org.gradle.api.internal.artifacts.ImmutableModuleIdentifierFactory;
+import org.gradle.api.internal.artifacts.ModuleVersionIdentifierSerializer;
+import org.gradle.api.internal.artifacts.ResolvedConfigurationIdentifier;
+import org.gradle.api.internal.artifacts.configurations.dynamicversion.CachePolicy;
+import org.gradle.api.internal.artifacts.dsl.ModuleReplacementsData;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionSelectorScheme;
+import org.gradle.api.internal.artifacts.ivyservice.modulecache.dynamicversions.DefaultResolvedModuleVersion;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.excludes.ModuleExclusion;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.excludes.ModuleExclusions;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphComponent;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphEdge;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphNode;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphSelector;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphVisitor;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.RootGraphNode;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.AttributeContainerSerializer;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.ComponentIdentifierSerializer;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.ComponentSelectionReasonSerializer;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.ComponentSelectorSerializer;
+import org.gradle.api.internal.attributes.AttributesSchemaInternal;
+import org.gradle.api.internal.attributes.ImmutableAttributes;
+import org.gradle.api.internal.attributes.ImmutableAttributesFactory;
+import org.gradle.internal.Describables;
+import org.gradle.internal.DisplayName;
+import org.gradle.internal.component.local.model.DslOriginDependencyMetadata;
+import org.gradle.internal.component.local.model.LocalFileDependencyMetadata;
+import org.gradle.internal.component.local.model.RootConfigurationMetadata;
+import org.gradle.internal.component.model.ComponentArtifactMetadata;
+import org.gradle.internal.component.model.ComponentResolveMetadata;
+import org.gradle.internal.component.model.ConfigurationMetadata;
+import org.gradle.internal.component.model.DefaultComponentOverrideMetadata;
+import org.gradle.internal.component.model.DependencyMetadata;
+import org.gradle.internal.component.model.IvyArtifactName;
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.resolve.ModuleVersionResolveException;
+import org.gradle.internal.resolve.resolver.ComponentMetaDataResolver;
+import org.gradle.internal.resolve.result.DefaultBuildableComponentResolveResult;
+import org.gradle.internal.serialize.AbstractSerializer;
+import org.gradle.internal.serialize.Decoder;
+import org.gradle.internal.serialize.Encoder;
+import org.gradle.internal.serialize.HashCodeSerializer;
+
+import javax.annotation.Nullable;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A dependency graph, detached from the resolution that produced it, so that it can be stored across builds.
+ *
+ * The snapshot holds the identity of the selected components and nodes, and the edges between them. It does not hold any metadata: when the graph is restored,
+ * the metadata of the selected components is resolved again, which is cheap once the dependency cache is populated. Restoring checks that the graph still holds,
+ * and gives up when it does not. In particular, it checks that:
+ * <ul>
+ *     <li>the dynamic versions and changing modules of the graph are not due to be refreshed.</li>
+ *     <li>no selected module takes part in a module replacement.</li>
+ *     <li>every node declares the same dependencies as when the graph was stored, which covers changed metadata and component metadata rules.</li>
+ *     <li>every edge still selects the same variants of its target, which covers changes to the attributes schema.</li>
+ * </ul>
+ *
+ * Only graphs that resolved without failures, that contain external modules only, and whose exclusions do not exclude artifacts are stored.
+ */
+class DependencyGraphSnapshot {
+    private static final int ROOT = -1;
+
+    private final long timestamp;
+    private final List<ComponentSnapshot> components;
+    private final List<SelectorSnapshot> selectors;
+    private final List<NodeSnapshot> nodes;
+    private final List<EdgeSnapshot> edges;
+    private final int[] visitedNodes;
+    private final int[] visitedEdges;
+
+    private DependencyGraphSnapshot(long timestamp, List<ComponentSnapshot> components, List<SelectorSnapshot> selectors, List<NodeSnapshot> nodes, List<EdgeSnapshot> edges, int[] visitedNodes, int[] visitedEdges) {
+        this.timestamp = timestamp;
+        this.components = components;
+        this.selectors = selectors;
+        this.nodes = nodes;
+        this.edges = edges;
+        this.visitedNodes = visitedNodes;
+        this.visitedEdges = visitedEdges;
+    }
+
+    /**
+     * Restores the graph on behalf of the given root, which must have the same key as the root the graph was stored for. Returns null when the graph no longer holds.
+     */
+    @Nullable
+    RestoredGraph restore(RootNode root, long now, ComponentMetaDataResolver metaDataResolver, AttributesSchemaInternal attributesSchema, ImmutableAttributesFactory attributesFactory,
+                          ModuleReplacementsData moduleReplacements, CachePolicy cachePolicy, VersionSelectorScheme versionSelectorScheme) {
+        long age = now - timestamp;
+        for (ComponentSnapshot component : components) {
+            if (moduleReplacements.participatesInReplacements(component.moduleVersion.getModule())) {
+                return null;
+            }
+        }
+        for (EdgeSnapshot edge : edges) {
+            if (isDynamic(edge.requested, versionSelectorScheme)) {
+                ModuleVersionIdentifier selected = components.get(edge.selectedComponent).moduleVersion;
+                if (cachePolicy.mustRefreshVersionList(selected.getModule(), Collections.singleton(selected), age)) {
+                    return null;
+                }
+            }
+        }
+
+        RestoredRoot restoredRoot = new RestoredRoot(root);
+        List<RestoredComponent> restoredComponents = Lists.newArrayListWithCapacity(components.size());
+        for (ComponentSnapshot component : components) {
+            restoredComponents.add(new RestoredComponent(component));
+        }
+        List<RestoredNode> restoredNodes = Lists.newArrayListWithCapacity(nodes.size());
+        for (NodeSnapshot node : nodes) {
+            restoredNodes.add(new RestoredNode(node, restoredComponents.get(node.component)));
+        }
+        List<RestoredEdge> restoredEdges = Lists.newArrayListWithCapacity(edges.size());
+        Map<Integer, List<RestoredEdge>> outgoing = Maps.newHashMap();
+        for (EdgeSnapshot edge : edges) {
+            DependencyGraphNode from = edge.from == ROOT ? restoredRoot : restoredNodes.get(edge.from);
+            RestoredEdge restoredEdge = new RestoredEdge(edge, from, selectors.get(edge.selector), restoredComponents.get(edge.selectedComponent));
+            restoredEdges.add(restoredEdge);
+            List<RestoredEdge> fromEdges = outgoing.get(edge.from);
+            if (fromEdges == null) {
+                fromEdges = Lists.newArrayList();
+                outgoing.put(edge.from, fromEdges);
+            }
+            fromEdges.add(restoredEdge);
+        }
+
+        // Visit the edges breadth first from the root, as the metadata of a node is needed to find the dependencies of its outgoing edges
+        ImmutableAttributes rootAttributes = root.getMetadata().getAttributes();
+        Deque<Integer> queue = new ArrayDeque<Integer>();
+        queue.add(ROOT);
+        while (!queue.isEmpty()) {
+            int from = queue.remove();
+            ConfigurationMetadata fromMetadata = from == ROOT ? root.getMetadata() : restoredNodes.get(from).metadata;
+            List<? extends DependencyMetadata> dependencies = fromMetadata.getDependencies();
+            List<RestoredEdge> fromEdges = outgoing.get(from);
+            if (fromEdges == null) {
+                continue;
+            }
+            for (RestoredEdge edge : fromEdges) {
+                EdgeSnapshot snapshot = edge.snapshot;
+                if (snapshot.dependencyIndex >= dependencies.size()) {
+                    return null;
+                }
+                DependencyMetadata dependency = dependencies.get(snapshot.dependencyIndex);
+                edge.dependency = dependency;
+
+                RestoredComponent target = edge.selected;
+                if (target.metadata == null) {
+                    target.metadata = resolveMetadata(target.snapshot, dependency, metaDataResolver, cachePolicy, age);
+                    if (target.metadata == null) {
+                        return null;
+                    }
+                }
+
+                List<ConfigurationMetadata> targetConfigurations;
+                try {
+                    targetConfigurations = dependency.selectConfigurations(attributesFactory.concat(rootAttributes, snapshot.attributes), target.metadata, attributesSchema);
+                } catch (Throwable t) {
+                    return null;
+                }
+                if (targetConfigurations.size() != snapshot.targets.length) {
+                    return null;
+                }
+                for (int i = 0; i < snapshot.targets.length; i++) {
+                    RestoredNode targetNode = restoredNodes.get(snapshot.targets[i]);
+                    ConfigurationMetadata targetConfiguration = targetConfigurations.get(i);
+                    if (targetNode.component != target || !targetConfiguration.getName().equals(targetNode.snapshot.configurationName)) {
+                        return null;
+                    }
+                    if (targetNode.metadata == null) {
+                        if (!PersistentDependencyGraphs.hashDependencies(targetConfiguration.getDependencies()).equals(targetNode.snapshot.dependenciesHash)) {
+                            return null;
+                        }
+                        targetNode.metadata = targetConfiguration;
+                        queue.add(snapshot.targets[i]);
+                    }
+                }
+            }
+        }
+        for (RestoredNode node : restoredNodes) {
+            if (node.metadata == null) {
+                return null;
+            }
+        }
+
+        // Everything checks out, so link up the graph
+        for (RestoredEdge edge : restoredEdges) {
+            if (edge.snapshot.from == ROOT) {
+                restoredRoot.outgoingEdges.add(edge);
+            } else {
+                restoredNodes.get(edge.snapshot.from).outgoingEdges.add(edge);
+            }
+            edge.selected.dependents.add(edge.from.getOwner());
+        }
+        for (RestoredNode node : restoredNodes) {
+            for (int edge : node.snapshot.incomingEdges) {
+                node.incomingEdges.add(restoredEdges.get(edge));
+            }
+        }
+        return new RestoredGraph(restoredRoot, restoredNodes);
+    }
+
+    @Nullable
+    private static ComponentResolveMetadata resolveMetadata(ComponentSnapshot component, DependencyMetadata dependency, ComponentMetaDataResolver metaDataResolver, CachePolicy cachePolicy, long age) {
+        DefaultBuildableComponentResolveResult result = new DefaultBuildableComponentResolveResult();
+        metaDataResolver.resolve(component.componentId, DefaultComponentOverrideMetadata.forDependency(dependency), result);
+        if (result.getFailure() != null) {
+            return null;
+        }
+        ComponentResolveMetadata metadata = result.getMetadata();
+        if (metadata.isChanging() && cachePolicy.mustRefreshChangingModule((ModuleComponentIdentifier) component.componentId, new DefaultResolvedModuleVersion(component.moduleVersion), age)) {
+            return null;
+        }
+        return metadata;
+    }
+
+    private static boolean isDynamic(ComponentSelector selector, VersionSelectorScheme versionSelectorScheme) {
+        if (!(selector instanceof ModuleComponentSelector)) {
+            return false;
+        }
+        String version = ((ModuleComponentSelector) selector).getVersionConstraint().getPreferredVersion();
+        return version == null || version.isEmpty() || versionSelectorScheme.parseSelector(version).isDynamic();
+    }
+
+    /**
+     * A graph restored from a snapshot, which can be visited in the same way as the graph the snapshot was taken from.
+     */
+    class RestoredGraph {
+        private final RestoredRoot root;
+        private final List<RestoredNode> restoredNodes;
+
+        private RestoredGraph(RestoredRoot root, List<RestoredNode> restoredNodes) {
+            this.root = root;
+            this.restoredNodes = restoredNodes;
+        }
+
+        void visit(DependencyGraphVisitor visitor) {
+            visitor.start(root);
+            for (SelectorSnapshot selector : selectors) {
+                visitor.visitSelector(selector);
+            }
+            for (int node : visitedNodes) {
+                visitor.visitNode(node == ROOT ? root : restoredNodes.get(node));
+            }
+            for (int node : visitedEdges) {
+                visitor.visitEdges(node == ROOT ? root : restoredNodes.get(node));
+            }
+            visitor.finish(root);
+        }
+    }
+
+    /**
+     * Records the graph visited while assembling the result of a resolution.
+     */
+    static class Recorder implements DependencyGraphVisitor {
+        private final List<SelectorState> selectors = Lists.newArrayList();
+        private final List<NodeState> visitedNodes = Lists.newArrayList();
+        private final List<NodeState> visitedEdges = Lists.newArrayList();
+        private RootNode root;
+
+        @Override
+        public void start(RootGraphNode root) {
+            this.root = (RootNode) root;
+        }
+
+        @Override
+        public void visitSelector(DependencyGraphSelector selector) {
+            selectors.add((SelectorState) selector);
+        }
+
+        @Override
+        public void visitNode(DependencyGraphNode node) {
+            visitedNodes.add((NodeState) node);
+        }
+
+        @Override
+        public void visitEdges(DependencyGraphNode node) {
+            visitedEdges.add((NodeState) node);
+        }
+
+        @Override
+        public void finish(DependencyGraphNode root) {
+        }
+
+        /**
+         * Returns a snapshot of the recorded graph, or null when the graph cannot be stored.
+         */
+        @Nullable
+        DependencyGraphSnapshot toSnapshot(long timestamp) {
+            if (root == null) {
+                return null;
+            }
+            Map<SelectorState, Integer> selectorIndexes = new IdentityHashMap<SelectorState, Integer>();
+            List<SelectorSnapshot> selectorSnapshots = Lists.newArrayListWithCapacity(selectors.size());
+            for (SelectorState selector : selectors) {
+                selectorIndexes.put(selector, selectorSnapshots.size());
+                selectorSnapshots.add(new SelectorSnapshot(selector.getResultId(), selector.getRequested()));
+            }
+
+            Map<ComponentState, Integer> componentIndexes = new IdentityHashMap<ComponentState, Integer>();
+            Map<Long, Integer> componentIndexesByResultId = Maps.newHashMap();
+            List<ComponentSnapshot> componentSnapshots = Lists.newArrayList();
+            Map<NodeState, Integer> nodeIndexes = new IdentityHashMap<NodeState, Integer>();
+            List<NodeState> nodes = Lists.newArrayList();
+            nodeIndexes.put(root, ROOT);
+            for (NodeState node : visitedNodes) {
+                if (node == root) {
+                    continue;
+                }
+                ComponentState component = node.getOwner();
+                if (!(component.getComponentId() instanceof ModuleComponentIdentifier)) {
+                    return null;
+                }
+                Integer componentIndex = componentIndexes.get(component);
+                if (componentIndex == null) {
+                    componentIndex = componentSnapshots.size();
+                    componentIndexes.put(component, componentIndex);
+                    componentIndexesByResultId.put(component.getResultId(), componentIndex);
+                    componentSnapshots.add(new ComponentSnapshot(component.getResultId(), component.getComponentId(), component.getModuleVersion(), component.getSelectionReason(), component.getVariantName().getDisplayName(), component.getVariantAttributes()));
+                }
+                nodeIndexes.put(node, nodes.size());
+                nodes.add(node);
+            }
+
+            Map<EdgeState, Integer> edgeIndexes = new IdentityHashMap<EdgeState, Integer>();
+            List<EdgeSnapshot> edgeSnapshots = Lists.newArrayList();
+            for (NodeState node : visitedEdges) {
+                Integer from = nodeIndexes.get(node);
+                if (from == null) {
+                    return null;
+                }
+                List<? extends DependencyMetadata> dependencies = node.getMetadata().getDependencies();
+                for (EdgeState edge : node.getOutgoingEdges()) {
+                    if (edge.getFailure() != null || edge.getExclusions().mayExcludeArtifacts()) {
+                        return null;
+                    }
+                    int dependencyIndex = indexOf(dependencies, edge.getDependencyMetadata());
+                    Integer selector = selectorIndexes.get(edge.getSelector());
+                    Integer selectedComponent = componentIndexesByResultId.get(edge.getSelected());
+                    if (dependencyIndex < 0 || selector == null || selectedComponent == null) {
+                        return null;
+                    }
+                    List<NodeState> targetNodes = edge.getTargetNodes();
+                    int[] targets = new int[targetNodes.size()];
+                    for (int i = 0; i < targets.length; i++) {
+                        Integer target = nodeIndexes.get(targetNodes.get(i));
+                        if (target == null || target == ROOT) {
+                            return null;
+                        }
+                        targets[i] = target;
+                    }
+                    edgeIndexes.put(edge, edgeSnapshots.size());
+                    edgeSnapshots.add(new EdgeSnapshot(from, dependencyIndex, selector, edge.getRequested(), edge.getReason(), selectedComponent, edge.getAttributes(), targets));
+                }
+            }
+
+            List<NodeSnapshot> nodeSnapshots = Lists.newArrayListWithCapacity(nodes.size());
+            for (NodeState node : nodes) {
+                List<EdgeState> incomingEdges = node.getIncomingEdges();
+                int[] incoming = new int[incomingEdges.size()];
+                for (int i = 0; i < incoming.length; i++) {
+                    Integer edge = edgeIndexes.get(incomingEdges.get(i));
+                    if (edge == null) {
+                        return null;
+                    }
+                    incoming[i] = edge;
+                }
+                HashCode dependenciesHash = PersistentDependencyGraphs.hashDependencies(node.getMetadata().getDependencies());
+                nodeSnapshots.add(new NodeSnapshot(node.getNodeId(), componentIndexes.get(node.getOwner()), node.getMetadata().getName(), dependenciesHash, incoming));
+            }
+
+            return new DependencyGraphSnapshot(timestamp, componentSnapshots, selectorSnapshots, nodeSnapshots, edgeSnapshots, toIndexes(visitedNodes, nodeIndexes), toIndexes(visitedEdges, nodeIndexes));
+        }
+
+        private static int[] toIndexes(List<NodeState> nodes, Map<NodeState, Integer> nodeIndexes) {
+            int[] indexes = new int[nodes.size()];
+            for (int i = 0; i < indexes.length; i++) {
+                indexes[i] = nodeIndexes.get(nodes.get(i));
+            }
+            return indexes;
+        }
+
+        private static int indexOf(List<? extends DependencyMetadata> dependencies, DependencyMetadata dependency) {
+            for (int i = 0; i < dependencies.size(); i++) {
+                if (dependencies.get(i) == dependency) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    static class Serializer extends AbstractSerializer<DependencyGraphSnapshot> {
+        private final ComponentIdentifierSerializer componentIdSerializer = new ComponentIdentifierSerializer();
+        private final ModuleVersionIdentifierSerializer moduleVersionIdSerializer;
+        private final ComponentSelectorSerializer selectorSerializer;
+        private final AttributeContainerSerializer attributeContainerSerializer;
+        private final HashCodeSerializer hashCodeSerializer = new HashCodeSerializer();
+
+        Serializer(ImmutableModuleIdentifierFactory moduleIdentifierFactory, AttributeContainerSerializer attributeContainerSerializer) {
+            this.moduleVersionIdSerializer = new ModuleVersionIdentifierSerializer(moduleIdentifierFactory);
+            this.selectorSerializer = new ComponentSelectorSerializer(attributeContainerSerializer);
+            this.attributeContainerSerializer = attributeContainerSerializer;
+        }
+
+        @Override
+        public DependencyGraphSnapshot read(Decoder decoder) throws Exception {
+            // Selection reasons are written relative to the other reasons of the same graph
+            ComponentSelectionReasonSerializer reasonSerializer = new ComponentSelectionReasonSerializer();
+            long timestamp = decoder.readLong();
+
+            int count = decoder.readSmallInt();
+            List<ComponentSnapshot> components = Lists.newArrayListWithCapacity(count);
+            for (int i = 0; i < count; i++) {
+                long resultId = decoder.readLong();
+                ComponentIdentifier componentId = componentIdSerializer.read(decoder);
+                ModuleVersionIdentifier moduleVersion = moduleVersionIdSerializer.read(decoder);
+                ComponentSelectionReason reason = reasonSerializer.read(decoder);
+                String variantName = decoder.readString();
+                ImmutableAttributes variantAttributes = attributeContainerSerializer.read(decoder);
+                components.add(new ComponentSnapshot(resultId, componentId, moduleVersion, reason, variantName, variantAttributes));
+            }
+
+            count = decoder.readSmallInt();
+            List<SelectorSnapshot> selectors = Lists.newArrayListWithCapacity(count);
+            for (int i = 0; i < count; i++) {
+                long resultId = decoder.readLong();
+                selectors.add(new SelectorSnapshot(resultId, selectorSerializer.read(decoder)));
+            }
+
+            count = decoder.readSmallInt();
+            List<NodeSnapshot> nodes = Lists.newArrayListWithCapacity(count);
+            for (int i = 0; i < count; i++) {
+                long nodeId = decoder.readLong();
+                int component = decoder.readSmallInt();
+                String configurationName = decoder.readString();
+                HashCode dependenciesHash = hashCodeSerializer.read(decoder);
+                nodes.add(new NodeSnapshot(nodeId, component, configurationName, dependenciesHash, readIndexes(decoder)));
+            }
+
+            count = decoder.readSmallInt();
+            List<EdgeSnapshot> edges = Lists.newArrayListWithCapacity(count);
+            for (int i = 0; i < count; i++) {
+                int from = decoder.readInt();
+                int dependencyIndex = decoder.readSmallInt();
+                int selector = decoder.readSmallInt();
+                ComponentSelector requested = selectorSerializer.read(decoder);
+                ComponentSelectionReason reason = reasonSerializer.read(decoder);
+                int selectedComponent = decoder.readSmallInt();
+                ImmutableAttributes attributes = attributeContainerSerializer.read(decoder);
+                edges.add(new EdgeSnapshot(from, dependencyIndex, selector, requested, reason, selectedComponent, attributes, readIndexes(decoder)));
+            }
+
+            int[] visitedNodes = readNodeIndexes(decoder);
+            int[] visitedEdges = readNodeIndexes(decoder);
+            return new DependencyGraphSnapshot(timestamp, components, selectors, nodes, edges, visitedNodes, visitedEdges);
+        }
+
+        @Override
+        public void write(Encoder encoder, DependencyGraphSnapshot value) throws Exception {
+            ComponentSelectionReasonSerializer reasonSerializer = new ComponentSelectionReasonSerializer();
+            encoder.writeLong(value.timestamp);
+
+            encoder.writeSmallInt(value.components.size());
+            for (ComponentSnapshot component : value.components) {
+                encoder.writeLong(component.resultId);
+                componentIdSerializer.write(encoder, component.componentId);
+                moduleVersionIdSerializer.write(encoder, component.moduleVersion);
+                reasonSerializer.write(encoder, component.selectionReason);
+                encoder.writeString(component.variantName);
+                attributeContainerSerializer.write(encoder, component.variantAttributes);
+            }
+
+            encoder.writeSmallInt(value.selectors.size());
+            for (SelectorSnapshot selector : value.selectors) {
+                encoder.writeLong(selector.resultId);
+                selectorSerializer.write(encoder, selector.requested);
+            }
+
+            encoder.writeSmallInt(value.nodes.size());
+            for (NodeSnapshot node : value.nodes) {
+                encoder.writeLong(node.nodeId);
+                encoder.writeSmallInt(node.component);
+                encoder.writeString(node.configurationName);
+                hashCodeSerializer.write(encoder, node.dependenciesHash);
+                writeIndexes(encoder, node.incomingEdges);
+            }
+
+            encoder.writeSmallInt(value.edges.size());
+            for (EdgeSnapshot edge : value.edges) {
+                encoder.writeInt(edge.from);
+                encoder.writeSmallInt(edge.dependencyIndex);
+                encoder.writeSmallInt(edge.selector);
+                selectorSerializer.write(encoder, edge.requested);
+                reasonSerializer.write(encoder, edge.reason);
+                encoder.writeSmallInt(edge.selectedComponent);
+                attributeContainerSerializer.write(encoder, edge.attributes);
+                writeIndexes(encoder, edge.targets);
+            }
+
+            writeNodeIndexes(encoder, value.visitedNodes);
+            writeNodeIndexes(encoder, value.visitedEdges);
+        }
+
+        private static int[] readIndexes(Decoder decoder) throws Exception {
+            int[] indexes = new int[decoder.readSmallInt()];
+            for (int i = 0; i < indexes.length; i++) {
+                indexes[i] = decoder.readSmallInt();
+            }
+            return indexes;
+        }
+
+        private static void writeIndexes(Encoder encoder, int[] indexes) throws Exception {
+            encoder.writeSmallInt(indexes.length);
+            for (int index : indexes) {
+                encoder.writeSmallInt(index);
+            }
+        }
+
+        // Node indexes may refer to the root, which is encoded as 0
+        private static int[] readNodeIndexes(Decoder decoder) throws Exception {
+            int[] indexes = new int[decoder.readSmallInt()];
+            for (int i = 0; i < indexes.length; i++) {
+                indexes[i] = decoder.readSmallInt() - 1;
+            }
+            return indexes;
+        }
+
+        private static void writeNodeIndexes(Encoder encoder, int[] indexes) throws Exception {
+            encoder.writeSmallInt(indexes.length);
+            for (int index : indexes) {
+                encoder.writeSmallInt(index + 1);
+            }
+        }
+    }
+
+    private static class ComponentSnapshot {
+        private final long resultId;
+        private final ComponentIdentifier componentId;
+        private final ModuleVersionIdentifier moduleVersion;
+        private final ComponentSelectionReason selectionReason;
+        private final String variantName;
+        private final AttributeContainer variantAttributes;
+
+        ComponentSnapshot(long resultId, ComponentIdentifier componentId, ModuleVersionIdentifier moduleVersion, ComponentSelectionReason selectionReason, String variantName, AttributeContainer variantAttributes) {
+            this.resultId = resultId;
+            this.componentId = componentId;
+            this.moduleVersion = moduleVersion;
+            this.selectionReason = selectionReason;
+            this.variantName = variantName;
+            this.variantAttributes = variantAttributes;
+        }
+    }
+
+    private static class SelectorSnapshot implements DependencyGraphSelector {
+        private final Long resultId;
+        private final ComponentSelector requested;
+
+        SelectorSnapshot(Long resultId, ComponentSelector requested) {
+            this.resultId = resultId;
+            this.requested = requested;
+        }
+
+        @Override
+        public Long getResultId() {
+            return resultId;
+        }
+
+        @Override
+        public ComponentSelector getRequested() {
+            return requested;
+        }
+    }
+
+    private static class NodeSnapshot {
+        private final long nodeId;
+        private final int component;
+        private final String configurationName;
+        private final HashCode dependenciesHash;
+        private final int[] incomingEdges;
+
+        NodeSnapshot(long nodeId, int component, String configurationName, HashCode dependenciesHash, int[] incomingEdges) {
+            this.nodeId = nodeId;
+            this.component = component;
+            this.configurationName = configurationName;
+            this.dependenciesHash = dependenciesHash;
+            this.incomingEdges = incomingEdges;
+        }
+    }
+
+    private static class EdgeSnapshot {
+        private final int from;
+        private final int dependencyIndex;
+        private final int selector;
+        private final ComponentSelector requested;
+        private final ComponentSelectionReason reason;
+        private final int selectedComponent;
+        private final ImmutableAttributes attributes;
+        private final int[] targets;
+
+        EdgeSnapshot(int from, int dependencyIndex, int selector, ComponentSelector requested, ComponentSelectionReason reason, int selectedComponent, ImmutableAttributes attributes, int[] targets) {
+            this.from = from;
+            this.dependencyIndex = dependencyIndex;
+            this.selector = selector;
+            this.requested = requested;
+            this.reason = reason;
+            this.selectedComponent = selectedComponent;
+            this.attributes = attributes;
+            this.targets = targets;
+        }
+    }
+
+    private static class RestoredComponent implements DependencyGraphComponent {
+        private final ComponentSnapshot snapshot;
+        private final DisplayName variantName;
+        private final Set<DependencyGraphComponent> dependents = Sets.newLinkedHashSet();
+        private ComponentResolveMetadata metadata;
+
+        RestoredComponent(ComponentSnapshot snapshot) {
+            this.snapshot = snapshot;
+            this.variantName = Describables.of(snapshot.variantName);
+        }
+
+        @Override
+        public Long getResultId() {
+            return snapshot.resultId;
+        }
+
+        @Override
+        public ComponentIdentifier getComponentId() {
+            return snapshot.componentId;
+        }
+
+        @Override
+        public ModuleVersionIdentifier getModuleVersion() {
+            return snapshot.moduleVersion;
+        }
+
+        @Override
+        public ComponentSelectionReason getSelectionReason() {
+            return snapshot.selectionReason;
+        }
+
+        @Override
+        public DisplayName getVariantName() {
+            return variantName;
+        }
+
+        @Override
+        public AttributeContainer getVariantAttributes() {
+            return snapshot.variantAttributes;
+        }
+
+        @Override
+        public ComponentResolveMetadata getMetadata() {
+            return metadata;
+        }
+
+        @Override
+        public Collection<? extends DependencyGraphComponent> getDependents() {
+            return dependents;
+        }
+
+        @Override
+        public Collection<? extends ModuleVersionIdentifier> getAllVersions() {
+            return Collections.singleton(snapshot.moduleVersion);
+        }
+
+        @Override
+        public String toString() {
+            return snapshot.moduleVersion.toString();
+        }
+    }
+
+    private static class RestoredNode implements DependencyGraphNode {
+        private final NodeSnapshot snapshot;
+        private final RestoredComponent component;
+        private final List<DependencyGraphEdge> incomingEdges = Lists.newArrayList();
+        private final List<DependencyGraphEdge> outgoingEdges = Lists.newArrayList();
+        private ConfigurationMetadata metadata;
+
+        RestoredNode(NodeSnapshot snapshot, RestoredComponent component) {
+            this.snapshot = snapshot;
+            this.component = component;
+        }
+
+        @Override
+        public Long getNodeId() {
+            return snapshot.nodeId;
+        }
+
+        @Override
+        public boolean isRoot() {
+            return false;
+        }
+
+        @Override
+        public ResolvedConfigurationIdentifier getResolvedConfigurationId() {
+            return new ResolvedConfigurationIdentifier(component.getModuleVersion(), snapshot.configurationName);
+        }
+
+        @Override
+        public DependencyGraphComponent getOwner() {
+            return component;
+        }
+
+        @Override
+        public Collection<? extends DependencyGraphEdge> getIncomingEdges() {
+            return incomingEdges;
+        }
+
+        @Override
+        public Collection<? extends DependencyGraphEdge> getOutgoingEdges() {
+            return outgoingEdges;
+        }
+
+        @Override
+        public Set<? extends LocalFileDependencyMetadata> getOutgoingFileEdges() {
+            return Collections.emptySet();
+        }
+
+        @Override
+        public ConfigurationMetadata getMetadata() {
+            return metadata;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s(%s)", component, snapshot.configurationName);
+        }
+    }
+
+    private static class RestoredRoot implements RootGraphNode {
+        private final RootNode delegate;
+        private final List<DependencyGraphEdge> outgoingEdges = Lists.newArrayList();
+
+        RestoredRoot(RootNode delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Long getNodeId() {
+            return delegate.getNodeId();
+        }
+
+        @Override
+        public boolean isRoot() {
+            return true;
+        }
+
+        @Override
+        public ResolvedConfigurationIdentifier getResolvedConfigurationId() {
+            return delegate.getResolvedConfigurationId();
+        }
+
+        @Override
+        public DependencyGraphComponent getOwner() {
+            return delegate.getOwner();
+        }
+
+        @Override
+        public Collection<? extends DependencyGraphEdge> getIncomingEdges() {
+            return ImmutableList.of();
+        }
+
+        @Override
+        public Collection<? extends DependencyGraphEdge> getOutgoingEdges() {
+            return outgoingEdges;
+        }
+
+        @Override
+        public Set<? extends LocalFileDependencyMetadata> getOutgoingFileEdges() {
+            return delegate.getOutgoingFileEdges();
+        }
+
+        @Override
+        public RootConfigurationMetadata getMetadata() {
+            return delegate.getMetadata();
+        }
+
+        @Override
+        public String toString() {
+            return delegate.toString();
+        }
+    }
+
+    private static class RestoredEdge implements DependencyGraphEdge {
+        private final EdgeSnapshot snapshot;
+        private final DependencyGraphNode from;
+        private final DependencyGraphSelector selector;
+        private final RestoredComponent selected;
+        private DependencyMetadata dependency;
+
+        RestoredEdge(EdgeSnapshot snapshot, DependencyGraphNode from, DependencyGraphSelector selector, RestoredComponent selected) {
+            this.snapshot = snapshot;
+            this.from = from;
+            this.selector = selector;
+            this.selected = selected;
+        }
+
+        @Override
+        public DependencyGraphNode getFrom() {
+            return from;
+        }
+
+        @Override
+        public DependencyGraphSelector getSelector() {
+            return selector;
+        }
+
+        @Override
+        public ModuleExclusion getExclusions() {
+            // Graphs whose exclusions may exclude artifacts are not stored
+            return ModuleExclusions.excludeNone();
+        }
+
+        @Override
+        public boolean contributesArtifacts() {
+            return !dependency.isPending();
+        }
+
+        @Override
+        public List<ComponentArtifactMetadata> getArtifacts(ConfigurationMetadata targetConfiguration) {
+            List<IvyArtifactName> artifacts = dependency.getArtifacts();
+            if (artifacts.isEmpty()) {
+                return Collections.emptyList();
+            }
+            List<ComponentArtifactMetadata> result = Lists.newArrayListWithCapacity(artifacts.size());
+            for (IvyArtifactName artifact : artifacts) {
+                result.add(targetConfiguration.artifact(artifact));
+            }
+            return result;
+        }
+
+        @Override
+        public ImmutableAttributes getAttributes() {
+            return snapshot.attributes;
+        }
+
+        @Nullable
+        @Override
+        public Dependency getOriginalDependency() {
+            if (dependency instanceof DslOriginDependencyMetadata) {
+                return ((DslOriginDependencyMetadata) dependency).getSource();
+            }
+            return null;
+        }
+
+        @Override
+        public ComponentSelector getRequested() {
+            return snapshot.requested;
+        }
+
+        @Nullable
+        @Override
+        public ModuleVersionResolveException getFailure() {
+            return null;
+        }
+
+        @Override
+        public Long getSelected() {
+            return selected.getResultId();
+        }
+
+        @Override
+        public ComponentSelectionReason getReason() {
+            return snapshot.reason;
+        }
+    }
+}
@@ -82,6 +82,10 @@ class EdgeState implements DependencyGraphEdge {
         return dependencyMetadata;
     }
 
+    List<NodeState> getTargetNodes() {
+        return targetNodes;
+    }
+
     /**
      * Returns the target component, if the edge has been successfully resolved.
      * Returns null if the edge failed to resolve, or has not (yet) been successfully resolved to a target component.
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.builder;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.gradle.api.Action;
+import org.gradle.api.artifacts.component.ComponentSelector;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.artifacts.component.ModuleComponentSelector;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionSelectorScheme;
+import org.gradle.api.specs.Spec;
+import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier;
+import org.gradle.internal.component.model.ComponentOverrideMetadata;
+import org.gradle.internal.component.model.ConfigurationMetadata;
+import org.gradle.internal.component.model.DefaultComponentOverrideMetadata;
+import org.gradle.internal.component.model.DependencyMetadata;
+import org.gradle.internal.operations.BuildOperationContext;
+import org.gradle.internal.operations.BuildOperationDescriptor;
+import org.gradle.internal.operations.BuildOperationExecutor;
+import org.gradle.internal.operations.BuildOperationQueue;
+import org.gradle.internal.operations.RunnableBuildOperation;
+import org.gradle.internal.resolve.resolver.ComponentMetaDataResolver;
+import org.gradle.internal.resolve.result.DefaultBuildableComponentResolveResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Resolves, in parallel, the metadata of the components which the nodes of a breadth-first wave of the graph traversal are likely to depend on.
+ *
+ * The graph is still traversed serially, so selection and conflict resolution happen in the same order, and produce the same result, as without prefetching.
+ * The prefetched metadata is kept by the repository caches, so resolving it again once the traversal reaches the component is cheap.
+ * Only dependencies on a fixed version are prefetched. Dependencies that are later excluded, substituted or evicted by a conflict may be prefetched needlessly.
+ */
+class ParallelMetadataPrefetcher {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ParallelMetadataPrefetcher.class);
+
+    public static final String PARALLEL_GRAPH_RESOLUTION_PROPERTY = "org.gradle.unsafe.parallel-dependency-graph-resolution";
+
+    private final ComponentMetaDataResolver metaDataResolver;
+    private final VersionSelectorScheme versionSelectorScheme;
+    private final Spec<? super DependencyMetadata> edgeFilter;
+    private final BuildOperationExecutor buildOperationExecutor;
+    private final Set<ModuleComponentIdentifier> requested = Sets.newHashSet();
+
+    ParallelMetadataPrefetcher(ComponentMetaDataResolver metaDataResolver, VersionSelectorScheme versionSelectorScheme, Spec<? super DependencyMetadata> edgeFilter, BuildOperationExecutor buildOperationExecutor) {
+        this.metaDataResolver = metaDataResolver;
+        this.versionSelectorScheme = versionSelectorScheme;
+        this.edgeFilter = edgeFilter;
+        this.buildOperationExecutor = buildOperationExecutor;
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.getBoolean(PARALLEL_GRAPH_RESOLUTION_PROPERTY);
+    }
+
+    /**
+     * Prefetches the metadata of the targets of the outgoing dependencies of the given nodes.
+     */
+    void prefetchDependenciesOf(Collection<NodeState> nodes) {
+        List<ConfigurationMetadata> configurations = Lists.newArrayListWithCapacity(nodes.size());
+        for (NodeState node : nodes) {
+            if (node.isSelected()) {
+                configurations.add(node.getMetadata());
+            }
+        }
+        prefetch(configurations);
+    }
+
+    void prefetch(Collection<? extends ConfigurationMetadata> configurations) {
+        List<PrefetchMetadataOperation> operations = Lists.newArrayList();
+        for (ConfigurationMetadata configuration : configurations) {
+            for (DependencyMetadata dependency : configuration.getDependencies()) {
+                if (dependency.isPending() || !edgeFilter.isSatisfiedBy(dependency)) {
+                    continue;
+                }
+                ModuleComponentIdentifier id = fixedVersionTarget(dependency.getSelector());
+                if (id != null && requested.add(id)) {
+                    operations.add(new PrefetchMetadataOperation(id, DefaultComponentOverrideMetadata.forDependency(dependency)));
+                }
+            }
+        }
+        // A single component is resolved just as quickly by the traversal itself
+        if (operations.size() < 2) {
+            return;
+        }
+
+        final List<PrefetchMetadataOperation> toPrefetch = ImmutableList.copyOf(operations);
+        LOGGER.debug("Prefetching metadata of {} components in parallel", toPrefetch.size());
+        buildOperationExecutor.runAll(new Action<BuildOperationQueue<RunnableBuildOperation>>() {
+            @Override
+            public void execute(BuildOperationQueue<RunnableBuildOperation> buildOperationQueue) {
+                for (PrefetchMetadataOperation operation : toPrefetch) {
+                    buildOperationQueue.add(operation);
+                }
+            }
+        });
+    }
+
+    private ModuleComponentIdentifier fixedVersionTarget(ComponentSelector selector) {
+        if (!(selector instanceof ModuleComponentSelector)) {
+            return null;
+        }
+        ModuleComponentSelector moduleSelector = (ModuleComponentSelector) selector;
+        String version = moduleSelector.getVersionConstraint().getPreferredVersion();
+        if (version == null || version.isEmpty() || versionSelectorScheme.parseSelector(version).isDynamic()) {
+            return null;
+        }
+        return DefaultModuleComponentIdentifier.newId(moduleSelector.getModuleIdentifier(), version);
+    }
+
+    private class PrefetchMetadataOperation implements RunnableBuildOperation {
+        private final ModuleComponentIdentifier id;
+        private final ComponentOverrideMetadata overrideMetadata;
+
+        PrefetchMetadataOperation(ModuleComponentIdentifier id, ComponentOverrideMetadata overrideMetadata) {
+            this.id = id;
+            this.overrideMetadata = overrideMetadata;
+        }
+
+        @Override
+        public void run(BuildOperationContext context) {
+            // Failures are ignored: they are reported when the traversal resolves the component, if it is part of the graph at all
+            try {
+                metaDataResolver.resolve(id, overrideMetadata, new DefaultBuildableComponentResolveResult());
+            } catch (Exception e) {
+                LOGGER.debug("Could not prefetch metadata of {}", id, e);
+            }
+        }
+
+        @Override
+        public BuildOperationDescriptor.Builder description() {
+            return BuildOperationDescriptor.displayName("Prefetch metadata of " + id.getDisplayName());
+        }
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.builder;
+
+import org.gradle.api.artifacts.VersionConstraint;
+import org.gradle.api.artifacts.component.ComponentSelector;
+import org.gradle.api.artifacts.component.ModuleComponentSelector;
+import org.gradle.api.internal.artifacts.ImmutableModuleIdentifierFactory;
+import org.gradle.api.internal.artifacts.ivyservice.CacheLockingManager;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.AttributeContainerSerializer;
+import org.gradle.cache.PersistentIndexedCache;
+import org.gradle.internal.component.model.DependencyMetadata;
+import org.gradle.internal.component.model.ExcludeMetadata;
+import org.gradle.internal.component.model.IvyArtifactName;
+import org.gradle.internal.component.model.LocalOriginDependencyMetadata;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.hash.Hasher;
+import org.gradle.internal.hash.Hashing;
+import org.gradle.internal.serialize.HashCodeSerializer;
+import org.gradle.util.BuildCommencedTimeProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps the dependency graphs resolved by previous builds in the dependency cache, so that a configuration whose inputs have not changed
+ * can skip the traversal of its graph.
+ *
+ * A graph is stored under a key made of the resolution scope and of the dependencies declared by the root. Everything that the key does not cover,
+ * such as the metadata of the selected components, metadata rules and variant selection, is checked again when the graph is loaded, see {@link DependencyGraphSnapshot}.
+ */
+public class PersistentDependencyGraphs implements Stoppable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PersistentDependencyGraphs.class);
+
+    public static final String PERSISTENT_DEPENDENCY_GRAPHS_PROPERTY = "org.gradle.unsafe.persistent-dependency-graphs";
+
+    private final CacheLockingManager cacheLockingManager;
+    private final BuildCommencedTimeProvider timeProvider;
+    private final DependencyGraphSnapshot.Serializer snapshotSerializer;
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+    private final AtomicInteger outOfDate = new AtomicInteger();
+    private PersistentIndexedCache<HashCode, DependencyGraphSnapshot> cache;
+
+    public PersistentDependencyGraphs(CacheLockingManager cacheLockingManager, BuildCommencedTimeProvider timeProvider, ImmutableModuleIdentifierFactory moduleIdentifierFactory, AttributeContainerSerializer attributeContainerSerializer) {
+        this.cacheLockingManager = cacheLockingManager;
+        this.timeProvider = timeProvider;
+        this.snapshotSerializer = new DependencyGraphSnapshot.Serializer(moduleIdentifierFactory, attributeContainerSerializer);
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.getBoolean(PERSISTENT_DEPENDENCY_GRAPHS_PROPERTY);
+    }
+
+    private synchronized PersistentIndexedCache<HashCode, DependencyGraphSnapshot> getCache() {
+        if (cache == null) {
+            cache = cacheLockingManager.createCache("resolved-graphs", new HashCodeSerializer(), snapshotSerializer);
+        }
+        return cache;
+    }
+
+    long getCurrentTime() {
+        return timeProvider.getCurrentTime();
+    }
+
+    public int getHits() {
+        return hits.get();
+    }
+
+    public int getMisses() {
+        return misses.get();
+    }
+
+    public int getOutOfDate() {
+        return outOfDate.get();
+    }
+
+    /**
+     * Returns the key for the graph of the given root within the given resolution scope, or null when the graph of this root cannot be stored.
+     */
+    @Nullable
+    HashCode keyFor(HashCode resolutionScope, RootNode root) {
+        Hasher hasher = Hashing.md5().newHasher();
+        hasher.putHash(resolutionScope);
+        putString(hasher, root.getOwner().getId().toString());
+        putString(hasher, root.getMetadata().getAttributes().toString());
+        hasher.putBoolean(root.getMetadata().isTransitive());
+        hashExcludes(hasher, root.getMetadata().getExcludes());
+        List<? extends LocalOriginDependencyMetadata> dependencies = root.getMetadata().getDependencies();
+        hasher.putInt(dependencies.size());
+        for (LocalOriginDependencyMetadata dependency : dependencies) {
+            if (!SharedDependencyGraphs.isShareable(dependency)) {
+                return null;
+            }
+            hashDependency(hasher, dependency);
+            putString(hasher, String.valueOf(dependency.getModuleConfiguration()));
+            putString(hasher, String.valueOf(dependency.getDependencyConfiguration()));
+            hasher.putBoolean(dependency.isForce());
+        }
+        return hasher.hash();
+    }
+
+    @Nullable
+    DependencyGraphSnapshot load(HashCode key) {
+        return getCache().get(key);
+    }
+
+    void store(HashCode key, DependencyGraphSnapshot snapshot) {
+        misses.incrementAndGet();
+        getCache().put(key, snapshot);
+    }
+
+    void hit() {
+        hits.incrementAndGet();
+    }
+
+    void outOfDate() {
+        outOfDate.incrementAndGet();
+    }
+
+    /**
+     * Hashes the dependencies declared by a node of the graph, to find out whether they changed since the graph was stored.
+     */
+    static HashCode hashDependencies(List<? extends DependencyMetadata> dependencies) {
+        Hasher hasher = Hashing.md5().newHasher();
+        hasher.putInt(dependencies.size());
+        for (DependencyMetadata dependency : dependencies) {
+            hashDependency(hasher, dependency);
+        }
+        return hasher.hash();
+    }
+
+    private static void hashDependency(Hasher hasher, DependencyMetadata dependency) {
+        hashSelector(hasher, dependency.getSelector());
+        hashExcludes(hasher, dependency.getExcludes());
+        List<IvyArtifactName> artifacts = dependency.getArtifacts();
+        hasher.putInt(artifacts.size());
+        for (IvyArtifactName artifact : artifacts) {
+            hashArtifact(hasher, artifact);
+        }
+        putString(hasher, String.valueOf(dependency.getReason()));
+        hasher.putBoolean(dependency.isChanging());
+        hasher.putBoolean(dependency.isTransitive());
+        hasher.putBoolean(dependency.isPending());
+    }
+
+    private static void hashSelector(Hasher hasher, ComponentSelector selector) {
+        putString(hasher, selector.getClass().getName());
+        if (selector instanceof ModuleComponentSelector) {
+            ModuleComponentSelector moduleSelector = (ModuleComponentSelector) selector;
+            VersionConstraint versionConstraint = moduleSelector.getVersionConstraint();
+            putString(hasher, moduleSelector.getGroup());
+            putString(hasher, moduleSelector.getModule());
+            putString(hasher, versionConstraint.getPreferredVersion());
+            putString(hasher, String.valueOf(versionConstraint.getBranch()));
+            putString(hasher, versionConstraint.getRejectedVersions().toString());
+            putString(hasher, moduleSelector.getAttributes().toString());
+        } else {
+            putString(hasher, selector.getDisplayName());
+        }
+    }
+
+    private static void hashExcludes(Hasher hasher, List<ExcludeMetadata> excludes) {
+        hasher.putInt(excludes.size());
+        for (ExcludeMetadata exclude : excludes) {
+            putString(hasher, exclude.getModuleId().toString());
+            putString(hasher, String.valueOf(exclude.getMatcher()));
+            IvyArtifactName artifact = exclude.getArtifact();
+            hasher.putBoolean(artifact != null);
+            if (artifact != null) {
+                hashArtifact(hasher, artifact);
+            }
+        }
+    }
+
+    private static void hashArtifact(Hasher hasher, IvyArtifactName artifact) {
+        putString(hasher, artifact.getName());
+        putString(hasher, artifact.getType());
+        putString(hasher, String.valueOf(artifact.getExtension()));
+        putString(hasher, String.valueOf(artifact.getClassifier()));
+    }
+
+    private static void putString(Hasher hasher, String value) {
+        hasher.putInt(value.length());
+        hasher.putString(value);
+    }
+
+    @Override
+    public void stop() {
+        if (hits.get() > 0 || misses.get() > 0 || outOfDate.get() > 0) {
+            LOGGER.info("Persistent dependency graphs: {} hits, {} misses, {} out of date.", hits.get(), misses.get(), outOfDate.get());
+        }
+    }
+}
@@ -0,0 +1,433 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.builder;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import org.gradle.api.artifacts.Dependency;
+import org.gradle.api.artifacts.ModuleIdentifier;
+import org.gradle.api.artifacts.component.ComponentSelector;
+import org.gradle.api.artifacts.result.ComponentSelectionReason;
+import org.gradle.api.internal.artifacts.ResolvedConfigurationIdentifier;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.excludes.ModuleExclusion;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphComponent;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphEdge;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphNode;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphSelector;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphVisitor;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.RootGraphNode;
+import org.gradle.api.internal.attributes.AttributesSchemaInternal;
+import org.gradle.api.internal.attributes.ImmutableAttributes;
+import org.gradle.api.internal.attributes.ImmutableAttributesFactory;
+import org.gradle.internal.component.local.model.DslOriginDependencyMetadata;
+import org.gradle.internal.component.local.model.LocalFileDependencyMetadata;
+import org.gradle.internal.component.local.model.RootConfigurationMetadata;
+import org.gradle.internal.component.model.ComponentArtifactMetadata;
+import org.gradle.internal.component.model.ComponentResolveMetadata;
+import org.gradle.internal.component.model.ConfigurationMetadata;
+import org.gradle.internal.component.model.DependencyMetadata;
+import org.gradle.internal.resolve.ModuleVersionResolveException;
+
+import javax.annotation.Nullable;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The sequence of visits made while assembling the result of a dependency graph, which can be replayed on behalf of another root that declares the same dependencies.
+ *
+ * On replay, the recorded root is replaced by the new root: the edges leaving the root are attached to the new root, and refer to the dependencies declared by the new root.
+ * The rest of the graph is visited as recorded.
+ */
+class RecordedDependencyGraph {
+    private final RootNode root;
+    private final AttributesSchemaInternal attributesSchema;
+    private final Set<ModuleIdentifier> modules;
+    private final List<DependencyGraphSelector> selectors;
+    private final List<NodeState> nodes;
+    private final List<NodeState> edgeVisits;
+    private final Map<EdgeState, Integer> rootEdgeDependencyIndexes;
+
+    private RecordedDependencyGraph(RootNode root, AttributesSchemaInternal attributesSchema, Set<ModuleIdentifier> modules, List<DependencyGraphSelector> selectors, List<NodeState> nodes, List<NodeState> edgeVisits, Map<EdgeState, Integer> rootEdgeDependencyIndexes) {
+        this.root = root;
+        this.attributesSchema = attributesSchema;
+        this.modules = modules;
+        this.selectors = selectors;
+        this.nodes = nodes;
+        this.edgeVisits = edgeVisits;
+        this.rootEdgeDependencyIndexes = rootEdgeDependencyIndexes;
+    }
+
+    /**
+     * Can this graph be replayed on behalf of the given root, which declares the same dependencies as the recorded root?
+     *
+     * The module of the root takes part in conflict resolution, so the graph cannot be used when it refers to the module of the new root.
+     * When the new root resolves with a different attributes schema, for example one from another project, every edge must still select the recorded target configurations.
+     */
+    boolean canReplayFor(RootNode newRoot, AttributesSchemaInternal attributesSchema, ImmutableAttributesFactory attributesFactory) {
+        if (modules.contains(newRoot.getComponent().getModule().getId())) {
+            return false;
+        }
+        return attributesSchema == this.attributesSchema || selectsSameConfigurations(newRoot.getMetadata().getAttributes(), attributesSchema, attributesFactory);
+    }
+
+    private boolean selectsSameConfigurations(ImmutableAttributes rootAttributes, AttributesSchemaInternal attributesSchema, ImmutableAttributesFactory attributesFactory) {
+        for (NodeState node : edgeVisits) {
+            for (EdgeState edge : node.getOutgoingEdges()) {
+                List<NodeState> targetNodes = edge.getTargetNodes();
+                if (targetNodes.isEmpty()) {
+                    continue;
+                }
+                ComponentResolveMetadata targetComponent = targetNodes.get(0).getComponent().getMetadata();
+                List<ConfigurationMetadata> targetConfigurations;
+                try {
+                    targetConfigurations = edge.getDependencyMetadata().selectConfigurations(attributesFactory.concat(rootAttributes, edge.getAttributes()), targetComponent, attributesSchema);
+                } catch (Throwable t) {
+                    return false;
+                }
+                if (targetConfigurations.size() != targetNodes.size()) {
+                    return false;
+                }
+                for (int i = 0; i < targetNodes.size(); i++) {
+                    if (!targetConfigurations.get(i).getName().equals(targetNodes.get(i).getMetadata().getName())) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Visits the recorded graph on behalf of the given root, which must declare the same dependencies, in the same order, as the recorded root.
+     */
+    void replay(RootNode newRoot, DependencyGraphVisitor visitor) {
+        ReplacedRoot replacedRoot = new ReplacedRoot(newRoot);
+        Map<EdgeState, DependencyGraphEdge> rootEdges = new IdentityHashMap<EdgeState, DependencyGraphEdge>();
+        List<? extends DependencyMetadata> newDependencies = newRoot.getMetadata().getDependencies();
+        for (EdgeState edge : root.getOutgoingEdges()) {
+            DependencyMetadata dependency = newDependencies.get(rootEdgeDependencyIndexes.get(edge));
+            DependencyGraphEdge replacedEdge = new ReplacedRootEdge(edge, replacedRoot, dependency);
+            rootEdges.put(edge, replacedEdge);
+            replacedRoot.outgoingEdges.add(replacedEdge);
+        }
+
+        Map<NodeState, DependencyGraphNode> views = new IdentityHashMap<NodeState, DependencyGraphNode>();
+        views.put(root, replacedRoot);
+
+        visitor.start(replacedRoot);
+        for (DependencyGraphSelector selector : selectors) {
+            visitor.visitSelector(selector);
+        }
+        for (NodeState node : nodes) {
+            visitor.visitNode(viewOf(node, views, rootEdges));
+        }
+        for (NodeState node : edgeVisits) {
+            visitor.visitEdges(viewOf(node, views, rootEdges));
+        }
+        visitor.finish(replacedRoot);
+    }
+
+    private DependencyGraphNode viewOf(NodeState node, Map<NodeState, DependencyGraphNode> views, Map<EdgeState, DependencyGraphEdge> rootEdges) {
+        DependencyGraphNode view = views.get(node);
+        if (view == null) {
+            view = node;
+            for (EdgeState edge : node.getIncomingEdges()) {
+                if (edge.getFrom() == root) {
+                    view = new NodeWithReplacedRootEdges(node, rootEdges);
+                    break;
+                }
+            }
+            views.put(node, view);
+        }
+        return view;
+    }
+
+    /**
+     * Records the visits made while assembling the result of a graph. The graph is only kept when it resolved without failures.
+     */
+    static class Recorder implements DependencyGraphVisitor {
+        private final List<DependencyGraphSelector> selectors = Lists.newArrayList();
+        private final List<NodeState> nodes = Lists.newArrayList();
+        private final List<NodeState> edgeVisits = Lists.newArrayList();
+        private RootNode root;
+        private boolean failed;
+
+        @Override
+        public void start(RootGraphNode root) {
+            this.root = (RootNode) root;
+        }
+
+        @Override
+        public void visitSelector(DependencyGraphSelector selector) {
+            selectors.add(selector);
+        }
+
+        @Override
+        public void visitNode(DependencyGraphNode node) {
+            nodes.add((NodeState) node);
+        }
+
+        @Override
+        public void visitEdges(DependencyGraphNode node) {
+            NodeState nodeState = (NodeState) node;
+            edgeVisits.add(nodeState);
+            for (EdgeState edge : nodeState.getOutgoingEdges()) {
+                if (edge.getFailure() != null) {
+                    failed = true;
+                }
+            }
+        }
+
+        @Override
+        public void finish(DependencyGraphNode root) {
+        }
+
+        /**
+         * Returns the recorded graph, or null when it cannot be shared.
+         */
+        @Nullable
+        RecordedDependencyGraph toGraph(AttributesSchemaInternal attributesSchema) {
+            if (failed || root == null) {
+                return null;
+            }
+            ImmutableSet.Builder<ModuleIdentifier> builder = ImmutableSet.builder();
+            for (NodeState node : nodes) {
+                if (node != root) {
+                    builder.add(node.getComponent().getModule().getId());
+                }
+            }
+            for (DependencyGraphSelector selector : selectors) {
+                builder.add(((SelectorState) selector).getTargetModule().getId());
+            }
+            Set<ModuleIdentifier> modules = builder.build();
+            if (modules.contains(root.getComponent().getModule().getId())) {
+                return null;
+            }
+            List<? extends DependencyMetadata> dependencies = root.getMetadata().getDependencies();
+            Map<EdgeState, Integer> rootEdgeDependencyIndexes = new IdentityHashMap<EdgeState, Integer>();
+            for (EdgeState edge : root.getOutgoingEdges()) {
+                int index = indexOf(dependencies, edge.getDependencyMetadata());
+                if (index < 0) {
+                    return null;
+                }
+                rootEdgeDependencyIndexes.put(edge, index);
+            }
+            return new RecordedDependencyGraph(root, attributesSchema, modules, ImmutableList.copyOf(selectors), ImmutableList.copyOf(nodes), ImmutableList.copyOf(edgeVisits), rootEdgeDependencyIndexes);
+        }
+
+        private static int indexOf(List<? extends DependencyMetadata> dependencies, DependencyMetadata dependency) {
+            for (int i = 0; i < dependencies.size(); i++) {
+                if (dependencies.get(i) == dependency) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    private static class ReplacedRoot implements RootGraphNode {
+        private final RootNode delegate;
+        private final List<DependencyGraphEdge> outgoingEdges = Lists.newArrayList();
+
+        ReplacedRoot(RootNode delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Long getNodeId() {
+            return delegate.getNodeId();
+        }
+
+        @Override
+        public boolean isRoot() {
+            return true;
+        }
+
+        @Override
+        public ResolvedConfigurationIdentifier getResolvedConfigurationId() {
+            return delegate.getResolvedConfigurationId();
+        }
+
+        @Override
+        public DependencyGraphComponent getOwner() {
+            return delegate.getOwner();
+        }
+
+        @Override
+        public Collection<? extends DependencyGraphEdge> getIncomingEdges() {
+            return ImmutableList.of();
+        }
+
+        @Override
+        public Collection<? extends DependencyGraphEdge> getOutgoingEdges() {
+            return outgoingEdges;
+        }
+
+        @Override
+        public Set<? extends LocalFileDependencyMetadata> getOutgoingFileEdges() {
+            return delegate.getOutgoingFileEdges();
+        }
+
+        @Override
+        public RootConfigurationMetadata getMetadata() {
+            return delegate.getMetadata();
+        }
+
+        @Override
+        public String toString() {
+            return delegate.toString();
+        }
+    }
+
+    private static class ReplacedRootEdge implements DependencyGraphEdge {
+        private final EdgeState delegate;
+        private final ReplacedRoot from;
+        private final DependencyMetadata dependency;
+
+        ReplacedRootEdge(EdgeState delegate, ReplacedRoot from, DependencyMetadata dependency) {
+            this.delegate = delegate;
+            this.from = from;
+            this.dependency = dependency;
+        }
+
+        @Override
+        public DependencyGraphNode getFrom() {
+            return from;
+        }
+
+        @Override
+        public DependencyGraphSelector getSelector() {
+            return delegate.getSelector();
+        }
+
+        @Override
+        public ModuleExclusion getExclusions() {
+            return delegate.getExclusions();
+        }
+
+        @Override
+        public boolean contributesArtifacts() {
+            return delegate.contributesArtifacts();
+        }
+
+        @Override
+        public List<ComponentArtifactMetadata> getArtifacts(ConfigurationMetadata targetConfiguration) {
+            return delegate.getArtifacts(targetConfiguration);
+        }
+
+        @Override
+        public ImmutableAttributes getAttributes() {
+            return delegate.getAttributes();
+        }
+
+        @Nullable
+        @Override
+        public Dependency getOriginalDependency() {
+            if (dependency instanceof DslOriginDependencyMetadata) {
+                return ((DslOriginDependencyMetadata) dependency).getSource();
+            }
+            return null;
+        }
+
+        @Override
+        public ComponentSelector getRequested() {
+            return delegate.getRequested();
+        }
+
+        @Nullable
+        @Override
+        public ModuleVersionResolveException getFailure() {
+            return delegate.getFailure();
+        }
+
+        @Nullable
+        @Override
+        public Long getSelected() {
+            return delegate.getSelected();
+        }
+
+        @Nullable
+        @Override
+        public ComponentSelectionReason getReason() {
+            return delegate.getReason();
+        }
+    }
+
+    private static class NodeWithReplacedRootEdges implements DependencyGraphNode {
+        private final NodeState delegate;
+        private final List<DependencyGraphEdge> incomingEdges;
+
+        NodeWithReplacedRootEdges(NodeState delegate, Map<EdgeState, DependencyGraphEdge> rootEdges) {
+            this.delegate = delegate;
+            this.incomingEdges = Lists.newArrayListWithCapacity(delegate.getIncomingEdges().size());
+            for (EdgeState edge : delegate.getIncomingEdges()) {
+                DependencyGraphEdge rootEdge = rootEdges.get(edge);
+                incomingEdges.add(rootEdge != null ? rootEdge : edge);
+            }
+        }
+
+        @Override
+        public Long getNodeId() {
+            return delegate.getNodeId();
+        }
+
+        @Override
+        public boolean isRoot() {
+            return false;
+        }
+
+        @Override
+        public ResolvedConfigurationIdentifier getResolvedConfigurationId() {
+            return delegate.getResolvedConfigurationId();
+        }
+
+        @Override
+        public DependencyGraphComponent getOwner() {
+            return delegate.getOwner();
+        }
+
+        @Override
+        public Collection<? extends DependencyGraphEdge> getIncomingEdges() {
+            return incomingEdges;
+        }
+
+        @Override
+        public Collection<? extends DependencyGraphEdge> getOutgoingEdges() {
+            return delegate.getOutgoingEdges();
+        }
+
+        @Override
+        public Set<? extends LocalFileDependencyMetadata> getOutgoingFileEdges() {
+            return delegate.getOutgoingFileEdges();
+        }
+
+        @Override
+        public ConfigurationMetadata getMetadata() {
+            return delegate.getMetadata();
+        }
+
+        @Override
+        public String toString() {
+            return delegate.toString();
+        }
+    }
+}
@@ -41,6 +41,7 @@ import org.gradle.internal.resolve.result.ComponentResolveResult;
 
 import java.util.ArrayDeque;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Deque;
 import java.util.LinkedHashMap;
 import java.util.Map;
@@ -164,6 +165,13 @@ class ResolveState implements ComponentStateFactory<ComponentState> {
         return queue.isEmpty() ? null : queue.getFirst();
     }
 
+    /**
+     * Returns a live view of the nodes waiting to be visited, in the order they will be visited.
+     */
+    Collection<NodeState> getQueuedNodes() {
+        return Collections.unmodifiableCollection(queue);
+    }
+
     public NodeState pop() {
         NodeState next = queue.removeFirst();
         queued.remove(next);
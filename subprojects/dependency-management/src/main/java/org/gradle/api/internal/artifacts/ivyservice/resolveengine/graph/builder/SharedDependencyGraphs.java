@@ -0,0 +1,195 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.builder;
+
+import com.google.common.collect.ImmutableList;
+import org.gradle.api.artifacts.ClientModule;
+import org.gradle.api.artifacts.component.ModuleComponentSelector;
+import org.gradle.internal.component.local.model.DslOriginDependencyMetadata;
+import org.gradle.internal.component.model.LocalOriginDependencyMetadata;
+import org.gradle.internal.concurrent.Stoppable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps the dependency graphs resolved during a build, so that a configuration which declares exactly the same dependencies as
+ * a configuration resolved earlier, under the same resolution rules and repositories, reuses its graph instead of resolving it again.
+ * The configurations may belong to different projects.
+ *
+ * The caller decides which resolutions may share a graph by supplying a sharing scope, see {@link DependencyGraphBuilder#resolve(org.gradle.api.internal.artifacts.ResolveContext, org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphVisitor, SharedDependencyGraphs, Object)}.
+ * Within a scope, graphs are shared only when the root declares module dependencies and constraints only, and resolves without failures.
+ * The sharing scope is compared by value, so resolutions of different projects share graphs when their rules and repositories are equal.
+ */
+public class SharedDependencyGraphs implements Stoppable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SharedDependencyGraphs.class);
+
+    public static final String SHARED_DEPENDENCY_GRAPHS_PROPERTY = "org.gradle.unsafe.shared-dependency-graphs";
+
+    private final ConcurrentMap<GraphKey, RecordedDependencyGraph> graphs = new ConcurrentHashMap<GraphKey, RecordedDependencyGraph>();
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+    private final AtomicInteger notShareable = new AtomicInteger();
+
+    public static boolean isEnabled() {
+        return Boolean.getBoolean(SHARED_DEPENDENCY_GRAPHS_PROPERTY);
+    }
+
+    /**
+     * Records that a graph was resolved without being considered for sharing.
+     */
+    public void notShareable() {
+        notShareable.incrementAndGet();
+    }
+
+    public int getHits() {
+        return hits.get();
+    }
+
+    public int getMisses() {
+        return misses.get();
+    }
+
+    public int getNotShareable() {
+        return notShareable.get();
+    }
+
+    /**
+     * Returns the key for the graph of the given root within the given sharing scope, or null when the graph of this root cannot be shared.
+     */
+    @Nullable
+    GraphKey keyFor(Object sharingScope, RootNode root) {
+        List<? extends LocalOriginDependencyMetadata> dependencies = root.getMetadata().getDependencies();
+        ImmutableList.Builder<Object> declared = ImmutableList.builder();
+        for (LocalOriginDependencyMetadata dependency : dependencies) {
+            if (!isShareable(dependency)) {
+                return null;
+            }
+            declared.add(new DeclaredDependency(dependency));
+        }
+        return new GraphKey(sharingScope, root.getMetadata().getAttributes(), root.getMetadata().getExcludes(), root.getMetadata().isTransitive(), declared.build());
+    }
+
+    /**
+     * Can a graph that includes the given dependency, declared by the root, be reused for another root? Only dependencies on external modules qualify.
+     */
+    static boolean isShareable(LocalOriginDependencyMetadata dependency) {
+        if (!(dependency.getSelector() instanceof ModuleComponentSelector)) {
+            return false;
+        }
+        return !(dependency instanceof DslOriginDependencyMetadata && ((DslOriginDependencyMetadata) dependency).getSource() instanceof ClientModule);
+    }
+
+    @Nullable
+    RecordedDependencyGraph get(GraphKey key) {
+        return graphs.get(key);
+    }
+
+    /**
+     * Records that a graph was reused.
+     */
+    void hit() {
+        hits.incrementAndGet();
+    }
+
+    void put(GraphKey key, @Nullable RecordedDependencyGraph graph) {
+        if (graph == null) {
+            notShareable.incrementAndGet();
+            return;
+        }
+        misses.incrementAndGet();
+        graphs.putIfAbsent(key, graph);
+    }
+
+    @Override
+    public void stop() {
+        if (hits.get() > 0 || misses.get() > 0) {
+            LOGGER.info("Shared dependency graphs: {} hits, {} misses, {} not shareable.", hits.get(), misses.get(), notShareable.get());
+        }
+        graphs.clear();
+    }
+
+    static class GraphKey {
+        private final List<Object> values;
+        private final int hashCode;
+
+        private GraphKey(Object... values) {
+            this.values = ImmutableList.copyOf(values);
+            this.hashCode = this.values.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            GraphKey that = (GraphKey) o;
+            return hashCode == that.hashCode && values.equals(that.values);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    /**
+     * The parts of a declared dependency that influence the resolved graph.
+     */
+    private static class DeclaredDependency {
+        private final List<Object> values;
+
+        DeclaredDependency(LocalOriginDependencyMetadata dependency) {
+            this.values = ImmutableList.<Object>of(
+                dependency.getSelector(),
+                String.valueOf(dependency.getModuleConfiguration()),
+                String.valueOf(dependency.getDependencyConfiguration()),
+                dependency.getExcludes(),
+                dependency.getArtifacts(),
+                String.valueOf(dependency.getReason()),
+                dependency.isChanging(),
+                dependency.isTransitive(),
+                dependency.isPending(),
+                dependency.isForce());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            return values.equals(((DeclaredDependency) o).values);
+        }
+
+        @Override
+        public int hashCode() {
+            return values.hashCode();
+        }
+    }
+}
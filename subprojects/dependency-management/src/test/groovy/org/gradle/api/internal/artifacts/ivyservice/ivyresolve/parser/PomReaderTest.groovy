@@ -434,6 +434,71 @@ class PomReaderTest extends AbstractPomReaderTest {
         assertResolvedPomDependencyManagement(dependencyEjbClientKey, 'version-four')
     }
 
+    def "parse POM with entities, CDATA sections and comments"() {
+        when:
+        pomFile << """<?xml version="1.0" encoding="UTF-8"?>
+<project xmlns="http://maven.apache.org/POM/4.0.0">
+    <modelVersion>4.0.0</modelVersion>
+    <groupId>group&#45;one</groupId>
+    <artifactId><![CDATA[artifact]]>-<!-- comment -->one</artifactId>
+    <version>version-one</version>
+    <description>Caf&eacute; &copy; 2018</description>
+    <properties>
+        <custom.value>a&amp;b</custom.value>
+    </properties>
+</project>
+"""
+        pomReader = new PomReader(locallyAvailableExternalResource, moduleIdentifierFactory)
+
+        then:
+        pomReader.groupId == 'group-one'
+        pomReader.artifactId == 'artifact-one'
+        pomReader.version == 'version-one'
+        pomReader.properties['custom.value'] == 'a&b'
+    }
+
+    def "ignores dependencies declared outside of the dependencies and dependency management sections"() {
+        when:
+        pomFile << """
+<project>
+    <modelVersion>4.0.0</modelVersion>
+    <groupId>group-one</groupId>
+    <artifactId>artifact-one</artifactId>
+    <version>version-one</version>
+
+    <dependencies>
+        <dependency>
+            <groupId>group-two</groupId>
+            <artifactId>artifact-two</artifactId>
+            <version>version-two</version>
+        </dependency>
+    </dependencies>
+
+    <build>
+        <plugins>
+            <plugin>
+                <groupId>group-three</groupId>
+                <artifactId>artifact-three</artifactId>
+                <dependencies>
+                    <dependency>
+                        <groupId>group-four</groupId>
+                        <artifactId>artifact-four</artifactId>
+                        <version>version-four</version>
+                    </dependency>
+                </dependencies>
+            </plugin>
+        </plugins>
+    </build>
+</project>
+"""
+        pomReader = new PomReader(locallyAvailableExternalResource, moduleIdentifierFactory)
+
+        then:
+        pomReader.dependencies.size() == 1
+        assertResolvedPomDependency(new MavenDependencyKey('group-two', 'artifact-two', 'jar', null), 'version-two')
+        pomReader.dependencyMgt.isEmpty()
+    }
+
     def "parse POM with parent POM"() {
         when:
         pomFile << """
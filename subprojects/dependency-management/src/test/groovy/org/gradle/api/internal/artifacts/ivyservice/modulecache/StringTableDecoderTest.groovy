@@ -0,0 +1,121 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.artifacts.ivyservice.modulecache
+
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.gradle.util.internal.SimpleMapInterner
+import org.junit.Rule
+import spock.lang.Specification
+
+class StringTableDecoderTest extends Specification {
+    @Rule TestNameTestDirectoryProvider temporaryFolder
+    def interner = SimpleMapInterner.notThreadSafe()
+
+    def "can read back values written with a string table"() {
+        def encoder = new StringTableEncoder()
+        encoder.writeString("org.test")
+        encoder.writeNullableString(null)
+        encoder.writeSmallInt(12)
+        encoder.writeString("café")
+        encoder.writeBinary([1, 2, 3] as byte[])
+        encoder.writeLong(-5)
+        encoder.writeBoolean(true)
+        encoder.writeString("")
+
+        when:
+        def decoder = decode(encoder)
+
+        then:
+        decoder.readString() == "org.test"
+        decoder.readNullableString() == null
+        decoder.readSmallInt() == 12
+        decoder.readString() == "café"
+        decoder.readBinary() == [1, 2, 3] as byte[]
+        decoder.readLong() == -5
+        decoder.readBoolean()
+        decoder.readString() == ""
+
+        cleanup:
+        decoder?.close()
+    }
+
+    def "stores each distinct string once and decodes it to a single interned instance"() {
+        def encoder = new StringTableEncoder()
+        3.times {
+            encoder.writeString("org.test")
+            encoder.writeString("compile")
+        }
+
+        when:
+        def file = write(encoder)
+        def decoder = StringTableDecoder.open(file, interner)
+        def strings = (1..6).collect { decoder.readString() }
+
+        then:
+        file.text.count("org.test") == 1
+        file.text.count("compile") == 1
+        strings == ["org.test", "compile"] * 3
+        strings[0].is(strings[2])
+        strings[1].is(strings[5])
+        strings[0].is(interner.intern(new String("org.test")))
+
+        cleanup:
+        decoder?.close()
+    }
+
+    def "file can be replaced while it is open"() {
+        def encoder = new StringTableEncoder()
+        encoder.writeString("org.test")
+        def file = write(encoder)
+
+        when:
+        def decoder = StringTableDecoder.open(file, interner)
+        file.delete()
+        def replacement = new StringTableEncoder()
+        replacement.writeString("other")
+        write(replacement)
+
+        then:
+        decoder.readString() == "org.test"
+        StringTableDecoder.open(file, interner).readString() == "other"
+
+        cleanup:
+        decoder?.close()
+    }
+
+    def "fails when the file is truncated"() {
+        def encoder = new StringTableEncoder()
+        encoder.writeString("org.test")
+        def file = write(encoder)
+        file.bytes = file.bytes[0..5] as byte[]
+
+        when:
+        StringTableDecoder.open(file, interner)
+
+        then:
+        thrown(EOFException)
+    }
+
+    private StringTableDecoder decode(StringTableEncoder encoder) {
+        return StringTableDecoder.open(write(encoder), interner)
+    }
+
+    private File write(StringTableEncoder encoder) {
+        def file = temporaryFolder.file("descriptor.bin")
+        file.withOutputStream { encoder.writeTo(it) }
+        return file
+    }
+}
@@ -22,13 +22,18 @@ import org.gradle.api.artifacts.ModuleVersionIdentifier
 import org.gradle.api.artifacts.ResolveException
 import org.gradle.api.artifacts.component.ComponentIdentifier
 import org.gradle.api.artifacts.component.ComponentSelector
+import org.gradle.api.attributes.Attribute
 import org.gradle.api.internal.artifacts.ComponentSelectorConverter
+import org.gradle.api.internal.artifacts.DefaultImmutableModuleIdentifierFactory
 import org.gradle.api.internal.artifacts.DefaultModuleIdentifier
 import org.gradle.api.internal.artifacts.ImmutableModuleIdentifierFactory
 import org.gradle.api.internal.artifacts.ResolvedVersionConstraint
 import org.gradle.api.internal.artifacts.configurations.ConfigurationInternal
+import org.gradle.api.internal.artifacts.configurations.ResolutionStrategyInternal
+import org.gradle.api.internal.artifacts.configurations.dynamicversion.CachePolicy
 import org.gradle.api.internal.artifacts.dependencies.DefaultMutableVersionConstraint
 import org.gradle.api.internal.artifacts.dsl.ModuleReplacementsData
+import org.gradle.api.internal.artifacts.ivyservice.CacheLockingManager
 import org.gradle.api.internal.artifacts.ivyservice.dependencysubstitution.DefaultDependencySubstitutionApplicator
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.DefaultVersionComparator
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.DefaultVersionSelectorScheme
@@ -39,11 +44,15 @@ import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.Dependen
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphVisitor
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.RootGraphNode
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.builder.DependencyGraphBuilder
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.builder.PersistentDependencyGraphs
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.builder.SharedDependencyGraphs
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.conflicts.DefaultCapabilitiesConflictHandler
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.conflicts.DefaultConflictHandler
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.AttributeContainerSerializer
 import org.gradle.api.internal.artifacts.publish.DefaultPublishArtifact
 import org.gradle.api.internal.attributes.AttributesSchemaInternal
 import org.gradle.api.internal.attributes.ImmutableAttributes
+import org.gradle.api.internal.model.NamedObjectInstantiator
 import org.gradle.api.specs.Specs
 import org.gradle.internal.component.external.descriptor.DefaultExclude
 import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier
@@ -51,12 +60,14 @@ import org.gradle.internal.component.external.model.ImmutableCapabilities
 import org.gradle.internal.component.local.model.DefaultLocalComponentMetadata
 import org.gradle.internal.component.local.model.DslOriginDependencyMetadataWrapper
 import org.gradle.internal.component.local.model.RootLocalComponentMetadata
+import org.gradle.internal.component.model.AttributeMatcher
 import org.gradle.internal.component.model.ComponentOverrideMetadata
 import org.gradle.internal.component.model.ComponentResolveMetadata
 import org.gradle.internal.component.model.DependencyMetadata
 import org.gradle.internal.component.model.ExcludeMetadata
 import org.gradle.internal.component.model.IvyArtifactName
 import org.gradle.internal.component.model.LocalComponentDependencyMetadata
+import org.gradle.internal.hash.HashCode
 import org.gradle.internal.locking.NoOpDependencyLockingProvider
 import org.gradle.internal.operations.BuildOperationExecutor
 import org.gradle.internal.operations.BuildOperationQueue
@@ -67,6 +78,9 @@ import org.gradle.internal.resolve.resolver.DependencyToComponentIdResolver
 import org.gradle.internal.resolve.resolver.ResolveContextToComponentResolver
 import org.gradle.internal.resolve.result.BuildableComponentIdResolveResult
 import org.gradle.internal.resolve.result.BuildableComponentResolveResult
+import org.gradle.internal.serialize.Serializer
+import org.gradle.testfixtures.internal.InMemoryIndexedCache
+import org.gradle.util.BuildCommencedTimeProvider
 import org.gradle.util.TestUtil
 import spock.lang.Specification
 
@@ -75,6 +89,8 @@ import static org.gradle.internal.component.external.model.DefaultModuleComponen
 import static org.gradle.internal.component.local.model.TestComponentIdentifiers.newProjectId
 
 class DependencyGraphBuilderTest extends Specification {
+    private static final String PARALLEL_GRAPH_RESOLUTION_PROPERTY = "org.gradle.unsafe.parallel-dependency-graph-resolution"
+
     def configuration = Mock(ConfigurationInternal)
     def conflictResolver = Mock(ModuleConflictResolver)
     def idResolver = Mock(DependencyToComponentIdResolver)
@@ -1012,10 +1028,366 @@ class DependencyGraphBuilderTest extends Specification {
         result.components == ids(root, forced, b)
     }
 
-    def revision(String name, String revision = '1.0') {
+    def "resolves the same graph when metadata is resolved in parallel"() {
+        given:
+        def a = revision('a')
+        def b = revision('b')
+        def evicted = revision('c', '1')
+        def selected = revision('c', '2')
+        def d = revision('d')
+        def e = revision('e')
+        def f = revision('f')
+        allows root, evicted
+        allows root, a, exclude: b
+        allows a, b
+        allows a, f
+        allows root, d
+        allows d, e
+        allows e, selected
+        allows f, selected
+        _ * conflictResolver.select(_) >> { args ->
+            def details = args[0]
+            Collection<ComponentResolutionState> candidates = details.candidates
+            details.select(candidates.find { it.version == '2' })
+        }
+
+        when:
+        def serial = resolveGraph(false)
+        def parallel = resolveGraph(true)
+
+        then:
+        serial.components.keySet() == ids(root, a, selected, d, e, f)
+        serial.components[selected.moduleVersionId].contains("conflict resolution")
+        parallel.components == serial.components
+        parallel.edges == serial.edges
+    }
+
+    def "reuses the graph resolved for a root that declares the same dependencies"() {
+        given:
+        def sharedGraphs = new SharedDependencyGraphs()
+        def a = revision("a")
+        def b = revision("b")
+        def c = revision("c")
+        traverses root, a
+        traverses root, b
+        traverses a, c
+
+        when:
+        def first = resolveShared(sharedGraphs)
+        def second = resolveShared(sharedGraphs)
+        first.rethrowFailure()
+        second.rethrowFailure()
+
+        then:
+        second.components == first.components
+        second.components == ids(root, a, b, c)
+        !second.root.is(first.root)
+        second.root.outgoingEdges.size() == 2
+        second.root.outgoingEdges.every { it.from.is(second.root) }
+        sharedGraphs.misses == 1
+        sharedGraphs.hits == 1
+    }
+
+    def "reuses the graph resolved for a different root that declares the same dependencies"() {
+        given:
+        def sharedGraphs = new SharedDependencyGraphs()
+        def otherRoot = rootProject('other', '1.0', ['root'])
+        def otherModuleResolver = Stub(ResolveContextToComponentResolver) {
+            resolve(_, _) >> { it[1].resolved(otherRoot) }
+        }
+        def otherBuilder = new DependencyGraphBuilder(idResolver, metaDataResolver, otherModuleResolver, moduleConflictHandler, capabilitiesConflictHandler, Specs.satisfyAll(), attributesSchema, moduleExclusions, buildOperationProcessor, moduleReplacements, dependencySubstitutionApplicator, componentSelectorConverter, TestUtil.attributesFactory(), versionSelectorScheme)
+        def a = revision("a")
+        def b = revision("b")
+        def c = revision("c")
+        traverses root, a
+        traverses root, b
+        traverses a, c
+        dependsOn otherRoot, a.moduleVersionId
+        dependsOn otherRoot, b.moduleVersionId
+
+        when:
+        def first = resolveShared(sharedGraphs)
+        def second = resolveShared(sharedGraphs, otherBuilder)
+        first.rethrowFailure()
+        second.rethrowFailure()
+
+        then:
+        first.components == ids(root, a, b, c)
+        second.components == ids(otherRoot, a, b, c)
+        second.root.outgoingEdges.size() == 2
+        second.root.outgoingEdges.every { it.from.is(second.root) }
+        sharedGraphs.misses == 1
+        sharedGraphs.hits == 1
+    }
+
+    def "does not reuse a graph that failed to resolve"() {
+        given:
+        def sharedGraphs = new SharedDependencyGraphs()
+        def a = revision("a")
+        def dependencyMetaData = dependsOn(root, a.moduleVersionId)
+        2 * idResolver.resolve(dependencyMetaData, _, _) >> { DependencyMetadata dep, ResolvedVersionConstraint versionConstraint, BuildableComponentIdResolveResult result ->
+            result.resolved(a.id, a.moduleVersionId)
+        }
+        2 * metaDataResolver.resolve(a.id, _, _) >> { ComponentIdentifier id, ComponentOverrideMetadata requestMetaData, BuildableComponentResolveResult result ->
+            result.notFound(a.id)
+        }
+
+        when:
+        resolveShared(sharedGraphs)
+        def second = resolveShared(sharedGraphs)
+
+        then:
+        second.unresolvedDependencies.size() == 1
+        sharedGraphs.hits == 0
+        sharedGraphs.misses == 0
+        sharedGraphs.notShareable == 2
+    }
+
+    def "restores the graph stored by an earlier resolution"() {
+        given:
+        def persistentGraphs = persistentGraphs()
+        def a = revision("a")
+        def b = revision("b")
+        def c = revision("c")
+        selectorResolvesTo(dependsOn(root, a.moduleVersionId), a.id, a.moduleVersionId)
+        selectorResolvesTo(dependsOn(root, b.moduleVersionId), b.id, b.moduleVersionId)
+        selectorResolvesTo(dependsOn(a, c.moduleVersionId), c.id, c.moduleVersionId)
+        2 * metaDataResolver.resolve(a.id, _, _) >> { ComponentIdentifier id, ComponentOverrideMetadata requestMetaData, BuildableComponentResolveResult result ->
+            result.resolved(a)
+        }
+        2 * metaDataResolver.resolve(b.id, _, _) >> { ComponentIdentifier id, ComponentOverrideMetadata requestMetaData, BuildableComponentResolveResult result ->
+            result.resolved(b)
+        }
+        2 * metaDataResolver.resolve(c.id, _, _) >> { ComponentIdentifier id, ComponentOverrideMetadata requestMetaData, BuildableComponentResolveResult result ->
+            result.resolved(c)
+        }
+
+        when:
+        def first = resolvePersistent(persistentGraphs)
+        def second = resolvePersistent(persistentGraphs)
+        first.rethrowFailure()
+        second.rethrowFailure()
+
+        then:
+        second.components == first.components
+        second.components == ids(root, a, b, c)
+        second.root.outgoingEdges.size() == 2
+        second.root.outgoingEdges.every { it.from.is(second.root) }
+        persistentGraphs.misses == 1
+        persistentGraphs.hits == 1
+    }
+
+    def "does not restore a stored graph when a node declares different dependencies"() {
+        given:
+        def persistentGraphs = persistentGraphs()
+        def a = revision("a")
+        def c = revision("c")
+        2 * idResolver.resolve({ it.selector.module == "a" }, _, _) >> { DependencyMetadata dep, ResolvedVersionConstraint versionConstraint, BuildableComponentIdResolveResult result ->
+            result.resolved(a.id, a.moduleVersionId)
+        }
+        1 * idResolver.resolve({ it.selector.module == "c" }, _, _) >> { DependencyMetadata dep, ResolvedVersionConstraint versionConstraint, BuildableComponentIdResolveResult result ->
+            result.resolved(c.id, c.moduleVersionId)
+        }
+        3 * metaDataResolver.resolve(a.id, _, _) >> { ComponentIdentifier id, ComponentOverrideMetadata requestMetaData, BuildableComponentResolveResult result ->
+            result.resolved(a)
+        }
+        1 * metaDataResolver.resolve(c.id, _, _) >> { ComponentIdentifier id, ComponentOverrideMetadata requestMetaData, BuildableComponentResolveResult result ->
+            result.resolved(c)
+        }
+        dependsOn(root, a.moduleVersionId)
+
+        when:
+        resolvePersistent(persistentGraphs)
+        dependsOn(a, c.moduleVersionId)
+        def second = resolvePersistent(persistentGraphs)
+        second.rethrowFailure()
+
+        then:
+        second.components == ids(root, a, c)
+        persistentGraphs.outOfDate == 1
+        persistentGraphs.misses == 2
+        persistentGraphs.hits == 0
+    }
+
+    def "does not restore a stored graph with a dynamic selector once its version list must be refreshed"() {
+        given:
+        def cachePolicy = Mock(CachePolicy)
+        def persistentGraphs = persistentGraphs(cachePolicy)
+        def a = revision("a")
+        def dependency = dependsOn(root, a.moduleVersionId, revision: "1.+")
+        2 * idResolver.resolve(dependency, _, _) >> { DependencyMetadata dep, ResolvedVersionConstraint versionConstraint, BuildableComponentIdResolveResult result ->
+            result.resolved(a.id, a.moduleVersionId)
+        }
+        3 * metaDataResolver.resolve(a.id, _, _) >> { ComponentIdentifier id, ComponentOverrideMetadata requestMetaData, BuildableComponentResolveResult result ->
+            result.resolved(a)
+        }
+
+        when:
+        resolvePersistent(persistentGraphs)
+        def second = resolvePersistent(persistentGraphs)
+        second.rethrowFailure()
+
+        then:
+        1 * cachePolicy.mustRefreshVersionList(a.moduleVersionId.module, [a.moduleVersionId] as Set, _) >> false
+        second.components == ids(root, a)
+        persistentGraphs.hits == 1
+
+        when:
+        def third = resolvePersistent(persistentGraphs)
+        third.rethrowFailure()
+
+        then:
+        1 * cachePolicy.mustRefreshVersionList(a.moduleVersionId.module, [a.moduleVersionId] as Set, _) >> true
+        third.components == ids(root, a)
+        persistentGraphs.outOfDate == 1
+        persistentGraphs.misses == 2
+        persistentGraphs.hits == 1
+    }
+
+    def "does not restore a stored graph with a changing module once the module must be refreshed"() {
+        given:
+        def cachePolicy = Mock(CachePolicy)
+        def persistentGraphs = persistentGraphs(cachePolicy)
+        def a = revision("a", "1.0", true)
+        def dependency = dependsOn(root, a.moduleVersionId)
+        2 * idResolver.resolve(dependency, _, _) >> { DependencyMetadata dep, ResolvedVersionConstraint versionConstraint, BuildableComponentIdResolveResult result ->
+            result.resolved(a.id, a.moduleVersionId)
+        }
+        4 * metaDataResolver.resolve(a.id, _, _) >> { ComponentIdentifier id, ComponentOverrideMetadata requestMetaData, BuildableComponentResolveResult result ->
+            result.resolved(a)
+        }
+
+        when:
+        resolvePersistent(persistentGraphs)
+        def second = resolvePersistent(persistentGraphs)
+        second.rethrowFailure()
+
+        then:
+        1 * cachePolicy.mustRefreshChangingModule(a.id, { it.id == a.moduleVersionId }, _) >> false
+        second.components == ids(root, a)
+        persistentGraphs.hits == 1
+
+        when:
+        def third = resolvePersistent(persistentGraphs)
+        third.rethrowFailure()
+
+        then:
+        1 * cachePolicy.mustRefreshChangingModule(a.id, { it.id == a.moduleVersionId }, _) >> true
+        third.components == ids(root, a)
+        persistentGraphs.outOfDate == 1
+        persistentGraphs.misses == 2
+        persistentGraphs.hits == 1
+    }
+
+    def "does not restore a stored graph when a selected module takes part in a module replacement"() {
+        given:
+        def persistentGraphs = persistentGraphs()
+        def a = revision("a")
+        def dependency = dependsOn(root, a.moduleVersionId)
+        2 * idResolver.resolve(dependency, _, _) >> { DependencyMetadata dep, ResolvedVersionConstraint versionConstraint, BuildableComponentIdResolveResult result ->
+            result.resolved(a.id, a.moduleVersionId)
+        }
+        2 * metaDataResolver.resolve(a.id, _, _) >> { ComponentIdentifier id, ComponentOverrideMetadata requestMetaData, BuildableComponentResolveResult result ->
+            result.resolved(a)
+        }
+
+        when:
+        resolvePersistent(persistentGraphs)
+
+        then:
+        persistentGraphs.misses == 1
+
+        when:
+        def second = resolvePersistent(persistentGraphs)
+        second.rethrowFailure()
+
+        then:
+        1 * moduleReplacements.participatesInReplacements(a.moduleVersionId.module) >> true
+        second.components == ids(root, a)
+        persistentGraphs.outOfDate == 1
+        persistentGraphs.misses == 2
+        persistentGraphs.hits == 0
+    }
+
+    def "does not restore a stored graph when an edge selects a different variant of its target"() {
+        given:
+        def persistentGraphs = persistentGraphs()
+        def usage = Attribute.of("usage", String)
+        def a = revision("a")
+        a.addConfiguration("api", "apiConfig", [] as Set<String>, ["api"] as Set<String>, true, true, TestUtil.attributesFactory().of(usage, "api"), true, false, ImmutableCapabilities.EMPTY)
+        a.addConfiguration("runtime", "runtimeConfig", [] as Set<String>, ["runtime"] as Set<String>, true, true, TestUtil.attributesFactory().of(usage, "runtime"), true, false, ImmutableCapabilities.EMPTY)
+        def selectedVariant = "api"
+        attributesSchema.withProducer(_) >> Stub(AttributeMatcher) {
+            matches(_, _, _) >> { Collection candidates, requested, fallback ->
+                candidates.findAll { it.name == selectedVariant }
+            }
+        }
+        def dependency = dependsOn(root, a.moduleVersionId, configuration: null)
+        2 * idResolver.resolve(dependency, _, _) >> { DependencyMetadata dep, ResolvedVersionConstraint versionConstraint, BuildableComponentIdResolveResult result ->
+            result.resolved(a.id, a.moduleVersionId)
+        }
+        3 * metaDataResolver.resolve(a.id, _, _) >> { ComponentIdentifier id, ComponentOverrideMetadata requestMetaData, BuildableComponentResolveResult result ->
+            result.resolved(a)
+        }
+
+        when:
+        resolvePersistent(persistentGraphs)
+        selectedVariant = "runtime"
+        def second = resolvePersistent(persistentGraphs)
+        second.rethrowFailure()
+
+        then:
+        second.components == ids(root, a)
+        persistentGraphs.outOfDate == 1
+        persistentGraphs.misses == 2
+        persistentGraphs.hits == 0
+    }
+
+    private TestGraphVisitor resolveShared(SharedDependencyGraphs sharedGraphs, DependencyGraphBuilder builder = this.builder) {
+        def graphVisitor = new TestGraphVisitor()
+        builder.resolve(configuration, graphVisitor, sharedGraphs, "scope")
+        return graphVisitor
+    }
+
+    private GraphSnapshotVisitor resolveGraph(boolean parallel) {
+        def graphVisitor = new GraphSnapshotVisitor()
+        System.setProperty(PARALLEL_GRAPH_RESOLUTION_PROPERTY, String.valueOf(parallel))
+        try {
+            builder.resolve(configuration, graphVisitor)
+        } finally {
+            System.clearProperty(PARALLEL_GRAPH_RESOLUTION_PROPERTY)
+        }
+        return graphVisitor
+    }
+
+    private TestGraphVisitor resolvePersistent(PersistentDependencyGraphs persistentGraphs) {
+        def graphVisitor = new TestGraphVisitor()
+        builder.resolve(configuration, graphVisitor, persistentGraphs, HashCode.fromInt(123))
+        return graphVisitor
+    }
+
+    private PersistentDependencyGraphs persistentGraphs(CachePolicy cachePolicy = Stub(CachePolicy)) {
+        _ * configuration.resolutionStrategy >> Stub(ResolutionStrategyInternal) {
+            getCachePolicy() >> cachePolicy
+        }
+        def cacheLockingManager = Stub(CacheLockingManager) {
+            createCache(_, _, _) >> { String name, Serializer keySerializer, Serializer valueSerializer ->
+                new InMemoryIndexedCache(valueSerializer)
+            }
+        }
+        def attributeContainerSerializer = new AttributeContainerSerializer(TestUtil.attributesFactory(), NamedObjectInstantiator.INSTANCE)
+        return new PersistentDependencyGraphs(cacheLockingManager, new BuildCommencedTimeProvider(), new DefaultImmutableModuleIdentifierFactory(), attributeContainerSerializer)
+    }
+
+    def revision(String name, String revision = '1.0', boolean changing = false) {
         // TODO Shouldn't really be using the local component implementation here
         def id = newId("group", name, revision)
-        def metaData = new DefaultLocalComponentMetadata(id, DefaultModuleComponentIdentifier.newId(id), "release", attributesSchema)
+        def metaData = changing ? new DefaultLocalComponentMetadata(id, DefaultModuleComponentIdentifier.newId(id), "release", attributesSchema) {
+            @Override
+            boolean isChanging() {
+                return true
+            }
+        } : new DefaultLocalComponentMetadata(id, DefaultModuleComponentIdentifier.newId(id), "release", attributesSchema)
         metaData.addConfiguration("default", "defaultConfig", [] as Set<String>, ["default"] as Set<String>, true, true, attributes, true, true, ImmutableCapabilities.EMPTY)
         metaData.addArtifacts("default", [new DefaultPublishArtifact("art1", "zip", "art", null, new Date(), new File("art1.zip"))])
         return metaData
@@ -1041,6 +1413,19 @@ class DependencyGraphBuilderTest extends Specification {
         }
     }
 
+    /**
+     * Declares a dependency, which may be resolved any number of times, or not at all.
+     */
+    def allows(Map<String, ?> args = [:], def from, ComponentResolveMetadata to) {
+        def dependencyMetaData = dependsOn(args, from, to.moduleVersionId)
+        _ * idResolver.resolve(dependencyMetaData, _, _) >> { DependencyMetadata dep, ResolvedVersionConstraint versionConstraint, BuildableComponentIdResolveResult result ->
+            result.resolved(to.id, to.moduleVersionId)
+        }
+        _ * metaDataResolver.resolve(to.id, _, _) >> { ComponentIdentifier id, ComponentOverrideMetadata requestMetaData, BuildableComponentResolveResult result ->
+            result.resolved(to)
+        }
+    }
+
     def doesNotTraverse(Map<String, ?> args = [:], def from, ComponentResolveMetadata to) {
         def dependencyMetaData = dependsOn(args, from, to.moduleVersionId)
         selectorResolvesTo(dependencyMetaData, to.id, to.moduleVersionId)
@@ -1089,6 +1474,7 @@ class DependencyGraphBuilderTest extends Specification {
         boolean transitive = args.transitive == null || args.transitive
         boolean force = args.force
         boolean optional = args.optional ?: false
+        String dependencyConfiguration = args.containsKey("configuration") ? args.configuration : "default"
         ComponentSelector componentSelector = newSelector(DefaultModuleIdentifier.newId(dependencyId.group, dependencyId.name), new DefaultMutableVersionConstraint(dependencyId.version))
         List<ExcludeMetadata> excludeRules = []
         if (args.exclude) {
@@ -1096,7 +1482,7 @@ class DependencyGraphBuilderTest extends Specification {
             excludeRules << new DefaultExclude(moduleIdentifierFactory.module(excluded.moduleVersionId.group, excluded.moduleVersionId.name))
         }
         def dependencyMetaData = new LocalComponentDependencyMetadata(from.id, componentSelector,
-            "default", null, ImmutableAttributes.EMPTY, "default", [] as List<IvyArtifactName>,
+            "default", null, ImmutableAttributes.EMPTY, dependencyConfiguration, [] as List<IvyArtifactName>,
             excludeRules, force, false, transitive, false, null)
         dependencyMetaData = new DslOriginDependencyMetadataWrapper(dependencyMetaData, Stub(ModuleDependency) {
             getAttributes() >> ImmutableAttributes.EMPTY
@@ -1175,4 +1561,38 @@ class DependencyGraphBuilderTest extends Specification {
             }
         }
     }
+
+    /**
+     * Records the selected components with their selection reasons, and the edges of the graph, in the order they are visited.
+     */
+    static class GraphSnapshotVisitor implements DependencyGraphVisitor {
+        final Map<ModuleVersionIdentifier, String> components = new LinkedHashMap<>()
+        final List<String> edges = []
+        private final Map<Long, ModuleVersionIdentifier> componentsByResultId = [:]
+
+        @Override
+        void start(RootGraphNode root) {
+        }
+
+        @Override
+        void visitNode(DependencyGraphNode node) {
+            components.put(node.owner.moduleVersion, node.owner.selectionReason.toString())
+            componentsByResultId.put(node.owner.resultId, node.owner.moduleVersion)
+        }
+
+        @Override
+        void visitSelector(DependencyGraphSelector selector) {
+        }
+
+        @Override
+        void visitEdges(DependencyGraphNode node) {
+            node.outgoingEdges.each {
+                edges << "${node.owner.moduleVersion} -> ${it.requested.displayName} -> ${it.selected == null ? it.failure : componentsByResultId[it.selected]} (${it.reason})".toString()
+            }
+        }
+
+        @Override
+        void finish(DependencyGraphNode root) {
+        }
+    }
 }
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.builder
+
+import org.gradle.api.artifacts.component.ComponentSelector
+import org.gradle.api.artifacts.component.ProjectComponentSelector
+import org.gradle.api.internal.artifacts.DefaultModuleIdentifier
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.DefaultVersionComparator
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.DefaultVersionSelectorScheme
+import org.gradle.api.specs.Spec
+import org.gradle.api.specs.Specs
+import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier
+import org.gradle.internal.component.model.ConfigurationMetadata
+import org.gradle.internal.component.model.DependencyMetadata
+import org.gradle.internal.operations.TestBuildOperationExecutor
+import org.gradle.internal.resolve.resolver.ComponentMetaDataResolver
+import spock.lang.Specification
+
+import static org.gradle.internal.component.external.model.DefaultModuleComponentSelector.newSelector
+
+class ParallelMetadataPrefetcherTest extends Specification {
+    def metaDataResolver = Mock(ComponentMetaDataResolver)
+    def versionSelectorScheme = new DefaultVersionSelectorScheme(new DefaultVersionComparator())
+    def buildOperationExecutor = new TestBuildOperationExecutor()
+
+    def "resolves metadata of dependencies on fixed versions once"() {
+        def prefetcher = prefetcher()
+        def a = dependency(module("a", "1.0"))
+        def b = dependency(module("b", "2.0"))
+        def c = dependency(module("c", "3.0"))
+        def d = dependency(module("d", "4.0"))
+
+        when:
+        prefetcher.prefetch([configuration(a, b), configuration(b)])
+
+        then:
+        1 * metaDataResolver.resolve(id("a", "1.0"), _, _)
+        1 * metaDataResolver.resolve(id("b", "2.0"), _, _)
+        0 * metaDataResolver._
+
+        when:
+        prefetcher.prefetch([configuration(a, b, c), configuration(d)])
+
+        then:
+        1 * metaDataResolver.resolve(id("c", "3.0"), _, _)
+        1 * metaDataResolver.resolve(id("d", "4.0"), _, _)
+        0 * metaDataResolver._
+    }
+
+    def "does not resolve metadata of dynamic, project, pending or filtered dependencies"() {
+        def filtered = dependency(module("filtered", "1.0"))
+        def prefetcher = prefetcher({ it != filtered } as Spec)
+        def pending = dependency(module("pending", "1.0"))
+        _ * pending.pending >> true
+        def configuration = configuration(
+            dependency(module("a", "1.0")),
+            dependency(module("b", "1.0")),
+            dependency(module("dynamic", "1.+")),
+            dependency(module("latest", "latest.release")),
+            dependency(module("unversioned", "")),
+            dependency(Stub(ProjectComponentSelector)),
+            pending,
+            filtered)
+
+        when:
+        prefetcher.prefetch([configuration])
+
+        then:
+        1 * metaDataResolver.resolve(id("a", "1.0"), _, _)
+        1 * metaDataResolver.resolve(id("b", "1.0"), _, _)
+        0 * metaDataResolver._
+    }
+
+    def "does not resolve metadata of a single dependency"() {
+        def configuration = configuration(dependency(module("a", "1.0")))
+
+        when:
+        prefetcher().prefetch([configuration])
+
+        then:
+        0 * metaDataResolver._
+    }
+
+    def "ignores failures to resolve metadata"() {
+        def configuration = configuration(dependency(module("a", "1.0")), dependency(module("b", "1.0")))
+
+        when:
+        prefetcher().prefetch([configuration])
+
+        then:
+        1 * metaDataResolver.resolve(id("a", "1.0"), _, _) >> { throw new RuntimeException("broken") }
+        1 * metaDataResolver.resolve(id("b", "1.0"), _, _)
+        noExceptionThrown()
+    }
+
+    private ParallelMetadataPrefetcher prefetcher(Spec<? super DependencyMetadata> edgeFilter = Specs.satisfyAll()) {
+        return new ParallelMetadataPrefetcher(metaDataResolver, versionSelectorScheme, edgeFilter, buildOperationExecutor)
+    }
+
+    private static module(String name, String version) {
+        return newSelector(DefaultModuleIdentifier.newId("group", name), version)
+    }
+
+    private static id(String name, String version) {
+        return DefaultModuleComponentIdentifier.newId(DefaultModuleIdentifier.newId("group", name), version)
+    }
+
+    private DependencyMetadata dependency(ComponentSelector selector) {
+        def dependency = Mock(DependencyMetadata)
+        _ * dependency.selector >> selector
+        _ * dependency.artifacts >> []
+        return dependency
+    }
+
+    private ConfigurationMetadata configuration(DependencyMetadata... dependencies) {
+        def configuration = Stub(ConfigurationMetadata)
+        configuration.dependencies >> (dependencies as List)
+        return configuration
+    }
+}
@@ -31,6 +31,7 @@ public class DaemonMemoryStatus {
 
     public static final String ENABLE_PERFORMANCE_MONITORING = "org.gradle.daemon.performance.enable-monitoring";
     public static final String TENURED_USAGE_EXPIRE_AT = "org.gradle.daemon.performance.tenured-usage-expire-at";
+    public static final String TENURED_USAGE_TRIM_AT = "org.gradle.daemon.performance.tenured-usage-trim-at";
     public static final String TENURED_RATE_EXPIRE_AT = "org.gradle.daemon.performance.tenured-rate-expire-at";
     public static final String PERMGEN_USAGE_EXPIRE_AT = "org.gradle.daemon.performance.permgen-usage-expire-at";
     public static final String THRASHING_EXPIRE_AT = "org.gradle.daemon.performance.thrashing-expire-at";
@@ -41,6 +42,7 @@ public class DaemonMemoryStatus {
     private final DaemonHealthStats stats;
     private final GarbageCollectorMonitoringStrategy strategy;
     private final int tenuredUsageThreshold;
+    private final int tenuredUsageTrimThreshold;
     private final double tenuredRateThreshold;
     private final int permgenUsageThreshold;
     private final double thrashingThreshold;
@@ -49,6 +51,8 @@ public class DaemonMemoryStatus {
         this.stats = stats;
         this.strategy = stats.getGcMonitor().getGcStrategy();
         this.tenuredUsageThreshold = parseValue(TENURED_USAGE_EXPIRE_AT, strategy.getTenuredUsageThreshold());
+        // Start trimming caches well before the daemon would be expired because of low tenured space
+        this.tenuredUsageTrimThreshold = parseValue(TENURED_USAGE_TRIM_AT, Math.max(0, tenuredUsageThreshold - 10));
         this.tenuredRateThreshold = parseValue(TENURED_RATE_EXPIRE_AT, strategy.getGcRateThreshold());
         this.permgenUsageThreshold = parseValue(PERMGEN_USAGE_EXPIRE_AT, strategy.getPermGenUsageThreshold());
         this.thrashingThreshold = parseValue(THRASHING_EXPIRE_AT, strategy.getThrashingThreshold());
@@ -69,6 +73,22 @@ public class DaemonMemoryStatus {
         });
     }
 
+    /**
+     * Returns true when the tenured space is filling up, so that in-memory caches should be trimmed to avoid running out of memory.
+     */
+    public boolean isTenuredSpaceUnderPressure() {
+        GarbageCollectionStats gcStats = stats.getGcMonitor().getTenuredStats();
+
+        return exceedsThreshold(TENURED, gcStats, new Spec<GarbageCollectionStats>() {
+            @Override
+            public boolean isSatisfiedBy(GarbageCollectionStats gcStats) {
+                return tenuredUsageTrimThreshold != 0
+                    && gcStats.getEventCount() >= 5
+                    && gcStats.getUsage() >= tenuredUsageTrimThreshold;
+            }
+        });
+    }
+
     public boolean isPermGenSpaceExhausted() {
         GarbageCollectionStats gcStats = stats.getGcMonitor().getPermGenStats();
 
@@ -24,8 +24,10 @@ import org.gradle.launcher.daemon.server.expiry.DaemonExpirationStrategy;
 public class HealthExpirationStrategy implements DaemonExpirationStrategy {
 
     private final DaemonExpirationStrategy strategy;
+    private final LowTenuredSpaceCacheTrimmer cacheTrimmer;
 
-    public HealthExpirationStrategy(DaemonMemoryStatus memoryStatus) {
+    public HealthExpirationStrategy(DaemonMemoryStatus memoryStatus, LowTenuredSpaceCacheTrimmer cacheTrimmer) {
+        this.cacheTrimmer = cacheTrimmer;
         this.strategy = new AnyDaemonExpirationStrategy(ImmutableList.of(
             new GcThrashingDaemonExpirationStrategy(memoryStatus),
             new LowTenuredSpaceDaemonExpirationStrategy(memoryStatus),
@@ -35,6 +37,8 @@ public class HealthExpirationStrategy implements DaemonExpirationStrategy {
 
     @Override
     public DaemonExpirationResult checkExpiration() {
+        // Give back memory held by caches before deciding whether the daemon is unhealthy
+        cacheTrimmer.trimIfUnderPressure();
         return strategy.checkExpiration();
     }
 
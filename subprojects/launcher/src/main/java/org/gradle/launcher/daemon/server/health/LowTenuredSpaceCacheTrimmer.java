@@ -0,0 +1,87 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.launcher.daemon.server.health;
+
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.internal.time.Clock;
+import org.gradle.internal.util.NumberUtil;
+import org.gradle.launcher.daemon.server.health.gc.GarbageCollectionStats;
+import org.gradle.process.internal.health.memory.MemoryManager;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Asks the in-memory caches of the daemon to release heap memory when the tenured space is filling up,
+ * so that the daemon is less likely to run out of memory and be expired.
+ *
+ * Reports the amount of tenured space reclaimed by the first garbage collection after caches have been trimmed.
+ */
+public class LowTenuredSpaceCacheTrimmer {
+    private static final Logger LOG = Logging.getLogger(LowTenuredSpaceCacheTrimmer.class);
+    private static final long MIN_TRIM_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private final DaemonMemoryStatus memoryStatus;
+    private final DaemonHealthStats healthStats;
+    private final MemoryManager memoryManager;
+    private final Clock clock;
+
+    private boolean trimmed;
+    private long lastTrimTime;
+    private boolean awaitingCollection;
+    private long usedBeforeTrim;
+    private long collectionCountBeforeTrim;
+
+    public LowTenuredSpaceCacheTrimmer(DaemonMemoryStatus memoryStatus, DaemonHealthStats healthStats, MemoryManager memoryManager, Clock clock) {
+        this.memoryStatus = memoryStatus;
+        this.healthStats = healthStats;
+        this.memoryManager = memoryManager;
+        this.clock = clock;
+    }
+
+    /**
+     * Trims the in-memory caches when the tenured space is under pressure and the caches have not been trimmed recently.
+     *
+     * @return true if the caches have been trimmed.
+     */
+    public synchronized boolean trimIfUnderPressure() {
+        GarbageCollectionStats tenuredStats = healthStats.getGcMonitor().getTenuredStats();
+        if (awaitingCollection && tenuredStats.getLastCollectionCount() > collectionCountBeforeTrim) {
+            awaitingCollection = false;
+            long reclaimed = Math.max(0, usedBeforeTrim - tenuredStats.getLastUsed());
+            LOG.info("Trimming in-memory caches reclaimed {} of tenured space", NumberUtil.formatBytes(reclaimed));
+        }
+
+        long now = clock.getCurrentTime();
+        if (trimmed && now - lastTrimTime < MIN_TRIM_INTERVAL_MILLIS) {
+            return false;
+        }
+        if (!memoryStatus.isTenuredSpaceUnderPressure()) {
+            return false;
+        }
+
+        LOG.info("Trimming in-memory caches because tenured space usage is {}%", tenuredStats.getUsage());
+        trimmed = true;
+        lastTrimTime = now;
+        awaitingCollection = tenuredStats.getLastUsed() >= 0;
+        usedBeforeTrim = tenuredStats.getLastUsed();
+        collectionCountBeforeTrim = tenuredStats.getLastCollectionCount();
+        memoryManager.releaseHeapMemory();
+        return true;
+    }
+}
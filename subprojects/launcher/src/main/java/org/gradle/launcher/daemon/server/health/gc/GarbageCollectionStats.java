@@ -26,12 +26,25 @@ public class GarbageCollectionStats {
     final private long used;
     final private long max;
     final private long eventCount;
+    final private long lastUsed;
+    final private long lastCollectionCount;
 
     public GarbageCollectionStats(Set<GarbageCollectionEvent> events) {
         this.rate = calculateRate(events);
         this.used = calculateAverageUsage(events);
         this.max = calculateMaxSize(events);
         this.eventCount = events.size();
+        GarbageCollectionEvent lastEvent = lastEventOf(events);
+        this.lastUsed = lastEvent == null ? -1 : lastEvent.getUsage().getUsed();
+        this.lastCollectionCount = lastEvent == null ? 0 : lastEvent.getCount();
+    }
+
+    private static GarbageCollectionEvent lastEventOf(Set<GarbageCollectionEvent> events) {
+        GarbageCollectionEvent last = null;
+        for (GarbageCollectionEvent event : events) {
+            last = event;
+        }
+        return last;
     }
 
     static double calculateRate(Set<GarbageCollectionEvent> events) {
@@ -130,4 +143,18 @@ public class GarbageCollectionStats {
     public long getEventCount() {
         return eventCount;
     }
+
+    /**
+     * The amount of memory used after the most recent event, or -1 when there are no events.
+     */
+    public long getLastUsed() {
+        return lastUsed;
+    }
+
+    /**
+     * The number of garbage collections reported by the most recent event, or 0 when there are no events.
+     */
+    public long getLastCollectionCount() {
+        return lastCollectionCount;
+    }
 }
@@ -28,6 +28,7 @@ import spock.lang.Unroll
 import static DaemonMemoryStatus.PERMGEN_USAGE_EXPIRE_AT
 import static DaemonMemoryStatus.TENURED_RATE_EXPIRE_AT
 import static DaemonMemoryStatus.TENURED_USAGE_EXPIRE_AT
+import static DaemonMemoryStatus.TENURED_USAGE_TRIM_AT
 import static DaemonMemoryStatus.THRASHING_EXPIRE_AT
 
 class DaemonMemoryStatusTest extends Specification {
@@ -90,6 +91,44 @@ class DaemonMemoryStatusTest extends Specification {
         1.0           | 75             | 1.0  | 100  | true
     }
 
+    @Unroll
+    def "knows when tenured space is under pressure (#trimThreshold <= #used)"() {
+        when:
+        if (trimThreshold != null) {
+            System.setProperty(TENURED_USAGE_TRIM_AT, trimThreshold.toString())
+        }
+        gcMonitor.getTenuredStats() >> {
+            Stub(GarbageCollectionStats) {
+                getUsage() >> used
+                getRate() >> 0
+                getEventCount() >> 10
+            }
+        }
+
+        then:
+        status.isTenuredSpaceUnderPressure() == underPressure
+
+        where:
+        trimThreshold | used | underPressure
+        60            | 61   | true
+        60            | 60   | true
+        60            | 59   | false
+        0             | 100  | false
+        null          | 71   | true
+        null          | 69   | false
+    }
+
+    def "validates supplied tenured usage trim threshold value"() {
+        System.setProperty(TENURED_USAGE_TRIM_AT, "foo")
+
+        when:
+        status.isTenuredSpaceUnderPressure()
+
+        then:
+        def ex = thrown(GradleException)
+        ex.message == "System property 'org.gradle.daemon.performance.tenured-usage-trim-at' has incorrect value: 'foo'. The value needs to be an integer."
+    }
+
     @Unroll
     def "knows when perm gen space is exhausted (#usageThreshold <= #used, #usageThreshold <= #used)"() {
         when:
@@ -160,6 +199,9 @@ class DaemonMemoryStatusTest extends Specification {
 
         and:
         !status.isThrashing()
+
+        and:
+        !status.isTenuredSpaceUnderPressure()
     }
 
     DaemonMemoryStatus getStatus() {
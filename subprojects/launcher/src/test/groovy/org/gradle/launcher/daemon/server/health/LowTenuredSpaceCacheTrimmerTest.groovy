@@ -0,0 +1,86 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.launcher.daemon.server.health
+
+import org.gradle.internal.time.Clock
+import org.gradle.launcher.daemon.server.health.gc.GarbageCollectionMonitor
+import org.gradle.launcher.daemon.server.health.gc.GarbageCollectionStats
+import org.gradle.process.internal.health.memory.MemoryManager
+import spock.lang.Specification
+
+class LowTenuredSpaceCacheTrimmerTest extends Specification {
+    def memoryStatus = Mock(DaemonMemoryStatus)
+    def gcMonitor = Stub(GarbageCollectionMonitor)
+    def healthStats = Stub(DaemonHealthStats) {
+        getGcMonitor() >> gcMonitor
+    }
+    def memoryManager = Mock(MemoryManager)
+    def clock = Mock(Clock)
+    def trimmer = new LowTenuredSpaceCacheTrimmer(memoryStatus, healthStats, memoryManager, clock)
+
+    def setup() {
+        gcMonitor.getTenuredStats() >> Stub(GarbageCollectionStats)
+    }
+
+    def "does not trim caches when tenured space is not under pressure"() {
+        when:
+        def trimmed = trimmer.trimIfUnderPressure()
+
+        then:
+        !trimmed
+        1 * memoryStatus.isTenuredSpaceUnderPressure() >> false
+        0 * memoryManager.releaseHeapMemory()
+    }
+
+    def "trims caches when tenured space is under pressure"() {
+        when:
+        def trimmed = trimmer.trimIfUnderPressure()
+
+        then:
+        trimmed
+        1 * memoryStatus.isTenuredSpaceUnderPressure() >> true
+        1 * memoryManager.releaseHeapMemory()
+    }
+
+    def "trims caches at most once per minute"() {
+        given:
+        memoryStatus.isTenuredSpaceUnderPressure() >> true
+
+        when:
+        trimmer.trimIfUnderPressure()
+
+        then:
+        1 * clock.currentTime >> 1000
+        1 * memoryManager.releaseHeapMemory()
+
+        when:
+        def trimmed = trimmer.trimIfUnderPressure()
+
+        then:
+        !trimmed
+        1 * clock.currentTime >> 60999
+        0 * memoryManager.releaseHeapMemory()
+
+        when:
+        trimmed = trimmer.trimIfUnderPressure()
+
+        then:
+        trimmed
+        1 * clock.currentTime >> 61000
+        1 * memoryManager.releaseHeapMemory()
+    }
+}
@@ -27,9 +27,12 @@ import org.gradle.internal.remote.internal.RecoverableMessageIOException;
 import org.gradle.internal.remote.internal.RemoteConnection;
 import org.gradle.internal.remote.internal.hub.protocol.*;
 import org.gradle.internal.remote.internal.hub.queue.EndPointQueue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -42,6 +45,15 @@ import java.util.concurrent.locks.ReentrantLock;
  *
  */
 public class MessageHub implements AsyncStoppable {
+    /**
+     * When set to {@code true}, a burst of outgoing messages is coalesced into fewer writes. The first message of a batch is delayed by at most 2ms.
+     * A batch never holds more than the write buffer of the connection, as a full buffer is always written out.
+     */
+    public static final String BATCH_MESSAGES_PROPERTY = "org.gradle.unsafe.batch-messages";
+    private static final long BATCH_WINDOW_NANOS = TimeUnit.MILLISECONDS.toNanos(2);
+    private static final int MAX_BATCH_SIZE = 1000;
+    private static final Logger LOGGER = LoggerFactory.getLogger(MessageHub.class);
+
     private enum State {Running, Stopping, Stopped}
 
     private static final Discard DISCARD = new Discard();
@@ -63,6 +75,10 @@ public class MessageHub implements AsyncStoppable {
         workers = executorFactory.create(displayName + " workers");
     }
 
+    public static boolean isBatchingEnabled() {
+        return Boolean.getBoolean(BATCH_MESSAGES_PROPERTY);
+    }
+
     /**
      * <p>Adds a {@link Dispatch} implementation that can be used to send outgoing unicast messages on the given channel. Messages are queued in the order that they are
      * dispatched, and are forwarded to at most one handler.</p>
@@ -307,6 +323,9 @@ public class MessageHub implements AsyncStoppable {
         public void run() {
             try {
                 List<InterHubMessage> messages = new ArrayList<InterHubMessage>();
+                boolean batchMessages = isBatchingEnabled();
+                int dispatched = 0;
+                int flushes = 0;
                 try {
                     while (true) {
                         lock.lock();
@@ -315,21 +334,34 @@ public class MessageHub implements AsyncStoppable {
                         } finally {
                             lock.unlock();
                         }
-                        for (InterHubMessage message : messages) {
+                        long deadline = System.nanoTime() + BATCH_WINDOW_NANOS;
+                        int batchSize = messages.size();
+                        boolean endOfStream = dispatch(messages);
+                        // Messages are produced faster than they are sent, so wait a little for more to arrive before writing them out.
+                        // A single message, such as a request or a line of interactive output, is written out right away.
+                        while (batchMessages && !endOfStream && batchSize > 1 && batchSize < MAX_BATCH_SIZE) {
+                            lock.lock();
                             try {
-                                connection.dispatch(message);
-                            } catch (RecoverableMessageIOException e) {
-                                addToIncoming(new StreamFailureMessage(e));
-                            }
-                            if (message instanceof EndOfStream) {
-                                connection.flush();
-                                return;
+                                if (!queue.take(messages, deadline)) {
+                                    break;
+                                }
+                            } finally {
+                                lock.unlock();
                             }
+                            batchSize += messages.size();
+                            endOfStream = dispatch(messages);
                         }
                         connection.flush();
-                        messages.clear();
+                        dispatched += batchSize;
+                        flushes++;
+                        if (endOfStream) {
+                            return;
+                        }
                     }
                 } finally {
+                    if (LOGGER.isDebugEnabled()) {
+                        LOGGER.debug("Sent {} messages in {} writes to {}.", dispatched, flushes, connection);
+                    }
                     lock.lock();
                     try {
                         connectionState.dispatchFinished();
@@ -341,6 +373,29 @@ public class MessageHub implements AsyncStoppable {
                 errorHandler.execute(t);
             }
         }
+
+        /**
+         * Writes the given messages to the connection, without flushing it.
+         *
+         * @return true when the end of the stream was reached.
+         */
+        private boolean dispatch(List<InterHubMessage> messages) {
+            try {
+                for (InterHubMessage message : messages) {
+                    try {
+                        connection.dispatch(message);
+                    } catch (RecoverableMessageIOException e) {
+                        addToIncoming(new StreamFailureMessage(e));
+                    }
+                    if (message instanceof EndOfStream) {
+                        return true;
+                    }
+                }
+                return false;
+            } finally {
+                messages.clear();
+            }
+        }
     }
 
     private class ChannelDispatch<T> implements Dispatch<T> {
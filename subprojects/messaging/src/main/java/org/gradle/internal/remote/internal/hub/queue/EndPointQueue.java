@@ -55,6 +55,32 @@ public class EndPointQueue implements Dispatch<InterHubMessage> {
         queue.clear();
     }
 
+    /**
+     * Takes the queued messages, waiting until the given deadline for messages to arrive when there are none.
+     *
+     * @param deadline the deadline, as a value of {@link System#nanoTime()}.
+     * @return true when some messages were taken, false when the deadline passed before any message arrived.
+     */
+    public boolean take(Collection<InterHubMessage> drainTo, long deadline) {
+        if (queue.isEmpty()) {
+            owner.empty(this);
+            while (queue.isEmpty()) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                try {
+                    condition.awaitNanos(remaining);
+                } catch (InterruptedException e) {
+                    throw UncheckedException.throwAsUncheckedException(e);
+                }
+            }
+        }
+        drainTo.addAll(queue);
+        queue.clear();
+        return true;
+    }
+
     public void stop() {
         owner.stopped(this);
     }
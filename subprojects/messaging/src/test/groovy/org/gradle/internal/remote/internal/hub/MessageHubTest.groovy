@@ -26,16 +26,21 @@ import org.gradle.internal.remote.internal.hub.protocol.ChannelMessage
 import org.gradle.internal.remote.internal.hub.protocol.EndOfStream
 import org.gradle.internal.remote.internal.hub.protocol.InterHubMessage
 import org.gradle.test.fixtures.concurrent.ConcurrentSpec
+import org.gradle.util.SetSystemProperties
+import org.junit.Rule
 import spock.lang.Timeout
 
 import java.util.concurrent.BlockingQueue
 import java.util.concurrent.CopyOnWriteArrayList
 import java.util.concurrent.LinkedBlockingQueue
+import java.util.concurrent.atomic.AtomicInteger
 
 @Timeout(60)
 class MessageHubTest extends ConcurrentSpec {
     final Action<Throwable> errorHandler = Mock()
     final MessageHub hub = new MessageHub("<hub>", executorFactory, errorHandler)
+    @Rule
+    SetSystemProperties systemProperties = new SetSystemProperties()
 
     def cleanup() {
         hub.stop()
@@ -196,6 +201,42 @@ class MessageHubTest extends ConcurrentSpec {
         connection.stop()
     }
 
+    def "coalesces a burst of outgoing messages into a single write when batching is enabled"() {
+        def messages = new CopyOnWriteArrayList()
+        def flushes = new AtomicInteger()
+        RemoteConnection<InterHubMessage> outgoing = Mock()
+        def connection = new MockOutgoingConnection(outgoing)
+        def dispatcher = hub.getOutgoing("channel", Long)
+
+        given:
+        System.setProperty(MessageHub.BATCH_MESSAGES_PROPERTY, "true")
+        outgoing.dispatch({ it instanceof ChannelMessage }) >> { ChannelMessage message ->
+            messages.add(message.payload)
+            if (message.payload == 0) {
+                // more messages arrive while the first ones are written
+                10.times { dispatcher.dispatch(it + 2) }
+            }
+        }
+        outgoing.flush() >> {
+            if (flushes.incrementAndGet() == 1) {
+                instant.flushed
+            }
+        }
+
+        when:
+        dispatcher.dispatch(0)
+        dispatcher.dispatch(1)
+        hub.addConnection(connection)
+        thread.blockUntil.flushed
+
+        then:
+        messages == 0..11
+        flushes.get() == 1
+
+        cleanup:
+        connection.stop()
+    }
+
     def "each outgoing message is dispatched to exactly one connection"() {
         def messages = new CopyOnWriteArrayList()
         RemoteConnection<InterHubMessage> outgoing = Mock()
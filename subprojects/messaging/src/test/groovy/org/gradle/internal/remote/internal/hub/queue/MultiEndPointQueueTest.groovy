@@ -57,6 +57,28 @@ class MultiEndPointQueueTest extends AbstractQueueTest {
         messages == [message]
     }
 
+    def "take with a deadline forwards unicast message to waiting endpoint"() {
+        given:
+        def message = unicast()
+        def endpoint = queue.newEndpoint()
+        def messages = []
+
+        when:
+        def taken = endpoint.take(messages, System.nanoTime())
+
+        then:
+        !taken
+        messages.empty
+
+        when:
+        queue.dispatch(message)
+        taken = endpoint.take(messages, System.nanoTime())
+
+        then:
+        taken
+        messages == [message]
+    }
+
     def "forwards queued broadcast messages to all endpoints"() {
         given:
         def message1 = unicast()
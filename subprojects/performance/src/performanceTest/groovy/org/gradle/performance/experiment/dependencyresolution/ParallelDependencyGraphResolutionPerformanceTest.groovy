@@ -0,0 +1,48 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.performance.experiment.dependencyresolution
+
+import org.gradle.performance.AbstractCrossBuildPerformanceTest
+import org.gradle.performance.categories.PerformanceExperiment
+import org.junit.experimental.categories.Category
+
+@Category(PerformanceExperiment)
+class ParallelDependencyGraphResolutionPerformanceTest extends AbstractCrossBuildPerformanceTest {
+    private final static TEST_PROJECT_NAME = 'excludeRuleMergingBuild'
+    private final static PARALLEL_GRAPH_RESOLUTION = '-Dorg.gradle.unsafe.parallel-dependency-graph-resolution=true'
+
+    def "resolve large dependency graph from file repo with parallel metadata resolution"() {
+        def memory = '1g'
+
+        when:
+        runner.testGroup = "dependency resolution"
+        runner.buildSpec {
+            projectName(TEST_PROJECT_NAME).displayName("parallel-graph-resolution").invocation {
+                tasksToRun("resolveDependencies").args('-PnoExcludes').gradleOpts("-Xms${memory}", "-Xmx${memory}", PARALLEL_GRAPH_RESOLUTION)
+            }
+        }
+        runner.baseline {
+            projectName(TEST_PROJECT_NAME).displayName("serial-graph-resolution").invocation {
+                tasksToRun("resolveDependencies").args('-PnoExcludes').gradleOpts("-Xms${memory}", "-Xmx${memory}")
+            }
+        }
+
+        then:
+        runner.run()
+    }
+}
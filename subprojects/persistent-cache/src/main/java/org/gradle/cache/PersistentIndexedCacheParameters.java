@@ -26,6 +26,7 @@ public class PersistentIndexedCacheParameters<K, V> {
     private final Serializer<K> keySerializer;
     private final Serializer<V> valueSerializer;
     private CacheDecorator cacheDecorator;
+    private boolean appendOnly;
 
     public PersistentIndexedCacheParameters(String cacheName, Serializer<K> keySerializer, Serializer<V> valueSerializer) {
         this.cacheName = cacheName;
@@ -67,4 +68,17 @@ public class PersistentIndexedCacheParameters<K, V> {
         this.cacheDecorator = cacheDecorator;
         return this;
     }
+
+    public boolean isAppendOnly() {
+        return appendOnly;
+    }
+
+    /**
+     * Stores the entries of the cache in an append-only log, rather than in a B-tree. This makes writes cheaper, at the cost of memory for an index of all keys.
+     * Suitable for caches which are written often.
+     */
+    public PersistentIndexedCacheParameters<K, V> appendOnly() {
+        this.appendOnly = true;
+        return this;
+    }
 }
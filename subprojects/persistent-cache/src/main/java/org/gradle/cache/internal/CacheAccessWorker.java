@@ -24,9 +24,16 @@ import org.gradle.internal.concurrent.ExecutorPolicy;
 import org.gradle.internal.concurrent.Stoppable;
 import org.gradle.internal.time.CountdownTimer;
 import org.gradle.internal.time.Time;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
@@ -34,13 +41,37 @@ import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.FutureTask;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Runs the cache operations submitted by many threads on a single thread, in batches which are run while holding the cache lock.
+ *
+ * <p>Updates of the same key of a cache which are queued at the same time are coalesced, so only the last one is applied. Queued updates are
+ * applied per cache, in key order where keys are comparable, before any other operation runs.</p>
+ *
+ * <p>The queue capacity, the time to wait for more operations before ending a batch and whether to coalesce updates can be tuned with the
+ * system properties {@value #QUEUE_CAPACITY_SYSTEM_PROPERTY}, {@value #BATCH_WINDOW_SYSTEM_PROPERTY} and {@value #COALESCE_UPDATES_SYSTEM_PROPERTY}.</p>
+ */
 class CacheAccessWorker implements Runnable, Stoppable, AsyncCacheAccess {
+    public static final String QUEUE_CAPACITY_SYSTEM_PROPERTY = "org.gradle.cache.worker.queue-capacity";
+    public static final String BATCH_WINDOW_SYSTEM_PROPERTY = "org.gradle.cache.worker.batch-window-ms";
+    public static final String COALESCE_UPDATES_SYSTEM_PROPERTY = "org.gradle.cache.worker.coalesce-updates";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CacheAccessWorker.class);
+
     private final BlockingQueue<Runnable> workQueue;
     private final String displayName;
     private final CacheAccess cacheAccess;
+    private final int queueCapacity;
     private final long batchWindowMillis;
     private final long maximumLockingTimeMillis;
+    private final boolean coalesceUpdates;
+    private final AtomicLong blockedProducers = new AtomicLong();
+    private final AtomicLong blockedProducerNanos = new AtomicLong();
+    private final AtomicInteger maxQueueDepth = new AtomicInteger();
+    private final AtomicLong appliedUpdates = new AtomicLong();
+    private final AtomicLong coalescedUpdates = new AtomicLong();
     private boolean closed;
     private boolean workerCompleted;
     private boolean stopSeen;
@@ -48,12 +79,19 @@ class CacheAccessWorker implements Runnable, Stoppable, AsyncCacheAccess {
     private final ExecutorPolicy.CatchAndRecordFailures failureHandler = new ExecutorPolicy.CatchAndRecordFailures();
 
     CacheAccessWorker(String displayName, CacheAccess cacheAccess) {
+        this(displayName, cacheAccess,
+            Integer.getInteger(QUEUE_CAPACITY_SYSTEM_PROPERTY, Math.min(4000, new HeapProportionalCacheSizer().scaleCacheSize(40000))),
+            Long.getLong(BATCH_WINDOW_SYSTEM_PROPERTY, 200),
+            !"false".equals(System.getProperty(COALESCE_UPDATES_SYSTEM_PROPERTY)));
+    }
+
+    CacheAccessWorker(String displayName, CacheAccess cacheAccess, int queueCapacity, long batchWindowMillis, boolean coalesceUpdates) {
         this.displayName = displayName;
         this.cacheAccess = cacheAccess;
-        this.batchWindowMillis = 200;
+        this.queueCapacity = queueCapacity;
+        this.batchWindowMillis = batchWindowMillis;
         this.maximumLockingTimeMillis = 5000;
-        HeapProportionalCacheSizer heapProportionalCacheSizer = new HeapProportionalCacheSizer();
-        int queueCapacity = Math.min(4000, heapProportionalCacheSizer.scaleCacheSize(40000));
+        this.coalesceUpdates = coalesceUpdates;
         workQueue = new ArrayBlockingQueue<Runnable>(queueCapacity, true);
     }
 
@@ -66,13 +104,41 @@ class CacheAccessWorker implements Runnable, Stoppable, AsyncCacheAccess {
         if (closed) {
             throw new IllegalStateException("The worker has already been closed. Cannot add more work to queue.");
         }
+        if (workQueue.offer(task)) {
+            return;
+        }
+        long start = System.nanoTime();
         try {
             workQueue.put(task);
         } catch (InterruptedException e) {
             throw UncheckedException.throwAsUncheckedException(e);
+        } finally {
+            blockedProducers.incrementAndGet();
+            blockedProducerNanos.addAndGet(System.nanoTime() - start);
         }
     }
 
+    /**
+     * The largest number of operations which were queued when the worker took operations from the queue.
+     */
+    int getMaxQueueDepth() {
+        return maxQueueDepth.get();
+    }
+
+    /**
+     * The total time threads spent waiting to add an operation to the full queue.
+     */
+    long getBlockedProducerTimeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(blockedProducerNanos.get());
+    }
+
+    /**
+     * The number of updates which were not applied because a later update of the same key was queued.
+     */
+    long getCoalescedUpdates() {
+        return coalescedUpdates.get();
+    }
+
     public <T> T read(final Factory<T> task) {
         FutureTask<T> futureTask = new FutureTask<T>(new Callable<T>() {
             @Override
@@ -175,28 +241,39 @@ class CacheAccessWorker implements Runnable, Stoppable, AsyncCacheAccess {
                 @Override
                 public void run() {
                     CountdownTimer timer = Time.startCountdownTimer(maximumLockingTimeMillis, TimeUnit.MILLISECONDS);
-                    if (updateOperation != null) {
-                        failureHandler.onExecute(updateOperation);
-                    }
-                    Runnable otherOperation;
+                    PendingUpdates pendingUpdates = new PendingUpdates();
+                    List<Runnable> batch = new ArrayList<Runnable>();
                     try {
-                        while ((otherOperation = workQueue.poll(batchWindowMillis, TimeUnit.MILLISECONDS)) != null) {
-                            failureHandler.onExecute(otherOperation);
-                            final Class<? extends Runnable> runnableClass = otherOperation.getClass();
-                            if (runnableClass == FlushOperationsCommand.class) {
-                                flushOperations.add((FlushOperationsCommand) otherOperation);
-                            }
-                            if (runnableClass == ShutdownOperationsCommand.class) {
-                                stopSeen = true;
+                        execute(updateOperation, pendingUpdates);
+                        boolean endOfBatch = false;
+                        while (!endOfBatch && !timer.hasExpired()) {
+                            batch.clear();
+                            if (workQueue.drainTo(batch) == 0) {
+                                Runnable nextOperation = workQueue.poll(batchWindowMillis, TimeUnit.MILLISECONDS);
+                                if (nextOperation == null) {
+                                    break;
+                                }
+                                batch.add(nextOperation);
+                                workQueue.drainTo(batch);
                             }
-                            if (runnableClass == ShutdownOperationsCommand.class
-                                    || runnableClass == FlushOperationsCommand.class
-                                    || timer.hasExpired()) {
-                                break;
+                            recordQueueDepth(batch.size());
+                            for (Runnable otherOperation : batch) {
+                                final Class<? extends Runnable> runnableClass = otherOperation.getClass();
+                                if (runnableClass == FlushOperationsCommand.class) {
+                                    flushOperations.add((FlushOperationsCommand) otherOperation);
+                                    endOfBatch = true;
+                                } else if (runnableClass == ShutdownOperationsCommand.class) {
+                                    stopSeen = true;
+                                    endOfBatch = true;
+                                } else {
+                                    execute(otherOperation, pendingUpdates);
+                                }
                             }
                         }
                     } catch (InterruptedException e) {
                         throw UncheckedException.throwAsUncheckedException(e);
+                    } finally {
+                        pendingUpdates.apply();
                     }
                 }
             });
@@ -207,6 +284,81 @@ class CacheAccessWorker implements Runnable, Stoppable, AsyncCacheAccess {
         }
     }
 
+    private void execute(Runnable operation, PendingUpdates pendingUpdates) {
+        if (coalesceUpdates && operation instanceof KeyedCacheUpdate) {
+            pendingUpdates.add((KeyedCacheUpdate) operation);
+        } else {
+            // Other operations may read the cache, so must see all earlier updates
+            pendingUpdates.apply();
+            failureHandler.onExecute(operation);
+        }
+    }
+
+    private void recordQueueDepth(int depth) {
+        int max = maxQueueDepth.get();
+        while (depth > max && !maxQueueDepth.compareAndSet(max, depth)) {
+            max = maxQueueDepth.get();
+        }
+    }
+
+    /**
+     * The updates taken from the queue which are not applied yet, grouped by cache and with one update per key.
+     */
+    private class PendingUpdates {
+        private final Map<Object, Map<Object, KeyedCacheUpdate>> updatesByCache = new IdentityHashMap<Object, Map<Object, KeyedCacheUpdate>>();
+        private int count;
+
+        void add(KeyedCacheUpdate update) {
+            Map<Object, KeyedCacheUpdate> updates = updatesByCache.get(update.getCache());
+            if (updates == null) {
+                updates = new LinkedHashMap<Object, KeyedCacheUpdate>();
+                updatesByCache.put(update.getCache(), updates);
+            }
+            KeyedCacheUpdate previous = updates.put(update.getKey(), update);
+            if (previous != null) {
+                update.supersede(previous);
+                coalescedUpdates.incrementAndGet();
+            } else if (++count >= queueCapacity) {
+                apply();
+            }
+        }
+
+        void apply() {
+            if (count == 0) {
+                return;
+            }
+            for (Map<Object, KeyedCacheUpdate> updates : updatesByCache.values()) {
+                List<KeyedCacheUpdate> sortedUpdates = new ArrayList<KeyedCacheUpdate>(updates.values());
+                sortByKey(sortedUpdates);
+                for (KeyedCacheUpdate update : sortedUpdates) {
+                    failureHandler.onExecute(update);
+                }
+                appliedUpdates.addAndGet(sortedUpdates.size());
+            }
+            updatesByCache.clear();
+            count = 0;
+        }
+
+        private void sortByKey(List<KeyedCacheUpdate> updates) {
+            if (!(updates.get(0).getKey() instanceof Comparable)) {
+                return;
+            }
+            try {
+                Collections.sort(updates, KEY_ORDER);
+            } catch (ClassCastException e) {
+                // Keys are not mutually comparable, the updates are independent of each other so any order will do
+            }
+        }
+    }
+
+    private static final Comparator<KeyedCacheUpdate> KEY_ORDER = new Comparator<KeyedCacheUpdate>() {
+        @Override
+        @SuppressWarnings("unchecked")
+        public int compare(KeyedCacheUpdate left, KeyedCacheUpdate right) {
+            return ((Comparable<Object>) left.getKey()).compareTo(right.getKey());
+        }
+    };
+
     public synchronized void stop() {
         if (!closed && !workerCompleted) {
             closed = true;
@@ -220,6 +372,10 @@ class CacheAccessWorker implements Runnable, Stoppable, AsyncCacheAccess {
             } catch (InterruptedException e) {
                 // ignore
             }
+            if (appliedUpdates.get() > 0 || blockedProducers.get() > 0) {
+                LOGGER.debug("Cache worker for {} applied {} updates and coalesced {} updates. Queue depth was at most {}, {} operations waited {}ms for the full queue.",
+                    displayName, appliedUpdates.get(), coalescedUpdates.get(), maxQueueDepth.get(), blockedProducers.get(), getBlockedProducerTimeMillis());
+            }
         }
         rethrowFailure();
     }
@@ -30,6 +30,8 @@ import org.gradle.cache.MultiProcessSafePersistentIndexedCache;
 import org.gradle.cache.PersistentIndexedCacheParameters;
 import org.gradle.cache.internal.btree.BTreePersistentIndexedCache;
 import org.gradle.cache.internal.cacheops.CacheAccessOperationsStack;
+import org.gradle.cache.internal.logstructured.LogStructuredPersistentIndexedCache;
+import org.gradle.cache.internal.store.IndexedCacheStore;
 import org.gradle.internal.Cast;
 import org.gradle.internal.Factories;
 import org.gradle.internal.Factory;
@@ -48,6 +50,7 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -75,6 +78,7 @@ public class DefaultCacheAccess implements CacheCoordinator {
 
     private ManagedExecutor cacheUpdateExecutor;
     private CacheAccessWorker cacheAccessWorker;
+    private ManagedExecutor compactionExecutor;
     private final Lock stateLock = new ReentrantLock(); // protects the following state
     private final Condition condition = stateLock.newCondition();
 
@@ -129,6 +133,13 @@ public class DefaultCacheAccess implements CacheCoordinator {
         return cacheAccessWorker;
     }
 
+    private synchronized Executor getCompactionExecutor() {
+        if (compactionExecutor == null) {
+            compactionExecutor = executorFactory.create("Cache compaction for " + cacheDisplayName);
+        }
+        return compactionExecutor;
+    }
+
     @Override
     public void open() {
         stateLock.lock();
@@ -186,6 +197,11 @@ public class DefaultCacheAccess implements CacheCoordinator {
             fileLockHeldByOwner = null;
             stateLock.unlock();
         }
+        // The caches wait for running compactions when they are closed
+        if (compactionExecutor != null) {
+            compactionExecutor.stop();
+            compactionExecutor = null;
+        }
     }
 
     @Override
@@ -282,13 +298,27 @@ public class DefaultCacheAccess implements CacheCoordinator {
         IndexedCacheEntry<K, V> entry = Cast.uncheckedCast(caches.get(parameters.getCacheName()));
         try {
             if (entry == null) {
-                final File cacheFile = new File(baseDir, parameters.getCacheName() + ".bin");
+                final File cacheFile;
+                Factory<? extends IndexedCacheStore<K, V>> indexedCacheFactory;
+                if (parameters.isAppendOnly()) {
+                    cacheFile = new File(baseDir, parameters.getCacheName() + ".log");
+                    // Keep the same store, so that its index is reused when the cache is opened again
+                    final LogStructuredPersistentIndexedCache<K, V> store = doCreateLogStructuredCache(cacheFile, parameters.getKeySerializer(), parameters.getValueSerializer());
+                    indexedCacheFactory = new Factory<LogStructuredPersistentIndexedCache<K, V>>() {
+                        public LogStructuredPersistentIndexedCache<K, V> create() {
+                            store.open();
+                            return store;
+                        }
+                    };
+                } else {
+                    cacheFile = new File(baseDir, parameters.getCacheName() + ".bin");
+                    indexedCacheFactory = new Factory<BTreePersistentIndexedCache<K, V>>() {
+                        public BTreePersistentIndexedCache<K, V> create() {
+                            return doCreateCache(cacheFile, parameters.getKeySerializer(), parameters.getValueSerializer());
+                        }
+                    };
+                }
                 LOG.debug("Creating new cache for {}, path {}, access {}", parameters.getCacheName(), cacheFile, this);
-                Factory<BTreePersistentIndexedCache<K, V>> indexedCacheFactory = new Factory<BTreePersistentIndexedCache<K, V>>() {
-                    public BTreePersistentIndexedCache<K, V> create() {
-                        return doCreateCache(cacheFile, parameters.getKeySerializer(), parameters.getValueSerializer());
-                    }
-                };
 
                 MultiProcessSafePersistentIndexedCache<K, V> indexedCache = new DefaultMultiProcessSafePersistentIndexedCache<K, V>(indexedCacheFactory, fileAccess);
                 CacheDecorator decorator = parameters.getCacheDecorator();
@@ -316,6 +346,10 @@ public class DefaultCacheAccess implements CacheCoordinator {
         return new BTreePersistentIndexedCache<K, V>(cacheFile, keySerializer, valueSerializer);
     }
 
+    <K, V> LogStructuredPersistentIndexedCache<K, V> doCreateLogStructuredCache(File logFile, Serializer<K> keySerializer, Serializer<V> valueSerializer) {
+        return new LogStructuredPersistentIndexedCache<K, V>(logFile, keySerializer, valueSerializer, getCompactionExecutor());
+    }
+
     /**
      * Called just after the file lock has been acquired.
      */
@@ -444,6 +478,7 @@ public class DefaultCacheAccess implements CacheCoordinator {
             checkCompatibleKeySerializer(faultMessages, parameters.getKeySerializer());
             checkCompatibleValueSerializer(faultMessages, parameters.getValueSerializer());
             checkCompatibleCacheDecorator(faultMessages, parameters.getCacheDecorator());
+            checkCompatibleStorage(faultMessages, parameters.isAppendOnly());
 
             if (!faultMessages.isEmpty()) {
                 String lineSeparator = SystemProperties.getInstance().getLineSeparator();
@@ -486,6 +521,14 @@ public class DefaultCacheAccess implements CacheCoordinator {
                         cacheDecorator, parameters.getCacheDecorator()));
             }
         }
+
+        private void checkCompatibleStorage(Collection<String> faultMessages, boolean appendOnly) {
+            if (appendOnly != parameters.isAppendOnly()) {
+                faultMessages.add(
+                    String.format(" * Requested append-only storage (%s) doesn't match current cache storage (%s)",
+                        appendOnly, parameters.isAppendOnly()));
+            }
+        }
     }
 
     private static class InvalidCacheReuseException extends GradleException {
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An update of a single key of a cache, submitted to a {@link CacheAccessWorker}. When several updates of the same key are queued,
+ * the worker only runs the last one, and runs the completions of the superseded updates after it.
+ */
+abstract class KeyedCacheUpdate implements Runnable {
+    private final Object cache;
+    private final Object key;
+    private final Runnable completion;
+    private List<Runnable> supersededCompletions;
+
+    KeyedCacheUpdate(Object cache, Object key, Runnable completion) {
+        this.cache = cache;
+        this.key = key;
+        this.completion = completion;
+    }
+
+    Object getCache() {
+        return cache;
+    }
+
+    Object getKey() {
+        return key;
+    }
+
+    void supersede(KeyedCacheUpdate previous) {
+        if (supersededCompletions == null) {
+            supersededCompletions = new ArrayList<Runnable>();
+        }
+        if (previous.supersededCompletions != null) {
+            supersededCompletions.addAll(previous.supersededCompletions);
+        }
+        supersededCompletions.add(previous.completion);
+    }
+
+    @Override
+    public final void run() {
+        try {
+            update();
+        } finally {
+            completion.run();
+            if (supersededCompletions != null) {
+                for (Runnable supersededCompletion : supersededCompletions) {
+                    supersededCompletion.run();
+                }
+            }
+        }
+    }
+
+    protected abstract void update();
+}
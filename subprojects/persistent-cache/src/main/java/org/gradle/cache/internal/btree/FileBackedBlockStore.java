@@ -17,17 +17,33 @@ package org.gradle.cache.internal.btree;
 
 import org.gradle.api.UncheckedIOException;
 
+import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 
+/**
+ * Stores blocks in a file, using positional reads and writes on the {@link FileChannel} of the file.
+ *
+ * Each block is read with a single read into a reused buffer, which is sized to hold the blocks seen so far, and written with a single write.
+ */
 public class FileBackedBlockStore implements BlockStore {
+    private static final int INITIAL_BUFFER_SIZE = 8192;
+
     private final File cacheFile;
     private RandomAccessFile file;
-    private ByteOutput output;
-    private ByteInput input;
+    private FileChannel channel;
+    private ByteBuffer readBuffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+    private final ByteBufferInputStream blockInput = new ByteBufferInputStream();
+    private final DataInputStream blockDataInput = new DataInputStream(blockInput);
+    private final BlockOutputStream blockOutput = new BlockOutputStream();
+    private final DataOutputStream blockDataOutput = new DataOutputStream(blockOutput);
     private long nextBlock;
     private Factory factory;
     private long currentFileSize;
@@ -46,8 +62,7 @@ public class FileBackedBlockStore implements BlockStore {
         try {
             cacheFile.getParentFile().mkdirs();
             file = new RandomAccessFile(cacheFile, "rw");
-            output = new ByteOutput(file);
-            input = new ByteInput(file);
+            channel = file.getChannel();
             currentFileSize = file.length();
             nextBlock = currentFileSize;
             if (currentFileSize == 0) {
@@ -119,6 +134,22 @@ public class FileBackedBlockStore implements BlockStore {
         }
     }
 
+    private ByteBuffer readAt(long pos, int length) throws IOException {
+        if (readBuffer.capacity() < length) {
+            readBuffer = ByteBuffer.allocate(length);
+        }
+        ByteBuffer buffer = readBuffer;
+        buffer.clear();
+        buffer.limit(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, pos + buffer.position()) < 0) {
+                throw new EOFException();
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
     private long alloc(long length) {
         long pos = nextBlock;
         nextBlock += length;
@@ -179,7 +210,8 @@ public class FileBackedBlockStore implements BlockStore {
         public void write() throws Exception {
             long pos = getPos().getPos();
 
-            DataOutputStream outputStream = output.start(pos);
+            blockOutput.reset();
+            DataOutputStream outputStream = blockDataOutput;
 
             BlockPayload payload = getPayload();
 
@@ -192,12 +224,17 @@ public class FileBackedBlockStore implements BlockStore {
             payload.write(outputStream);
 
             // Write count
-            long bytesWritten = output.getBytesWritten();
+            long bytesWritten = blockOutput.size();
             if (bytesWritten > Integer.MAX_VALUE) {
                 throw new IllegalArgumentException("Block payload exceeds maximum size");
             }
             outputStream.writeInt((int) bytesWritten);
-            output.done();
+            outputStream.flush();
+
+            ByteBuffer buffer = blockOutput.asByteBuffer();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, pos + buffer.position());
+            }
 
             // Pad
             if (currentFileSize < finalSize) {
@@ -213,30 +250,39 @@ public class FileBackedBlockStore implements BlockStore {
                 throw blockCorruptedException();
             }
 
-            DataInputStream inputStream = input.start(pos);
+            // Optimistically read the whole block, assuming it fits into the buffer
+            ByteBuffer buffer = readAt(pos, (int) Math.min(readBuffer.capacity(), currentFileSize - pos));
 
             BlockPayload payload = getPayload();
 
             // Read header
-            byte type = inputStream.readByte();
+            byte type = buffer.get();
             if (type != payload.getType()) {
                 throw blockCorruptedException();
             }
 
             // Read body
-            payloadSize = inputStream.readInt();
-            if (pos + HEADER_SIZE + TAIL_SIZE + payloadSize > currentFileSize) {
+            payloadSize = buffer.getInt();
+            if (payloadSize < 0 || pos + HEADER_SIZE + TAIL_SIZE + payloadSize > currentFileSize) {
                 throw blockCorruptedException();
             }
+            int blockSize = HEADER_SIZE + payloadSize + TAIL_SIZE;
+            if (buffer.limit() < blockSize) {
+                buffer = readAt(pos, blockSize);
+                buffer.position(HEADER_SIZE);
+            }
+            buffer.limit(blockSize);
+            blockInput.buffer = buffer;
+            DataInputStream inputStream = blockDataInput;
             payload.read(inputStream);
 
             // Read and verify count
-            long actualCount = input.getBytesRead();
+            long actualCount = buffer.position();
             long count = inputStream.readInt();
             if (actualCount != count) {
                 throw blockCorruptedException();
             }
-            input.done();
+            blockInput.buffer = null;
         }
 
         public RuntimeException blockCorruptedException() {
@@ -245,4 +291,47 @@ public class FileBackedBlockStore implements BlockStore {
         }
     }
 
+    private static class ByteBufferInputStream extends InputStream {
+        private ByteBuffer buffer;
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(len, buffer.remaining());
+            buffer.get(bytes, off, count);
+            return count;
+        }
+
+        @Override
+        public long skip(long n) {
+            int count = (int) Math.max(0, Math.min(n, buffer.remaining()));
+            buffer.position(buffer.position() + count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+
+    private static class BlockOutputStream extends ByteArrayOutputStream {
+        BlockOutputStream() {
+            super(INITIAL_BUFFER_SIZE);
+        }
+
+        ByteBuffer asByteBuffer() {
+            return ByteBuffer.wrap(buf, 0, count);
+        }
+    }
 }
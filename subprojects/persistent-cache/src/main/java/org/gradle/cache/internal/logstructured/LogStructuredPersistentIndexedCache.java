@@ -0,0 +1,531 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal.logstructured;
+
+import org.gradle.api.UncheckedIOException;
+import org.gradle.cache.internal.store.IndexedCacheStore;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.serialize.Serializer;
+import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
+import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+/**
+ * A persistent indexed cache which appends every change to a log file, and keeps the position of the latest record for each key in an in-memory index.
+ *
+ * <p>Writes are sequential appends, and reads need a single positional read. The index is kept when the cache is closed, so that reopening the cache
+ * only reads the records which other processes have appended in the meantime. The whole log is only read again when another process has compacted it.</p>
+ *
+ * <p>The index holds the serialized key of each entry, so that keys with colliding hashes are kept apart, and reads also check the key stored in the record.</p>
+ *
+ * <p>Once most records of the log are superseded, the live records are copied to a new file by a background task. The new file replaces the log on the next write,
+ * or when the cache is closed, which both happen while the owner of the cache holds the cross-process lock.</p>
+ */
+public class LogStructuredPersistentIndexedCache<K, V> implements IndexedCacheStore<K, V> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LogStructuredPersistentIndexedCache.class);
+    private static final Random GENERATIONS = new Random();
+
+    private static final int MAGIC = 0x474c4f47;
+    private static final byte VERSION = 1;
+    private static final int HEADER_SIZE = 4 + 1 + 8;
+    private static final byte RECORD_MARKER = 0x52;
+    private static final int RECORD_HEADER_SIZE = 1 + 4 + 4;
+    private static final int REMOVED = -1;
+    private static final long DEFAULT_MIN_COMPACTION_SIZE = 4 * 1024 * 1024;
+
+    private final File logFile;
+    private final File compactionFile;
+    private final Serializer<K> keySerializer;
+    private final Serializer<V> valueSerializer;
+    private final Executor compactionExecutor;
+    private final long minCompactionSize;
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    private final KryoBackedEncoder encoder = new KryoBackedEncoder(buffer);
+
+    private RandomAccessFile file;
+    private FileChannel channel;
+    private PositionIndex index = new PositionIndex();
+    private long generation;
+    private long end;
+    private long recordCount;
+    private FutureTask<CompactedLog> compaction;
+
+    public LogStructuredPersistentIndexedCache(File logFile, Serializer<K> keySerializer, Serializer<V> valueSerializer, Executor compactionExecutor) {
+        this(logFile, keySerializer, valueSerializer, compactionExecutor, DEFAULT_MIN_COMPACTION_SIZE);
+    }
+
+    public LogStructuredPersistentIndexedCache(File logFile, Serializer<K> keySerializer, Serializer<V> valueSerializer, Executor compactionExecutor, long minCompactionSize) {
+        this.logFile = logFile;
+        this.compactionFile = new File(logFile.getParentFile(), logFile.getName() + ".compacting");
+        this.keySerializer = keySerializer;
+        this.valueSerializer = valueSerializer;
+        this.compactionExecutor = compactionExecutor;
+        this.minCompactionSize = minCompactionSize;
+    }
+
+    @Override
+    public String toString() {
+        return "cache " + logFile.getName() + " (" + logFile + ")";
+    }
+
+    /**
+     * Opens the log file, and brings the index up to date with the records appended since the cache was last closed.
+     */
+    public void open() {
+        LOGGER.debug("Opening {}", this);
+        try {
+            openFile();
+            long length = channel.size();
+            long fileGeneration = readGeneration(length);
+            if (fileGeneration == 0) {
+                initialize();
+                return;
+            }
+            if (fileGeneration != generation || length < end) {
+                index = new PositionIndex();
+                generation = fileGeneration;
+                end = HEADER_SIZE;
+                recordCount = 0;
+            }
+            long validEnd = scan(channel, end, length, false, new RecordVisitor() {
+                @Override
+                public void visit(long position, byte[] key, byte[] value, int valueLength) {
+                    recordCount++;
+                    if (valueLength == REMOVED) {
+                        index.remove(key);
+                    } else {
+                        index.put(key, position);
+                    }
+                }
+            });
+            if (validEnd < length) {
+                LOGGER.debug("Discarding incomplete records at the end of {}.", this);
+                channel.truncate(validEnd);
+            }
+            end = validEnd;
+        } catch (Exception e) {
+            throw new UncheckedIOException(String.format("Could not open %s.", this), e);
+        }
+    }
+
+    @Override
+    public V get(K key) {
+        try {
+            byte[] keyBytes = serialize(keySerializer, key);
+            long position = index.get(keyBytes);
+            if (position < 0) {
+                return null;
+            }
+            Record record = readRecord(channel, position);
+            if (record == null) {
+                LOGGER.debug("Found a corrupt record in {}, discarding its contents.", this);
+                initialize();
+                return null;
+            }
+            if (!Arrays.equals(record.key, keyBytes)) {
+                return null;
+            }
+            return valueSerializer.read(new KryoBackedDecoder(new ByteArrayInputStream(record.value)));
+        } catch (Exception e) {
+            throw new UncheckedIOException(String.format("Could not read entry '%s' from %s.", key, this), e);
+        }
+    }
+
+    @Override
+    public void put(K key, V value) {
+        try {
+            finishCompaction(false);
+            byte[] keyBytes = serialize(keySerializer, key);
+            byte[] valueBytes = serialize(valueSerializer, value);
+            long position = end;
+            end += writeRecord(channel, position, keyBytes, valueBytes);
+            recordCount++;
+            index.put(keyBytes, position);
+            maybeStartCompaction();
+        } catch (Exception e) {
+            throw new UncheckedIOException(String.format("Could not add entry '%s' to %s.", key, this), e);
+        }
+    }
+
+    @Override
+    public void remove(K key) {
+        try {
+            finishCompaction(false);
+            byte[] keyBytes = serialize(keySerializer, key);
+            if (index.get(keyBytes) < 0) {
+                return;
+            }
+            end += writeRecord(channel, end, keyBytes, null);
+            recordCount++;
+            index.remove(keyBytes);
+            maybeStartCompaction();
+        } catch (Exception e) {
+            throw new UncheckedIOException(String.format("Could not remove entry '%s' from %s.", key, this), e);
+        }
+    }
+
+    /**
+     * Closes the log file, waiting for a running compaction to finish first. The index is kept for when the cache is opened again.
+     */
+    @Override
+    public void close() {
+        LOGGER.debug("Closing {}", this);
+        try {
+            finishCompaction(true);
+            closeFile();
+        } catch (Exception e) {
+            throw new UncheckedIOException(String.format("Could not close %s.", this), e);
+        }
+    }
+
+    private void openFile() throws IOException {
+        file = new RandomAccessFile(logFile, "rw");
+        channel = file.getChannel();
+    }
+
+    private void closeFile() throws IOException {
+        if (file != null) {
+            file.close();
+            file = null;
+            channel = null;
+        }
+    }
+
+    /**
+     * Returns the generation of the log, or 0 when the file has no valid header.
+     */
+    private long readGeneration(long length) throws IOException {
+        if (length < HEADER_SIZE) {
+            return 0;
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(channel, header, 0);
+        header.flip();
+        if (header.getInt() != MAGIC || header.get() != VERSION) {
+            return 0;
+        }
+        return header.getLong();
+    }
+
+    private void initialize() throws IOException {
+        channel.truncate(0);
+        generation = newGeneration();
+        writeHeader(channel, generation);
+        index = new PositionIndex();
+        end = HEADER_SIZE;
+        recordCount = 0;
+    }
+
+    private void maybeStartCompaction() {
+        if (compaction != null || end < minCompactionSize || recordCount <= 2L * index.size()) {
+            return;
+        }
+        final long[] positions = new long[index.size()];
+        index.visit(new PositionIndex.Visitor() {
+            int count;
+
+            @Override
+            public void visit(byte[] key, long position) {
+                positions[count++] = position;
+            }
+        });
+        // Copy in file order, so that the log is read sequentially
+        Arrays.sort(positions);
+        final FileChannel source = channel;
+        final long snapshotEnd = end;
+        LOGGER.debug("Compacting {}, which contains {} records for {} entries.", this, recordCount, positions.length);
+        compaction = new FutureTask<CompactedLog>(new Callable<CompactedLog>() {
+            @Override
+            public CompactedLog call() throws Exception {
+                return compact(source, positions, snapshotEnd);
+            }
+        });
+        compactionExecutor.execute(compaction);
+    }
+
+    private CompactedLog compact(FileChannel source, long[] positions, long snapshotEnd) throws IOException {
+        RandomAccessFile target = new RandomAccessFile(compactionFile, "rw");
+        try {
+            CompactedLog compacted = new CompactedLog(target, newGeneration(), snapshotEnd);
+            for (long position : positions) {
+                Record record = readRecord(source, position);
+                if (record == null) {
+                    throw new IOException(String.format("Found a corrupt record at position %s.", position));
+                }
+                compacted.append(record.key, record.value);
+            }
+            return compacted;
+        } catch (IOException e) {
+            target.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Replaces the log with the compacted log, after copying the records which were appended while the compaction was running.
+     * Abandons the compaction when it failed, or when the log cannot be replaced.
+     */
+    private void finishCompaction(boolean wait) throws IOException {
+        if (compaction == null || (!wait && !compaction.isDone())) {
+            return;
+        }
+        FutureTask<CompactedLog> finished = compaction;
+        compaction = null;
+        final CompactedLog compacted;
+        try {
+            compacted = finished.get();
+        } catch (InterruptedException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        } catch (ExecutionException e) {
+            LOGGER.debug("Could not compact {}.", this, e.getCause());
+            Files.deleteIfExists(compactionFile.toPath());
+            return;
+        }
+
+        try {
+            scan(channel, compacted.snapshotEnd, end, true, new RecordVisitor() {
+                @Override
+                public void visit(long position, byte[] key, byte[] value, int valueLength) throws IOException {
+                    compacted.append(key, value);
+                }
+            });
+        } finally {
+            compacted.file.close();
+        }
+
+        closeFile();
+        try {
+            Files.move(compactionFile.toPath(), logFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            index = compacted.index;
+            generation = compacted.generation;
+            end = compacted.end;
+            recordCount = compacted.recordCount;
+        } catch (IOException e) {
+            LOGGER.debug("Could not replace {} with its compacted log.", this, e);
+            Files.deleteIfExists(compactionFile.toPath());
+        }
+        openFile();
+    }
+
+    private <T> byte[] serialize(Serializer<T> serializer, T value) throws Exception {
+        buffer.reset();
+        serializer.write(encoder, value);
+        encoder.flush();
+        return buffer.toByteArray();
+    }
+
+    private static long newGeneration() {
+        long generation;
+        do {
+            generation = GENERATIONS.nextLong();
+        } while (generation == 0);
+        return generation;
+    }
+
+    private static void writeHeader(FileChannel channel, long generation) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC);
+        header.put(VERSION);
+        header.putLong(generation);
+        header.flip();
+        writeFully(channel, header, 0);
+    }
+
+    /**
+     * Writes a record at the given position, or a removal record when the value is null. Returns the size of the record.
+     */
+    private static int writeRecord(FileChannel channel, long position, byte[] key, byte[] value) throws IOException {
+        int size = RECORD_HEADER_SIZE + key.length + (value == null ? 0 : value.length);
+        ByteBuffer record = ByteBuffer.allocate(size);
+        record.put(RECORD_MARKER);
+        record.putInt(key.length);
+        record.putInt(value == null ? REMOVED : value.length);
+        record.put(key);
+        if (value != null) {
+            record.put(value);
+        }
+        record.flip();
+        writeFully(channel, record, position);
+        return size;
+    }
+
+    /**
+     * Reads the record at the given position, or returns null when there is no valid record.
+     */
+    private static Record readRecord(FileChannel channel, long position) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        try {
+            readFully(channel, header, position);
+            header.flip();
+            if (header.get() != RECORD_MARKER) {
+                return null;
+            }
+            int keyLength = header.getInt();
+            int valueLength = header.getInt();
+            if (keyLength < 0 || valueLength < 0) {
+                return null;
+            }
+            ByteBuffer contents = ByteBuffer.allocate(keyLength + valueLength);
+            readFully(channel, contents, position + RECORD_HEADER_SIZE);
+            byte[] key = new byte[keyLength];
+            byte[] value = new byte[valueLength];
+            contents.flip();
+            contents.get(key);
+            contents.get(value);
+            return new Record(key, value);
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Visits the valid records between the given positions, and returns the end of the last valid record.
+     */
+    private static long scan(FileChannel channel, long start, long limit, boolean readValues, RecordVisitor visitor) throws IOException {
+        channel.position(start);
+        // Not closed, as that would close the channel
+        DataInputStream input = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), 64 * 1024));
+        long position = start;
+        while (position + RECORD_HEADER_SIZE <= limit) {
+            if (input.readByte() != RECORD_MARKER) {
+                break;
+            }
+            int keyLength = input.readInt();
+            int valueLength = input.readInt();
+            if (keyLength < 0 || valueLength < REMOVED) {
+                break;
+            }
+            long recordEnd = position + RECORD_HEADER_SIZE + keyLength + Math.max(valueLength, 0);
+            if (recordEnd > limit) {
+                break;
+            }
+            byte[] key = new byte[keyLength];
+            input.readFully(key);
+            byte[] value = null;
+            if (valueLength != REMOVED) {
+                if (readValues) {
+                    value = new byte[valueLength];
+                    input.readFully(value);
+                } else {
+                    skipFully(input, valueLength);
+                }
+            }
+            visitor.visit(position, key, value, valueLength);
+            position = recordEnd;
+        }
+        return position;
+    }
+
+    private static void skipFully(DataInputStream input, int count) throws IOException {
+        int remaining = count;
+        while (remaining > 0) {
+            int skipped = input.skipBytes(remaining);
+            if (skipped <= 0) {
+                throw new EOFException();
+            }
+            remaining -= skipped;
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        long current = position;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, current);
+            if (read < 0) {
+                throw new EOFException();
+            }
+            current += read;
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        long current = position;
+        while (buffer.hasRemaining()) {
+            current += channel.write(buffer, current);
+        }
+    }
+
+    private interface RecordVisitor {
+        void visit(long position, byte[] key, byte[] value, int valueLength) throws IOException;
+    }
+
+    private static class Record {
+        final byte[] key;
+        final byte[] value;
+
+        Record(byte[] key, byte[] value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    /**
+     * A new log, which is written by the compaction task and then by the owner of the cache once the task has finished.
+     */
+    private static class CompactedLog {
+        final RandomAccessFile file;
+        final FileChannel channel;
+        final long generation;
+        final long snapshotEnd;
+        final PositionIndex index = new PositionIndex();
+        long end = HEADER_SIZE;
+        long recordCount;
+
+        CompactedLog(RandomAccessFile file, long generation, long snapshotEnd) throws IOException {
+            this.file = file;
+            this.channel = file.getChannel();
+            this.generation = generation;
+            this.snapshotEnd = snapshotEnd;
+            channel.truncate(0);
+            writeHeader(channel, generation);
+        }
+
+        void append(byte[] key, byte[] value) throws IOException {
+            if (value == null) {
+                if (index.get(key) < 0) {
+                    return;
+                }
+                index.remove(key);
+            } else {
+                index.put(key, end);
+            }
+            end += writeRecord(channel, end, key, value);
+            recordCount++;
+        }
+    }
+}
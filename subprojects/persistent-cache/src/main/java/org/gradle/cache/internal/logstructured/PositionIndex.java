@@ -0,0 +1,166 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal.logstructured;
+
+import org.gradle.internal.hash.HashFunction;
+import org.gradle.internal.hash.Hashing;
+
+import java.util.Arrays;
+
+/**
+ * An open addressing hash map from serialized keys to non-negative positions. Each slot holds a 64-bit hash of the key, which is compared first,
+ * and the key itself, so that keys with colliding hashes are kept apart.
+ */
+class PositionIndex {
+    private static final HashFunction KEY_HASH = Hashing.murmur3_128();
+    private static final long EMPTY = 0;
+    private static final long ABSENT = -1;
+
+    private long[] hashes;
+    private byte[][] keys;
+    private long[] positions;
+    private int mask;
+    private int size;
+
+    PositionIndex() {
+        allocate(1024);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the position for the given key, or -1 when there is none.
+     */
+    long get(byte[] key) {
+        int slot = find(hash(key), key);
+        return slot < 0 ? ABSENT : positions[slot];
+    }
+
+    void put(byte[] key, long position) {
+        assert position >= 0;
+        put(hash(key), key, position);
+    }
+
+    void remove(byte[] key) {
+        int slot = find(hash(key), key);
+        if (slot < 0) {
+            return;
+        }
+        // Shift back the following entries of the probe sequence, so that no lookup stops early at the freed slot
+        int free = slot;
+        for (int next = (free + 1) & mask; hashes[next] != EMPTY; next = (next + 1) & mask) {
+            int home = slot(hashes[next]);
+            boolean canMove = free <= next ? home <= free || home > next : home <= free && home > next;
+            if (canMove) {
+                hashes[free] = hashes[next];
+                keys[free] = keys[next];
+                positions[free] = positions[next];
+                free = next;
+            }
+        }
+        hashes[free] = EMPTY;
+        keys[free] = null;
+        size--;
+    }
+
+    void clear() {
+        Arrays.fill(hashes, EMPTY);
+        Arrays.fill(keys, null);
+        size = 0;
+    }
+
+    void visit(Visitor visitor) {
+        for (int slot = 0; slot < hashes.length; slot++) {
+            if (hashes[slot] != EMPTY) {
+                visitor.visit(keys[slot], positions[slot]);
+            }
+        }
+    }
+
+    /**
+     * Returns the slot of the given key, or -1 when the key is not in the index.
+     */
+    private int find(long hash, byte[] key) {
+        for (int slot = slot(hash); ; slot = (slot + 1) & mask) {
+            long current = hashes[slot];
+            if (current == EMPTY) {
+                return -1;
+            }
+            if (current == hash && Arrays.equals(keys[slot], key)) {
+                return slot;
+            }
+        }
+    }
+
+    private void put(long hash, byte[] key, long position) {
+        int slot = slot(hash);
+        while (hashes[slot] != EMPTY && !(hashes[slot] == hash && Arrays.equals(keys[slot], key))) {
+            slot = (slot + 1) & mask;
+        }
+        if (hashes[slot] == EMPTY) {
+            hashes[slot] = hash;
+            keys[slot] = key;
+            size++;
+        }
+        positions[slot] = position;
+        if (size * 2 > hashes.length) {
+            rehash(hashes.length * 2);
+        }
+    }
+
+    private int slot(long hash) {
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private void allocate(int capacity) {
+        hashes = new long[capacity];
+        keys = new byte[capacity][];
+        positions = new long[capacity];
+        mask = capacity - 1;
+        size = 0;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldHashes = hashes;
+        byte[][] oldKeys = keys;
+        long[] oldPositions = positions;
+        allocate(capacity);
+        for (int slot = 0; slot < oldHashes.length; slot++) {
+            if (oldHashes[slot] != EMPTY) {
+                put(oldHashes[slot], oldKeys[slot], oldPositions[slot]);
+            }
+        }
+    }
+
+    /**
+     * Returns a 64-bit hash of the given key, which is never 0 as that marks empty slots. Overridden by tests to produce collisions.
+     */
+    long hash(byte[] key) {
+        byte[] hash = KEY_HASH.hashBytes(key).toByteArray();
+        long result = 0;
+        for (int i = 0; i < 8; i++) {
+            result = (result << 8) | (hash[i] & 0xff);
+        }
+        return result == EMPTY ? 1 : result;
+    }
+
+    interface Visitor {
+        void visit(byte[] key, long position);
+    }
+}
@@ -198,4 +198,116 @@ class CacheAccessWorkerTest extends ConcurrentSpec {
         def e = thrown(RuntimeException)
         e == failure
     }
+
+    def "coalesces queued updates of the same key and runs all completions"() {
+        given:
+        def cache = new Object()
+        def applied = []
+        def completed = []
+        cacheAccessWorker.enqueue(update(cache, "a", { applied << "a1" }, { completed << "a1" }))
+        cacheAccessWorker.enqueue(update(cache, "b", { applied << "b1" }, { completed << "b1" }))
+        cacheAccessWorker.enqueue(update(cache, "a", { applied << "a2" }, { completed << "a2" }))
+
+        when:
+        start(cacheAccessWorker)
+        cacheAccessWorker.flush()
+
+        then:
+        applied == ["a2", "b1"]
+        completed as Set == ["a1", "a2", "b1"] as Set
+        cacheAccessWorker.coalescedUpdates == 1
+
+        cleanup:
+        cacheAccessWorker?.stop()
+    }
+
+    def "applies queued updates in key order per cache"() {
+        given:
+        def cache1 = new Object()
+        def cache2 = new Object()
+        def applied = []
+        ["c", "a", "b"].each { key ->
+            cacheAccessWorker.enqueue(update(cache1, key, { applied << "1$key" }))
+            cacheAccessWorker.enqueue(update(cache2, key, { applied << "2$key" }))
+        }
+
+        when:
+        start(cacheAccessWorker)
+        cacheAccessWorker.flush()
+
+        then:
+        applied.findAll { it.startsWith("1") } == ["1a", "1b", "1c"]
+        applied.findAll { it.startsWith("2") } == ["2a", "2b", "2c"]
+
+        cleanup:
+        cacheAccessWorker?.stop()
+    }
+
+    def "applies queued updates before running other operations"() {
+        given:
+        def cache = new Object()
+        def value = null
+        start(cacheAccessWorker)
+
+        when:
+        cacheAccessWorker.enqueue(update(cache, "a", { value = 1 }))
+        cacheAccessWorker.enqueue(update(cache, "a", { value = 2 }))
+        def result = cacheAccessWorker.read { value }
+
+        then:
+        result == 2
+
+        cleanup:
+        cacheAccessWorker?.stop()
+    }
+
+    def "does not coalesce updates when disabled"() {
+        given:
+        cacheAccessWorker = new CacheAccessWorker("<cache>", cacheAccess, 100, 200, false)
+        def cache = new Object()
+        def applied = []
+        cacheAccessWorker.enqueue(update(cache, "b", { applied << "b1" }))
+        cacheAccessWorker.enqueue(update(cache, "a", { applied << "a1" }))
+        cacheAccessWorker.enqueue(update(cache, "b", { applied << "b2" }))
+
+        when:
+        start(cacheAccessWorker)
+        cacheAccessWorker.flush()
+
+        then:
+        applied == ["b1", "a1", "b2"]
+        cacheAccessWorker.coalescedUpdates == 0
+
+        cleanup:
+        cacheAccessWorker?.stop()
+    }
+
+    def "records time producers are blocked by the full queue"() {
+        given:
+        cacheAccessWorker = new CacheAccessWorker("<cache>", cacheAccess, 1, 200, true)
+        cacheAccessWorker.enqueue {}
+
+        when:
+        def producer = new Thread({ cacheAccessWorker.enqueue {} } as Runnable)
+        producer.start()
+        thread.block()
+        start(cacheAccessWorker)
+        producer.join()
+        cacheAccessWorker.flush()
+
+        then:
+        cacheAccessWorker.blockedProducerTimeMillis > 0
+
+        cleanup:
+        cacheAccessWorker?.stop()
+    }
+
+    private static KeyedCacheUpdate update(Object cache, Object key, Closure action, Closure completion = {}) {
+        return new KeyedCacheUpdate(cache, key, completion as Runnable) {
+            @Override
+            protected void update() {
+                action.call()
+            }
+        }
+    }
 }
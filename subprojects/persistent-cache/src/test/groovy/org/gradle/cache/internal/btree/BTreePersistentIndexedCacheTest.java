@@ -387,6 +387,17 @@ public class BTreePersistentIndexedCacheTest {
         cache.close();
     }
 
+    @Test
+    public void canReadCacheFileWrittenByPreviousVersion() {
+        cacheFile.copyFrom(getClass().getResource("cache-written-by-4.8.bin"));
+        createCache();
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(cache.get(String.format("key_%d", i)), equalTo(i));
+        }
+        verifyAndCloseCache();
+    }
+
     private void checkAdds(Integer... values) {
         checkAdds(Arrays.asList(values));
     }
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal.logstructured
+
+import com.google.common.util.concurrent.MoreExecutors
+import org.gradle.internal.serialize.BaseSerializerFactory
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+class LogStructuredPersistentIndexedCacheTest extends Specification {
+    @Rule
+    TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+    def logFile = tmpDir.file("cache.log")
+
+    def "can add, replace and remove entries"() {
+        def cache = newCache()
+
+        when:
+        cache.put("a", 1L)
+        cache.put("b", 2L)
+        cache.put("a", 3L)
+        cache.remove("b")
+
+        then:
+        cache.get("a") == 3L
+        cache.get("b") == null
+        cache.get("unknown") == null
+
+        cleanup:
+        cache.close()
+    }
+
+    def "entries are visible after reopening"() {
+        def cache = newCache()
+        cache.put("a", 1L)
+        cache.put("b", 2L)
+        cache.remove("b")
+        cache.close()
+
+        when:
+        cache.open()
+
+        then:
+        cache.get("a") == 1L
+        cache.get("b") == null
+
+        when:
+        cache.close()
+        def other = newCache()
+
+        then:
+        other.get("a") == 1L
+        other.get("b") == null
+
+        cleanup:
+        other.close()
+    }
+
+    def "picks up entries appended by another cache instance while closed"() {
+        def cache = newCache()
+        cache.put("a", 1L)
+        cache.close()
+
+        def other = newCache()
+        other.put("b", 2L)
+        other.remove("a")
+        other.close()
+
+        when:
+        cache.open()
+
+        then:
+        cache.get("a") == null
+        cache.get("b") == 2L
+
+        cleanup:
+        cache.close()
+    }
+
+    def "compacts the log when most records are superseded"() {
+        def cache = newCache(1024)
+
+        when:
+        200.times { round ->
+            10.times { cache.put("key-$it", round * 10L + it) }
+        }
+        cache.close()
+
+        then:
+        logFile.length() < 2048
+        !tmpDir.file("cache.log.compacting").exists()
+
+        when:
+        cache.open()
+        def other = newCache()
+
+        then:
+        10.times {
+            assert cache.get("key-$it") == 1990L + it
+            assert other.get("key-$it") == 1990L + it
+        }
+
+        cleanup:
+        cache.close()
+        other.close()
+    }
+
+    def "discards incomplete record at the end of the log"() {
+        def cache = newCache()
+        cache.put("a", 1L)
+        cache.put("b", 2L)
+        cache.close()
+        def length = logFile.length()
+        new RandomAccessFile(logFile, "rw").withCloseable { it.setLength(length - 3) }
+
+        when:
+        def other = newCache()
+
+        then:
+        other.get("a") == 1L
+        other.get("b") == null
+
+        when:
+        other.put("c", 3L)
+        other.close()
+        other.open()
+
+        then:
+        other.get("a") == 1L
+        other.get("c") == 3L
+
+        cleanup:
+        other.close()
+    }
+
+    def "discards contents of file which is not a log"() {
+        logFile.text = "not a log file"
+
+        when:
+        def cache = newCache()
+
+        then:
+        cache.get("a") == null
+
+        when:
+        cache.put("a", 1L)
+
+        then:
+        cache.get("a") == 1L
+
+        cleanup:
+        cache.close()
+    }
+
+    private LogStructuredPersistentIndexedCache<String, Long> newCache(long minCompactionSize = Long.MAX_VALUE) {
+        def cache = new LogStructuredPersistentIndexedCache<String, Long>(logFile, BaseSerializerFactory.STRING_SERIALIZER, BaseSerializerFactory.LONG_SERIALIZER, MoreExecutors.sameThreadExecutor(), minCompactionSize)
+        cache.open()
+        return cache
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal.logstructured
+
+import spock.lang.Specification
+
+class PositionIndexTest extends Specification {
+    def index = new PositionIndex()
+
+    def "keeps keys with colliding hashes apart"() {
+        def index = new PositionIndex() {
+            @Override
+            long hash(byte[] key) {
+                return 42
+            }
+        }
+        def a = "a".bytes
+        def b = "b".bytes
+        def c = "c".bytes
+
+        when:
+        index.put(a, 1)
+        index.put(b, 2)
+        index.put(c, 3)
+        index.put("b".bytes, 4)
+
+        then:
+        index.size() == 3
+        index.get(a) == 1
+        index.get(b) == 4
+        index.get(c) == 3
+        index.get("d".bytes) == -1
+
+        when:
+        index.remove(a)
+
+        then:
+        index.size() == 2
+        index.get(a) == -1
+        index.get(b) == 4
+        index.get(c) == 3
+    }
+
+    def "finds entries after growing and removing"() {
+        when:
+        (0..<5000).each { index.put(key(it), it) }
+        (0..<5000).step(2) { index.remove(key(it)) }
+
+        then:
+        index.size() == 2500
+        (0..<5000).every { index.get(key(it)) == (it % 2 == 0 ? -1 : it) }
+    }
+
+    def "visits every entry"() {
+        def visited = [:]
+        index.put(key(1), 10)
+        index.put(key(2), 20)
+
+        when:
+        index.visit(new PositionIndex.Visitor() {
+            @Override
+            void visit(byte[] key, long position) {
+                visited[new String(key)] = position
+            }
+        })
+
+        then:
+        visited == ["key1": 10L, "key2": 20L]
+    }
+
+    private static byte[] key(int value) {
+        return "key${value}".toString().bytes
+    }
+}
@@ -26,7 +26,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.WeakHashMap;
 import java.util.concurrent.TimeUnit;
 
 public class DefaultMemoryManager implements MemoryManager, Stoppable {
@@ -46,6 +49,7 @@ public class DefaultMemoryManager implements MemoryManager, Stoppable {
     private final Object holdersLock = new Object();
     private final Object memoryLock = new Object();
     private final List<MemoryHolder> holders = new ArrayList<MemoryHolder>();
+    private final Set<HeapMemoryHolder> heapHolders = Collections.newSetFromMap(new WeakHashMap<HeapMemoryHolder, Boolean>());
     private OsMemoryStatus currentOsMemoryStatus;
     private final OsMemoryStatusListener osMemoryStatusListener;
 
@@ -186,6 +190,32 @@ public class DefaultMemoryManager implements MemoryManager, Stoppable {
         }
     }
 
+    @Override
+    public void addHeapMemoryHolder(HeapMemoryHolder holder) {
+        synchronized (holdersLock) {
+            heapHolders.add(holder);
+        }
+    }
+
+    @Override
+    public void removeHeapMemoryHolder(HeapMemoryHolder holder) {
+        synchronized (holdersLock) {
+            heapHolders.remove(holder);
+        }
+    }
+
+    @Override
+    public void releaseHeapMemory() {
+        List<HeapMemoryHolder> memoryHolders;
+        synchronized (holdersLock) {
+            memoryHolders = new ArrayList<HeapMemoryHolder>(heapHolders);
+        }
+        LOGGER.debug("Releasing heap memory held by {} holders", memoryHolders.size());
+        for (HeapMemoryHolder holder : memoryHolders) {
+            holder.releaseHeapMemory();
+        }
+    }
+
     @Override
     public void addListener(JvmMemoryStatusListener listener) {
         listenerManager.addListener(listener);
@@ -0,0 +1,32 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.process.internal.health.memory;
+
+/**
+ * Holder of heap memory that can be given back when the JVM is running out of heap space.
+ */
+public interface HeapMemoryHolder {
+
+    /**
+     * Discard retained state that can be recreated on demand, so that it can be garbage collected.
+     *
+     * Called when the heap of the current JVM is under pressure. Implementations must remain usable afterwards.
+     */
+    void releaseHeapMemory();
+
+}
@@ -49,4 +49,25 @@ public interface MemoryManager {
      * @param memoryAmountBytes The requested amount of memory in bytes. If negative, {@literal 0} is assumed.
      */
     void requestFreeMemory(long memoryAmountBytes);
+
+    /**
+     * Register a heap memory holder.
+     *
+     * Holders are referenced weakly, so a holder does not need to be unregistered when it is no longer used.
+     *
+     * @param holder The heap memory holder to register
+     */
+    void addHeapMemoryHolder(HeapMemoryHolder holder);
+
+    /**
+     * Unregister a heap memory holder.
+     *
+     * @param holder The heap memory holder to unregister
+     */
+    void removeHeapMemoryHolder(HeapMemoryHolder holder);
+
+    /**
+     * Ask all registered heap memory holders to discard the state they can recreate on demand.
+     */
+    void releaseHeapMemory();
 }
@@ -160,6 +160,31 @@ class DefaultMemoryManagerTest extends ConcurrentSpec {
         memoryManager.stop()
     }
 
+    def "asks all registered heap memory holders to release heap memory"() {
+        given:
+        def memoryManager = newMemoryManager()
+
+        and:
+        def holder1 = Mock(HeapMemoryHolder)
+        def holder2 = Mock(HeapMemoryHolder)
+        def removed = Mock(HeapMemoryHolder)
+        memoryManager.addHeapMemoryHolder(holder1)
+        memoryManager.addHeapMemoryHolder(holder2)
+        memoryManager.addHeapMemoryHolder(removed)
+        memoryManager.removeHeapMemoryHolder(removed)
+
+        when:
+        memoryManager.releaseHeapMemory()
+
+        then:
+        1 * holder1.releaseHeapMemory()
+        1 * holder2.releaseHeapMemory()
+        0 * removed.releaseHeapMemory()
+
+        cleanup:
+        memoryManager.stop()
+    }
+
     def "registers/deregisters os memory status listener"() {
         def listenerManager = Mock(ListenerManager)
         OsMemoryStatusListener osMemoryStatusListener
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.tasks.testing.report;
+
+import org.gradle.api.Action;
+import org.gradle.api.internal.tasks.testing.DefaultTestOutputEvent;
+import org.gradle.api.internal.tasks.testing.junit.result.InMemoryTestResultsProvider;
+import org.gradle.api.internal.tasks.testing.junit.result.ReportFingerprints;
+import org.gradle.api.internal.tasks.testing.junit.result.TestClassResult;
+import org.gradle.api.internal.tasks.testing.junit.result.TestMethodResult;
+import org.gradle.api.internal.tasks.testing.junit.result.TestOutputStore;
+import org.gradle.api.tasks.testing.TestOutputEvent;
+import org.gradle.api.tasks.testing.TestResult;
+import org.gradle.internal.operations.BuildOperation;
+import org.gradle.internal.operations.BuildOperationContext;
+import org.gradle.internal.operations.BuildOperationExecutor;
+import org.gradle.internal.operations.BuildOperationQueue;
+import org.gradle.internal.operations.BuildOperationRef;
+import org.gradle.internal.operations.BuildOperationWorker;
+import org.gradle.internal.operations.CallableBuildOperation;
+import org.gradle.internal.operations.RunnableBuildOperation;
+import org.gradle.util.GFileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures generating the HTML report for a synthetic set of test results, when all classes have changed and when a single class has changed.
+ */
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class TestReportGenerationBenchmark {
+    private static final int METHODS_PER_CLASS = 10;
+
+    @Param({"1000", "10000"})
+    int classCount;
+
+    private File tmpDir;
+    private File reportDir;
+    private List<TestClassResult> results;
+    private InMemoryTestResultsProvider resultsProvider;
+    private DefaultTestReport report;
+    private long startTime;
+
+    @Setup(Level.Trial)
+    public void setupTrial() throws IOException {
+        tmpDir = Files.createTempDirectory("test-report-benchmark").toFile();
+        reportDir = new File(tmpDir, "report");
+        TestOutputStore outputStore = new TestOutputStore(tmpDir);
+        TestOutputStore.Writer writer = outputStore.writer();
+        results = new ArrayList<TestClassResult>(classCount);
+        long id = 1;
+        for (int i = 0; i < classCount; i++) {
+            TestClassResult classResult = new TestClassResult(id++, "org.gradle.package" + (i % 100) + ".SomeTest" + i, 0);
+            for (int j = 0; j < METHODS_PER_CLASS; j++) {
+                long testId = id++;
+                classResult.add(new TestMethodResult(testId, "test" + j, TestResult.ResultType.SUCCESS, 10, 10));
+                writer.onOutput(classResult.getId(), testId, new DefaultTestOutputEvent(TestOutputEvent.Destination.StdOut, "output of test " + j + "\n"));
+            }
+            results.add(classResult);
+        }
+        writer.close();
+        resultsProvider = new InMemoryTestResultsProvider(results, outputStore);
+        report = new DefaultTestReport(new SequentialBuildOperationExecutor());
+        report.generateReport(resultsProvider, reportDir);
+    }
+
+    @Setup(Level.Invocation)
+    public void changeOneClass() {
+        results.get(0).setStartTime(++startTime);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        resultsProvider.close();
+        GFileUtils.deleteDirectory(tmpDir);
+    }
+
+    @Benchmark
+    public void generateAllPages() {
+        new File(reportDir, ReportFingerprints.FILE_NAME).delete();
+        report.generateReport(resultsProvider, reportDir);
+    }
+
+    @Benchmark
+    public void generateChangedPages() {
+        report.generateReport(resultsProvider, reportDir);
+    }
+
+    private static class SequentialBuildOperationExecutor implements BuildOperationExecutor {
+        private final BuildOperationContext context = new BuildOperationContext() {
+            @Override
+            public void failed(@Nullable Throwable failure) {
+            }
+
+            @Override
+            public void setResult(Object result) {
+            }
+
+            @Override
+            public void setStatus(String status) {
+            }
+        };
+
+        @Override
+        public void run(RunnableBuildOperation buildOperation) {
+            buildOperation.run(context);
+        }
+
+        @Override
+        public <T> T call(CallableBuildOperation<T> buildOperation) {
+            return buildOperation.call(context);
+        }
+
+        @Override
+        public <O extends RunnableBuildOperation> void runAll(Action<BuildOperationQueue<O>> schedulingAction) {
+            schedulingAction.execute(new BuildOperationQueue<O>() {
+                @Override
+                public void add(O operation) {
+                    operation.run(context);
+                }
+
+                @Override
+                public void cancel() {
+                }
+
+                @Override
+                public void waitForCompletion() {
+                }
+
+                @Override
+                public void setLogLocation(String logLocation) {
+                }
+            });
+        }
+
+        @Override
+        public <O extends BuildOperation> void runAll(BuildOperationWorker<O> worker, Action<BuildOperationQueue<O>> schedulingAction) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public BuildOperationRef getCurrentOperation() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -22,6 +22,8 @@ import org.gradle.api.GradleException;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
 import org.gradle.internal.FileUtils;
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.hash.Hasher;
 import org.gradle.internal.operations.BuildOperationContext;
 import org.gradle.internal.operations.BuildOperationExecutor;
 import org.gradle.internal.operations.BuildOperationQueue;
@@ -30,15 +32,19 @@ import org.gradle.internal.operations.BuildOperationDescriptor;
 import org.gradle.internal.time.Time;
 import org.gradle.internal.time.Timer;
 import org.gradle.util.GFileUtils;
+import org.gradle.util.GradleVersion;
 
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.FilenameFilter;
+import java.util.Set;
 
 public class Binary2JUnitXmlReportGenerator {
 
     private final File testResultsDir;
     private final TestResultsProvider testResultsProvider;
+    private final TestOutputAssociation outputAssociation;
+    private final String hostName;
     private JUnitXmlResultWriter xmlWriter;
     private final BuildOperationExecutor buildOperationExecutor;
     private final static Logger LOG = Logging.getLogger(Binary2JUnitXmlReportGenerator.class);
@@ -46,6 +52,8 @@ public class Binary2JUnitXmlReportGenerator {
     public Binary2JUnitXmlReportGenerator(File testResultsDir, TestResultsProvider testResultsProvider, TestOutputAssociation outputAssociation, BuildOperationExecutor buildOperationExecutor, String hostName) {
         this.testResultsDir = testResultsDir;
         this.testResultsProvider = testResultsProvider;
+        this.outputAssociation = outputAssociation;
+        this.hostName = hostName;
         this.xmlWriter = new JUnitXmlResultWriter(hostName, testResultsProvider, outputAssociation);
         this.buildOperationExecutor = buildOperationExecutor;
     }
@@ -53,13 +61,35 @@ public class Binary2JUnitXmlReportGenerator {
     public void generate() {
         Timer clock = Time.startTimer();
 
+        final ReportFingerprints fingerprints = ReportFingerprints.load(testResultsDir, getFormatKey());
+
+        buildOperationExecutor.runAll(new Action<BuildOperationQueue<JUnitXmlReportFileGenerator>>() {
+            @Override
+            public void execute(final BuildOperationQueue<JUnitXmlReportFileGenerator> queue) {
+                testResultsProvider.visitClasses(new Action<TestClassResult>() {
+                    public void execute(final TestClassResult result) {
+                        String fileName = getReportFileName(result);
+                        final File reportFile = new File(testResultsDir, fileName);
+                        Hasher hasher = ReportFingerprints.newHasher();
+                        ReportFingerprints.putResult(hasher, result);
+                        HashCode fingerprint = hasher.hash();
+                        if (!fingerprints.isUpToDate(fileName, fingerprint, reportFile)) {
+                            queue.add(new JUnitXmlReportFileGenerator(result, reportFile, xmlWriter));
+                        }
+                        fingerprints.record(fileName, fingerprint);
+                    }
+                });
+            }
+        });
+
         buildOperationExecutor.run(new RunnableBuildOperation() {
             @Override
             public void run(BuildOperationContext context) {
+                final Set<String> reportFileNames = fingerprints.getRecordedPaths();
                 File[] oldXmlFiles = testResultsDir.listFiles(new FilenameFilter() {
                     @Override
                     public boolean accept(File dir, String name) {
-                        return name.startsWith("TEST") && name.endsWith(".xml");
+                        return name.startsWith("TEST") && name.endsWith(".xml") && !reportFileNames.contains(name);
                     }
                 });
 
@@ -74,21 +104,15 @@ public class Binary2JUnitXmlReportGenerator {
             }
         });
 
-        buildOperationExecutor.runAll(new Action<BuildOperationQueue<JUnitXmlReportFileGenerator>>() {
-            @Override
-            public void execute(final BuildOperationQueue<JUnitXmlReportFileGenerator> queue) {
-                testResultsProvider.visitClasses(new Action<TestClassResult>() {
-                    public void execute(final TestClassResult result) {
-                        final File reportFile = new File(testResultsDir, getReportFileName(result));
-                        queue.add(new JUnitXmlReportFileGenerator(result, reportFile, xmlWriter));
-                    }
-                });
-            }
-        });
+        fingerprints.store();
 
         LOG.info("Finished generating test XML results ({}) into: {}", clock.getElapsed(), testResultsDir);
     }
 
+    private String getFormatKey() {
+        return "junit-xml " + GradleVersion.current().getVersion() + " " + outputAssociation + " " + hostName;
+    }
+
     private String getReportFileName(TestClassResult result) {
         return "TEST-" + FileUtils.toSafeFileName(result.getClassName()) + ".xml";
     }
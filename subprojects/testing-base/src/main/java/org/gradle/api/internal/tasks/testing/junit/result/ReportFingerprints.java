@@ -0,0 +1,192 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.tasks.testing.junit.result;
+
+import com.google.common.collect.ImmutableSet;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.hash.Hasher;
+import org.gradle.internal.hash.Hashing;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Remembers the fingerprint of the test results that each file of a report was generated from, so that files whose results did not change
+ * since the report was last generated can be kept instead of being generated again.
+ *
+ * <p>The fingerprints are stored in a file in the report directory. They are only used when that file was written by a report with the same
+ * format key, which should identify everything other than the test results that affects the content of the files.</p>
+ *
+ * <p>Fingerprints can be recorded concurrently.</p>
+ */
+public class ReportFingerprints {
+    public static final String FILE_NAME = ".report-fingerprints";
+
+    private final File fingerprintsFile;
+    private final String formatKey;
+    private final Map<String, HashCode> previous;
+    private final SortedMap<String, HashCode> current = new TreeMap<String, HashCode>();
+
+    private ReportFingerprints(File fingerprintsFile, String formatKey, Map<String, HashCode> previous) {
+        this.fingerprintsFile = fingerprintsFile;
+        this.formatKey = formatKey;
+        this.previous = previous;
+    }
+
+    /**
+     * Loads the fingerprints previously stored in the given report directory. The stored fingerprints are removed, so that they are not trusted
+     * when the report is only partially generated.
+     */
+    public static ReportFingerprints load(File reportDir, String formatKey) {
+        File fingerprintsFile = new File(reportDir, FILE_NAME);
+        Map<String, HashCode> previous = Collections.emptyMap();
+        if (fingerprintsFile.isFile()) {
+            try {
+                previous = read(fingerprintsFile, formatKey);
+            } catch (Exception e) {
+                // Ignore, and generate everything again
+                previous = Collections.emptyMap();
+            }
+            fingerprintsFile.delete();
+        }
+        return new ReportFingerprints(fingerprintsFile, formatKey, previous);
+    }
+
+    private static Map<String, HashCode> read(File fingerprintsFile, String formatKey) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(fingerprintsFile), "UTF-8"));
+        try {
+            if (!formatKey.equals(reader.readLine())) {
+                return Collections.emptyMap();
+            }
+            Map<String, HashCode> fingerprints = new HashMap<String, HashCode>();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int separator = line.lastIndexOf(' ');
+                fingerprints.put(line.substring(0, separator), HashCode.fromString(line.substring(separator + 1)));
+            }
+            return fingerprints;
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Returns true when the given report file exists and was generated from results with the given fingerprint.
+     */
+    public boolean isUpToDate(String path, HashCode fingerprint, File reportFile) {
+        return fingerprint.equals(previous.get(path)) && reportFile.isFile();
+    }
+
+    /**
+     * Records that the report file with the given path is generated from results with the given fingerprint.
+     */
+    public void record(String path, HashCode fingerprint) {
+        synchronized (current) {
+            current.put(path, fingerprint);
+        }
+    }
+
+    /**
+     * Returns the paths of all recorded report files.
+     */
+    public Set<String> getRecordedPaths() {
+        synchronized (current) {
+            return ImmutableSet.copyOf(current.keySet());
+        }
+    }
+
+    /**
+     * Stores the recorded fingerprints in the report directory, ordered by path.
+     */
+    public void store() {
+        try {
+            Writer writer = new OutputStreamWriter(new FileOutputStream(fingerprintsFile), "UTF-8");
+            try {
+                writer.write(formatKey);
+                writer.write('\n');
+                synchronized (current) {
+                    for (Map.Entry<String, HashCode> entry : current.entrySet()) {
+                        writer.write(entry.getKey());
+                        writer.write(' ');
+                        writer.write(entry.getValue().toString());
+                        writer.write('\n');
+                    }
+                }
+            } finally {
+                writer.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Creates a hasher for the fingerprint of some test results.
+     */
+    public static Hasher newHasher() {
+        return Hashing.md5().newHasher();
+    }
+
+    /**
+     * Adds the given class results to a fingerprint. The fingerprint does not include the output of the tests, which is assumed not to change
+     * unless the start time of the class changes as well.
+     */
+    public static void putResult(Hasher hasher, TestClassResult result) {
+        hasher.putLong(result.getId());
+        hasher.putString(result.getClassName());
+        hasher.putString(result.getClassDisplayName());
+        hasher.putLong(result.getStartTime());
+        hasher.putInt(result.getResults().size());
+        for (TestMethodResult methodResult : result.getResults()) {
+            hasher.putLong(methodResult.getId());
+            hasher.putString(methodResult.getName());
+            hasher.putString(methodResult.getDisplayName());
+            putNullableString(hasher, methodResult.getResultType() == null ? null : methodResult.getResultType().name());
+            hasher.putLong(methodResult.getDuration());
+            hasher.putLong(methodResult.getEndTime());
+            hasher.putInt(methodResult.getFailures().size());
+            for (TestFailure failure : methodResult.getFailures()) {
+                putNullableString(hasher, failure.getExceptionType());
+                putNullableString(hasher, failure.getMessage());
+                putNullableString(hasher, failure.getStackTrace());
+            }
+        }
+    }
+
+    private static void putNullableString(Hasher hasher, String value) {
+        if (value == null) {
+            hasher.putBoolean(false);
+        } else {
+            hasher.putBoolean(true);
+            hasher.putString(value);
+        }
+    }
+}
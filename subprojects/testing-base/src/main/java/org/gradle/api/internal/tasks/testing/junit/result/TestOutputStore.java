@@ -18,27 +18,43 @@ package org.gradle.api.internal.tasks.testing.junit.result;
 
 import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
-import com.google.common.collect.ImmutableMap;
+import org.apache.commons.io.IOUtils;
 import org.gradle.api.UncheckedIOException;
 import org.gradle.api.tasks.testing.TestOutputEvent;
+import org.gradle.internal.io.MappedBuffers;
 import org.gradle.internal.io.RandomAccessFileInputStream;
 import org.gradle.internal.UncheckedException;
+import org.gradle.internal.os.OperatingSystem;
 import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
 import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
 public class TestOutputStore {
 
+    private static final long DEFAULT_SEGMENT_SIZE = 1L << 30;
+
     private final File resultsDir;
     private final Charset messageStorageCharset;
+    private final long segmentSize;
 
     public TestOutputStore(File resultsDir) {
+        this(resultsDir, DEFAULT_SEGMENT_SIZE);
+    }
+
+    TestOutputStore(File resultsDir, long segmentSize) {
         this.resultsDir = resultsDir;
         this.messageStorageCharset = Charset.forName("UTF-8");
+        this.segmentSize = segmentSize;
     }
 
     File getOutputsFile() {
@@ -49,30 +65,20 @@ public class TestOutputStore {
         return new File(resultsDir, getOutputsFile().getName() + ".idx");
     }
 
-    private static class Region {
-        long start;
-        long stop;
-
-        private Region() {
-            start = -1;
-            stop = -1;
-        }
-
-        private Region(long start, long stop) {
-            this.start = start;
-            this.stop = stop;
-        }
-    }
+    // Regions are stored as groups of 4 longs: stdout start, stdout stop, stderr start and stderr stop.
+    // The start and stop are the offsets of the first and last event of the stream, or -1 when there is no such event.
+    private static final int REGION_SIZE = 4;
+    private static final int STDOUT_START = 0;
+    private static final int STDERR_START = 2;
 
-    private static class TestCaseRegion {
-        Region stdOutRegion = new Region();
-        Region stdErrRegion = new Region();
+    private static long[] newRegion() {
+        return new long[]{-1, -1, -1, -1};
     }
 
     public class Writer implements Closeable {
         private final KryoBackedEncoder output;
 
-        private final Map<Long, Map<Long, TestCaseRegion>> index = new LinkedHashMap<Long, Map<Long, TestCaseRegion>>();
+        private final Map<Long, Map<Long, long[]>> index = new LinkedHashMap<Long, Map<Long, long[]>>();
 
         public Writer() {
             try {
@@ -111,25 +117,24 @@ public class TestOutputStore {
         }
 
         private void mark(long classId, long testId, boolean isStdout) {
-            if (!index.containsKey(classId)) {
-                index.put(classId, new LinkedHashMap<Long, TestCaseRegion>());
+            Map<Long, long[]> testCaseRegions = index.get(classId);
+            if (testCaseRegions == null) {
+                testCaseRegions = new LinkedHashMap<Long, long[]>();
+                index.put(classId, testCaseRegions);
             }
 
-            Map<Long, TestCaseRegion> testCaseRegions = index.get(classId);
-            if (!testCaseRegions.containsKey(testId)) {
-                TestCaseRegion region = new TestCaseRegion();
+            long[] region = testCaseRegions.get(testId);
+            if (region == null) {
+                region = newRegion();
                 testCaseRegions.put(testId, region);
             }
 
-            TestCaseRegion region = testCaseRegions.get(testId);
-
-            Region streamRegion = isStdout ? region.stdOutRegion : region.stdErrRegion;
-
-            int total = output.getWritePosition();
-            if (streamRegion.start < 0) {
-                streamRegion.start = total;
+            int offset = isStdout ? STDOUT_START : STDERR_START;
+            long total = output.getWritePosition();
+            if (region[offset] < 0) {
+                region[offset] = total;
             }
-            streamRegion.stop = total;
+            region[offset + 1] = total;
         }
 
         private void writeIndex() {
@@ -144,21 +149,20 @@ public class TestOutputStore {
             try {
                 indexOutput.writeInt(index.size(), true);
 
-                for (Map.Entry<Long, Map<Long, TestCaseRegion>> classEntry : index.entrySet()) {
+                for (Map.Entry<Long, Map<Long, long[]>> classEntry : index.entrySet()) {
                     Long classId = classEntry.getKey();
-                    Map<Long, TestCaseRegion> regions = classEntry.getValue();
+                    Map<Long, long[]> regions = classEntry.getValue();
 
                     indexOutput.writeLong(classId, true);
                     indexOutput.writeInt(regions.size(), true);
 
-                    for (Map.Entry<Long, TestCaseRegion> testCaseEntry : regions.entrySet()) {
+                    for (Map.Entry<Long, long[]> testCaseEntry : regions.entrySet()) {
                         long id = testCaseEntry.getKey();
-                        TestCaseRegion region = testCaseEntry.getValue();
+                        long[] region = testCaseEntry.getValue();
                         indexOutput.writeLong(id, true);
-                        indexOutput.writeLong(region.stdOutRegion.start);
-                        indexOutput.writeLong(region.stdOutRegion.stop);
-                        indexOutput.writeLong(region.stdErrRegion.start);
-                        indexOutput.writeLong(region.stdErrRegion.stop);
+                        for (long offset : region) {
+                            indexOutput.writeLong(offset);
+                        }
                     }
                 }
             } finally {
@@ -171,55 +175,89 @@ public class TestOutputStore {
         return new Writer();
     }
 
-    private static class Index {
-        final ImmutableMap<Long, Index> children;
-        final Region stdOut;
-        final Region stdErr;
-
-        private Index(Region stdOut, Region stdErr) {
-            this.children = ImmutableMap.of();
-            this.stdOut = stdOut;
-            this.stdErr = stdErr;
-        }
-
-        private Index(ImmutableMap<Long, Index> children, Region stdOut, Region stdErr) {
-            this.children = children;
-            this.stdOut = stdOut;
-            this.stdErr = stdErr;
+    /**
+     * The regions of a single test class, with the test ids sorted so they can be binary searched.
+     */
+    private static class ClassIndex {
+        final long[] classRegion = newRegion();
+        final long[] testIds;
+        final long[] testRegions;
+
+        ClassIndex(long[] testIds, long[] testRegions) {
+            this.testIds = testIds;
+            this.testRegions = testRegions;
+            for (int i = 0; i < testIds.length; i++) {
+                for (int stream = STDOUT_START; stream <= STDERR_START; stream += 2) {
+                    long start = testRegions[i * REGION_SIZE + stream];
+                    long stop = testRegions[i * REGION_SIZE + stream + 1];
+                    if (start >= 0 && (classRegion[stream] < 0 || start < classRegion[stream])) {
+                        classRegion[stream] = start;
+                    }
+                    if (stop > classRegion[stream + 1]) {
+                        classRegion[stream + 1] = stop;
+                    }
+                }
+            }
         }
-    }
-
-    private static class IndexBuilder {
-        final Region stdOut = new Region();
-        final Region stdErr = new Region();
 
-        private final ImmutableMap.Builder<Long, Index> children = ImmutableMap.builder();
-
-        void add(long key, Index index) {
-            if (stdOut.start < 0) {
-                stdOut.start = index.stdOut.start;
+        static ClassIndex read(Input input) {
+            int numEntries = input.readInt(true);
+            long[] testIds = new long[numEntries];
+            long[] testRegions = new long[numEntries * REGION_SIZE];
+            boolean sorted = true;
+            for (int i = 0; i < numEntries; ++i) {
+                testIds[i] = input.readLong(true);
+                for (int j = 0; j < REGION_SIZE; j++) {
+                    testRegions[i * REGION_SIZE + j] = input.readLong();
+                }
+                sorted &= i == 0 || testIds[i - 1] < testIds[i];
             }
-            if (stdErr.start < 0) {
-                stdErr.start = index.stdErr.start;
+            if (!sorted) {
+                return sort(testIds, testRegions);
             }
-            if (index.stdOut.stop > stdOut.stop) {
-                stdOut.stop = index.stdOut.stop;
+            return new ClassIndex(testIds, testRegions);
+        }
+
+        private static ClassIndex sort(final long[] testIds, long[] testRegions) {
+            Integer[] order = new Integer[testIds.length];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
             }
-            if (index.stdErr.stop > stdErr.stop) {
-                stdErr.stop = index.stdErr.stop;
+            Arrays.sort(order, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer o1, Integer o2) {
+                    return Long.compare(testIds[o1], testIds[o2]);
+                }
+            });
+            long[] sortedIds = new long[testIds.length];
+            long[] sortedRegions = new long[testRegions.length];
+            for (int i = 0; i < order.length; i++) {
+                sortedIds[i] = testIds[order[i]];
+                System.arraycopy(testRegions, order[i] * REGION_SIZE, sortedRegions, i * REGION_SIZE, REGION_SIZE);
             }
-
-            children.put(key, index);
+            return new ClassIndex(sortedIds, sortedRegions);
         }
 
-        Index build() {
-            return new Index(children.build(), stdOut, stdErr);
+        /**
+         * Returns the start offset into the returned array of the region for the given test, or -1 if there is no output for the test.
+         */
+        int testRegionOffset(long testId) {
+            int pos = Arrays.binarySearch(testIds, testId);
+            return pos < 0 ? -1 : pos * REGION_SIZE;
         }
     }
 
+    /**
+     * Reads the output of tests.
+     *
+     * <p>The index is held in primitive arrays, and the outputs file is memory mapped, so that reading the output of a test does not need a system call.
+     * The mapping is released when the reader is closed, so the reader must not be closed while output is being read.
+     * On Windows a mapped file cannot be deleted until the mapping is released, so the outputs file is read using a {@link RandomAccessFile} instead.
+     */
     public class Reader implements Closeable {
-        private final Index index;
+        private final Map<Long, ClassIndex> index;
         private final RandomAccessFile dataFile;
+        private MappedByteBuffer[] segments;
 
         public Reader() {
             File indexFile = getIndexFile();
@@ -237,36 +275,29 @@ public class TestOutputStore {
                     throw new UncheckedIOException(e);
                 }
 
-                IndexBuilder rootBuilder = null;
                 try {
                     int numClasses = input.readInt(true);
-                    rootBuilder = new IndexBuilder();
+                    index = new HashMap<Long, ClassIndex>(numClasses * 2);
 
                     for (int classCounter = 0; classCounter < numClasses; ++classCounter) {
                         long classId = input.readLong(true);
-                        IndexBuilder classBuilder = new IndexBuilder();
-
-                        int numEntries = input.readInt(true);
-                        for (int entryCounter = 0; entryCounter < numEntries; ++entryCounter) {
-                            long testId = input.readLong(true);
-                            Region stdOut = new Region(input.readLong(), input.readLong());
-                            Region stdErr = new Region(input.readLong(), input.readLong());
-                            classBuilder.add(testId, new Index(stdOut, stdErr));
-                        }
-
-                        rootBuilder.add(classId, classBuilder.build());
+                        index.put(classId, ClassIndex.read(input));
                     }
                 } finally {
                     input.close();
                 }
 
-                index = rootBuilder.build();
-
                 try {
                     dataFile = new RandomAccessFile(getOutputsFile(), "r");
                 } catch (FileNotFoundException e) {
                     throw new UncheckedIOException(e);
                 }
+                try {
+                    segments = OperatingSystem.current().isWindows() ? null : map(dataFile);
+                } catch (IOException e) {
+                    IOUtils.closeQuietly(dataFile);
+                    throw new UncheckedIOException(e);
+                }
             } else { // no outputs file
                 if (indexFile.exists()) {
                     throw new IllegalStateException(String.format("Test outputs data file '%s' does not exist but the index file '%s' does", outputsFile, indexFile));
@@ -274,11 +305,30 @@ public class TestOutputStore {
 
                 index = null;
                 dataFile = null;
+                segments = null;
             }
         }
 
+        private MappedByteBuffer[] map(RandomAccessFile file) throws IOException {
+            FileChannel channel = file.getChannel();
+            long size = channel.size();
+            MappedByteBuffer[] segments = new MappedByteBuffer[(int) ((size + segmentSize - 1) / segmentSize)];
+            for (int i = 0; i < segments.length; i++) {
+                long position = i * segmentSize;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(segmentSize, size - position));
+            }
+            return segments;
+        }
+
         @Override
         public void close() throws IOException {
+            if (segments != null) {
+                MappedByteBuffer[] mapped = segments;
+                segments = null;
+                for (MappedByteBuffer segment : mapped) {
+                    MappedBuffers.release(segment);
+                }
+            }
             if (dataFile != null) {
                 dataFile.close();
             }
@@ -289,12 +339,12 @@ public class TestOutputStore {
                 return false;
             }
 
-            Index classIndex = index.children.get(classId);
+            ClassIndex classIndex = index.get(classId);
             if (classIndex == null) {
                 return false;
             } else {
-                Region region = destination == TestOutputEvent.Destination.StdOut ? classIndex.stdOut : classIndex.stdErr;
-                return region.start >= 0;
+                int offset = destination == TestOutputEvent.Destination.StdOut ? STDOUT_START : STDERR_START;
+                return classIndex.classRegion[offset] >= 0;
             }
         }
 
@@ -315,19 +365,27 @@ public class TestOutputStore {
                 return;
             }
 
-            Index targetIndex = index.children.get(classId);
-            if (targetIndex != null && testId != 0) {
-                targetIndex = targetIndex.children.get(testId);
+            ClassIndex classIndex = index.get(classId);
+            if (classIndex == null) {
+                return;
             }
 
-            if (targetIndex == null) {
-                return;
+            long[] regions = classIndex.classRegion;
+            int regionOffset = 0;
+            if (testId != 0) {
+                regions = classIndex.testRegions;
+                regionOffset = classIndex.testRegionOffset(testId);
+                if (regionOffset < 0) {
+                    return;
+                }
             }
 
             boolean stdout = destination == TestOutputEvent.Destination.StdOut;
-            Region region = stdout ? targetIndex.stdOut : targetIndex.stdErr;
+            regionOffset += stdout ? STDOUT_START : STDERR_START;
+            long start = regions[regionOffset];
+            long stop = regions[regionOffset + 1];
 
-            if (region.start < 0) {
+            if (start < 0) {
                 return;
             }
 
@@ -335,9 +393,8 @@ public class TestOutputStore {
             boolean ignoreTestLevel = !allClassOutput && testId == 0;
 
             try {
-                dataFile.seek(region.start);
-                long maxPos = region.stop - region.start;
-                KryoBackedDecoder decoder = new KryoBackedDecoder(new RandomAccessFileInputStream(dataFile));
+                long maxPos = stop - start;
+                KryoBackedDecoder decoder = new KryoBackedDecoder(openAt(start));
                 while (decoder.getReadPosition() <= maxPos) {
                     boolean readStdout = decoder.readBoolean();
                     long readClassId = decoder.readSmallLong();
@@ -381,6 +438,80 @@ public class TestOutputStore {
                 throw new UncheckedIOException(e1);
             }
         }
+
+        private InputStream openAt(long position) throws IOException {
+            if (segments == null) {
+                dataFile.seek(position);
+                return new RandomAccessFileInputStream(dataFile);
+            }
+            return new MappedInputStream(segments, segmentSize, position);
+        }
+    }
+
+    /**
+     * Reads from memory mapped segments of a file, starting at the given position. Each stream uses its own view of the segments, so that several streams can be used concurrently.
+     */
+    private static class MappedInputStream extends InputStream {
+        private final ByteBuffer[] segments;
+        private final ByteBuffer[] views;
+        private final long segmentSize;
+        private long position;
+
+        MappedInputStream(ByteBuffer[] segments, long segmentSize, long position) {
+            this.segments = segments;
+            this.segmentSize = segmentSize;
+            this.views = new ByteBuffer[segments.length];
+            this.position = position;
+        }
+
+        @Override
+        public int read() {
+            ByteBuffer segment = currentSegment();
+            if (segment == null) {
+                return -1;
+            }
+            position++;
+            return segment.get() & 0xff;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            ByteBuffer segment = currentSegment();
+            if (segment == null) {
+                return -1;
+            }
+            int count = Math.min(length, segment.remaining());
+            segment.get(bytes, offset, count);
+            position += count;
+            return count;
+        }
+
+        @Override
+        public long skip(long n) {
+            position += n;
+            return n;
+        }
+
+        private ByteBuffer currentSegment() {
+            int index = (int) (position / segmentSize);
+            if (index >= segments.length) {
+                return null;
+            }
+            ByteBuffer view = views[index];
+            if (view == null) {
+                view = segments[index].duplicate();
+                views[index] = view;
+            }
+            int offset = (int) (position % segmentSize);
+            if (offset >= view.limit()) {
+                return null;
+            }
+            view.position(offset);
+            return view;
+        }
     }
 
     // IMPORTANT: return must be closed when done with.
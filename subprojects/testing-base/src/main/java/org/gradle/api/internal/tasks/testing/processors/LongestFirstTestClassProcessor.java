@@ -0,0 +1,88 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.tasks.testing.processors;
+
+import org.gradle.api.internal.tasks.testing.TestClassProcessor;
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
+import org.gradle.api.internal.tasks.testing.TestResultProcessor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Passes test classes to its delegate ordered by the duration they took in the previous run, longest first, so that
+ * the long running classes do not end up at the tail of a parallel test run.
+ *
+ * Test classes without a previous duration are passed first, in the order they were found, as nothing is known about
+ * how long they take. The short known classes then fill up the end of the run.
+ */
+public class LongestFirstTestClassProcessor implements TestClassProcessor {
+    private final Map<String, Long> previousTestClassDurations;
+    private final TestClassProcessor delegate;
+    private final List<TestClassRunInfo> unknownTestClasses = new ArrayList<TestClassRunInfo>();
+    private final List<TestClassRunInfo> knownTestClasses = new ArrayList<TestClassRunInfo>();
+
+    public LongestFirstTestClassProcessor(Map<String, Long> previousTestClassDurations, TestClassProcessor delegate) {
+        this.previousTestClassDurations = previousTestClassDurations;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void startProcessing(TestResultProcessor resultProcessor) {
+        delegate.startProcessing(resultProcessor);
+    }
+
+    @Override
+    public void processTestClass(TestClassRunInfo testClass) {
+        if (previousTestClassDurations.isEmpty()) {
+            delegate.processTestClass(testClass);
+        } else if (previousTestClassDurations.containsKey(testClass.getTestClassName())) {
+            knownTestClasses.add(testClass);
+        } else {
+            unknownTestClasses.add(testClass);
+        }
+    }
+
+    @Override
+    public void stop() {
+        // Stable, so classes with the same duration keep the order they were found in
+        Collections.sort(knownTestClasses, new Comparator<TestClassRunInfo>() {
+            @Override
+            public int compare(TestClassRunInfo o1, TestClassRunInfo o2) {
+                long duration1 = previousTestClassDurations.get(o1.getTestClassName());
+                long duration2 = previousTestClassDurations.get(o2.getTestClassName());
+                return duration1 > duration2 ? -1 : duration1 < duration2 ? 1 : 0;
+            }
+        });
+        for (TestClassRunInfo testClass : unknownTestClasses) {
+            delegate.processTestClass(testClass);
+        }
+        for (TestClassRunInfo testClass : knownTestClasses) {
+            delegate.processTestClass(testClass);
+        }
+        delegate.stop();
+    }
+
+    @Override
+    public void stopNow() {
+        delegate.stopNow();
+    }
+}
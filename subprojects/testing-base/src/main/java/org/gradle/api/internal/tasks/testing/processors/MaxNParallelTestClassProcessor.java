@@ -27,30 +27,56 @@ import org.gradle.internal.concurrent.CompositeStoppable;
 import org.gradle.internal.dispatch.DispatchException;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Manages a set of parallel TestClassProcessors. Uses a simple round-robin algorithm to assign test classes to
- * processors.
+ * processors, unless the durations of the test classes in the previous run are known. In that case, each test class
+ * is assigned to the processor with the least estimated work, where test classes without a previous duration are
+ * estimated to take the average duration. Combined with passing the longest test classes first, this balances the
+ * work so that all processors finish at roughly the same time.
  */
 public class MaxNParallelTestClassProcessor implements TestClassProcessor {
     private final int maxProcessors;
     private final Factory<TestClassProcessor> factory;
     private final ActorFactory actorFactory;
+    private final Map<String, Long> previousTestClassDurations;
+    private final long averageTestClassDuration;
     private TestResultProcessor resultProcessor;
     private int pos;
     private List<TestClassProcessor> processors = new ArrayList<TestClassProcessor>();
     private List<TestClassProcessor> rawProcessors = new ArrayList<TestClassProcessor>();
+    private List<Long> estimatedWork = new ArrayList<Long>();
     private List<Actor> actors = new ArrayList<Actor>();
     private Actor resultProcessorActor;
     private volatile boolean stoppedNow;
 
     public MaxNParallelTestClassProcessor(int maxProcessors, Factory<TestClassProcessor> factory, ActorFactory actorFactory) {
+        this(maxProcessors, Collections.<String, Long>emptyMap(), factory, actorFactory);
+    }
+
+    public MaxNParallelTestClassProcessor(int maxProcessors, Map<String, Long> previousTestClassDurations, Factory<TestClassProcessor> factory, ActorFactory actorFactory) {
         this.maxProcessors = maxProcessors;
+        this.previousTestClassDurations = previousTestClassDurations;
+        this.averageTestClassDuration = average(previousTestClassDurations.values());
         this.factory = factory;
         this.actorFactory = actorFactory;
     }
 
+    private static long average(Collection<Long> durations) {
+        if (durations.isEmpty()) {
+            return 0;
+        }
+        long total = 0;
+        for (Long duration : durations) {
+            total += duration;
+        }
+        return total / durations.size();
+    }
+
     @Override
     public void startProcessing(TestResultProcessor resultProcessor) {
         // Create a processor that processes events in its own thread
@@ -65,6 +91,7 @@ public class MaxNParallelTestClassProcessor implements TestClassProcessor {
         }
 
         TestClassProcessor processor;
+        long estimatedDuration = estimateDuration(testClass);
         if (processors.size() < maxProcessors) {
             processor = factory.create();
             rawProcessors.add(processor);
@@ -72,14 +99,29 @@ public class MaxNParallelTestClassProcessor implements TestClassProcessor {
             processor = actor.getProxy(TestClassProcessor.class);
             actors.add(actor);
             processors.add(processor);
+            estimatedWork.add(estimatedDuration);
             processor.startProcessing(resultProcessor);
-        } else {
+        } else if (previousTestClassDurations.isEmpty()) {
             processor = processors.get(pos);
             pos = (pos + 1) % processors.size();
+        } else {
+            int leastBusy = 0;
+            for (int i = 1; i < estimatedWork.size(); i++) {
+                if (estimatedWork.get(i) < estimatedWork.get(leastBusy)) {
+                    leastBusy = i;
+                }
+            }
+            processor = processors.get(leastBusy);
+            estimatedWork.set(leastBusy, estimatedWork.get(leastBusy) + estimatedDuration);
         }
         processor.processTestClass(testClass);
     }
 
+    private long estimateDuration(TestClassRunInfo testClass) {
+        Long duration = previousTestClassDurations.get(testClass.getTestClassName());
+        return duration == null ? averageTestClassDuration : duration;
+    }
+
     @Override
     public void stop() {
         try {
@@ -17,12 +17,15 @@ package org.gradle.api.internal.tasks.testing.report;
 
 import org.gradle.api.Action;
 import org.gradle.api.GradleException;
+import org.gradle.api.internal.tasks.testing.junit.result.ReportFingerprints;
 import org.gradle.api.internal.tasks.testing.junit.result.TestClassResult;
 import org.gradle.api.internal.tasks.testing.junit.result.TestFailure;
 import org.gradle.api.internal.tasks.testing.junit.result.TestMethodResult;
 import org.gradle.api.internal.tasks.testing.junit.result.TestResultsProvider;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.hash.Hasher;
 import org.gradle.internal.operations.BuildOperationContext;
 import org.gradle.internal.operations.BuildOperationExecutor;
 import org.gradle.internal.operations.BuildOperationQueue;
@@ -34,10 +37,15 @@ import org.gradle.reporting.HtmlReportBuilder;
 import org.gradle.reporting.HtmlReportRenderer;
 import org.gradle.reporting.ReportRenderer;
 import org.gradle.util.GFileUtils;
+import org.gradle.util.GradleVersion;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static org.gradle.api.tasks.testing.TestResult.ResultType.SKIPPED;
 
@@ -54,16 +62,23 @@ public class DefaultTestReport implements TestReporter {
         LOG.info("Generating HTML test report...");
 
         Timer clock = Time.startTimer();
-        AllTestResults model = loadModelFromProvider(resultsProvider);
-        generateFiles(model, resultsProvider, reportDir);
+        Map<String, Hasher> classFingerprints = new HashMap<String, Hasher>();
+        AllTestResults model = loadModelFromProvider(resultsProvider, classFingerprints);
+        generateFiles(model, classFingerprints, resultsProvider, reportDir);
         LOG.info("Finished generating test html results ({}) into: {}", clock.getElapsed(), reportDir);
     }
 
-    private AllTestResults loadModelFromProvider(TestResultsProvider resultsProvider) {
+    private AllTestResults loadModelFromProvider(TestResultsProvider resultsProvider, final Map<String, Hasher> classFingerprints) {
         final AllTestResults model = new AllTestResults();
         resultsProvider.visitClasses(new Action<TestClassResult>() {
             public void execute(TestClassResult classResult) {
-                model.addTestClass(classResult.getId(), classResult.getClassName(), classResult.getClassDisplayName());
+                ClassTestResults classTestResults = model.addTestClass(classResult.getId(), classResult.getClassName(), classResult.getClassDisplayName());
+                Hasher fingerprint = classFingerprints.get(classTestResults.getBaseUrl());
+                if (fingerprint == null) {
+                    fingerprint = ReportFingerprints.newHasher();
+                    classFingerprints.put(classTestResults.getBaseUrl(), fingerprint);
+                }
+                ReportFingerprints.putResult(fingerprint, classResult);
                 List<TestMethodResult> collectedResults = classResult.getResults();
                 for (TestMethodResult collectedResult : collectedResults) {
                     final TestResult testResult = model.addTest(classResult.getId(), classResult.getClassName(), classResult.getClassDisplayName(), collectedResult.getName(), collectedResult.getDisplayName(), collectedResult.getDuration());
@@ -81,22 +96,10 @@ public class DefaultTestReport implements TestReporter {
         return model;
     }
 
-    private void generateFiles(AllTestResults model, final TestResultsProvider resultsProvider, final File reportDir) {
+    private void generateFiles(final AllTestResults model, final Map<String, Hasher> classFingerprints, final TestResultsProvider resultsProvider, final File reportDir) {
         try {
             HtmlReportRenderer htmlRenderer = new HtmlReportRenderer();
-            buildOperationExecutor.run(new RunnableBuildOperation() {
-                @Override
-                public void run(BuildOperationContext context) {
-                    // Clean-up old HTML report directories
-                    GFileUtils.deleteQuietly(new File(reportDir, "packages"));
-                    GFileUtils.deleteQuietly(new File(reportDir, "classes"));
-                }
-
-                @Override
-                public BuildOperationDescriptor.Builder description() {
-                    return BuildOperationDescriptor.displayName("Delete old HTML results");
-                }
-            });
+            final ReportFingerprints fingerprints = ReportFingerprints.load(reportDir, "html " + GradleVersion.current().getVersion());
 
             htmlRenderer.render(model, new ReportRenderer<AllTestResults, HtmlReportBuilder>() {
                 @Override
@@ -108,18 +111,59 @@ public class DefaultTestReport implements TestReporter {
                             for (PackageTestResults packageResults : model.getPackages()) {
                                 queue.add(generator(packageResults.getBaseUrl(), packageResults, new PackagePageRenderer(), output));
                                 for (ClassTestResults classResults : packageResults.getClasses()) {
-                                    queue.add(generator(classResults.getBaseUrl(), classResults, new ClassPageRenderer(resultsProvider), output));
+                                    // Class pages only depend on the results of the class, so are only generated when those have changed
+                                    String url = classResults.getBaseUrl();
+                                    HashCode fingerprint = classFingerprints.get(url).hash();
+                                    if (!fingerprints.isUpToDate(url, fingerprint, new File(reportDir, url))) {
+                                        queue.add(generator(url, classResults, new ClassPageRenderer(resultsProvider), output));
+                                    }
+                                    fingerprints.record(url, fingerprint);
                                 }
                             }
                         }
                     });
                 }
             }, reportDir);
+
+            buildOperationExecutor.run(new RunnableBuildOperation() {
+                @Override
+                public void run(BuildOperationContext context) {
+                    deleteOldPages(fingerprints.getRecordedPaths(), new File(reportDir, "classes"));
+                    deleteOldPages(getPackagePages(model), new File(reportDir, "packages"));
+                }
+
+                @Override
+                public BuildOperationDescriptor.Builder description() {
+                    return BuildOperationDescriptor.displayName("Delete old HTML results");
+                }
+            });
+
+            fingerprints.store();
         } catch (Exception e) {
             throw new GradleException(String.format("Could not generate test report to '%s'.", reportDir), e);
         }
     }
 
+    private static Set<String> getPackagePages(AllTestResults model) {
+        Set<String> pages = new HashSet<String>();
+        for (PackageTestResults packageResults : model.getPackages()) {
+            pages.add(packageResults.getBaseUrl());
+        }
+        return pages;
+    }
+
+    private static void deleteOldPages(Set<String> pages, File pagesDir) {
+        File[] files = pagesDir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (!pages.contains(pagesDir.getName() + "/" + file.getName())) {
+                GFileUtils.deleteQuietly(file);
+            }
+        }
+    }
+
     public static <T extends CompositeTestResults> HtmlReportFileGenerator<T> generator(String fileUrl, T results, PageRenderer<T> renderer, HtmlReportBuilder output) {
         return new HtmlReportFileGenerator<T>(fileUrl, results, renderer, output);
     }
@@ -0,0 +1,256 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import org.gradle.api.internal.tasks.testing.TestCompleteEvent;
+import org.gradle.api.internal.tasks.testing.TestDescriptorInternal;
+import org.gradle.api.internal.tasks.testing.TestResultProcessor;
+import org.gradle.api.internal.tasks.testing.TestStartEvent;
+import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory;
+import org.gradle.api.tasks.testing.TestOutputEvent;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.remote.ObjectConnection;
+import org.gradle.process.internal.ExecException;
+import org.gradle.process.internal.worker.WorkerProcess;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * A test worker process which runs the tests of several test tasks, one after the other. Each use of the worker is a session,
+ * which ends when the worker completes the test suite it started for the session.
+ */
+public class PooledTestWorker implements Stoppable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PooledTestWorker.class);
+
+    private final Object key;
+    private final String maxHeapSize;
+    private final WorkerProcess workerProcess;
+    private final SessionDispatch sessionDispatch = new SessionDispatch();
+    private RemoteTestClassProcessor remoteProcessor;
+    private volatile boolean processStopped;
+    private volatile boolean stopRequested;
+    private volatile ExecException failure;
+    // Guarded by the lock of the pool
+    private int uses;
+
+    PooledTestWorker(Object key, String maxHeapSize, WorkerProcess workerProcess) {
+        this.key = key;
+        this.maxHeapSize = maxHeapSize;
+        this.workerProcess = workerProcess;
+    }
+
+    void start() {
+        workerProcess.start();
+
+        ObjectConnection connection = workerProcess.getConnection();
+        connection.useParameterSerializers(TestEventSerializer.create());
+        connection.addIncoming(TestResultProcessor.class, sessionDispatch);
+        remoteProcessor = connection.addOutgoing(RemoteTestClassProcessor.class);
+        connection.connect();
+    }
+
+    /**
+     * Blocks until the worker process stops, for whatever reason, and ends the current session, if any.
+     */
+    void waitForProcessToStop() {
+        try {
+            workerProcess.waitForStop();
+        } catch (ExecException e) {
+            failure = e;
+        } finally {
+            processStopped = true;
+            Session session = sessionDispatch.current;
+            if (session != null) {
+                session.ended.countDown();
+            }
+        }
+    }
+
+    Object getKey() {
+        return key;
+    }
+
+    String getMaxHeapSize() {
+        return maxHeapSize;
+    }
+
+    /**
+     * Returns the number of times the worker was acquired from the pool. Only called while holding the lock of the pool.
+     */
+    int getUses() {
+        return uses;
+    }
+
+    /**
+     * Records that the worker was acquired from the pool. Only called while holding the lock of the pool.
+     */
+    void acquired() {
+        uses++;
+    }
+
+    /**
+     * Whether the worker process is running, has not been asked to stop and has completed all its sessions.
+     */
+    boolean isIdle() {
+        return !processStopped && !stopRequested && sessionDispatch.current == null;
+    }
+
+    /**
+     * Starts a session which reports the results of its tests to the given processor.
+     *
+     * @return the processor to send the test classes of the session to.
+     */
+    public RemoteTestClassProcessor startSession(WorkerTestClassProcessorFactory factory, TestResultProcessor resultProcessor) {
+        Session session = new Session(resultProcessor);
+        sessionDispatch.current = session;
+        if (processStopped) {
+            session.ended.countDown();
+        }
+        remoteProcessor.startProcessing(factory);
+        return remoteProcessor;
+    }
+
+    /**
+     * Waits for the worker to complete the current session, after it has been asked to stop processing.
+     *
+     * @throws ExecException when the worker process failed during the session.
+     */
+    public void awaitSessionCompletion() {
+        Session session = sessionDispatch.current;
+        try {
+            session.ended.await();
+        } catch (InterruptedException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+        sessionDispatch.current = null;
+        if (!session.completed) {
+            if (failure != null) {
+                throw failure;
+            }
+            throw new ExecException("Test worker process stopped before it finished executing tests.");
+        }
+    }
+
+    /**
+     * Kills the worker process. The worker is not idle from then on, so the pool discards it when it is released.
+     */
+    public void stopNow() {
+        stopRequested = true;
+        workerProcess.stopNow();
+    }
+
+    @Override
+    public void stop() {
+        if (!processStopped) {
+            remoteProcessor.stopWorker();
+        }
+        try {
+            workerProcess.waitForStop();
+        } catch (ExecException e) {
+            LOGGER.debug("Test worker process did not stop cleanly.", e);
+        }
+    }
+
+    private static class SessionDispatch implements TestResultProcessor {
+        private volatile Session current;
+
+        @Override
+        public void started(TestDescriptorInternal test, TestStartEvent event) {
+            Session session = current;
+            if (session != null) {
+                session.started(test, event);
+            }
+        }
+
+        @Override
+        public void completed(Object testId, TestCompleteEvent event) {
+            Session session = current;
+            if (session != null) {
+                session.completed(testId, event);
+            }
+        }
+
+        @Override
+        public void output(Object testId, TestOutputEvent event) {
+            Session session = current;
+            if (session != null) {
+                session.output(testId, event);
+            }
+        }
+
+        @Override
+        public void failure(Object testId, Throwable result) {
+            Session session = current;
+            if (session != null) {
+                session.failure(testId, result);
+            }
+        }
+    }
+
+    private static class Session implements TestResultProcessor {
+        private final TestResultProcessor resultProcessor;
+        private final CountDownLatch ended = new CountDownLatch(1);
+        private Object suiteId;
+        private volatile boolean completed;
+
+        Session(TestResultProcessor resultProcessor) {
+            this.resultProcessor = resultProcessor;
+        }
+
+        @Override
+        public void started(TestDescriptorInternal test, TestStartEvent event) {
+            if (completed) {
+                return;
+            }
+            if (suiteId == null && event.getParentId() == null) {
+                // The worker starts a suite for each session, which contains all other tests of the session
+                suiteId = test.getId();
+            }
+            resultProcessor.started(test, event);
+        }
+
+        @Override
+        public void completed(Object testId, TestCompleteEvent event) {
+            if (completed) {
+                return;
+            }
+            resultProcessor.completed(testId, event);
+            if (testId.equals(suiteId)) {
+                completed = true;
+                ended.countDown();
+            }
+        }
+
+        @Override
+        public void output(Object testId, TestOutputEvent event) {
+            if (!completed) {
+                resultProcessor.output(testId, event);
+            }
+        }
+
+        @Override
+        public void failure(Object testId, Throwable result) {
+            if (!completed) {
+                resultProcessor.failure(testId, result);
+            }
+        }
+    }
+}
@@ -17,6 +17,7 @@
 package org.gradle.api.internal.tasks.testing.worker;
 
 import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
+import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory;
 
 /**
  * @see org.gradle.api.internal.tasks.testing.TestClassProcessor
@@ -27,6 +28,11 @@ public interface RemoteTestClassProcessor {
      */
     void startProcessing();
 
+    /**
+     * Starts a session which processes test classes using the given factory, in a worker which can be reused for multiple sessions. Does not block.
+     */
+    void startProcessing(WorkerTestClassProcessorFactory factory);
+
     /**
      * Does not block.
      */
@@ -36,4 +42,9 @@ public interface RemoteTestClassProcessor {
      * Does not block.
      */
     void stop();
+
+    /**
+     * Stops a reusable worker after its current session. Does not block.
+     */
+    void stopWorker();
 }
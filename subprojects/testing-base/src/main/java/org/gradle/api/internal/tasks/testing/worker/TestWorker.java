@@ -32,7 +32,6 @@ import org.gradle.internal.id.IdGenerator;
 import org.gradle.internal.id.LongIdGenerator;
 import org.gradle.internal.remote.ObjectConnection;
 import org.gradle.internal.service.DefaultServiceRegistry;
-import org.gradle.internal.service.ServiceRegistry;
 import org.gradle.internal.time.Clock;
 import org.gradle.process.internal.worker.WorkerProcessContext;
 import org.slf4j.Logger;
@@ -40,31 +39,61 @@ import org.slf4j.LoggerFactory;
 
 import java.io.Serializable;
 import java.security.AccessControlException;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.TimeZone;
 import java.util.concurrent.CountDownLatch;
 
+/**
+ * Runs test classes in a worker process. A reusable worker runs a session for each test task it is used by, and resets the
+ * JVM wide state the tests may have changed, like system properties, at the end of each session. A single use worker
+ * stops at the end of its first session.
+ */
 public class TestWorker implements Action<WorkerProcessContext>, RemoteTestClassProcessor, Serializable {
     private static final Logger LOGGER = LoggerFactory.getLogger(TestWorker.class);
     public static final String WORKER_ID_SYS_PROPERTY = "org.gradle.test.worker";
     private final WorkerTestClassProcessorFactory factory;
+    private final boolean reusable;
     private CountDownLatch completed;
+    private WorkerProcessContext workerProcessContext;
     private TestClassProcessor processor;
     private TestResultProcessor resultProcessor;
+    private DefaultServiceRegistry testServices;
+    private IdGenerator<Object> idGenerator;
+    private SecurityManager securityManager;
+    private Properties systemProperties;
+    private Locale defaultLocale;
+    private TimeZone defaultTimeZone;
 
     public TestWorker(WorkerTestClassProcessorFactory factory) {
+        this(factory, false);
+    }
+
+    public TestWorker(WorkerTestClassProcessorFactory factory, boolean reusable) {
         this.factory = factory;
+        this.reusable = reusable;
     }
 
     @Override
     public void execute(final WorkerProcessContext workerProcessContext) {
         LOGGER.info("{} started executing tests.", workerProcessContext.getDisplayName());
 
-        SecurityManager securityManager = System.getSecurityManager();
+        this.workerProcessContext = workerProcessContext;
+        securityManager = System.getSecurityManager();
         completed = new CountDownLatch(1);
+        // Shared by all sessions, so that the ids of a reused worker stay unique
+        idGenerator = new CompositeIdGenerator(workerProcessContext.getWorkerId(), new LongIdGenerator());
 
         System.setProperty(WORKER_ID_SYS_PROPERTY, workerProcessContext.getWorkerId().toString());
+        if (reusable) {
+            systemProperties = copyOf(System.getProperties());
+            defaultLocale = Locale.getDefault();
+            defaultTimeZone = TimeZone.getDefault();
+        } else {
+            createProcessor(factory);
+        }
 
-        DefaultServiceRegistry testServices = new TestFrameworkServiceRegistry(workerProcessContext);
-        startReceivingTests(workerProcessContext, testServices);
+        startReceivingTests(workerProcessContext);
 
         try {
             try {
@@ -74,39 +103,49 @@ public class TestWorker implements Action<WorkerProcessContext>, RemoteTestClass
             }
         } finally {
             LOGGER.info("{} finished executing tests.", workerProcessContext.getDisplayName());
-
-            if (System.getSecurityManager() != securityManager) {
-                try {
-                    // Reset security manager the tests seem to have installed
-                    System.setSecurityManager(securityManager);
-                } catch (SecurityException e) {
-                    LOGGER.warn("Unable to reset SecurityManager. Continuing anyway...", e);
-                }
+            resetSecurityManager();
+            if (testServices != null) {
+                testServices.close();
             }
-            testServices.close();
         }
     }
 
-    private void startReceivingTests(WorkerProcessContext workerProcessContext, ServiceRegistry testServices) {
+    private void startReceivingTests(WorkerProcessContext workerProcessContext) {
+        ObjectConnection serverConnection = workerProcessContext.getServerConnection();
+        serverConnection.useParameterSerializers(TestEventSerializer.create());
+        this.resultProcessor = serverConnection.addOutgoing(TestResultProcessor.class);
+        serverConnection.addIncoming(RemoteTestClassProcessor.class, this);
+        serverConnection.connect();
+    }
+
+    private void createProcessor(WorkerTestClassProcessorFactory factory) {
+        testServices = new TestFrameworkServiceRegistry(workerProcessContext, idGenerator);
         TestClassProcessor targetProcessor = factory.create(testServices);
-        IdGenerator<Object> idGenerator = testServices.get(IdGenerator.class);
 
         targetProcessor = new WorkerTestClassProcessor(targetProcessor, idGenerator.generateId(),
                 workerProcessContext.getDisplayName(), testServices.get(Clock.class));
         ContextClassLoaderProxy<TestClassProcessor> proxy = new ContextClassLoaderProxy<TestClassProcessor>(
                 TestClassProcessor.class, targetProcessor, workerProcessContext.getApplicationClassLoader());
         processor = proxy.getSource();
-
-        ObjectConnection serverConnection = workerProcessContext.getServerConnection();
-        serverConnection.useParameterSerializers(TestEventSerializer.create());
-        this.resultProcessor = serverConnection.addOutgoing(TestResultProcessor.class);
-        serverConnection.addIncoming(RemoteTestClassProcessor.class, this);
-        serverConnection.connect();
     }
 
     @Override
     public void startProcessing() {
+        startProcessing(factory);
+    }
+
+    @Override
+    public void startProcessing(WorkerTestClassProcessorFactory factory) {
         Thread.currentThread().setName("Test worker");
+        if (processor == null) {
+            try {
+                createProcessor(factory);
+            } catch (RuntimeException e) {
+                // The session cannot run, so stop the worker instead of leaving the client waiting for the end of the session
+                completed.countDown();
+                throw e;
+            }
+        }
         processor.startProcessing(resultProcessor);
     }
 
@@ -130,18 +169,56 @@ public class TestWorker implements Action<WorkerProcessContext>, RemoteTestClass
         try {
             processor.stop();
         } finally {
-            completed.countDown();
             // Clean the interrupted status
             // because some test class processors do work here, e.g. JUnitPlatform
             Thread.interrupted();
+            if (reusable) {
+                resetState();
+            } else {
+                completed.countDown();
+            }
         }
     }
 
+    @Override
+    public void stopWorker() {
+        completed.countDown();
+    }
+
+    private void resetState() {
+        processor = null;
+        testServices.close();
+        testServices = null;
+        resetSecurityManager();
+        System.setProperties(copyOf(systemProperties));
+        Locale.setDefault(defaultLocale);
+        TimeZone.setDefault(defaultTimeZone);
+    }
+
+    private void resetSecurityManager() {
+        if (System.getSecurityManager() != securityManager) {
+            try {
+                // Reset security manager the tests seem to have installed
+                System.setSecurityManager(securityManager);
+            } catch (SecurityException e) {
+                LOGGER.warn("Unable to reset SecurityManager. Continuing anyway...", e);
+            }
+        }
+    }
+
+    private static Properties copyOf(Properties properties) {
+        Properties copy = new Properties();
+        copy.putAll(properties);
+        return copy;
+    }
+
     private static class TestFrameworkServiceRegistry extends DefaultServiceRegistry {
         private final WorkerProcessContext workerProcessContext;
+        private final IdGenerator<Object> idGenerator;
 
-        public TestFrameworkServiceRegistry(WorkerProcessContext workerProcessContext) {
+        public TestFrameworkServiceRegistry(WorkerProcessContext workerProcessContext, IdGenerator<Object> idGenerator) {
             this.workerProcessContext = workerProcessContext;
+            this.idGenerator = idGenerator;
         }
 
         protected Clock createClock() {
@@ -149,7 +226,7 @@ public class TestWorker implements Action<WorkerProcessContext>, RemoteTestClass
         }
 
         protected IdGenerator<Object> createIdGenerator() {
-            return new CompositeIdGenerator(workerProcessContext.getWorkerId(), new LongIdGenerator());
+            return idGenerator;
         }
 
         protected ExecutorFactory createExecutorFactory() {
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import org.gradle.internal.classloader.ClasspathHasher;
+import org.gradle.internal.classpath.DefaultClassPath;
+import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.ManagedExecutor;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.process.internal.JavaExecHandleBuilder;
+import org.gradle.process.internal.health.memory.MemoryAmount;
+import org.gradle.process.internal.health.memory.MemoryHolder;
+import org.gradle.process.internal.health.memory.MemoryManager;
+import org.gradle.process.internal.worker.WorkerProcessBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Keeps test worker processes alive after a test task has finished with them, so that later test tasks, in the same build
+ * or in later builds run by the same daemon, can use them instead of starting new processes.
+ *
+ * A worker is only used for a test task which would start an identical process: the same Java command, JVM arguments, environment
+ * and log level, and an application classpath with the same content. The workers reset the state the tests may have changed between
+ * sessions, but the classes loaded from the application classpath, and their static state, are kept.
+ *
+ * Enabled by setting the system property {@value #REUSE_TEST_WORKERS_PROPERTY} to {@code true}.
+ */
+public class TestWorkerProcessPool implements Stoppable {
+    public static final String REUSE_TEST_WORKERS_PROPERTY = "org.gradle.unsafe.reuse-test-workers";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TestWorkerProcessPool.class);
+
+    private final Object lock = new Object();
+    private final List<PooledTestWorker> allWorkers = new ArrayList<PooledTestWorker>();
+    private final List<PooledTestWorker> idleWorkers = new ArrayList<PooledTestWorker>();
+    private final ClasspathHasher classpathHasher;
+    private final ManagedExecutor executor;
+    private final MemoryManager memoryManager;
+    private final MemoryHolder idleWorkerExpiration = new IdleWorkerExpiration();
+
+    public TestWorkerProcessPool(ClasspathHasher classpathHasher, ExecutorFactory executorFactory, MemoryManager memoryManager) {
+        this.classpathHasher = classpathHasher;
+        this.executor = executorFactory.create("Test worker process monitor");
+        this.memoryManager = memoryManager;
+        memoryManager.addMemoryHolder(idleWorkerExpiration);
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.getBoolean(REUSE_TEST_WORKERS_PROPERTY);
+    }
+
+    /**
+     * Returns an idle worker which matches the given configuration, or starts a new one. The worker action of the builder has to be a reusable {@link TestWorker}.
+     */
+    public PooledTestWorker acquire(WorkerProcessBuilder builder) {
+        Object key = keyFor(builder);
+        synchronized (lock) {
+            Iterator<PooledTestWorker> iterator = idleWorkers.iterator();
+            while (iterator.hasNext()) {
+                PooledTestWorker candidate = iterator.next();
+                if (!candidate.isIdle()) {
+                    iterator.remove();
+                    allWorkers.remove(candidate);
+                } else if (candidate.getKey().equals(key)) {
+                    iterator.remove();
+                    candidate.acquired();
+                    LOGGER.debug("Reusing test worker process.");
+                    return candidate;
+                }
+            }
+        }
+
+        // Allow workers to be started concurrently
+        final PooledTestWorker worker = new PooledTestWorker(key, builder.getJavaCommand().getMaxHeapSize(), builder.build());
+        worker.start();
+        synchronized (lock) {
+            worker.acquired();
+            allWorkers.add(worker);
+        }
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                worker.waitForProcessToStop();
+                synchronized (lock) {
+                    idleWorkers.remove(worker);
+                    allWorkers.remove(worker);
+                }
+            }
+        });
+        return worker;
+    }
+
+    /**
+     * Makes a worker available to other test tasks, once the session of the current test task is complete. Discards the worker when
+     * its process has stopped or has been asked to stop.
+     */
+    public void release(PooledTestWorker worker) {
+        synchronized (lock) {
+            if (worker.isIdle() && allWorkers.contains(worker)) {
+                idleWorkers.add(worker);
+            } else {
+                allWorkers.remove(worker);
+            }
+        }
+    }
+
+    private Object keyFor(WorkerProcessBuilder builder) {
+        JavaExecHandleBuilder javaCommand = builder.getJavaCommand();
+        Map<String, String> environment = new TreeMap<String, String>();
+        for (Map.Entry<String, Object> entry : javaCommand.getEnvironment().entrySet()) {
+            environment.put(entry.getKey(), String.valueOf(entry.getValue()));
+        }
+        List<File> applicationClasspath = new ArrayList<File>(builder.getApplicationClasspath());
+        return Arrays.asList(
+            javaCommand.getExecutable(),
+            javaCommand.getWorkingDir(),
+            javaCommand.getAllJvmArgs(),
+            environment,
+            builder.getBaseName(),
+            builder.getLogLevel(),
+            builder.getSharedPackages(),
+            applicationClasspath,
+            classpathHasher.hash(DefaultClassPath.of(applicationClasspath))
+        );
+    }
+
+    @Override
+    public void stop() {
+        List<PooledTestWorker> busyWorkers;
+        List<PooledTestWorker> workersToStop;
+        synchronized (lock) {
+            busyWorkers = new ArrayList<PooledTestWorker>(allWorkers);
+            busyWorkers.removeAll(idleWorkers);
+            workersToStop = new ArrayList<PooledTestWorker>(idleWorkers);
+            allWorkers.clear();
+            idleWorkers.clear();
+            memoryManager.removeMemoryHolder(idleWorkerExpiration);
+        }
+        for (PooledTestWorker worker : busyWorkers) {
+            worker.stopNow();
+        }
+        CompositeStoppable.stoppable(workersToStop).add(executor).stop();
+    }
+
+    private class IdleWorkerExpiration implements MemoryHolder {
+        @Override
+        public long attemptToRelease(long memoryAmountBytes) throws IllegalArgumentException {
+            if (memoryAmountBytes < 0) {
+                throw new IllegalArgumentException("Negative memory amount");
+            }
+            List<PooledTestWorker> toStop = new ArrayList<PooledTestWorker>();
+            long releasedBytes = 0;
+            synchronized (lock) {
+                List<PooledTestWorker> candidates = new ArrayList<PooledTestWorker>(idleWorkers);
+                Collections.sort(candidates, new Comparator<PooledTestWorker>() {
+                    @Override
+                    public int compare(PooledTestWorker o1, PooledTestWorker o2) {
+                        return o1.getUses() - o2.getUses();
+                    }
+                });
+                for (PooledTestWorker candidate : candidates) {
+                    if (releasedBytes >= memoryAmountBytes) {
+                        break;
+                    }
+                    toStop.add(candidate);
+                    // Use the maximum heap size as an approximation, as test workers do not report their memory usage
+                    releasedBytes += Math.max(0, MemoryAmount.parseNotation(candidate.getMaxHeapSize()));
+                }
+                idleWorkers.removeAll(toStop);
+                allWorkers.removeAll(toStop);
+            }
+            if (!toStop.isEmpty()) {
+                LOGGER.debug("Stopping {} idle test worker process(es) to free system memory.", toStop.size());
+                CompositeStoppable.stoppable(toStop).stop();
+            }
+            return releasedBytes;
+        }
+    }
+}
@@ -81,6 +81,43 @@ class Binary2JUnitXmlReportGeneratorSpec extends Specification {
         numThreads << [ 1, 4 ]
     }
 
+    def "only writes results of classes whose results have changed and removes results of classes which did not run"() {
+        generator = generatorWithMaxThreads(1)
+
+        def fooTest = new TestClassResult(1, 'FooTest', 100)
+            .add(new TestMethodResult(1, "foo"))
+        def barTest = new TestClassResult(2, 'BarTest', 100)
+            .add(new TestMethodResult(2, "bar"))
+        def changedBarTest = new TestClassResult(2, 'BarTest', 200)
+            .add(new TestMethodResult(2, "bar"))
+        def bazTest = new TestClassResult(3, 'BazTest', 100)
+            .add(new TestMethodResult(3, "baz"))
+
+        def results = [fooTest, barTest, bazTest]
+        resultsProvider.visitClasses(_) >> { Action action ->
+            results.each { action.execute(it) }
+        }
+        generator.xmlWriter.write(_, _) >> { TestClassResult result, OutputStream output ->
+            output.write(result.startTime.toString().bytes)
+        }
+        generator.generate()
+
+        when:
+        results = [fooTest, changedBarTest]
+        generator.generate()
+
+        then:
+        0 * generator.xmlWriter.write(fooTest, _)
+        1 * generator.xmlWriter.write(changedBarTest, _) >> { TestClassResult result, OutputStream output ->
+            output.write(result.startTime.toString().bytes)
+        }
+
+        and:
+        temp.testDirectory.file("TEST-FooTest.xml").text == "100"
+        temp.testDirectory.file("TEST-BarTest.xml").text == "200"
+        !temp.testDirectory.file("TEST-BazTest.xml").exists()
+    }
+
     def "adds context information to the failure if something goes wrong"() {
         generator = generatorWithMaxThreads(1)
 
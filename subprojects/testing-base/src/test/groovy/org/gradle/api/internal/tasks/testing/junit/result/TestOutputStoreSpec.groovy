@@ -15,6 +15,7 @@
  */
 package org.gradle.api.internal.tasks.testing.junit.result
 
+import org.gradle.api.UncheckedIOException
 import org.gradle.api.internal.tasks.testing.DefaultTestOutputEvent
 import org.gradle.api.internal.tasks.testing.TestDescriptorInternal
 import org.gradle.api.tasks.testing.TestOutputEvent
@@ -145,6 +146,48 @@ class TestOutputStoreSpec extends WorkspaceTest {
         reader.close()
     }
 
+    def "reads output which spans several mapped segments of the outputs file"() {
+        given:
+        def store = new TestOutputStore(testDirectory, 7)
+
+        when:
+        def writer = store.writer()
+        writer.onOutput(1, 3, output(StdOut, "[out-1-long-enough-to-span-segments]"))
+        writer.onOutput(1, 2, output(StdOut, "[out-2]"))
+        writer.onOutput(2, 1, output(StdErr, "[out-3]"))
+        writer.onOutput(1, 3, output(StdOut, "[out-4]"))
+        writer.close()
+        def reader = store.reader()
+
+        then:
+        collectAllOutput(reader, 1, StdOut) == "[out-1-long-enough-to-span-segments][out-2][out-4]"
+        collectOutput(reader, 1, 3, StdOut) == "[out-1-long-enough-to-span-segments][out-4]"
+        collectOutput(reader, 1, 2, StdOut) == "[out-2]"
+        collectOutput(reader, 2, 1, StdErr) == "[out-3]"
+
+        cleanup:
+        reader.close()
+    }
+
+    def "releases the outputs file when the reader is closed"() {
+        given:
+        def writer = output.writer()
+        writer.onOutput(1, 1, output(StdOut, "[out-1]"))
+        writer.close()
+        def reader = output.reader()
+        collectAllOutput(reader, 1, StdOut)
+
+        when:
+        reader.close()
+        collectAllOutput(reader, 1, StdOut)
+
+        then:
+        thrown(UncheckedIOException)
+
+        and:
+        output.outputsFile.delete()
+    }
+
     def "can open empty reader"() {
         // neither file
         expect:
@@ -16,6 +16,7 @@
 
 package org.gradle.api.internal.tasks.testing.processors
 
+import org.gradle.api.internal.tasks.testing.DefaultTestClassRunInfo
 import org.gradle.api.internal.tasks.testing.TestClassProcessor
 import org.gradle.api.internal.tasks.testing.TestClassRunInfo
 import org.gradle.api.internal.tasks.testing.TestResultProcessor
@@ -168,6 +169,38 @@ class MaxNParallelTestClassProcessorTest extends Specification {
         1 * asyncProcessor2.processTestClass(test)
     }
 
+    def "assigns test classes to the processor with the least estimated work when previous durations are known"() {
+        def processor = new MaxNParallelTestClassProcessor(2, [Slow: 100L, Medium: 60L, Fast: 30L, Faster: 10L], factory, actorFactory)
+        def slow = new DefaultTestClassRunInfo("Slow")
+        def medium = new DefaultTestClassRunInfo("Medium")
+        def fast = new DefaultTestClassRunInfo("Fast")
+        def faster = new DefaultTestClassRunInfo("Faster")
+        def unknown = new DefaultTestClassRunInfo("Unknown")
+        TestClassProcessor asyncProcessor1 = Mock()
+        TestClassProcessor asyncProcessor2 = Mock()
+        Actor actor1 = Mock()
+        Actor actor2 = Mock()
+
+        given:
+        actorFactory.createActor(resultProcessor) >> resultProcessorActor
+        resultProcessorActor.getProxy(TestResultProcessor) >> asyncResultProcessor
+        factory.create() >>> [Mock(TestClassProcessor), Mock(TestClassProcessor)]
+        actorFactory.createActor(_ as TestClassProcessor) >>> [actor1, actor2]
+        actor1.getProxy(TestClassProcessor) >> asyncProcessor1
+        actor2.getProxy(TestClassProcessor) >> asyncProcessor2
+        processor.startProcessing(resultProcessor)
+
+        when:
+        [slow, medium, fast, faster, unknown].each { processor.processTestClass(it) }
+
+        then:
+        1 * asyncProcessor1.processTestClass(slow)
+        1 * asyncProcessor2.processTestClass(medium)
+        1 * asyncProcessor2.processTestClass(fast)
+        1 * asyncProcessor2.processTestClass(faster)
+        1 * asyncProcessor1.processTestClass(unknown)
+    }
+
     def "stopNow propagates to factory created processors"() {
         TestClassRunInfo test = Mock()
         TestClassProcessor processor1 = Mock()
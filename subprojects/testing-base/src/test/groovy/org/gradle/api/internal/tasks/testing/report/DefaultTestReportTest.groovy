@@ -466,6 +466,33 @@ class DefaultTestReportTest extends Specification {
         numThreads << [ 1, 4 ]
     }
 
+    def "only generates class pages whose results have changed and removes pages of classes without results"() {
+        given:
+        report = reportWithMaxThreads(1)
+        report.generateReport(buildResults {
+            testClassResult("org.gradle.Unchanged") { testcase("test") { duration = 100 } }
+            testClassResult("org.gradle.Changed") { testcase("test") { duration = 100 } }
+            testClassResult("org.gradle.removed.Removed") { testcase("test") { duration = 100 } }
+        }, reportDir)
+        def unchangedPage = reportDir.file('classes/org.gradle.Unchanged.html')
+        def changedPage = reportDir.file('classes/org.gradle.Changed.html')
+        unchangedPage.text = "kept"
+        changedPage.text = "replaced"
+
+        when:
+        report.generateReport(buildResults {
+            testClassResult("org.gradle.Unchanged") { testcase("test") { duration = 100 } }
+            testClassResult("org.gradle.Changed") { testcase("test") { duration = 200 } }
+        }, reportDir)
+
+        then:
+        unchangedPage.text == "kept"
+        results(changedPage).testDetails('test').assertDuration("0.200s")
+        !reportDir.file('classes/org.gradle.removed.Removed.html').exists()
+        !reportDir.file('packages/org.gradle.removed.html').exists()
+        results(indexFile).assertHasTests(2)
+    }
+
     def reportsOnClassesInDefaultPackage() {
         given:
         report = reportWithMaxThreads(1)
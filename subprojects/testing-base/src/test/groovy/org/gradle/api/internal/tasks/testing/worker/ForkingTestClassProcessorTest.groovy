@@ -123,6 +123,36 @@ class ForkingTestClassProcessorTest extends Specification {
         notThrown(ExecException)
     }
 
+    def "takes worker process from the pool and returns it at the end of the session"() {
+        def workerPool = Mock(TestWorkerProcessPool)
+        def pooledWorker = Mock(PooledTestWorker)
+        def remoteProcessor = Mock(RemoteTestClassProcessor)
+        def processorFactory = Mock(WorkerTestClassProcessorFactory)
+        def test = Mock(TestClassRunInfo)
+        ForkingTestClassProcessor processor = new ForkingTestClassProcessor(Stub(WorkerLeaseRegistry.WorkerLease), workerProcessFactory, processorFactory, options, [new File("classpath.jar")], Mock(Action), Stub(ModuleRegistry), documentationRegistry, workerPool)
+
+        when:
+        processor.processTestClass(test)
+
+        then:
+        1 * workerPool.acquire(workerProcessBuilder) >> pooledWorker
+        1 * pooledWorker.startSession(processorFactory, _) >> remoteProcessor
+        1 * remoteProcessor.processTestClass(test)
+        0 * workerProcessBuilder.build()
+
+        when:
+        processor.stop()
+
+        then:
+        1 * remoteProcessor.stop()
+
+        then:
+        1 * pooledWorker.awaitSessionCompletion()
+
+        then:
+        1 * workerPool.release(pooledWorker)
+    }
+
     def module(String module) {
         return Stub(Module) {
             _ * getImplementationClasspath() >> {
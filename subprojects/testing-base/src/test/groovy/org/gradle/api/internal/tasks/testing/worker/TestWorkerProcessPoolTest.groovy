@@ -0,0 +1,173 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.tasks.testing.worker
+
+import org.gradle.api.internal.tasks.testing.TestResultProcessor
+import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory
+import org.gradle.internal.classloader.ClasspathHasher
+import org.gradle.internal.concurrent.ExecutorFactory
+import org.gradle.internal.concurrent.ManagedExecutor
+import org.gradle.internal.hash.HashCode
+import org.gradle.internal.remote.ObjectConnection
+import org.gradle.process.internal.JavaExecHandleBuilder
+import org.gradle.process.internal.health.memory.MemoryHolder
+import org.gradle.process.internal.health.memory.MemoryManager
+import org.gradle.process.internal.worker.WorkerProcess
+import org.gradle.process.internal.worker.WorkerProcessBuilder
+import spock.lang.Specification
+
+class TestWorkerProcessPoolTest extends Specification {
+    def classpathHash = HashCode.fromInt(1)
+    def classpathHasher = Stub(ClasspathHasher) {
+        hash(_) >> { classpathHash }
+    }
+    def executor = Mock(ManagedExecutor)
+    def executorFactory = Stub(ExecutorFactory) {
+        create(_) >> executor
+    }
+    def memoryManager = Mock(MemoryManager)
+    def pool = new TestWorkerProcessPool(classpathHasher, executorFactory, memoryManager)
+
+    def "reuses an idle worker which was started with the same configuration"() {
+        def worker = pool.acquire(builder(["-Xmx64m"]))
+
+        when:
+        pool.release(worker)
+
+        then:
+        pool.acquire(builder(["-Xmx64m"])) == worker
+    }
+
+    def "starts a new worker when no idle worker was started with the same configuration"() {
+        def worker = pool.acquire(builder(["-Xmx64m"]))
+        pool.release(worker)
+
+        expect:
+        pool.acquire(builder(["-Xmx128m"])) != worker
+    }
+
+    def "starts a new worker when the content of the classpath has changed"() {
+        def worker = pool.acquire(builder([]))
+        pool.release(worker)
+
+        when:
+        classpathHash = HashCode.fromInt(2)
+
+        then:
+        pool.acquire(builder([])) != worker
+    }
+
+    def "does not reuse a worker which has not completed its session"() {
+        def worker = pool.acquire(builder([]))
+        worker.startSession(Stub(WorkerTestClassProcessorFactory), Stub(TestResultProcessor))
+
+        when:
+        pool.release(worker)
+
+        then:
+        pool.acquire(builder([])) != worker
+    }
+
+    def "does not reuse a worker whose process has stopped"() {
+        Runnable monitor = null
+        executor.execute(_) >> { Runnable runnable -> monitor = monitor ?: runnable }
+        def worker = pool.acquire(builder([]))
+        pool.release(worker)
+
+        when:
+        monitor.run()
+
+        then:
+        pool.acquire(builder([])) != worker
+    }
+
+    def "does not reuse a worker which was stopped before it was released"() {
+        def process = workerProcess()
+        def worker = pool.acquire(builder([], process))
+
+        when:
+        worker.stopNow()
+        pool.release(worker)
+
+        then:
+        1 * process.stopNow()
+        pool.acquire(builder([])) != worker
+    }
+
+    def "stops idle workers when memory needs to be released"() {
+        MemoryHolder memoryHolder = null
+        memoryManager = Mock(MemoryManager) {
+            1 * addMemoryHolder(_) >> { MemoryHolder holder -> memoryHolder = holder }
+        }
+        pool = new TestWorkerProcessPool(classpathHasher, executorFactory, memoryManager)
+        def process = workerProcess()
+        def worker = pool.acquire(builder([], process))
+        pool.acquire(builder([]))
+        pool.release(worker)
+
+        when:
+        def released = memoryHolder.attemptToRelease(10)
+
+        then:
+        released == 64 * 1024 * 1024
+        1 * process.waitForStop()
+
+        and:
+        pool.acquire(builder([])) != worker
+    }
+
+    def "stops idle workers and kills busy workers when stopped"() {
+        def idleProcess = workerProcess()
+        def busyProcess = workerProcess()
+        pool.release(pool.acquire(builder([], idleProcess)))
+        pool.acquire(builder([], busyProcess))
+
+        when:
+        pool.stop()
+
+        then:
+        1 * idleProcess.waitForStop()
+        1 * busyProcess.stopNow()
+        1 * executor.stop()
+        1 * memoryManager.removeMemoryHolder(_)
+    }
+
+    def workerProcess() {
+        return Mock(WorkerProcess) {
+            _ * getConnection() >> Stub(ObjectConnection) {
+                addOutgoing(_) >> Stub(RemoteTestClassProcessor)
+            }
+        }
+    }
+
+    def builder(List<String> jvmArgs, WorkerProcess process = workerProcess()) {
+        def javaCommand = Stub(JavaExecHandleBuilder) {
+            getExecutable() >> "java"
+            getWorkingDir() >> new File("working-dir")
+            getAllJvmArgs() >> jvmArgs
+            getEnvironment() >> [:]
+            getMaxHeapSize() >> "64m"
+        }
+        return Stub(WorkerProcessBuilder) {
+            getJavaCommand() >> javaCommand
+            getApplicationClasspath() >> ([new File("classpath.jar")] as Set)
+            getSharedPackages() >> ([] as Set)
+            build() >> process
+        }
+    }
+}
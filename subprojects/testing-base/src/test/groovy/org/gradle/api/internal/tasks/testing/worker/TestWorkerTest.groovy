@@ -76,4 +76,45 @@ public class TestWorkerTest extends ConcurrentSpec {
         1 * processor.processTestClass(test)
         1 * processor.stop()
     }
+
+    def "reusable worker runs sessions until it is stopped and resets state between them"() {
+        def worker = new TestWorker(factory, true)
+        def otherFactory = Mock(WorkerTestClassProcessorFactory)
+        def otherProcessor = Mock(TestClassProcessor)
+        def propertyAfterFirstSession = "unset"
+        def workerIdAfterFirstSession = null
+
+        when:
+        async {
+            worker.execute(workerContext)
+        }
+
+        then:
+        1 * connection.addOutgoing(TestResultProcessor) >> resultProcessor
+        1 * connection.addIncoming(RemoteTestClassProcessor, worker)
+        1 * connection.connect() >> {
+            start {
+                worker.startProcessing(factory)
+                System.setProperty("set.by.test", "true")
+                worker.stop()
+                propertyAfterFirstSession = System.getProperty("set.by.test")
+                workerIdAfterFirstSession = System.getProperty(TestWorker.WORKER_ID_SYS_PROPERTY)
+                worker.startProcessing(otherFactory)
+                worker.processTestClass(test)
+                worker.stop()
+                worker.stopWorker()
+            }
+        }
+        1 * factory.create(_) >> processor
+        1 * processor.startProcessing(_)
+        1 * processor.stop()
+        1 * otherFactory.create(_) >> otherProcessor
+        1 * otherProcessor.startProcessing(_)
+        1 * otherProcessor.processTestClass(test)
+        1 * otherProcessor.stop()
+
+        and:
+        propertyAfterFirstSession == null
+        workerIdAfterFirstSession == '<worker-id>'
+    }
 }
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.workers.internal;
+
+import com.google.common.collect.ImmutableMap;
+import org.gradle.internal.operations.BuildOperationRef;
+import org.gradle.internal.operations.DefaultBuildOperationRef;
+import org.gradle.internal.operations.OperationIdentifier;
+import org.gradle.internal.serialize.Message;
+import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
+import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
+import org.gradle.process.internal.worker.request.Request;
+import org.gradle.process.internal.worker.request.RequestSerializers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.Map;
+
+/**
+ * Measures the round-trips per second of a worker daemon request and its result, sent using the registered serializers and using Java serialization.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.Throughput)
+@State(Scope.Thread)
+public class WorkerProtocolSerializationBenchmark {
+    private static final Map<String, String> ARGUMENT_SERIALIZERS = ImmutableMap.of(
+        SerializingActionExecutionSpec.class.getName(), WorkerProtocolSerializers.SerializingActionExecutionSpecSerializer.class.getName(),
+        DefaultWorkResult.class.getName(), WorkerProtocolSerializers.DefaultWorkResultSerializer.class.getName()
+    );
+
+    private final ClassLoader classLoader = getClass().getClassLoader();
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    private final Class<?>[] paramTypes = new Class<?>[]{WorkSpec.class};
+    private Object[] args;
+    private BuildOperationRef buildOperation;
+    private DefaultWorkResult result;
+    private RequestSerializers buildProcess;
+    private RequestSerializers workerProcess;
+
+    @Setup
+    public void setup() {
+        SerializingActionExecutionSpec spec = new SerializingActionExecutionSpec(TestAction.class, "org.gradle.workers.internal.TestAction", new File("build/tmp/worker"), new Object[]{"some/source/file.txt", new File("some/output/dir"), 12});
+        args = new Object[]{spec};
+        buildOperation = new DefaultBuildOperationRef(new OperationIdentifier(1234), new OperationIdentifier(12));
+        result = new DefaultWorkResult(true, null);
+        // One connection for the whole benchmark, as the strings are only sent once per connection
+        buildProcess = new RequestSerializers(ARGUMENT_SERIALIZERS, classLoader);
+        workerProcess = new RequestSerializers(ARGUMENT_SERIALIZERS, classLoader);
+    }
+
+    @Benchmark
+    public Object registeredSerializers() throws Exception {
+        buffer.reset();
+        KryoBackedEncoder encoder = new KryoBackedEncoder(buffer);
+        buildProcess.getRequestSerializer().write(encoder, new Request("execute", paramTypes, args, buildOperation));
+        encoder.flush();
+        Request request = workerProcess.getRequestSerializer().read(decoder());
+
+        buffer.reset();
+        encoder = new KryoBackedEncoder(buffer);
+        workerProcess.getResultSerializer().write(encoder, result);
+        encoder.flush();
+        Object received = buildProcess.getResultSerializer().read(decoder());
+        return request.getArgs().length + received.hashCode();
+    }
+
+    @Benchmark
+    public Object javaSerialization() throws Exception {
+        buffer.reset();
+        KryoBackedEncoder encoder = new KryoBackedEncoder(buffer);
+        Message.send(new Object[]{"execute", paramTypes, args, buildOperation}, encoder.getOutputStream());
+        encoder.flush();
+        Object[] request = (Object[]) Message.receive(decoder().getInputStream(), classLoader);
+
+        buffer.reset();
+        encoder = new KryoBackedEncoder(buffer);
+        Message.send(new Object[]{result}, encoder.getOutputStream());
+        encoder.flush();
+        Object[] received = (Object[]) Message.receive(decoder().getInputStream(), classLoader);
+        return request.length + received[0].hashCode();
+    }
+
+    private KryoBackedDecoder decoder() {
+        return new KryoBackedDecoder(new ByteArrayInputStream(buffer.toByteArray()));
+    }
+
+    public static class TestAction implements Runnable {
+        @Override
+        public void run() {
+        }
+    }
+}
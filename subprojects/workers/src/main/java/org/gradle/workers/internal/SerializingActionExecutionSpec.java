@@ -36,10 +36,14 @@ public class SerializingActionExecutionSpec implements ActionExecutionSpec {
     private final byte[] params;
 
     public SerializingActionExecutionSpec(Class<? extends Runnable> implementationClass, String displayName, File executionWorkingDir, Object[] params) {
+        this(implementationClass, displayName, executionWorkingDir, serialize(params));
+    }
+
+    SerializingActionExecutionSpec(Class<? extends Runnable> implementationClass, String displayName, File executionWorkingDir, byte[] serializedParams) {
         this.implementationClass = implementationClass;
         this.displayName = displayName;
         this.executionWorkingDir = executionWorkingDir;
-        this.params = serialize(params);
+        this.params = serializedParams;
     }
 
     @Override
@@ -62,7 +66,11 @@ public class SerializingActionExecutionSpec implements ActionExecutionSpec {
         return deserialize(classLoader);
     }
 
-    private byte[] serialize(Object[] params) {
+    byte[] getSerializedParams() {
+        return params;
+    }
+
+    private static byte[] serialize(Object[] params) {
         ByteArrayOutputStream bos = new ByteArrayOutputStream();
         try {
             ObjectOutputStream oos = new ObjectOutputStream(bos);
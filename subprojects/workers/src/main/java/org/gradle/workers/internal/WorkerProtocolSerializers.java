@@ -0,0 +1,136 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.workers.internal;
+
+import org.gradle.internal.Cast;
+import org.gradle.internal.serialize.Decoder;
+import org.gradle.internal.serialize.Encoder;
+import org.gradle.internal.serialize.Message;
+import org.gradle.internal.serialize.Serializer;
+import org.gradle.process.internal.worker.MultiRequestWorkerProcessBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+
+/**
+ * Serializers for the specs and results exchanged with worker daemons. Strings written by these serializers are sent only once per connection.
+ */
+public class WorkerProtocolSerializers {
+    public static void register(MultiRequestWorkerProcessBuilder<?> builder) {
+        builder.registerArgumentSerializer(SerializingActionExecutionSpec.class, SerializingActionExecutionSpecSerializer.class);
+        builder.registerArgumentSerializer(SimpleActionExecutionSpec.class, SimpleActionExecutionSpecSerializer.class);
+        builder.registerArgumentSerializer(DefaultWorkResult.class, DefaultWorkResultSerializer.class);
+    }
+
+    private static void writeFile(Encoder encoder, File file) throws Exception {
+        encoder.writeNullableString(file == null ? null : file.getPath());
+    }
+
+    private static File readFile(Decoder decoder) throws Exception {
+        String path = decoder.readNullableString();
+        return path == null ? null : new File(path);
+    }
+
+    private static void writeObject(Encoder encoder, Object value) throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        Message.send(value, outputStream);
+        encoder.writeBinary(outputStream.toByteArray());
+    }
+
+    private static Object readObject(Decoder decoder, ClassLoader classLoader) throws Exception {
+        return Message.receive(new ByteArrayInputStream(decoder.readBinary()), classLoader);
+    }
+
+    public static class SerializingActionExecutionSpecSerializer implements Serializer<SerializingActionExecutionSpec> {
+        private final ClassLoader classLoader;
+
+        public SerializingActionExecutionSpecSerializer(ClassLoader classLoader) {
+            this.classLoader = classLoader;
+        }
+
+        @Override
+        public void write(Encoder encoder, SerializingActionExecutionSpec value) throws Exception {
+            encoder.writeString(value.getImplementationClass().getName());
+            encoder.writeString(value.getDisplayName());
+            writeFile(encoder, value.getExecutionWorkingDir());
+            encoder.writeBinary(value.getSerializedParams());
+        }
+
+        @Override
+        public SerializingActionExecutionSpec read(Decoder decoder) throws Exception {
+            Class<? extends Runnable> implementationClass = Cast.uncheckedCast(Class.forName(decoder.readString(), false, classLoader));
+            String displayName = decoder.readString();
+            File executionWorkingDir = readFile(decoder);
+            return new SerializingActionExecutionSpec(implementationClass, displayName, executionWorkingDir, decoder.readBinary());
+        }
+    }
+
+    /**
+     * The parameters of these specs, such as compiler specs, are arbitrary object graphs and still use Java serialization.
+     */
+    public static class SimpleActionExecutionSpecSerializer implements Serializer<SimpleActionExecutionSpec> {
+        private final ClassLoader classLoader;
+
+        public SimpleActionExecutionSpecSerializer(ClassLoader classLoader) {
+            this.classLoader = classLoader;
+        }
+
+        @Override
+        public void write(Encoder encoder, SimpleActionExecutionSpec value) throws Exception {
+            encoder.writeString(value.getImplementationClass().getName());
+            encoder.writeString(value.getDisplayName());
+            writeFile(encoder, value.getExecutionWorkingDir());
+            writeObject(encoder, value.getParams(classLoader));
+        }
+
+        @Override
+        public SimpleActionExecutionSpec read(Decoder decoder) throws Exception {
+            Class<?> implementationClass = Class.forName(decoder.readString(), false, classLoader);
+            String displayName = decoder.readString();
+            File executionWorkingDir = readFile(decoder);
+            Object[] params = (Object[]) readObject(decoder, classLoader);
+            return new SimpleActionExecutionSpec(implementationClass, displayName, executionWorkingDir, params);
+        }
+    }
+
+    public static class DefaultWorkResultSerializer implements Serializer<DefaultWorkResult> {
+        private final ClassLoader classLoader;
+
+        public DefaultWorkResultSerializer(ClassLoader classLoader) {
+            this.classLoader = classLoader;
+        }
+
+        @Override
+        public void write(Encoder encoder, DefaultWorkResult value) throws Exception {
+            encoder.writeBoolean(value.getDidWork());
+            Throwable exception = value.getException();
+            encoder.writeBoolean(exception != null);
+            if (exception != null) {
+                writeObject(encoder, exception);
+            }
+        }
+
+        @Override
+        public DefaultWorkResult read(Decoder decoder) throws Exception {
+            boolean didWork = decoder.readBoolean();
+            Throwable exception = decoder.readBoolean() ? (Throwable) readObject(decoder, classLoader) : null;
+            return new DefaultWorkResult(didWork, exception);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.workers.internal
+
+import org.gradle.internal.serialize.SerializerSpec
+
+class WorkerProtocolSerializersTest extends SerializerSpec {
+    def classLoader = getClass().classLoader
+
+    def "serializes action specs"() {
+        def spec = new SerializingActionExecutionSpec(TestRunnable, "test action", new File("dir"), ["param", 12] as Object[])
+
+        when:
+        def result = serialize(spec, new WorkerProtocolSerializers.SerializingActionExecutionSpecSerializer(classLoader))
+
+        then:
+        result.implementationClass == TestRunnable
+        result.displayName == "test action"
+        result.executionWorkingDir == new File("dir")
+        result.getParams(classLoader) == ["param", 12] as Object[]
+    }
+
+    def "serializes simple action specs"() {
+        def spec = new SimpleActionExecutionSpec(TestRunnable, "compiler daemon", null, ["param"] as Object[])
+
+        when:
+        def result = serialize(spec, new WorkerProtocolSerializers.SimpleActionExecutionSpecSerializer(classLoader))
+
+        then:
+        result.implementationClass == TestRunnable
+        result.displayName == "compiler daemon"
+        result.executionWorkingDir == null
+        result.getParams(classLoader) == ["param"] as Object[]
+    }
+
+    def "serializes work results"() {
+        def serializer = new WorkerProtocolSerializers.DefaultWorkResultSerializer(classLoader)
+
+        when:
+        def success = usesEfficientSerialization(new DefaultWorkResult(true, null), serializer)
+        def failure = serialize(new DefaultWorkResult(false, new RuntimeException("broken")), serializer)
+
+        then:
+        success.didWork
+        success.success
+        !failure.didWork
+        failure.exception instanceof RuntimeException
+        failure.exception.message == "broken"
+    }
+
+    static class TestRunnable implements Runnable {
+        @Override
+        void run() {
+        }
+    }
+}